@@ -46,6 +46,51 @@ public class Constants {
      * from 1st January 1970).
      */
     public static final String URI_PREFERRED_RECRAWL_ON = "recrawl-on";
+    /**
+     * A hash of the fetched content of the URI. It is attached by the worker to
+     * enable the frontier to detect whether the content changed since the last
+     * crawl.
+     */
+    public static final String URI_CONTENT_HASH = "content-hash";
+    /**
+     * The time (in ms) after which the URI should be crawled again. It is
+     * estimated by the frontier based on the observed changes of the content.
+     */
+    public static final String URI_RECRAWL_INTERVAL = "recrawl-interval";
+    /**
+     * The delay (in ms) that has to be kept between two requests to the host of
+     * the URI (e.g., the crawl delay of the robots.txt file). It is attached by
+     * the worker to enable the frontier to schedule the next request to the
+     * host.
+     */
+    public static final String URI_CRAWL_DELAY = "crawl-delay";
+    /**
+     * The time (in ms) the worker needed to crawl the URI. It is attached by
+     * the worker together with {@link #URI_NUMBER_OF_TRIPLES},
+     * {@link #URI_NUMBER_OF_FOUND_URIS} and {@link #URI_CRAWLING_SUCCESSFUL} to
+     * enable the frontier to estimate the yield of the host of the URI.
+     */
+    public static final String URI_CRAWLING_DURATION = "crawling-duration";
+    /**
+     * The number of triples the worker retrieved from the URI.
+     */
+    public static final String URI_NUMBER_OF_TRIPLES = "number-of-triples";
+    /**
+     * The number of URIs the worker found while crawling the URI.
+     */
+    public static final String URI_NUMBER_OF_FOUND_URIS = "number-of-found-uris";
+    /**
+     * A boolean flag that indicates whether the crawling of the URI has been
+     * successful.
+     */
+    public static final String URI_CRAWLING_SUCCESSFUL = "crawling-successful";
+    /**
+     * A boolean flag that indicates that the host of the URI could not be
+     * reached or did not answer in time (e.g., a connection or socket timeout).
+     * It is attached by the worker to enable the frontier to back off from
+     * hosts that are not available.
+     */
+    public static final String URI_HOST_ERROR = "host-error";
 
     //////////////////////////////////////////////////
     // URIs
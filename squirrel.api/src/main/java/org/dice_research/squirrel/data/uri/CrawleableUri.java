@@ -50,6 +50,18 @@ public class CrawleableUri implements Serializable {
      * @deprecated The timestamp should be added to the {@link #data} map.
      */
     private long timestampNextCrawl;
+    /**
+     * The ID of the host in the {@link HostDictionary} of the frontier plus 1.
+     * The IDs are serialized together with the URI, i.e., a URI that comes back
+     * from a worker still carries the IDs assigned at its admission. The offset
+     * makes sure that a new URI has no ID.
+     */
+    private int hostId = 0;
+    /**
+     * The ID of the IP address in the {@link HostDictionary} of the frontier
+     * plus 1.
+     */
+    private int ipAddressId = 0;
 
 
     /**
@@ -153,6 +165,31 @@ public class CrawleableUri implements Serializable {
 
     public void setIpAddress(InetAddress ipAddress) {
         this.ipAddress = ipAddress;
+        this.ipAddressId = 0;
+    }
+
+    /**
+     * @return the ID of the host assigned by a {@link HostDictionary} or
+     *         {@link HostDictionary#UNKNOWN_ID}
+     */
+    public int getHostId() {
+        return hostId - 1;
+    }
+
+    public void setHostId(int hostId) {
+        this.hostId = hostId + 1;
+    }
+
+    /**
+     * @return the ID of the IP address assigned by a {@link HostDictionary} or
+     *         {@link HostDictionary#UNKNOWN_ID}
+     */
+    public int getIpAddressId() {
+        return ipAddressId - 1;
+    }
+
+    public void setIpAddressId(int ipAddressId) {
+        this.ipAddressId = ipAddressId + 1;
     }
 
     @Deprecated
@@ -0,0 +1,143 @@
+package org.dice_research.squirrel.data.uri;
+
+import java.net.InetAddress;
+
+/**
+ * A dictionary that maps host names and IP addresses to compact int IDs. The
+ * IDs are assigned in the order in which the hosts (or IP addresses) are seen
+ * for the first time, i.e., they start at 0 and can be used as indexes of
+ * arrays or as keys of primitive maps. Host names and IP addresses have
+ * separate ID ranges (see {@link IdDictionary}).
+ *
+ * <p>
+ * The IDs are cached in the {@link CrawleableUri} objects and are serialized
+ * together with them, i.e., the host of a URI has to be looked up only once
+ * even if the URI is sent to a worker and back. Since the IDs are only valid
+ * within the dictionary that created them, a carried ID is only used if it
+ * belongs to the host of the URI (e.g., a URI that has been handed out before
+ * a restart of the frontier gets a new ID). Entries are never removed from the
+ * dictionary.
+ * </p>
+ *
+ * <p>
+ * All methods are thread safe. Lookups of known hosts only acquire a shared
+ * lock.
+ * </p>
+ */
+public class HostDictionary {
+
+    /**
+     * The ID of URIs without host or IP address.
+     */
+    public static final int UNKNOWN_ID = -1;
+
+    private final IdDictionary<String> hosts = new IdDictionary<>();
+    private final IdDictionary<InetAddress> ipAddresses = new IdDictionary<>();
+
+    /**
+     * Returns the ID of the host of the given URI. The ID is cached in the URI.
+     *
+     * @param uri
+     *            the URI
+     * @return the ID of the host of the given URI or {@link #UNKNOWN_ID} if the
+     *         URI has no host
+     */
+    public int getHostId(CrawleableUri uri) {
+        int id = uri.getHostId();
+        if ((id == UNKNOWN_ID) || !isHostOf(id, uri.getUri().getHost())) {
+            id = getHostId(uri.getUri().getHost());
+            uri.setHostId(id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the ID of the given host. If the host is not known, yet, a new ID
+     * is assigned.
+     *
+     * @param host
+     *            the host name (the case is ignored)
+     * @return the ID of the host or {@link #UNKNOWN_ID} if the given host is
+     *         {@code null}
+     */
+    public int getHostId(String host) {
+        if (host == null) {
+            return UNKNOWN_ID;
+        }
+        return hosts.getId(host.toLowerCase());
+    }
+
+    /**
+     * Returns the ID of the IP address of the given URI. The ID is cached in the
+     * URI until its IP address is changed.
+     *
+     * @param uri
+     *            the URI
+     * @return the ID of the IP address of the given URI or {@link #UNKNOWN_ID}
+     *         if the URI has no IP address
+     */
+    public int getIpAddressId(CrawleableUri uri) {
+        int id = uri.getIpAddressId();
+        if ((id == UNKNOWN_ID) || !isIpAddressOf(id, uri.getIpAddress())) {
+            id = getIpAddressId(uri.getIpAddress());
+            uri.setIpAddressId(id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the ID of the given IP address. If the address is not known, yet,
+     * a new ID is assigned.
+     *
+     * @param ipAddress
+     *            the IP address
+     * @return the ID of the IP address or {@link #UNKNOWN_ID} if the given
+     *         address is {@code null}
+     */
+    public int getIpAddressId(InetAddress ipAddress) {
+        if (ipAddress == null) {
+            return UNKNOWN_ID;
+        }
+        return ipAddresses.getId(ipAddress);
+    }
+
+    private boolean isHostOf(int id, String host) {
+        return (host != null) && host.equalsIgnoreCase(hosts.get(id));
+    }
+
+    private boolean isIpAddressOf(int id, InetAddress ipAddress) {
+        return (ipAddress != null) && ipAddress.equals(ipAddresses.get(id));
+    }
+
+    /**
+     * @return the (lower case) host name with the given ID or {@code null} if
+     *         the ID is not known
+     */
+    public String getHost(int id) {
+        return hosts.get(id);
+    }
+
+    /**
+     * @return the IP address with the given ID or {@code null} if the ID is not
+     *         known
+     */
+    public InetAddress getIpAddress(int id) {
+        return ipAddresses.get(id);
+    }
+
+    /**
+     * @return the dictionary of the IP addresses, e.g., to share the IDs with a
+     *         queue that groups URIs by their IP address
+     */
+    public IdDictionary<InetAddress> getIpAddressIds() {
+        return ipAddresses;
+    }
+
+    public int getNumberOfHosts() {
+        return hosts.size();
+    }
+
+    public int getNumberOfIpAddresses() {
+        return ipAddresses.size();
+    }
+}
@@ -0,0 +1,106 @@
+package org.dice_research.squirrel.data.uri;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.carrotsearch.hppc.ObjectIntOpenHashMap;
+
+/**
+ * A dictionary that maps objects to compact int IDs. The IDs are assigned in
+ * the order in which the objects are seen for the first time, i.e., they start
+ * at 0 and can be used as indexes of arrays or as keys of primitive maps.
+ * Entries are never removed from the dictionary.
+ *
+ * <p>
+ * All methods are thread safe. Lookups of known objects only acquire a shared
+ * lock.
+ * </p>
+ *
+ * @param <T>
+ *            the class of the objects
+ */
+public class IdDictionary<T> {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The map stores {@code ID + 1} since it returns 0 for unknown keys.
+     */
+    private final ObjectIntOpenHashMap<T> ids = new ObjectIntOpenHashMap<>();
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int size = 0;
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    public IdDictionary() {
+        ReadWriteLock lock = new ReentrantReadWriteLock();
+        readLock = lock.readLock();
+        writeLock = lock.writeLock();
+    }
+
+    /**
+     * Returns the ID of the given object. If the object is not known, yet, a new
+     * ID is assigned.
+     *
+     * @param value
+     *            the object (must not be {@code null})
+     * @return the ID of the object
+     */
+    public int getId(T value) {
+        int id;
+        readLock.lock();
+        try {
+            id = ids.get(value);
+        } finally {
+            readLock.unlock();
+        }
+        if (id > 0) {
+            return id - 1;
+        }
+        writeLock.lock();
+        try {
+            // the value might have been added in the meantime
+            id = ids.get(value);
+            if (id > 0) {
+                return id - 1;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size] = value;
+            ++size;
+            ids.put(value, size);
+            return size - 1;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return the object with the given ID or {@code null} if the ID is not
+     *         known
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int id) {
+        readLock.lock();
+        try {
+            return ((id >= 0) && (id < size)) ? (T) values[id] : null;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of objects in the dictionary
+     */
+    public int size() {
+        readLock.lock();
+        try {
+            return size;
+        } finally {
+            readLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.dice_research.squirrel.data.uri;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Computes 64-bit fingerprints of URIs. In contrast to {@link URI#hashCode()},
+ * the fingerprint is based on the 128-bit MurmurHash3 (x64 variant) of the
+ * UTF-8 bytes of the URI. Hence, collisions are very unlikely even for
+ * billions of URIs and the fingerprint is stable across JVMs.
+ */
+public class UriFingerprint {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final int SEED = 0x5a17e1;
+
+    private UriFingerprint() {
+    }
+
+    /**
+     * Returns the fingerprint of the given URI.
+     *
+     * @param uri
+     *            the URI for which the fingerprint should be computed
+     * @return the 64-bit fingerprint of the URI
+     */
+    public static long fingerprint(CrawleableUri uri) {
+        return fingerprint(uri.getUri());
+    }
+
+    /**
+     * Returns the fingerprint of the given URI.
+     *
+     * @param uri
+     *            the URI for which the fingerprint should be computed
+     * @return the 64-bit fingerprint of the URI
+     */
+    public static long fingerprint(URI uri) {
+        return fingerprint(uri.toString());
+    }
+
+    /**
+     * Returns the fingerprint of the given URI.
+     *
+     * @param uri
+     *            the String representation of the URI for which the fingerprint
+     *            should be computed
+     * @return the 64-bit fingerprint of the URI
+     */
+    public static long fingerprint(String uri) {
+        return murmurHash3(uri.getBytes(StandardCharsets.UTF_8), SEED);
+    }
+
+    /**
+     * Computes the MurmurHash3 (x64, 128 bit) of the given data and returns the
+     * first 64 bits of the hash.
+     */
+    protected static long murmurHash3(byte[] data, int seed) {
+        final int length = data.length;
+        final int numberOfBlocks = length >>> 4;
+        long h1 = seed & 0xffffffffL;
+        long h2 = seed & 0xffffffffL;
+        long k1, k2;
+        int offset;
+        for (int i = 0; i < numberOfBlocks; ++i) {
+            offset = i << 4;
+            k1 = getLong(data, offset);
+            k2 = getLong(data, offset + 8);
+
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = (h1 * 5) + 0x52dce729;
+
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = (h2 * 5) + 0x38495ab5;
+        }
+        // tail
+        offset = numberOfBlocks << 4;
+        k1 = 0;
+        k2 = 0;
+        switch (length & 15) {
+        case 15:
+            k2 ^= (data[offset + 14] & 0xffL) << 48;
+        case 14:
+            k2 ^= (data[offset + 13] & 0xffL) << 40;
+        case 13:
+            k2 ^= (data[offset + 12] & 0xffL) << 32;
+        case 12:
+            k2 ^= (data[offset + 11] & 0xffL) << 24;
+        case 11:
+            k2 ^= (data[offset + 10] & 0xffL) << 16;
+        case 10:
+            k2 ^= (data[offset + 9] & 0xffL) << 8;
+        case 9:
+            k2 ^= (data[offset + 8] & 0xffL);
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+        case 8:
+            k1 ^= (data[offset + 7] & 0xffL) << 56;
+        case 7:
+            k1 ^= (data[offset + 6] & 0xffL) << 48;
+        case 6:
+            k1 ^= (data[offset + 5] & 0xffL) << 40;
+        case 5:
+            k1 ^= (data[offset + 4] & 0xffL) << 32;
+        case 4:
+            k1 ^= (data[offset + 3] & 0xffL) << 24;
+        case 3:
+            k1 ^= (data[offset + 2] & 0xffL) << 16;
+        case 2:
+            k1 ^= (data[offset + 1] & 0xffL) << 8;
+        case 1:
+            k1 ^= (data[offset] & 0xffL);
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+        default:
+            break;
+        }
+        // finalization
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        return h1;
+    }
+
+    private static long getLong(byte[] data, int offset) {
+        return (data[offset] & 0xffL) | ((data[offset + 1] & 0xffL) << 8) | ((data[offset + 2] & 0xffL) << 16)
+                | ((data[offset + 3] & 0xffL) << 24) | ((data[offset + 4] & 0xffL) << 32)
+                | ((data[offset + 5] & 0xffL) << 40) | ((data[offset + 6] & 0xffL) << 48)
+                | ((data[offset + 7] & 0xffL) << 56);
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
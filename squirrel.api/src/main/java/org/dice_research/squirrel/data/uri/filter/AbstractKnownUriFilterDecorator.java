@@ -2,11 +2,15 @@ package org.dice_research.squirrel.data.uri.filter;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.dice_research.squirrel.data.uri.CrawleableUri;
 
-public abstract class AbstractKnownUriFilterDecorator implements KnownUriFilterDecorator {
+public abstract class AbstractKnownUriFilterDecorator implements KnownUriFilterDecorator, RecrawlInfoStore {
 
     protected KnownUriFilter decorated;
     
@@ -25,7 +29,12 @@ public abstract class AbstractKnownUriFilterDecorator implements KnownUriFilterD
 
     @Override
     public void add(CrawleableUri uri, long lastCrawlTimestamp, long nextCrawlTimestamp) {
-        decorated.add(uri, nextCrawlTimestamp);
+        decorated.add(uri, lastCrawlTimestamp, nextCrawlTimestamp);
+    }
+
+    @Override
+    public void add(List<CrawleableUri> uris, long lastCrawlTimestamp, long nextCrawlTimestamp) {
+        decorated.add(uris, lastCrawlTimestamp, nextCrawlTimestamp);
     }
 
     @Override
@@ -43,6 +52,44 @@ public abstract class AbstractKnownUriFilterDecorator implements KnownUriFilterD
         return decorated.isUriGood(uri);
     }
 
+    @Override
+    public BitSet areUrisGood(List<CrawleableUri> uris) {
+        return decorated.areUrisGood(uris);
+    }
+
+    @Override
+    public void checkUris(List<CrawleableUri> uris, Consumer<BitSet> callback) {
+        decorated.checkUris(uris, callback);
+    }
+
+    /**
+     * Forwards the request to the decorated filter if it is a
+     * {@link RecrawlInfoStore}. Otherwise, no information is available.
+     */
+    @Override
+    public List<RecrawlInfo> getRecrawlInfos(List<CrawleableUri> uris) {
+        if (decorated instanceof RecrawlInfoStore) {
+            return ((RecrawlInfoStore) decorated).getRecrawlInfos(uris);
+        }
+        return new ArrayList<>(Collections.nCopies(uris.size(), (RecrawlInfo) null));
+    }
+
+    /**
+     * Forwards the URIs to the decorated filter if it is a
+     * {@link RecrawlInfoStore}. Otherwise, the URIs are added with their next
+     * crawl timestamps.
+     */
+    @Override
+    public void addCrawledUris(List<CrawleableUri> uris, long lastCrawlTimestamp) {
+        if (decorated instanceof RecrawlInfoStore) {
+            ((RecrawlInfoStore) decorated).addCrawledUris(uris, lastCrawlTimestamp);
+        } else {
+            for (CrawleableUri uri : uris) {
+                add(uri, lastCrawlTimestamp, RecrawlInfoStore.getNextCrawlTimestamp(uri, lastCrawlTimestamp));
+            }
+        }
+    }
+
     @Override
     public KnownUriFilter getDecorated() {
         return decorated;
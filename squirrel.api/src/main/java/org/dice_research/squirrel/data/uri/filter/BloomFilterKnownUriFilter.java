@@ -0,0 +1,394 @@
+package org.dice_research.squirrel.data.uri.filter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.UriFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link KnownUriFilter} decorator that keeps a {@link ScalableBloomFilter}
+ * of the fingerprints (see {@link UriFingerprint}) of all known URIs. Since a
+ * URI that is not known is always good, a URI that is definitely not contained
+ * in the Bloom filter is accepted without asking the decorated filter. Only
+ * URIs that might be known are checked by the decorated (e.g., database-based)
+ * filter.
+ *
+ * <p>
+ * The Bloom filter is written to the {@link #checkpointFile} periodically and
+ * when the filter is closed. The checkpoint contains the number of URIs the
+ * decorated filter reported at that point in time. When the filter is opened,
+ * the checkpoint is only used if this number is still the same. Otherwise, the
+ * Bloom filter is rebuilt from the decorated filter if it implements
+ * {@link KnownUriIterable}. If neither is possible, all requests are forwarded
+ * to the decorated filter.
+ * </p>
+ *
+ * <p>
+ * The Bloom filter only contains the URIs that have been added through this
+ * instance. If the decorated filter is shared with other frontier instances
+ * (e.g., several frontiers using the same MongoDB), URIs added by the other
+ * instances would be reported as unknown and the checkpoint would be rejected
+ * whenever the other instances added URIs. Hence, the Bloom filter is disabled
+ * if the filter is marked as {@link #shared}, i.e., all requests are forwarded
+ * to the decorated filter. It should only be enabled in deployments with a
+ * single frontier.
+ * </p>
+ */
+public class BloomFilterKnownUriFilter extends AbstractKnownUriFilterDecorator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BloomFilterKnownUriFilter.class);
+
+    /**
+     * Default value for {@link #expectedNumberOfUris}.
+     */
+    public static final long DEFAULT_EXPECTED_NUMBER_OF_URIS = 1000000;
+    /**
+     * Default value for {@link #falsePositiveRate}.
+     */
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+    /**
+     * Default period (10 minutes) of the checkpoint task.
+     */
+    public static final long DEFAULT_CHECKPOINT_PERIOD = 10 * 60 * 1000;
+
+    /**
+     * The file the Bloom filter is written to. If it is {@code null}, the
+     * filter is always rebuilt when it is opened.
+     */
+    protected File checkpointFile;
+    /**
+     * The number of URIs the first stage of the Bloom filter can take.
+     */
+    protected long expectedNumberOfUris = DEFAULT_EXPECTED_NUMBER_OF_URIS;
+    /**
+     * The false positive rate of the Bloom filter.
+     */
+    protected double falsePositiveRate = DEFAULT_FALSE_POSITIVE_RATE;
+    /**
+     * The period (in ms) of the checkpoint task. A value &lt;= 0 disables the
+     * task.
+     */
+    protected long checkpointPeriod = DEFAULT_CHECKPOINT_PERIOD;
+    /**
+     * Flag indicating whether the decorated filter is shared with other
+     * frontier instances. If it is set, the Bloom filter is not created.
+     */
+    protected boolean shared = false;
+    /**
+     * The Bloom filter or {@code null} if it couldn't be created.
+     */
+    protected ScalableBloomFilter bloomFilter;
+    /**
+     * The number of requests that have been answered by the Bloom filter.
+     */
+    protected AtomicLong filteredRequests = new AtomicLong();
+    /**
+     * The number of requests that have been forwarded to the decorated filter.
+     */
+    protected AtomicLong forwardedRequests = new AtomicLong();
+    private Timer checkpointTimer;
+
+    public BloomFilterKnownUriFilter(KnownUriFilter decorated) {
+        this(decorated, null);
+    }
+
+    public BloomFilterKnownUriFilter(KnownUriFilter decorated, File checkpointFile) {
+        super(decorated);
+        this.checkpointFile = checkpointFile;
+    }
+
+    @Override
+    public void open() {
+        decorated.open();
+        if (shared) {
+            LOGGER.info(
+                    "The decorated filter is shared with other frontier instances. The Bloom filter is disabled and all requests will be forwarded.");
+            return;
+        }
+        long count = decorated.count();
+        bloomFilter = readCheckpoint(count);
+        if (bloomFilter == null) {
+            bloomFilter = rebuild(count);
+        }
+        if ((bloomFilter != null) && (checkpointFile != null) && (checkpointPeriod > 0)) {
+            checkpointTimer = new Timer("known-uri-filter-checkpoint", true);
+            checkpointTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    checkpoint();
+                }
+            }, checkpointPeriod, checkpointPeriod);
+        }
+    }
+
+    /**
+     * Reads the Bloom filter from the {@link #checkpointFile} if it exists and
+     * fits to the given number of known URIs.
+     */
+    protected ScalableBloomFilter readCheckpoint(long count) {
+        if ((checkpointFile == null) || !checkpointFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(checkpointFile)))) {
+            long checkpointCount = in.readLong();
+            if (checkpointCount != count) {
+                LOGGER.info(
+                        "The checkpoint {} has been created for {} URIs but the decorated filter knows {} URIs. It won't be used.",
+                        checkpointFile, checkpointCount, count);
+                return null;
+            }
+            ScalableBloomFilter filter = ScalableBloomFilter.readFrom(in);
+            LOGGER.info("Loaded the Bloom filter of {} known URIs from {}.", count, checkpointFile);
+            return filter;
+        } catch (IOException e) {
+            LOGGER.warn("Couldn't read the checkpoint " + checkpointFile + ". It won't be used.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Creates a new Bloom filter containing all URIs of the decorated filter.
+     * Returns {@code null} if the decorated filter is not empty and can not be
+     * iterated.
+     */
+    protected ScalableBloomFilter rebuild(long count) {
+        ScalableBloomFilter filter = new ScalableBloomFilter(Math.max(expectedNumberOfUris, 2 * count),
+                falsePositiveRate);
+        if (decorated instanceof KnownUriIterable) {
+            Iterator<String> iterator = ((KnownUriIterable) decorated).getKnownUriIterator();
+            while (iterator.hasNext()) {
+                filter.put(UriFingerprint.fingerprint(iterator.next()));
+            }
+            LOGGER.info("Rebuilt the Bloom filter from {} known URIs.", filter.size());
+        } else if (count > 0) {
+            LOGGER.warn(
+                    "The decorated filter contains URIs but can not be iterated. All requests will be forwarded to it.");
+            return null;
+        }
+        return filter;
+    }
+
+    /**
+     * Writes the current state of the Bloom filter to the
+     * {@link #checkpointFile}. The file is replaced atomically.
+     */
+    public synchronized void checkpoint() {
+        if ((checkpointFile == null) || (bloomFilter == null)) {
+            return;
+        }
+        File tempFile = new File(checkpointFile.getPath() + ".tmp");
+        try {
+            // the count is retrieved first. If URIs are added while writing the
+            // Bloom filter, the checkpoint contains more URIs than necessary
+            long count = decorated.count();
+            tempFile.getAbsoluteFile().getParentFile().mkdirs();
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeLong(count);
+                bloomFilter.writeTo(out);
+            }
+            Files.move(tempFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.debug("Wrote checkpoint of {} known URIs to {}.", count, checkpointFile);
+        } catch (Exception e) {
+            LOGGER.error("Couldn't write checkpoint to " + checkpointFile + ".", e);
+        }
+    }
+
+    @Override
+    public boolean isUriGood(CrawleableUri uri) {
+        if ((bloomFilter != null) && !bloomFilter.mightContain(UriFingerprint.fingerprint(uri))) {
+            filteredRequests.incrementAndGet();
+            return true;
+        }
+        forwardedRequests.incrementAndGet();
+        return decorated.isUriGood(uri);
+    }
+
+    @Override
+    public BitSet areUrisGood(List<CrawleableUri> uris) {
+        if (bloomFilter == null) {
+            forwardedRequests.addAndGet(uris.size());
+            return decorated.areUrisGood(uris);
+        }
+        BitSet goodUris = new BitSet(uris.size());
+        int[] positions = new int[uris.size()];
+        List<CrawleableUri> forwardedUris = filterUnknownUris(uris, goodUris, positions);
+        if (!forwardedUris.isEmpty()) {
+            addForwardedResult(decorated.areUrisGood(forwardedUris), positions, goodUris);
+        }
+        return goodUris;
+    }
+
+    @Override
+    public void checkUris(List<CrawleableUri> uris, Consumer<BitSet> callback) {
+        if (bloomFilter == null) {
+            forwardedRequests.addAndGet(uris.size());
+            decorated.checkUris(uris, callback);
+            return;
+        }
+        BitSet goodUris = new BitSet(uris.size());
+        int[] positions = new int[uris.size()];
+        List<CrawleableUri> forwardedUris = filterUnknownUris(uris, goodUris, positions);
+        if (forwardedUris.isEmpty()) {
+            callback.accept(goodUris);
+        } else {
+            decorated.checkUris(forwardedUris, forwardedResult -> {
+                addForwardedResult(forwardedResult, positions, goodUris);
+                callback.accept(goodUris);
+            });
+        }
+    }
+
+    /**
+     * Marks the URIs that are definitely unknown as good and returns the other
+     * URIs which have to be checked by the decorated filter. The positions of
+     * the returned URIs within the given list are written to the given array.
+     */
+    protected List<CrawleableUri> filterUnknownUris(List<CrawleableUri> uris, BitSet goodUris, int[] positions) {
+        List<CrawleableUri> forwardedUris = new ArrayList<>();
+        for (int i = 0; i < uris.size(); ++i) {
+            if (bloomFilter.mightContain(UriFingerprint.fingerprint(uris.get(i)))) {
+                positions[forwardedUris.size()] = i;
+                forwardedUris.add(uris.get(i));
+            } else {
+                goodUris.set(i);
+            }
+        }
+        filteredRequests.addAndGet(uris.size() - forwardedUris.size());
+        forwardedRequests.addAndGet(forwardedUris.size());
+        return forwardedUris;
+    }
+
+    private static void addForwardedResult(BitSet forwardedResult, int[] positions, BitSet goodUris) {
+        for (int i = forwardedResult.nextSetBit(0); i >= 0; i = forwardedResult.nextSetBit(i + 1)) {
+            goodUris.set(positions[i]);
+        }
+    }
+
+    @Override
+    public void add(CrawleableUri uri, long nextCrawlTimestamp) {
+        // the fingerprint is added first to make sure that a concurrent request
+        // is forwarded to the decorated filter
+        if (bloomFilter != null) {
+            bloomFilter.put(UriFingerprint.fingerprint(uri));
+        }
+        decorated.add(uri, nextCrawlTimestamp);
+    }
+
+    @Override
+    public void add(CrawleableUri uri, long lastCrawlTimestamp, long nextCrawlTimestamp) {
+        if (bloomFilter != null) {
+            bloomFilter.put(UriFingerprint.fingerprint(uri));
+        }
+        decorated.add(uri, lastCrawlTimestamp, nextCrawlTimestamp);
+    }
+
+    @Override
+    public void add(List<CrawleableUri> uris, long lastCrawlTimestamp, long nextCrawlTimestamp) {
+        if (bloomFilter != null) {
+            for (CrawleableUri uri : uris) {
+                bloomFilter.put(UriFingerprint.fingerprint(uri));
+            }
+        }
+        decorated.add(uris, lastCrawlTimestamp, nextCrawlTimestamp);
+    }
+
+    @Override
+    public void addCrawledUris(List<CrawleableUri> uris, long lastCrawlTimestamp) {
+        if (bloomFilter != null) {
+            for (CrawleableUri uri : uris) {
+                bloomFilter.put(UriFingerprint.fingerprint(uri));
+            }
+        }
+        super.addCrawledUris(uris, lastCrawlTimestamp);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (checkpointTimer != null) {
+            checkpointTimer.cancel();
+            checkpointTimer = null;
+        }
+        checkpoint();
+        LOGGER.info("{} requests have been answered by the Bloom filter, {} have been forwarded.",
+                filteredRequests.get(), forwardedRequests.get());
+        super.close();
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Marks the decorated filter as shared with other frontier instances,
+     * which disables the Bloom filter. Has to be called before
+     * {@link #open()}.
+     *
+     * @param shared
+     *            {@code true} if other frontier instances add URIs to the
+     *            decorated filter
+     */
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+
+    public long getNumberOfFilteredRequests() {
+        return filteredRequests.get();
+    }
+
+    public long getNumberOfForwardedRequests() {
+        return forwardedRequests.get();
+    }
+
+    public long getExpectedNumberOfUris() {
+        return expectedNumberOfUris;
+    }
+
+    public void setExpectedNumberOfUris(long expectedNumberOfUris) {
+        this.expectedNumberOfUris = expectedNumberOfUris;
+    }
+
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    public void setFalsePositiveRate(double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public long getCheckpointPeriod() {
+        return checkpointPeriod;
+    }
+
+    /**
+     * Sets the period (in ms) of the checkpoint task. A value &lt;= 0 disables
+     * the task, i.e., the checkpoint is only written when the filter is closed.
+     *
+     * @param checkpointPeriod
+     *            the period of the checkpoint task
+     */
+    public void setCheckpointPeriod(long checkpointPeriod) {
+        this.checkpointPeriod = checkpointPeriod;
+    }
+}
@@ -0,0 +1,832 @@
+package org.dice_research.squirrel.data.uri.filter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.UriFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An embedded, disk-based {@link KnownUriFilter} following the idea of a disk
+ * repository with update management (DRUM). The fingerprints (see
+ * {@link UriFingerprint}) of known URIs are stored together with their next
+ * crawl timestamp in a single file that is sorted by fingerprint.
+ *
+ * <ul>
+ * <li>Added URIs are collected in an in-memory {@link FingerprintTable}. If
+ * this buffer is full, it is sorted and merged with the repository file in a
+ * single sequential pass by a background thread while a new buffer takes the
+ * following URIs.</li>
+ * <li>A sparse index holds the first fingerprint of every block of
+ * {@link #indexInterval} records. A batch of requested fingerprints is sorted,
+ * so that every block of the repository that has to be read is read only once
+ * and in file order.</li>
+ * <li>A small, direct-mapped cache keeps the fingerprints that have been
+ * found in the repository recently.</li>
+ * <li>The repository is read without holding the lock of the filter, i.e.,
+ * URIs can be added while a batch is looked up. A read-write lock makes sure
+ * that a repository file is not replaced while it is read.</li>
+ * <li>{@link #checkUris(List, Consumer)} defers checks until
+ * {@link #checkBatchSize} URIs are waiting or {@link #maxCheckDelay} has
+ * passed. The results are delivered asynchronously.</li>
+ * </ul>
+ *
+ * <p>
+ * Since only fingerprints are stored, this filter can not return outdated URIs,
+ * i.e., {@link #getOutdatedUris()} always returns an empty list.
+ * </p>
+ */
+public class DiskBasedKnownUriFilter implements KnownUriFilter, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiskBasedKnownUriFilter.class);
+
+    /**
+     * Name of the repository file within the {@link #directory}.
+     */
+    public static final String REPOSITORY_FILE_NAME = "known-uris.drum";
+    /**
+     * Default value for {@link #bufferSize}.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    /**
+     * Default value for {@link #indexInterval}.
+     */
+    public static final int DEFAULT_INDEX_INTERVAL = 4096;
+    /**
+     * Default value for {@link #cacheSize}.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1 << 16;
+    /**
+     * Default value for {@link #checkBatchSize}.
+     */
+    public static final int DEFAULT_CHECK_BATCH_SIZE = 1000;
+    /**
+     * Default value for {@link #maxCheckDelay}.
+     */
+    public static final long DEFAULT_MAX_CHECK_DELAY = 1000;
+
+    /**
+     * A record comprises the fingerprint and the next crawl timestamp.
+     */
+    protected static final int RECORD_SIZE = 2 * Long.BYTES;
+    protected static final int NEXT_CRAWL_TIMESTAMP = 0;
+    /**
+     * Marks a fingerprint that is not known.
+     */
+    protected static final long UNKNOWN = Long.MIN_VALUE;
+
+    /**
+     * The directory in which the repository file is stored.
+     */
+    protected File directory;
+    /**
+     * Indicates whether the {@link org.dice_research.squirrel.frontier.Frontier}
+     * using this filter does recrawling.
+     */
+    protected boolean frontierDoesRecrawling;
+    /**
+     * The number of URIs that are buffered in memory before they are merged
+     * into the repository.
+     */
+    protected int bufferSize = DEFAULT_BUFFER_SIZE;
+    /**
+     * The number of records of a block of the repository that is covered by a
+     * single entry of the sparse index.
+     */
+    protected int indexInterval = DEFAULT_INDEX_INTERVAL;
+    /**
+     * The number of fingerprints the cache of recent hits can take. It is
+     * rounded up to a power of 2.
+     */
+    protected int cacheSize = DEFAULT_CACHE_SIZE;
+    /**
+     * The number of URIs for which a batch of deferred checks is executed.
+     */
+    protected int checkBatchSize = DEFAULT_CHECK_BATCH_SIZE;
+    /**
+     * The maximum time (in ms) a deferred check is delayed.
+     */
+    protected long maxCheckDelay = DEFAULT_MAX_CHECK_DELAY;
+
+    /**
+     * The buffer new URIs are added to.
+     */
+    protected FingerprintTable activeBuffer;
+    /**
+     * The buffer that is currently merged into the repository or {@code null}.
+     */
+    protected FingerprintTable mergingBuffer;
+    protected Repository repository;
+    /**
+     * Guards the {@link #repository} file. Lookups hold the read lock while the
+     * repository is replaced or closed under the write lock.
+     */
+    protected ReadWriteLock repositoryLock = new ReentrantReadWriteLock();
+    protected long[] cacheKeys;
+    protected long[] cacheValues;
+    protected ExecutorService mergeExecutor;
+    protected Future<?> mergeFuture;
+    protected BlockingQueue<CheckRequest> checkRequests = new LinkedBlockingQueue<>();
+    protected Thread checkerThread;
+    protected volatile boolean running = false;
+
+    /**
+     * Constructor.
+     *
+     * @param directory
+     *            the directory in which the repository file is stored
+     * @param frontierDoesRecrawling
+     *            flag indicating whether the frontier does recrawling
+     */
+    public DiskBasedKnownUriFilter(File directory, boolean frontierDoesRecrawling) {
+        this.directory = directory;
+        this.frontierDoesRecrawling = frontierDoesRecrawling;
+    }
+
+    public DiskBasedKnownUriFilter(String directory, boolean frontierDoesRecrawling) {
+        this(new File(directory), frontierDoesRecrawling);
+    }
+
+    @Override
+    public synchronized void open() {
+        if (repository != null) {
+            return;
+        }
+        directory.mkdirs();
+        try {
+            repository = Repository.open(new File(directory, REPOSITORY_FILE_NAME), indexInterval);
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't open the repository in " + directory + ".", e);
+        }
+        LOGGER.info("Opened repository of {} known URIs in {}.", repository.count, directory);
+        activeBuffer = new FingerprintTable(1, bufferSize, false);
+        int size = Integer.highestOneBit(Math.max(1, cacheSize - 1)) << 1;
+        cacheKeys = new long[size];
+        cacheValues = new long[size];
+        mergeExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "known-uri-filter-merger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        checkerThread = new Thread(this::runChecks, "known-uri-filter-checker");
+        checkerThread.setDaemon(true);
+        checkerThread.start();
+    }
+
+    @Override
+    public void add(CrawleableUri uri, long nextCrawlTimestamp) {
+        add(uri, System.currentTimeMillis(), nextCrawlTimestamp);
+    }
+
+    @Override
+    public synchronized void add(CrawleableUri uri, long lastCrawlTimestamp, long nextCrawlTimestamp) {
+        long key = FingerprintTable.toKey(UriFingerprint.fingerprint(uri));
+        long slot = activeBuffer.findOrInsert(key);
+        if (slot < 0) {
+            slot = -slot - 1;
+        }
+        activeBuffer.setValue(slot, NEXT_CRAWL_TIMESTAMP, nextCrawlTimestamp);
+        int cacheSlot = getCacheSlot(key);
+        if (cacheKeys[cacheSlot] == key) {
+            cacheValues[cacheSlot] = nextCrawlTimestamp;
+        }
+        if (activeBuffer.size() >= bufferSize) {
+            mergeIfFull();
+        }
+    }
+
+    @Override
+    public synchronized void add(List<CrawleableUri> uris, long lastCrawlTimestamp, long nextCrawlTimestamp) {
+        for (CrawleableUri uri : uris) {
+            add(uri, lastCrawlTimestamp, nextCrawlTimestamp);
+        }
+    }
+
+    @Override
+    public boolean isUriGood(CrawleableUri uri) {
+        return areUrisGood(Arrays.asList(uri)).get(0);
+    }
+
+    @Override
+    public BitSet areUrisGood(List<CrawleableUri> uris) {
+        long[] keys = new long[uris.size()];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = FingerprintTable.toKey(UriFingerprint.fingerprint(uris.get(i)));
+        }
+        long[] nextCrawlTimestamps = lookup(keys);
+        long now = System.currentTimeMillis();
+        BitSet goodUris = new BitSet(keys.length);
+        for (int i = 0; i < keys.length; ++i) {
+            if ((nextCrawlTimestamps[i] == UNKNOWN)
+                    || (frontierDoesRecrawling && (nextCrawlTimestamps[i] < now))) {
+                goodUris.set(i);
+            }
+        }
+        return goodUris;
+    }
+
+    /**
+     * Checks the given URIs asynchronously. The check is deferred until
+     * {@link #checkBatchSize} URIs are waiting or {@link #maxCheckDelay} has
+     * passed. After that, the given callback is called with the result of the
+     * check (see {@link #areUrisGood(List)}) by the checker thread of this
+     * filter.
+     *
+     * @param uris
+     *            the URIs that should be checked
+     * @param callback
+     *            the consumer of the result
+     */
+    @Override
+    public void checkUris(List<CrawleableUri> uris, Consumer<BitSet> callback) {
+        if (!running) {
+            throw new IllegalStateException("The filter is not open.");
+        }
+        checkRequests.add(new CheckRequest(uris, callback));
+    }
+
+    /**
+     * Returns the next crawl timestamps of the given keys or {@link #UNKNOWN}
+     * for keys that are not known. The buffers and the cache are checked first
+     * while holding the lock of this filter. The remaining keys are sorted and
+     * looked up in the current repository after the lock has been released.
+     */
+    protected long[] lookup(long[] keys) {
+        long[] results = new long[keys.length];
+        long[] remainingKeys = new long[keys.length];
+        int remaining = 0;
+        Repository currentRepository;
+        long slot;
+        int cacheSlot;
+        synchronized (this) {
+            for (int i = 0; i < keys.length; ++i) {
+                if ((slot = activeBuffer.find(keys[i])) >= 0) {
+                    results[i] = activeBuffer.getValue(slot, NEXT_CRAWL_TIMESTAMP);
+                } else if ((mergingBuffer != null) && ((slot = mergingBuffer.find(keys[i])) >= 0)) {
+                    results[i] = mergingBuffer.getValue(slot, NEXT_CRAWL_TIMESTAMP);
+                } else if (cacheKeys[cacheSlot = getCacheSlot(keys[i])] == keys[i]) {
+                    results[i] = cacheValues[cacheSlot];
+                } else {
+                    results[i] = UNKNOWN;
+                    remainingKeys[remaining] = keys[i];
+                    ++remaining;
+                }
+            }
+            if (remaining == 0) {
+                return results;
+            }
+            // The write lock is only acquired while holding the lock of this
+            // object, i.e., we can not be blocked by a waiting writer here.
+            currentRepository = repository;
+            repositoryLock.readLock().lock();
+        }
+        long[] repositoryResults;
+        try {
+            remainingKeys = Arrays.copyOf(remainingKeys, remaining);
+            Arrays.sort(remainingKeys);
+            repositoryResults = currentRepository.lookup(remainingKeys);
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read the repository.", e);
+        } finally {
+            repositoryLock.readLock().unlock();
+        }
+        synchronized (this) {
+            // Values of a replaced repository or of keys that have been added in
+            // the meantime might be outdated
+            if (repository == currentRepository) {
+                for (int i = 0; i < remainingKeys.length; ++i) {
+                    if ((repositoryResults[i] != UNKNOWN) && (activeBuffer.find(remainingKeys[i]) < 0)
+                            && ((mergingBuffer == null) || (mergingBuffer.find(remainingKeys[i]) < 0))) {
+                        cacheSlot = getCacheSlot(remainingKeys[i]);
+                        cacheKeys[cacheSlot] = remainingKeys[i];
+                        cacheValues[cacheSlot] = repositoryResults[i];
+                    }
+                }
+            }
+        }
+        int pos;
+        for (int i = 0; i < keys.length; ++i) {
+            if (results[i] == UNKNOWN) {
+                pos = Arrays.binarySearch(remainingKeys, keys[i]);
+                if (pos >= 0) {
+                    results[i] = repositoryResults[pos];
+                }
+            }
+        }
+        return results;
+    }
+
+    private int getCacheSlot(long key) {
+        return (int) ((key >>> 1) & (cacheKeys.length - 1));
+    }
+
+    /**
+     * Hands the active buffer over to the merge thread if it is full. If a
+     * merge is still running, this method waits for it to finish, i.e., the
+     * adding thread is slowed down until the repository caught up.
+     */
+    protected synchronized void mergeIfFull() {
+        waitForMerge();
+        if (activeBuffer.size() >= bufferSize) {
+            startMerge();
+        }
+    }
+
+    /**
+     * Hands the active buffer over to the merge thread. Has to be called after
+     * a previous merge has finished.
+     */
+    protected synchronized void startMerge() {
+        if (activeBuffer.size() == 0) {
+            return;
+        }
+        mergingBuffer = activeBuffer;
+        activeBuffer = new FingerprintTable(1, bufferSize, false);
+        final FingerprintTable buffer = mergingBuffer;
+        final Repository oldRepository = repository;
+        mergeFuture = mergeExecutor.submit(() -> {
+            try {
+                File tempFile = new File(directory, REPOSITORY_FILE_NAME + ".tmp");
+                Repository.Builder builder = merge(oldRepository, buffer, tempFile);
+                finishMerge(builder, tempFile);
+            } catch (Exception e) {
+                LOGGER.error("Couldn't merge the buffer into the repository. The buffered URIs are kept in memory.",
+                        e);
+                restoreBuffer(buffer);
+            }
+        });
+    }
+
+    /**
+     * Merges the sorted content of the given buffer and the given repository
+     * into the given file in a single sequential pass. The values of the buffer
+     * replace the values of the repository.
+     */
+    protected Repository.Builder merge(Repository oldRepository, FingerprintTable buffer, File tempFile)
+            throws IOException {
+        long[] keys = new long[(int) buffer.size()];
+        int count = 0;
+        long key;
+        for (long slot = 0; slot < buffer.capacity(); ++slot) {
+            key = buffer.getKey(slot);
+            if (key != 0) {
+                keys[count] = key;
+                ++count;
+            }
+        }
+        Arrays.sort(keys);
+        Repository.Builder builder = new Repository.Builder(indexInterval);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(oldRepository.file), 1 << 16));
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16))) {
+            long repositoryKey = 0;
+            long repositoryValue = 0;
+            long repositoryRecords = oldRepository.count;
+            boolean hasRepositoryRecord = false;
+            int bufferPos = 0;
+            while (true) {
+                if (!hasRepositoryRecord && (repositoryRecords > 0)) {
+                    repositoryKey = in.readLong();
+                    repositoryValue = in.readLong();
+                    --repositoryRecords;
+                    hasRepositoryRecord = true;
+                }
+                if (hasRepositoryRecord && ((bufferPos == keys.length) || (repositoryKey < keys[bufferPos]))) {
+                    builder.write(out, repositoryKey, repositoryValue);
+                    hasRepositoryRecord = false;
+                } else if (bufferPos < keys.length) {
+                    if (hasRepositoryRecord && (repositoryKey == keys[bufferPos])) {
+                        // the buffered value replaces the record
+                        hasRepositoryRecord = false;
+                    }
+                    builder.write(out, keys[bufferPos],
+                            buffer.getValue(buffer.find(keys[bufferPos]), NEXT_CRAWL_TIMESTAMP));
+                    ++bufferPos;
+                } else {
+                    break;
+                }
+            }
+        }
+        return builder;
+    }
+
+    protected synchronized void finishMerge(Repository.Builder builder, File tempFile) throws IOException {
+        File repositoryFile = repository.file;
+        // wait for the running lookups of the old repository
+        repositoryLock.writeLock().lock();
+        try {
+            repository.close();
+            Files.move(tempFile.toPath(), repositoryFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            repositoryLock.writeLock().unlock();
+        }
+        repository = builder.build(repositoryFile);
+        mergingBuffer = null;
+        LOGGER.debug("Merged buffer into the repository which contains {} URIs now.", repository.count);
+    }
+
+    /**
+     * Adds the URIs of a buffer that couldn't be merged to the active buffer.
+     */
+    protected synchronized void restoreBuffer(FingerprintTable buffer) {
+        if (!repository.isOpen()) {
+            try {
+                repository = Repository.open(repository.file, indexInterval);
+            } catch (IOException e) {
+                LOGGER.error("Couldn't reopen the repository.", e);
+            }
+        }
+        long key;
+        long slot;
+        for (long oldSlot = 0; oldSlot < buffer.capacity(); ++oldSlot) {
+            key = buffer.getKey(oldSlot);
+            if ((key != 0) && (activeBuffer.find(key) < 0)) {
+                slot = -activeBuffer.findOrInsert(key) - 1;
+                activeBuffer.setValue(slot, NEXT_CRAWL_TIMESTAMP, buffer.getValue(oldSlot, NEXT_CRAWL_TIMESTAMP));
+            }
+        }
+        mergingBuffer = null;
+    }
+
+    /**
+     * Waits for the current merge (if there is one) to finish.
+     */
+    protected synchronized void waitForMerge() {
+        try {
+            // the merge has to be able to acquire the lock of this object
+            while ((mergeFuture != null) && !mergeFuture.isDone()) {
+                wait(10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The loop of the checker thread which collects the deferred check requests
+     * and executes them in batches.
+     */
+    protected void runChecks() {
+        List<CheckRequest> batch = new ArrayList<>();
+        List<CrawleableUri> uris = new ArrayList<>();
+        CheckRequest request;
+        long deadline;
+        long waitingTime;
+        try {
+            while (running || !checkRequests.isEmpty()) {
+                request = checkRequests.poll(100, TimeUnit.MILLISECONDS);
+                if (request == null) {
+                    continue;
+                }
+                deadline = System.currentTimeMillis() + maxCheckDelay;
+                do {
+                    batch.add(request);
+                    uris.addAll(request.uris);
+                    if (uris.size() >= checkBatchSize) {
+                        break;
+                    }
+                    waitingTime = running ? (deadline - System.currentTimeMillis()) : 0;
+                    request = checkRequests.poll(Math.max(0, waitingTime), TimeUnit.MILLISECONDS);
+                } while (request != null);
+                executeChecks(batch, uris);
+                batch.clear();
+                uris.clear();
+            }
+        } catch (InterruptedException e) {
+            LOGGER.warn("The checker thread has been interrupted. Pending checks are not executed.");
+        }
+    }
+
+    protected void executeChecks(List<CheckRequest> batch, List<CrawleableUri> uris) {
+        BitSet goodUris;
+        try {
+            goodUris = areUrisGood(uris);
+        } catch (Exception e) {
+            LOGGER.error("Exception while checking URIs. They won't be accepted.", e);
+            goodUris = new BitSet();
+        }
+        int offset = 0;
+        for (CheckRequest request : batch) {
+            try {
+                request.callback.accept(goodUris.get(offset, offset + request.uris.size()));
+            } catch (Exception e) {
+                LOGGER.error("Exception in callback of a URI check.", e);
+            }
+            offset += request.uris.size();
+        }
+    }
+
+    /**
+     * This filter does not store the URIs. Hence, it can not return outdated
+     * URIs.
+     *
+     * @return an empty list
+     */
+    @Override
+    public List<CrawleableUri> getOutdatedUris() {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Returns the number of known URIs. Buffered URIs that are already part of
+     * the repository are counted twice until they are merged.
+     */
+    @Override
+    public synchronized long count() {
+        return repository.count + activeBuffer.size() + ((mergingBuffer != null) ? mergingBuffer.size() : 0);
+    }
+
+    /**
+     * Merges all buffered URIs into the repository.
+     */
+    public synchronized void flush() {
+        waitForMerge();
+        startMerge();
+        waitForMerge();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            checkerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            flush();
+            mergeExecutor.shutdown();
+            repositoryLock.writeLock().lock();
+            try {
+                repository.close();
+            } finally {
+                repositoryLock.writeLock().unlock();
+            }
+            repository = null;
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the number of URIs buffered in memory before they are merged into
+     * the repository. Has to be called before the filter is opened.
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getIndexInterval() {
+        return indexInterval;
+    }
+
+    /**
+     * Sets the number of records of a block of the repository that is covered
+     * by a single entry of the sparse index. Has to be called before the filter
+     * is opened.
+     */
+    public void setIndexInterval(int indexInterval) {
+        this.indexInterval = indexInterval;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Sets the number of fingerprints of the cache of recent hits. Has to be
+     * called before the filter is opened.
+     */
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public int getCheckBatchSize() {
+        return checkBatchSize;
+    }
+
+    public void setCheckBatchSize(int checkBatchSize) {
+        this.checkBatchSize = checkBatchSize;
+    }
+
+    public long getMaxCheckDelay() {
+        return maxCheckDelay;
+    }
+
+    public void setMaxCheckDelay(long maxCheckDelay) {
+        this.maxCheckDelay = maxCheckDelay;
+    }
+
+    /**
+     * A deferred check of a list of URIs.
+     */
+    protected static class CheckRequest {
+        protected final List<CrawleableUri> uris;
+        protected final Consumer<BitSet> callback;
+
+        public CheckRequest(List<CrawleableUri> uris, Consumer<BitSet> callback) {
+            this.uris = uris;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * The sorted file of records together with its sparse index.
+     */
+    protected static class Repository implements Closeable {
+        protected final File file;
+        protected final FileChannel channel;
+        protected final long count;
+        protected final int indexInterval;
+        /**
+         * The first key of every block of {@link #indexInterval} records.
+         */
+        protected final long[] index;
+
+        protected Repository(File file, long count, int indexInterval, long[] index) throws IOException {
+            this.file = file;
+            this.count = count;
+            this.indexInterval = indexInterval;
+            this.index = index;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+
+        /**
+         * Opens the given repository file and reads its sparse index. The file
+         * is created if it does not exist.
+         */
+        public static Repository open(File file, int indexInterval) throws IOException {
+            if (!file.exists()) {
+                file.createNewFile();
+            }
+            if ((file.length() % RECORD_SIZE) != 0) {
+                throw new IOException("The size of the repository file " + file + " is not a multiple of "
+                        + RECORD_SIZE + ".");
+            }
+            long count = file.length() / RECORD_SIZE;
+            long[] index = new long[(int) ((count + indexInterval - 1) / indexInterval)];
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+                for (int i = 0; i < index.length; ++i) {
+                    index[i] = in.readLong();
+                    skipFully(in, ((long) RECORD_SIZE * indexInterval) - Long.BYTES);
+                }
+            } catch (EOFException e) {
+                // the last block is not complete
+            }
+            return new Repository(file, count, indexInterval, index);
+        }
+
+        private static void skipFully(DataInputStream in, long bytes) throws IOException {
+            while (bytes > 0) {
+                long skipped = in.skip(bytes);
+                if (skipped <= 0) {
+                    throw new EOFException();
+                }
+                bytes -= skipped;
+            }
+        }
+
+        /**
+         * Looks up the given sorted keys. Every block of the file is read at
+         * most once.
+         *
+         * @return the values of the given keys or {@link #UNKNOWN}
+         */
+        public long[] lookup(long[] sortedKeys) throws IOException {
+            long[] results = new long[sortedKeys.length];
+            Arrays.fill(results, UNKNOWN);
+            if (count == 0) {
+                return results;
+            }
+            ByteBuffer block = ByteBuffer.allocate(RECORD_SIZE * indexInterval);
+            int currentBlock = -1;
+            int blockRecords = 0;
+            int blockId;
+            for (int i = 0; i < sortedKeys.length; ++i) {
+                blockId = Arrays.binarySearch(index, sortedKeys[i]);
+                if (blockId < 0) {
+                    // insertion point - 1 is the block that might contain the key
+                    blockId = -blockId - 2;
+                    if (blockId < 0) {
+                        continue;
+                    }
+                }
+                if (blockId != currentBlock) {
+                    blockRecords = readBlock(blockId, block);
+                    currentBlock = blockId;
+                }
+                results[i] = searchBlock(block, blockRecords, sortedKeys[i]);
+            }
+            return results;
+        }
+
+        private int readBlock(int blockId, ByteBuffer block) throws IOException {
+            block.clear();
+            long position = (long) blockId * indexInterval * RECORD_SIZE;
+            int records = (int) Math.min(indexInterval, count - ((long) blockId * indexInterval));
+            block.limit(records * RECORD_SIZE);
+            while (block.hasRemaining()) {
+                if (channel.read(block, position + block.position()) < 0) {
+                    throw new EOFException("Unexpected end of the repository file " + file + ".");
+                }
+            }
+            return records;
+        }
+
+        private static long searchBlock(ByteBuffer block, int records, long key) {
+            int low = 0;
+            int high = records - 1;
+            int mid;
+            long midKey;
+            while (low <= high) {
+                mid = (low + high) >>> 1;
+                midKey = block.getLong(mid * RECORD_SIZE);
+                if (midKey < key) {
+                    low = mid + 1;
+                } else if (midKey > key) {
+                    high = mid - 1;
+                } else {
+                    return block.getLong((mid * RECORD_SIZE) + Long.BYTES);
+                }
+            }
+            return UNKNOWN;
+        }
+
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        /**
+         * Collects the sparse index while a new repository file is written.
+         */
+        protected static class Builder {
+            private final int indexInterval;
+            private long count = 0;
+            private long[] index = new long[16];
+            private int indexSize = 0;
+
+            public Builder(int indexInterval) {
+                this.indexInterval = indexInterval;
+            }
+
+            public void write(DataOutputStream out, long key, long value) throws IOException {
+                if ((count % indexInterval) == 0) {
+                    if (indexSize == index.length) {
+                        index = Arrays.copyOf(index, index.length * 2);
+                    }
+                    index[indexSize] = key;
+                    ++indexSize;
+                }
+                out.writeLong(key);
+                out.writeLong(value);
+                ++count;
+            }
+
+            public Repository build(File file) throws IOException {
+                return new Repository(file, count, indexInterval, Arrays.copyOf(index, indexSize));
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.dice_research.squirrel.data.uri.filter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and a latency histogram of a single {@link UriFilter}. The
+ * histogram has logarithmic buckets, i.e., the i-th bucket counts the URIs for
+ * which the check took less than 2<sup>i</sup> ns (and at least
+ * 2<sup>i-1</sup> ns). For URIs that are checked in a batch, the latency of the
+ * batch is distributed uniformly over its URIs.
+ *
+ * <p>
+ * All methods are thread safe.
+ * </p>
+ */
+public class FilterStatistics {
+
+    /**
+     * The number of histogram buckets. The last bucket counts all checks that
+     * took longer than ~1s.
+     */
+    public static final int NUMBER_OF_BUCKETS = 32;
+
+    private final String filterName;
+    private final AtomicLong checkedUris = new AtomicLong();
+    private final AtomicLong rejectedUris = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLongArray latencyHistogram = new AtomicLongArray(NUMBER_OF_BUCKETS);
+
+    public FilterStatistics(String filterName) {
+        this.filterName = filterName;
+    }
+
+    /**
+     * Records the check of a single URI.
+     *
+     * @param nanos
+     *            the time the check took
+     * @param good
+     *            the result of the check
+     */
+    public void record(long nanos, boolean good) {
+        record(1, good ? 0 : 1, nanos);
+    }
+
+    /**
+     * Records the check of several URIs.
+     *
+     * @param uris
+     *            the number of checked URIs
+     * @param rejected
+     *            the number of URIs that have been rejected
+     * @param nanos
+     *            the time all checks took together
+     */
+    public void record(int uris, int rejected, long nanos) {
+        if (uris <= 0) {
+            return;
+        }
+        checkedUris.addAndGet(uris);
+        rejectedUris.addAndGet(rejected);
+        totalNanos.addAndGet(nanos);
+        latencyHistogram.addAndGet(getBucket(nanos / uris), uris);
+    }
+
+    protected static int getBucket(long nanos) {
+        return Math.min(NUMBER_OF_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+    }
+
+    public String getFilterName() {
+        return filterName;
+    }
+
+    public long getCheckedUris() {
+        return checkedUris.get();
+    }
+
+    public long getRejectedUris() {
+        return rejectedUris.get();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    /**
+     * @return the ratio of rejected URIs or 0 if no URI has been checked
+     */
+    public double getRejectionRate() {
+        long checked = checkedUris.get();
+        return (checked > 0) ? (rejectedUris.get() / (double) checked) : 0;
+    }
+
+    /**
+     * @return the average time (in ns) the check of a single URI took or 0 if no
+     *         URI has been checked
+     */
+    public double getAverageNanos() {
+        long checked = checkedUris.get();
+        return (checked > 0) ? (totalNanos.get() / (double) checked) : 0;
+    }
+
+    /**
+     * @return a copy of the latency histogram
+     */
+    public long[] getLatencyHistogram() {
+        long[] histogram = new long[NUMBER_OF_BUCKETS];
+        for (int i = 0; i < histogram.length; ++i) {
+            histogram[i] = latencyHistogram.get(i);
+        }
+        return histogram;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(filterName);
+        builder.append("[checked=");
+        builder.append(checkedUris.get());
+        builder.append(", rejected=");
+        builder.append(rejectedUris.get());
+        builder.append(", avgNanos=");
+        builder.append(Math.round(getAverageNanos()));
+        builder.append(']');
+        return builder.toString();
+    }
+}
@@ -0,0 +1,276 @@
+package org.dice_research.squirrel.data.uri.filter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * An open-addressing hash table with linear probing that maps 64-bit
+ * fingerprints (see {@link org.dice_research.squirrel.data.uri.UriFingerprint})
+ * to a fixed number of long values. The keys and values are stored in chunks of
+ * primitive longs that are either allocated on the heap or off-heap (direct
+ * memory). Hence, the table does not create any objects per entry.
+ *
+ * <p>
+ * The lowest bit of a fingerprint is not used as part of the key but as a flag
+ * that can be set per entry (see {@link #isFlagSet(long)}). A key of
+ * {@code 0} marks an empty slot. Entries are addressed by their slot which is
+ * only valid until the next insertion, since an insertion might lead to a
+ * resize of the table. The table is not thread-safe.
+ * </p>
+ */
+public class FingerprintTable {
+
+    /**
+     * Default load factor of the table.
+     */
+    public static final double DEFAULT_LOAD_FACTOR = 0.75;
+
+    private static final int CHUNK_SIZE_BITS = 20;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SIZE_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final long FLAG = 1L;
+    private static final long EMPTY = 0L;
+    /**
+     * Key used for fingerprints that would collide with {@link #EMPTY}.
+     */
+    private static final long ZERO_KEY = 2L;
+
+    /**
+     * The number of values stored for every fingerprint.
+     */
+    protected final int numberOfValues;
+    /**
+     * The number of longs used by a single slot (key and values).
+     */
+    protected final int slotSize;
+    /**
+     * Flag indicating whether the data is stored off-heap.
+     */
+    protected final boolean offHeap;
+    protected final double loadFactor;
+    protected LongBuffer[] chunks;
+    protected long capacity;
+    protected long size = 0;
+    protected long maxSize;
+
+    /**
+     * Constructor.
+     *
+     * @param numberOfValues
+     *            the number of long values stored for every fingerprint
+     * @param expectedSize
+     *            the number of entries the table should be able to take without
+     *            being resized
+     * @param offHeap
+     *            if {@code true}, the data is stored in direct memory outside of
+     *            the Java heap
+     */
+    public FingerprintTable(int numberOfValues, long expectedSize, boolean offHeap) {
+        this(numberOfValues, expectedSize, offHeap, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param numberOfValues
+     *            the number of long values stored for every fingerprint
+     * @param expectedSize
+     *            the number of entries the table should be able to take without
+     *            being resized
+     * @param offHeap
+     *            if {@code true}, the data is stored in direct memory outside of
+     *            the Java heap
+     * @param loadFactor
+     *            the maximum ratio of used slots before the table is grown
+     */
+    public FingerprintTable(int numberOfValues, long expectedSize, boolean offHeap, double loadFactor) {
+        if (numberOfValues < 0) {
+            throw new IllegalArgumentException("The number of values can not be negative.");
+        }
+        if ((loadFactor <= 0) || (loadFactor >= 1)) {
+            throw new IllegalArgumentException("The load factor has to be in (0, 1).");
+        }
+        this.numberOfValues = numberOfValues;
+        this.slotSize = numberOfValues + 1;
+        this.offHeap = offHeap;
+        this.loadFactor = loadFactor;
+        allocate(Math.max(16, (long) Math.ceil(Math.max(1, expectedSize) / loadFactor)));
+    }
+
+    private void allocate(long newCapacity) {
+        long longs = newCapacity * slotSize;
+        int numberOfChunks = (int) ((longs + CHUNK_SIZE - 1) >>> CHUNK_SIZE_BITS);
+        chunks = new LongBuffer[numberOfChunks];
+        for (int i = 0; i < numberOfChunks; ++i) {
+            int chunkSize = (int) Math.min(CHUNK_SIZE, longs - (((long) i) << CHUNK_SIZE_BITS));
+            if (offHeap) {
+                chunks[i] = ByteBuffer.allocateDirect(chunkSize * Long.BYTES).order(ByteOrder.nativeOrder())
+                        .asLongBuffer();
+            } else {
+                chunks[i] = LongBuffer.allocate(chunkSize);
+            }
+        }
+        capacity = newCapacity;
+        maxSize = (long) (newCapacity * loadFactor);
+    }
+
+    private long read(long index) {
+        return read(chunks, index);
+    }
+
+    private void write(long index, long value) {
+        write(chunks, index, value);
+    }
+
+    private static long read(LongBuffer[] chunks, long index) {
+        return chunks[(int) (index >>> CHUNK_SIZE_BITS)].get((int) (index & CHUNK_MASK));
+    }
+
+    private static void write(LongBuffer[] chunks, long index, long value) {
+        chunks[(int) (index >>> CHUNK_SIZE_BITS)].put((int) (index & CHUNK_MASK), value);
+    }
+
+    /**
+     * Transforms the given fingerprint into the key that is stored in the
+     * table, i.e., the lowest bit is removed and a fingerprint that would be
+     * interpreted as empty slot is mapped to a different key.
+     */
+    protected static long toKey(long fingerprint) {
+        long key = fingerprint & ~FLAG;
+        return (key == EMPTY) ? ZERO_KEY : key;
+    }
+
+    private long firstSlot(long key) {
+        return (key >>> 1) % capacity;
+    }
+
+    /**
+     * Returns the slot of the given fingerprint.
+     *
+     * @param fingerprint
+     *            the fingerprint that should be searched
+     * @return the slot of the fingerprint or {@code -1} if the table does not
+     *         contain it
+     */
+    public long find(long fingerprint) {
+        long key = toKey(fingerprint);
+        long slot = firstSlot(key);
+        long slotKey;
+        while ((slotKey = read(slot * slotSize)) != EMPTY) {
+            if ((slotKey & ~FLAG) == key) {
+                return slot;
+            }
+            if (++slot == capacity) {
+                slot = 0;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the slot of the given fingerprint and inserts the fingerprint if
+     * it is not already part of the table. A newly inserted entry has all values
+     * set to {@code 0} and its flag cleared.
+     *
+     * @param fingerprint
+     *            the fingerprint that should be searched or inserted
+     * @return the slot of the fingerprint if it was already in the table or
+     *         {@code -(slot + 1)} if it has been inserted
+     */
+    public long findOrInsert(long fingerprint) {
+        if (size >= maxSize) {
+            grow();
+        }
+        long key = toKey(fingerprint);
+        long slot = firstSlot(key);
+        long slotKey;
+        while ((slotKey = read(slot * slotSize)) != EMPTY) {
+            if ((slotKey & ~FLAG) == key) {
+                return slot;
+            }
+            if (++slot == capacity) {
+                slot = 0;
+            }
+        }
+        write(slot * slotSize, key);
+        ++size;
+        return -(slot + 1);
+    }
+
+    /**
+     * Grows the table by 50% and re-inserts all entries.
+     */
+    protected void grow() {
+        LongBuffer[] oldChunks = chunks;
+        long oldCapacity = capacity;
+        allocate(oldCapacity + (oldCapacity >> 1));
+        long key;
+        long slot;
+        for (long oldSlot = 0; oldSlot < oldCapacity; ++oldSlot) {
+            key = read(oldChunks, oldSlot * slotSize);
+            if (key == EMPTY) {
+                continue;
+            }
+            slot = firstSlot(key & ~FLAG);
+            while (read(slot * slotSize) != EMPTY) {
+                if (++slot == capacity) {
+                    slot = 0;
+                }
+            }
+            for (int i = 0; i < slotSize; ++i) {
+                write((slot * slotSize) + i, read(oldChunks, (oldSlot * slotSize) + i));
+            }
+        }
+    }
+
+    /**
+     * @return the key stored in the given slot or {@code 0} if the slot is
+     *         empty. The key is the fingerprint without its lowest bit.
+     */
+    public long getKey(long slot) {
+        return read(slot * slotSize) & ~FLAG;
+    }
+
+    public long getValue(long slot, int valueId) {
+        return read((slot * slotSize) + 1 + valueId);
+    }
+
+    public void setValue(long slot, int valueId, long value) {
+        write((slot * slotSize) + 1 + valueId, value);
+    }
+
+    public boolean isFlagSet(long slot) {
+        return (read(slot * slotSize) & FLAG) != 0;
+    }
+
+    public void setFlag(long slot, boolean flag) {
+        long key = read(slot * slotSize);
+        write(slot * slotSize, flag ? (key | FLAG) : (key & ~FLAG));
+    }
+
+    /**
+     * @return the number of entries in this table
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the number of slots of this table
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * @return the number of bytes used to store the entries of this table
+     */
+    public long getNumberOfBytes() {
+        return capacity * slotSize * Long.BYTES;
+    }
+}
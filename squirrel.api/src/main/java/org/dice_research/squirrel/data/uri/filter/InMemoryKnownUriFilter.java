@@ -1,27 +1,93 @@
 package org.dice_research.squirrel.data.uri.filter;
 
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Hashtable;
+import java.util.BitSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
 
 import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.UriFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongOpenHashSet;
 
 /**
  * A simple in-memory implementation of the {@link KnownUriFilter} interface.
  *
+ * <p>
+ * The known URIs are stored in a {@link FingerprintTable}, i.e., every URI is
+ * represented by its 64-bit fingerprint (see {@link UriFingerprint}) together
+ * with its last and next crawl timestamps. The "crawling in process" state is
+ * stored in the flag bit of the table. Without the URIs themselves, an entry
+ * takes 24 bytes (plus the free slots of the table).
+ * </p>
+ *
+ * <p>
+ * {@link #getOutdatedUris()} has to return the URIs. Hence, if
+ * {@link #keepUris} is set, the UTF-8 bytes of the URIs are appended to a
+ * {@link UriStore} and the fingerprints are additionally stored in a
+ * time-bucketed index. This index is sorted by the point in time at which an
+ * entry becomes due, so that {@link #getOutdatedUris()} only touches entries
+ * that are (nearly) due. If {@link #keepUris} is not set, the filter can only
+ * answer whether a URI is known and {@link #getOutdatedUris()} always returns
+ * an empty list.
+ * </p>
+ *
  * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
  */
 public class InMemoryKnownUriFilter implements KnownUriFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryKnownUriFilter.class);
+
+    /**
+     * Default value for the number of URIs the table can take before it has to
+     * be resized.
+     */
+    public static final long DEFAULT_EXPECTED_NUMBER_OF_URIS = 100000;
+    /**
+     * Default width (1 minute) of a bucket of the time index.
+     */
+    public static final long DEFAULT_TIME_BUCKET_WIDTH = 60000;
+
+    protected static final int LAST_CRAWL_TIMESTAMP = 0;
+    protected static final int NEXT_CRAWL_TIMESTAMP = 1;
+    protected static final int URI_REFERENCE = 2;
+
+    /**
+     * The fingerprints of the known URIs with their crawl timestamps and (if
+     * {@link #keepUris} is set) the reference of the URI in {@link #uriStore}.
+     * The flag of an entry marks that its crawling is in process.
+     */
+    protected FingerprintTable uris;
+    /**
+     * The known URIs or {@code null} if {@link #keepUris} is not set.
+     */
+    protected UriStore uriStore;
     /**
-     * - key: the crawled (known) uri
-     * - value: the info about the URI (see {@link UriInfo}), including the reference list
+     * Index of the time bucket at which the entries become due mapped to the
+     * fingerprints of the entries. A fingerprint might be listed in several
+     * buckets if its timestamps have been changed. Such outdated references are
+     * removed when the bucket is drained.
      */
-    protected Hashtable<CrawleableUri, UriInfo> uris;
+    protected TreeMap<Long, LongArrayList> dueIndex = new TreeMap<>();
     /**
      * Indicates whether the {@link org.dice_research.squirrel.frontier.Frontier} using this filter does recrawling.
      */
     private boolean frontierDoesRecrawling;
     protected long defaultRecrawlTime;
+    /**
+     * Indicates whether the URIs are kept to be able to return them via
+     * {@link #getOutdatedUris()}.
+     */
+    protected boolean keepUris;
+    protected long timeBucketWidth = DEFAULT_TIME_BUCKET_WIDTH;
 
     /**
      * Constructor.
@@ -29,9 +95,7 @@ public class InMemoryKnownUriFilter implements KnownUriFilter {
      * @param frontierDoesRecrawling Value for {@link #frontierDoesRecrawling}.
      */
     public InMemoryKnownUriFilter(boolean frontierDoesRecrawling, long defaultRecrawlTime) {
-        uris = new Hashtable<>();
-        this.frontierDoesRecrawling = frontierDoesRecrawling;
-        this.defaultRecrawlTime = defaultRecrawlTime;
+        this(frontierDoesRecrawling, defaultRecrawlTime, true);
     }
 
     /**
@@ -44,12 +108,35 @@ public class InMemoryKnownUriFilter implements KnownUriFilter {
     /**
      * Constructor.
      *
-     * @param uris                   Value for {@link #uris}.
      * @param frontierDoesRecrawling Value for {@link #frontierDoesRecrawling}.
+     * @param defaultRecrawlTime     Value for {@link #defaultRecrawlTime}.
+     * @param keepUris               Value for {@link #keepUris}.
      */
-    public InMemoryKnownUriFilter(Hashtable<CrawleableUri, UriInfo> uris, boolean frontierDoesRecrawling) {
-        this.uris = uris;
+    public InMemoryKnownUriFilter(boolean frontierDoesRecrawling, long defaultRecrawlTime, boolean keepUris) {
+        this(frontierDoesRecrawling, defaultRecrawlTime, keepUris, DEFAULT_EXPECTED_NUMBER_OF_URIS, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param frontierDoesRecrawling Value for {@link #frontierDoesRecrawling}.
+     * @param defaultRecrawlTime     Value for {@link #defaultRecrawlTime}.
+     * @param keepUris               Value for {@link #keepUris}.
+     * @param expectedNumberOfUris   The number of URIs the filter can take before
+     *                               its table has to be resized.
+     * @param offHeap                Flag indicating whether the table and the
+     *                               URIs are stored in direct memory outside of
+     *                               the Java heap.
+     */
+    public InMemoryKnownUriFilter(boolean frontierDoesRecrawling, long defaultRecrawlTime, boolean keepUris,
+            long expectedNumberOfUris, boolean offHeap) {
         this.frontierDoesRecrawling = frontierDoesRecrawling;
+        this.defaultRecrawlTime = defaultRecrawlTime;
+        this.keepUris = keepUris;
+        uris = new FingerprintTable(keepUris ? 3 : 2, expectedNumberOfUris, offHeap);
+        if (keepUris) {
+            uriStore = new UriStore(offHeap);
+        }
     }
 
     @Override
@@ -58,62 +145,227 @@ public class InMemoryKnownUriFilter implements KnownUriFilter {
     }
 
     @Override
-    public void add(CrawleableUri uri, long lastCrawlTimestamp, long nextCrawlTimestamp) {
-        UriInfo uriInfo = new UriInfo(lastCrawlTimestamp, nextCrawlTimestamp, false);
-        uris.put(uri, uriInfo);
+    public synchronized void add(CrawleableUri uri, long lastCrawlTimestamp, long nextCrawlTimestamp) {
+        long fingerprint = UriFingerprint.fingerprint(uri);
+        long slot = uris.findOrInsert(fingerprint);
+        if (slot < 0) {
+            slot = -slot - 1;
+            if (keepUris) {
+                uris.setValue(slot, URI_REFERENCE, uriStore.append(uri.getUri().toString()));
+            }
+        } else {
+            uris.setFlag(slot, false);
+        }
+        uris.setValue(slot, LAST_CRAWL_TIMESTAMP, lastCrawlTimestamp);
+        uris.setValue(slot, NEXT_CRAWL_TIMESTAMP, nextCrawlTimestamp);
+        if (keepUris) {
+            addToIndex(fingerprint, getDueTime(slot));
+        }
+    }
+
+    @Override
+    public synchronized void add(List<CrawleableUri> uris, long lastCrawlTimestamp, long nextCrawlTimestamp) {
+        for (CrawleableUri uri : uris) {
+            add(uri, lastCrawlTimestamp, nextCrawlTimestamp);
+        }
+    }
+
+    @Override
+    public synchronized boolean isUriGood(CrawleableUri uri) {
+        return isUriGood(uri, System.currentTimeMillis());
     }
 
     @Override
-    public boolean isUriGood(CrawleableUri uri) {
-        if (uris.containsKey(uri)) {
-            if (!frontierDoesRecrawling){
+    public synchronized BitSet areUrisGood(List<CrawleableUri> uris) {
+        long now = System.currentTimeMillis();
+        BitSet goodUris = new BitSet(uris.size());
+        for (int i = 0; i < uris.size(); ++i) {
+            if (isUriGood(uris.get(i), now)) {
+                goodUris.set(i);
+            }
+        }
+        return goodUris;
+    }
+
+    protected boolean isUriGood(CrawleableUri uri, long now) {
+        long slot = uris.find(UriFingerprint.fingerprint(uri));
+        if (slot >= 0) {
+            if (!frontierDoesRecrawling) {
                 return false;
             }
-            return uris.get(uri).nextCrawlTimestamp < System.currentTimeMillis();
+            return uris.getValue(slot, NEXT_CRAWL_TIMESTAMP) < now;
         } else {
             return true;
         }
     }
 
     @Override
-    public List<CrawleableUri> getOutdatedUris() {
+    public synchronized List<CrawleableUri> getOutdatedUris() {
         // get all uris with the following property:
         // (nextCrawlTimestamp has passed) AND (crawlingInProcess==false OR lastCrawlTimestamp is 3 times older than generalRecrawlTime)
-
+        // i.e., all uris with a due time <= now
         List<CrawleableUri> urisToRecrawl = new ArrayList<>();
-
-        for (CrawleableUri uri : uris.keySet()) {
-            if (uris.get(uri).nextCrawlTimestamp < System.currentTimeMillis() &&
-                (!uris.get(uri).crawlingInProcess || uris.get(uri).lastCrawlTimestamp < System.currentTimeMillis() - defaultRecrawlTime * 3)) {
-                urisToRecrawl.add(uri);
-                uris.get(uri).crawlingInProcess = true;
+        if (!keepUris) {
+            return urisToRecrawl;
+        }
+        long now = System.currentTimeMillis();
+        long currentBucket = getBucket(now);
+        LongOpenHashSet returnedUris = new LongOpenHashSet();
+        // the index can not be updated while iterating over it
+        LongArrayList inProcessUris = new LongArrayList();
+        LongArrayList timedOutUris = new LongArrayList();
+        LongArrayList notDueUris = new LongArrayList();
+        Iterator<Entry<Long, LongArrayList>> iterator = dueIndex.headMap(currentBucket, true).entrySet().iterator();
+        Entry<Long, LongArrayList> entry;
+        LongArrayList fingerprints;
+        long fingerprint;
+        long slot;
+        long dueTime;
+        while (iterator.hasNext()) {
+            entry = iterator.next();
+            fingerprints = entry.getValue();
+            for (int i = 0; i < fingerprints.size(); ++i) {
+                fingerprint = fingerprints.get(i);
+                slot = uris.find(fingerprint);
+                if ((slot < 0) || returnedUris.contains(fingerprint)) {
+                    continue;
+                }
+                dueTime = getDueTime(slot);
+                if (dueTime <= now) {
+                    try {
+                        urisToRecrawl.add(new CrawleableUri(
+                                new URI(uriStore.get(uris.getValue(slot, URI_REFERENCE)))));
+                    } catch (Exception e) {
+                        LOGGER.error("Couldn't create URI from stored String. It will be ignored.", e);
+                        continue;
+                    }
+                    returnedUris.add(fingerprint);
+                    uris.setFlag(slot, true);
+                    dueTime = getDueTime(slot);
+                    if (dueTime <= now) {
+                        // the crawling already timed out. The URI will be returned
+                        // again with the next call.
+                        timedOutUris.add(fingerprint);
+                    } else {
+                        inProcessUris.add(fingerprint);
+                    }
+                } else if (getBucket(dueTime) == entry.getKey()) {
+                    // the entry is in the current bucket but not due, yet
+                    notDueUris.add(fingerprint);
+                }
+                // else: the entry has been moved to a later bucket
             }
+            iterator.remove();
+        }
+        for (int i = 0; i < inProcessUris.size(); ++i) {
+            addToIndex(inProcessUris.get(i), getDueTime(uris.find(inProcessUris.get(i))));
+        }
+        for (int i = 0; i < timedOutUris.size(); ++i) {
+            addToIndex(timedOutUris.get(i), now);
+        }
+        for (int i = 0; i < notDueUris.size(); ++i) {
+            addToIndex(notDueUris.get(i), now);
         }
         return urisToRecrawl;
     }
 
+    /**
+     * Returns the point in time at which the entry in the given slot will be
+     * returned by {@link #getOutdatedUris()}.
+     */
+    protected long getDueTime(long slot) {
+        long dueTime = uris.getValue(slot, NEXT_CRAWL_TIMESTAMP);
+        dueTime = (dueTime == Long.MAX_VALUE) ? dueTime : (dueTime + 1);
+        if (uris.isFlagSet(slot)) {
+            // crawling is in process
+            long timeout = uris.getValue(slot, LAST_CRAWL_TIMESTAMP) + (defaultRecrawlTime * 3) + 1;
+            dueTime = Math.max(dueTime, timeout);
+        }
+        return dueTime;
+    }
+
+    protected long getBucket(long timestamp) {
+        return Math.floorDiv(timestamp, timeBucketWidth);
+    }
+
+    protected void addToIndex(long fingerprint, long dueTime) {
+        if (dueTime == Long.MAX_VALUE) {
+            // this entry will never become due
+            return;
+        }
+        Long bucket = getBucket(dueTime);
+        LongArrayList fingerprints = dueIndex.get(bucket);
+        if (fingerprints == null) {
+            fingerprints = new LongArrayList();
+            dueIndex.put(bucket, fingerprints);
+        }
+        fingerprints.add(fingerprint);
+    }
+
     @Override
-    public long count() {
+    public synchronized long count() {
         return uris.size();
     }
 
+    public long getTimeBucketWidth() {
+        return timeBucketWidth;
+    }
 
-    private class UriInfo {
-        private long lastCrawlTimestamp;
-        private long nextCrawlTimestamp;
-        private boolean crawlingInProcess;
-
-        UriInfo(long lastCrawlTimestamp, long nextCrawlTimestamp, boolean crawlingInProcess) {
-            this.lastCrawlTimestamp = lastCrawlTimestamp;
-            this.nextCrawlTimestamp = nextCrawlTimestamp;
-            this.crawlingInProcess = crawlingInProcess;
+    /**
+     * Sets the width (in ms) of a single bucket of the time index. It should be
+     * set before URIs are added.
+     *
+     * @param timeBucketWidth
+     *            the width of a time bucket
+     */
+    public void setTimeBucketWidth(long timeBucketWidth) {
+        if (timeBucketWidth <= 0) {
+            throw new IllegalArgumentException("The width of a time bucket has to be positive.");
         }
+        this.timeBucketWidth = timeBucketWidth;
     }
 
-
     @Override
     public void open() {
-        // TODO Auto-generated method stub
-        
+        // nothing to do
+    }
+
+    /**
+     * An append-only store of URIs. The URIs are stored as UTF-8 bytes with a
+     * length prefix in large byte chunks. A URI is referenced by its chunk
+     * (upper 32 bits) and its position within this chunk (lower 32 bits).
+     */
+    protected static class UriStore {
+        private static final int CHUNK_SIZE = 1 << 22;
+
+        private final boolean offHeap;
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        private ByteBuffer currentChunk;
+
+        public UriStore(boolean offHeap) {
+            this.offHeap = offHeap;
+        }
+
+        public long append(String uri) {
+            byte[] bytes = uri.getBytes(StandardCharsets.UTF_8);
+            int length = bytes.length + Integer.BYTES;
+            if ((currentChunk == null) || (currentChunk.remaining() < length)) {
+                int size = Math.max(CHUNK_SIZE, length);
+                currentChunk = offHeap ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+                chunks.add(currentChunk);
+            }
+            long reference = (((long) chunks.size() - 1) << 32) | currentChunk.position();
+            currentChunk.putInt(bytes.length);
+            currentChunk.put(bytes);
+            return reference;
+        }
+
+        public String get(long reference) {
+            ByteBuffer chunk = chunks.get((int) (reference >>> 32)).duplicate();
+            chunk.position((int) reference);
+            byte[] bytes = new byte[chunk.getInt()];
+            chunk.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
     }
-}
\ No newline at end of file
+}
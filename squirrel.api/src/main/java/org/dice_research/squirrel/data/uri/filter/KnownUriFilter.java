@@ -33,6 +33,22 @@ public interface KnownUriFilter extends UriFilter {
     	add(uri, System.currentTimeMillis());
     }
 
+    /**
+     * Adds all given URIs to the list of already known URIs. The default
+     * implementation calls {@link #add(CrawleableUri, long, long)} for every URI.
+     * Implementations based on a database should override this method to add
+     * all URIs with a single request.
+     *
+     * @param uris the URIs that should be added to the list.
+     * @param lastCrawlTimestamp the time at which the given URIs have been crawled.
+     * @param nextCrawlTimestamp The time at which the given URIs should be crawled next.
+     */
+    public default void add(List<CrawleableUri> uris, long lastCrawlTimestamp, long nextCrawlTimestamp) {
+        for (CrawleableUri uri : uris) {
+            add(uri, lastCrawlTimestamp, nextCrawlTimestamp);
+        }
+    }
+
     /**
      * Returns all {@link CrawleableUri}s which have to be recrawled. This means their time to next crawl has passed.
      *
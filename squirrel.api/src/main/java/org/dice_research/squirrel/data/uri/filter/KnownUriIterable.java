@@ -0,0 +1,18 @@
+package org.dice_research.squirrel.data.uri.filter;
+
+import java.util.Iterator;
+
+/**
+ * Interface of a {@link KnownUriFilter} that is able to iterate over all URIs
+ * it knows. It is used to rebuild in-memory structures (e.g., the Bloom filter
+ * of the {@link BloomFilterKnownUriFilter}) from a persistent filter.
+ */
+public interface KnownUriIterable {
+
+    /**
+     * Returns an iterator over the String representations of all known URIs.
+     *
+     * @return an iterator over all known URIs
+     */
+    public Iterator<String> getKnownUriIterator();
+}
@@ -0,0 +1,41 @@
+package org.dice_research.squirrel.data.uri.filter;
+
+/**
+ * The information a {@link RecrawlInfoStore} keeps about a crawled URI to
+ * estimate how often its content changes.
+ */
+public class RecrawlInfo {
+
+    /**
+     * The hash of the content of the last crawl or {@code null} if it is not
+     * known.
+     */
+    protected String contentHash;
+    /**
+     * The recrawl interval (in ms) that has been estimated for the URI or a
+     * value &lt;= 0 if no interval has been estimated, yet.
+     */
+    protected long recrawlInterval;
+    /**
+     * The timestamp of the last crawl.
+     */
+    protected long lastCrawlTimestamp;
+
+    public RecrawlInfo(String contentHash, long recrawlInterval, long lastCrawlTimestamp) {
+        this.contentHash = contentHash;
+        this.recrawlInterval = recrawlInterval;
+        this.lastCrawlTimestamp = lastCrawlTimestamp;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public long getRecrawlInterval() {
+        return recrawlInterval;
+    }
+
+    public long getLastCrawlTimestamp() {
+        return lastCrawlTimestamp;
+    }
+}
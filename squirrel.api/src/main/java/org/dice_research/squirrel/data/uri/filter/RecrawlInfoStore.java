@@ -0,0 +1,63 @@
+package org.dice_research.squirrel.data.uri.filter;
+
+import java.util.List;
+
+import org.dice_research.squirrel.Constants;
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+
+/**
+ * Interface of a {@link KnownUriFilter} that stores the content hash and the
+ * estimated recrawl interval of crawled URIs. It enables the frontier to adapt
+ * the recrawl interval of a URI to the observed changes of its content.
+ */
+public interface RecrawlInfoStore {
+
+    /**
+     * Returns the stored information about the given URIs with a single
+     * request.
+     *
+     * @param uris
+     *            the URIs for which the information should be retrieved
+     * @return a list with the information of the URIs in the same order as the
+     *         given URIs. The list contains {@code null} for URIs that have not
+     *         been crawled before.
+     */
+    public List<RecrawlInfo> getRecrawlInfos(List<CrawleableUri> uris);
+
+    /**
+     * Adds the given crawled URIs. The content hash
+     * ({@link Constants#URI_CONTENT_HASH}) and the recrawl interval
+     * ({@link Constants#URI_RECRAWL_INTERVAL}) are read from the data of the
+     * single URIs. The next crawl timestamp of a URI is its preferred recrawl
+     * timestamp ({@link Constants#URI_PREFERRED_RECRAWL_ON}) if it has one or
+     * the given last crawl timestamp plus its recrawl interval.
+     *
+     * @param uris
+     *            the crawled URIs
+     * @param lastCrawlTimestamp
+     *            the timestamp of the crawl
+     */
+    public void addCrawledUris(List<CrawleableUri> uris, long lastCrawlTimestamp);
+
+    /**
+     * Determines the next crawl timestamp of the given crawled URI as described
+     * in {@link #addCrawledUris(List, long)}.
+     *
+     * @param uri
+     *            the crawled URI
+     * @param lastCrawlTimestamp
+     *            the timestamp of the crawl
+     * @return the next crawl timestamp of the URI
+     */
+    public static long getNextCrawlTimestamp(CrawleableUri uri, long lastCrawlTimestamp) {
+        Object recrawlOn = uri.getData(Constants.URI_PREFERRED_RECRAWL_ON);
+        if (recrawlOn instanceof Number) {
+            return ((Number) recrawlOn).longValue();
+        }
+        Object interval = uri.getData(Constants.URI_RECRAWL_INTERVAL);
+        if (interval instanceof Number) {
+            return lastCrawlTimestamp + ((Number) interval).longValue();
+        }
+        return lastCrawlTimestamp;
+    }
+}
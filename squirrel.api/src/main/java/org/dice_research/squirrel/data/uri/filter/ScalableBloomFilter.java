@@ -0,0 +1,253 @@
+package org.dice_research.squirrel.data.uri.filter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter for 64-bit fingerprints that grows with the number of added
+ * elements. The filter consists of a series of stages. If the current stage
+ * reaches its capacity, a new stage with twice the capacity and half the false
+ * positive rate is added. Hence, the overall false positive rate stays below
+ * the configured rate independent of the number of added elements.
+ *
+ * <p>
+ * The bits of every stage are stored in an {@link AtomicLongArray}, i.e.,
+ * {@link #mightContain(long)} and {@link #put(long)} can be called
+ * concurrently. The k bit positions of a fingerprint are derived from its two
+ * 32-bit halves via double hashing.
+ * </p>
+ */
+public class ScalableBloomFilter {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final double LN2 = Math.log(2);
+
+    /**
+     * The false positive rate the filter should not exceed.
+     */
+    protected final double falsePositiveRate;
+    /**
+     * The number of elements the first stage can take.
+     */
+    protected final long initialCapacity;
+    /**
+     * The stages of the filter. The last stage is the one new elements are
+     * added to. The array is replaced when a new stage is added.
+     */
+    protected volatile Stage[] stages;
+
+    /**
+     * Constructor.
+     *
+     * @param initialCapacity
+     *            the number of elements the first stage can take
+     * @param falsePositiveRate
+     *            the false positive rate the filter should not exceed
+     */
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("The initial capacity has to be positive.");
+        }
+        if ((falsePositiveRate <= 0) || (falsePositiveRate >= 1)) {
+            throw new IllegalArgumentException("The false positive rate has to be in (0, 1).");
+        }
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.stages = new Stage[] { new Stage(initialCapacity, falsePositiveRate / 2) };
+    }
+
+    protected ScalableBloomFilter(long initialCapacity, double falsePositiveRate, Stage[] stages) {
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.stages = stages;
+    }
+
+    /**
+     * Checks whether the given fingerprint might have been added to this filter.
+     *
+     * @param fingerprint
+     *            the fingerprint that should be checked
+     * @return {@code false} if the fingerprint has definitely not been added,
+     *         {@code true} if it might have been added
+     */
+    public boolean mightContain(long fingerprint) {
+        for (Stage stage : stages) {
+            if (stage.mightContain(fingerprint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the given fingerprint to this filter.
+     *
+     * @param fingerprint
+     *            the fingerprint that should be added
+     * @return {@code true} if the fingerprint has been added, {@code false} if
+     *         the filter might have contained it already
+     */
+    public boolean put(long fingerprint) {
+        if (mightContain(fingerprint)) {
+            return false;
+        }
+        Stage[] currentStages = stages;
+        Stage stage = currentStages[currentStages.length - 1];
+        if (stage.count.get() >= stage.capacity) {
+            stage = grow(currentStages);
+        }
+        stage.put(fingerprint);
+        return true;
+    }
+
+    private synchronized Stage grow(Stage[] observedStages) {
+        Stage[] currentStages = stages;
+        if (currentStages != observedStages) {
+            // another thread already added a stage
+            return currentStages[currentStages.length - 1];
+        }
+        Stage last = currentStages[currentStages.length - 1];
+        Stage[] newStages = new Stage[currentStages.length + 1];
+        System.arraycopy(currentStages, 0, newStages, 0, currentStages.length);
+        newStages[currentStages.length] = new Stage(last.capacity * 2, last.falsePositiveRate / 2);
+        stages = newStages;
+        return newStages[currentStages.length];
+    }
+
+    /**
+     * @return the (approximated) number of elements added to this filter
+     */
+    public long size() {
+        long size = 0;
+        for (Stage stage : stages) {
+            size += stage.count.get();
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of bits used by all stages of this filter
+     */
+    public long getNumberOfBits() {
+        long bits = 0;
+        for (Stage stage : stages) {
+            bits += stage.numberOfBits;
+        }
+        return bits;
+    }
+
+    /**
+     * Writes this filter to the given stream. Elements that are added
+     * concurrently might not be part of the written data.
+     *
+     * @param out
+     *            the stream the filter is written to
+     * @throws IOException
+     *             if an error occurs while writing
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        Stage[] currentStages = stages;
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(initialCapacity);
+        out.writeDouble(falsePositiveRate);
+        out.writeInt(currentStages.length);
+        for (Stage stage : currentStages) {
+            out.writeLong(stage.capacity);
+            out.writeDouble(stage.falsePositiveRate);
+            out.writeLong(stage.count.get());
+            for (int i = 0; i < stage.bits.length(); ++i) {
+                out.writeLong(stage.bits.get(i));
+            }
+        }
+    }
+
+    /**
+     * Reads a filter that has been written with
+     * {@link #writeTo(DataOutputStream)}.
+     *
+     * @param in
+     *            the stream the filter is read from
+     * @return the filter
+     * @throws IOException
+     *             if an error occurs while reading or the data has an unknown
+     *             format
+     */
+    public static ScalableBloomFilter readFrom(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unknown Bloom filter format version " + version + ".");
+        }
+        long initialCapacity = in.readLong();
+        double falsePositiveRate = in.readDouble();
+        Stage[] stages = new Stage[in.readInt()];
+        for (int s = 0; s < stages.length; ++s) {
+            stages[s] = new Stage(in.readLong(), in.readDouble());
+            stages[s].count.set(in.readLong());
+            for (int i = 0; i < stages[s].bits.length(); ++i) {
+                stages[s].bits.set(i, in.readLong());
+            }
+        }
+        return new ScalableBloomFilter(initialCapacity, falsePositiveRate, stages);
+    }
+
+    /**
+     * A single stage of the filter, i.e., a classic Bloom filter with a fixed
+     * capacity.
+     */
+    protected static class Stage {
+        protected final long capacity;
+        protected final double falsePositiveRate;
+        protected final long numberOfBits;
+        protected final int numberOfHashes;
+        protected final AtomicLongArray bits;
+        protected final AtomicLong count = new AtomicLong();
+
+        public Stage(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            long m = (long) Math.ceil((-capacity * Math.log(falsePositiveRate)) / (LN2 * LN2));
+            // round up to a multiple of 64
+            m = Math.max(64, (m + 63) & ~63L);
+            if ((m >>> 6) > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("The Bloom filter stage would be too large.");
+            }
+            this.numberOfBits = m;
+            this.numberOfHashes = Math.max(1, (int) Math.round(((double) m / capacity) * LN2));
+            this.bits = new AtomicLongArray((int) (m >>> 6));
+        }
+
+        public boolean mightContain(long fingerprint) {
+            long h1 = fingerprint & 0xffffffffL;
+            long h2 = fingerprint >>> 32;
+            long index;
+            for (int i = 0; i < numberOfHashes; ++i) {
+                index = ((h1 + (i * h2)) & Long.MAX_VALUE) % numberOfBits;
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public void put(long fingerprint) {
+            long h1 = fingerprint & 0xffffffffL;
+            long h2 = fingerprint >>> 32;
+            long index;
+            int word;
+            long mask;
+            long value;
+            for (int i = 0; i < numberOfHashes; ++i) {
+                index = ((h1 + (i * h2)) & Long.MAX_VALUE) % numberOfBits;
+                word = (int) (index >>> 6);
+                mask = 1L << index;
+                do {
+                    value = bits.get(word);
+                } while (((value & mask) == 0) && !bits.compareAndSet(word, value, value | mask));
+            }
+            count.incrementAndGet();
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package org.dice_research.squirrel.data.uri.filter;
 
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Consumer;
+
 import org.dice_research.squirrel.data.uri.CrawleableUri;
 
 /**
@@ -21,6 +25,44 @@ public interface UriFilter {
      *         requirements imposed by this filter. Otherwise false is returned.
      */
     public boolean isUriGood(CrawleableUri uri);
+
+    /**
+     * Checks all given {@link CrawleableUri} objects. The default implementation
+     * calls {@link #isUriGood(CrawleableUri)} for every URI. Filters that are
+     * based on a database should override this method to check all URIs with a
+     * single request.
+     * 
+     * @param uris
+     *            the {@link CrawleableUri} objects that are checked
+     * @return a bit set in which the i-th bit is set if the i-th URI fulfills
+     *         the requirements imposed by this filter
+     */
+    public default BitSet areUrisGood(List<CrawleableUri> uris) {
+        BitSet goodUris = new BitSet(uris.size());
+        for (int i = 0; i < uris.size(); ++i) {
+            if (isUriGood(uris.get(i))) {
+                goodUris.set(i);
+            }
+        }
+        return goodUris;
+    }
+
+    /**
+     * Checks all given {@link CrawleableUri} objects and hands the result over
+     * to the given callback. Filters that are based on a database can override
+     * this method to defer the check and collect the URIs of several requests
+     * into a single request. The default implementation calls
+     * {@link #areUrisGood(List)} and the callback directly.
+     * 
+     * @param uris
+     *            the {@link CrawleableUri} objects that are checked
+     * @param callback
+     *            the consumer of the result (see {@link #areUrisGood(List)})
+     *            which might be called by another thread later on
+     */
+    public default void checkUris(List<CrawleableUri> uris, Consumer<BitSet> callback) {
+        callback.accept(areUrisGood(uris));
+    }
     
     
     /**
@@ -1,9 +1,16 @@
 package org.dice_research.squirrel.data.uri.filter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * 
@@ -18,7 +25,13 @@ import org.dice_research.squirrel.data.uri.CrawleableUri;
  *  all the UriFilters will return true in their respectives isUriGood(CrawleableUri) methods 
  *  
  *  In case the Operator is <<OR>>, if at least one of then returns true, the isUriGood(CrawleableUri) method will return true.
-
+ *
+ * The {@link KnownUriFilter} is always evaluated last since it typically
+ * needs a (remote) database lookup. The other filters are evaluated in the
+ * order of their expected cost for deciding about a URI, i.e., the average
+ * time of a check divided by the rate with which the filter rejects (AND) or
+ * accepts (OR) URIs. The statistics of all filters are measured while the
+ * filters are used and are available via {@link #getFilterStatistics()}.
  * 
  * @author Geraldo de Souza Junior (gsjunior@mail.uni-paderborn.de)
  *
@@ -26,53 +39,265 @@ import org.dice_research.squirrel.data.uri.CrawleableUri;
 
 public class UriFilterConfigurator implements UriFilterComposer {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(UriFilterConfigurator.class);
+
+	/**
+	 * The number of checked URIs after which the order of the filters is
+	 * updated.
+	 */
+	public static final int DEFAULT_REORDER_INTERVAL = 1000;
+	/**
+	 * The minimal rejection (or acceptance) rate that is used for ranking a
+	 * filter to avoid a division by zero.
+	 */
+	private static final double MIN_DECISION_RATE = 0.001;
+
 	private KnownUriFilter knownUriFilter;
 	private List<UriFilter> listUriFilters;
 	private final String OPERATOR;
+	private final boolean isOrOperation;
+	private final FilterStatistics[] filterStatistics;
+	private final FilterStatistics knownUriFilterStatistics;
+	/**
+	 * The positions of the filters in {@link #listUriFilters} in the order in
+	 * which they are evaluated.
+	 */
+	private volatile int[] filterOrder;
+	private int reorderInterval = DEFAULT_REORDER_INTERVAL;
+	private final AtomicLong urisSinceReorder = new AtomicLong();
 
 	public UriFilterConfigurator(KnownUriFilter knownUriFilter, List<UriFilter> listUriFilters,String operator) {
 		this.knownUriFilter = knownUriFilter;
 		this.listUriFilters = listUriFilters;
 		this.OPERATOR = operator;
+		this.isOrOperation = "OR".equals(operator);
+		filterStatistics = new FilterStatistics[listUriFilters.size()];
+		filterOrder = new int[filterStatistics.length];
+		for (int i = 0; i < filterStatistics.length; ++i) {
+			filterStatistics[i] = new FilterStatistics(listUriFilters.get(i).getClass().getSimpleName());
+			filterOrder[i] = i;
+		}
+		knownUriFilterStatistics = new FilterStatistics(knownUriFilter.getClass().getSimpleName());
 	}
 
 	public UriFilterConfigurator(KnownUriFilter knownUriFilter,String operator) {
-		this.knownUriFilter = knownUriFilter;
-		this.listUriFilters = new ArrayList<UriFilter>();
-		this.OPERATOR = operator;
+		this(knownUriFilter, new ArrayList<UriFilter>(), operator);
 	}
 
 	@Override
 	public boolean isUriGood(CrawleableUri uri) {
 
-		if(this.OPERATOR.equals("OR"))
+		if(isOrOperation)
 			return computeOrOperation(uri);
 		else 
 			return computeAndOperation(uri);
 	}
 
 	private boolean computeAndOperation(CrawleableUri uri) {
-		boolean isUrisGood = false;
+		return computeListAndOperation(uri) && checkKnownUri(uri);
+	}
+	
+	private boolean computeOrOperation(CrawleableUri uri) {
+		return computeListOrOperation(uri) || checkKnownUri(uri);
+	}
 
-		for (UriFilter uriFilter : listUriFilters) {
-			isUrisGood = uriFilter.isUriGood(uri);
-			if(!isUrisGood)
-				break;
+	private boolean checkKnownUri(CrawleableUri uri) {
+		long start = System.nanoTime();
+		boolean isUriGood = knownUriFilter.isUriGood(uri);
+		knownUriFilterStatistics.record(System.nanoTime() - start, isUriGood);
+		return isUriGood;
+	}
+
+	private boolean computeListAndOperation(CrawleableUri uri) {
+		for (int i : filterOrder) {
+			if (!checkUri(i, uri)) {
+				countCheckedUris(1);
+				return false;
+			}
 		}
+		countCheckedUris(1);
+		return true;
+	}
 
-		return isUrisGood && knownUriFilter.isUriGood(uri);
+	private boolean computeListOrOperation(CrawleableUri uri) {
+		for (int i : filterOrder) {
+			if (checkUri(i, uri)) {
+				countCheckedUris(1);
+				return true;
+			}
+		}
+		countCheckedUris(1);
+		return false;
+	}
+
+	private boolean checkUri(int filterId, CrawleableUri uri) {
+		long start = System.nanoTime();
+		boolean isUriGood = listUriFilters.get(filterId).isUriGood(uri);
+		filterStatistics[filterId].record(System.nanoTime() - start, isUriGood);
+		return isUriGood;
+	}
+
+	/**
+	 * Checks all given URIs. The filters are applied one after the other on the
+	 * URIs that are still undecided. Hence, the {@link KnownUriFilter} is called
+	 * only once and only for the URIs whose result depends on it.
+	 */
+	@Override
+	public BitSet areUrisGood(List<CrawleableUri> uris) {
+		BitSet goodUris = new BitSet(uris.size());
+		int[] positions = new int[uris.size()];
+		List<CrawleableUri> remainingUris = applyFilters(uris, goodUris, positions);
+		if (!remainingUris.isEmpty()) {
+			long start = System.nanoTime();
+			BitSet knownUriResults = knownUriFilter.areUrisGood(remainingUris);
+			addKnownUriResults(remainingUris, knownUriResults, start, positions, goodUris);
+		}
+		return goodUris;
 	}
-	
-	private boolean computeOrOperation(CrawleableUri uri) {
-		boolean isUrisGood = false;
 
-		for (UriFilter uriFilter : listUriFilters) {
-			isUrisGood = uriFilter.isUriGood(uri);
-			if(isUrisGood)
+	/**
+	 * Checks all given URIs like {@link #areUrisGood(List)}. The URIs that are
+	 * still undecided after the other filters are handed over to
+	 * {@link KnownUriFilter#checkUris(List, Consumer)}, i.e., the result might be
+	 * delivered by another thread.
+	 */
+	@Override
+	public void checkUris(List<CrawleableUri> uris, Consumer<BitSet> callback) {
+		BitSet goodUris = new BitSet(uris.size());
+		int[] positions = new int[uris.size()];
+		List<CrawleableUri> remainingUris = applyFilters(uris, goodUris, positions);
+		if (remainingUris.isEmpty()) {
+			callback.accept(goodUris);
+			return;
+		}
+		long start = System.nanoTime();
+		knownUriFilter.checkUris(remainingUris, knownUriResults -> {
+			addKnownUriResults(remainingUris, knownUriResults, start, positions, goodUris);
+			callback.accept(goodUris);
+		});
+	}
+
+	/**
+	 * Applies all filters except the {@link KnownUriFilter} on the given URIs.
+	 * URIs that are accepted are marked in the given bit set. The URIs whose
+	 * result depends on the {@link KnownUriFilter} are returned while their
+	 * positions in the given list are written to the given array.
+	 */
+	private List<CrawleableUri> applyFilters(List<CrawleableUri> uris, BitSet goodUris, int[] positions) {
+		// the URIs that are still undecided and their positions in the given list
+		List<CrawleableUri> remainingUris = new ArrayList<>(uris);
+		for (int i = 0; i < positions.length; ++i) {
+			positions[i] = i;
+		}
+		for (int filterId : filterOrder) {
+			if (remainingUris.isEmpty()) {
 				break;
+			}
+			UriFilter filter = listUriFilters.get(filterId);
+			List<CrawleableUri> undecidedUris = new ArrayList<>(remainingUris.size());
+			int rejected = 0;
+			long start = System.nanoTime();
+			for (int i = 0; i < remainingUris.size(); ++i) {
+				boolean isUriGood = filter.isUriGood(remainingUris.get(i));
+				if (!isUriGood) {
+					++rejected;
+				}
+				if (isOrOperation && isUriGood) {
+					goodUris.set(positions[i]);
+				} else if (isOrOperation || isUriGood) {
+					positions[undecidedUris.size()] = positions[i];
+					undecidedUris.add(remainingUris.get(i));
+				}
+			}
+			filterStatistics[filterId].record(remainingUris.size(), rejected, System.nanoTime() - start);
+			remainingUris = undecidedUris;
+		}
+		countCheckedUris(uris.size());
+		return remainingUris;
+	}
+
+	private void addKnownUriResults(List<CrawleableUri> remainingUris, BitSet knownUriResults, long start,
+			int[] positions, BitSet goodUris) {
+		knownUriFilterStatistics.record(remainingUris.size(), remainingUris.size() - knownUriResults.cardinality(),
+				System.nanoTime() - start);
+		for (int i = knownUriResults.nextSetBit(0); i >= 0; i = knownUriResults.nextSetBit(i + 1)) {
+			goodUris.set(positions[i]);
+		}
+	}
+
+	/**
+	 * Counts the checked URIs and updates the order of the filters if
+	 * {@link #reorderInterval} URIs have been checked since the last update.
+	 */
+	private void countCheckedUris(int count) {
+		if ((filterOrder.length > 1) && (urisSinceReorder.addAndGet(count) >= reorderInterval)) {
+			urisSinceReorder.set(0);
+			updateFilterOrder();
+		}
+	}
+
+	/**
+	 * Sorts the filters ascending by their expected cost for deciding about a
+	 * URI. Filters without statistics are evaluated first to gather them.
+	 */
+	protected synchronized void updateFilterOrder() {
+		final double[] ranks = new double[filterStatistics.length];
+		for (int i = 0; i < ranks.length; ++i) {
+			double decisionRate = filterStatistics[i].getRejectionRate();
+			if (isOrOperation) {
+				decisionRate = 1 - decisionRate;
+			}
+			ranks[i] = filterStatistics[i].getAverageNanos() / Math.max(decisionRate, MIN_DECISION_RATE);
+		}
+		Integer[] order = new Integer[ranks.length];
+		for (int i = 0; i < order.length; ++i) {
+			order[i] = i;
+		}
+		// the sort is stable, i.e., filters with the same rank keep their order
+		Arrays.sort(order, (a, b) -> Double.compare(ranks[a], ranks[b]));
+		int[] newOrder = new int[order.length];
+		for (int i = 0; i < order.length; ++i) {
+			newOrder[i] = order[i];
+		}
+		if (!Arrays.equals(newOrder, filterOrder)) {
+			filterOrder = newOrder;
+			if (LOGGER.isDebugEnabled()) {
+				StringBuilder builder = new StringBuilder();
+				for (int i : newOrder) {
+					builder.append(filterStatistics[i]).append(' ');
+				}
+				builder.append(knownUriFilterStatistics);
+				LOGGER.debug("Changed the order of the URI filters to {}", builder);
+			}
+		}
+	}
+
+	/**
+	 * @return the statistics of the filters (without the {@link KnownUriFilter})
+	 *         in the order in which the filters have been configured
+	 */
+	public List<FilterStatistics> getFilterStatistics() {
+		return Collections.unmodifiableList(Arrays.asList(filterStatistics));
+	}
+
+	public FilterStatistics getKnownUriFilterStatistics() {
+		return knownUriFilterStatistics;
+	}
+
+	/**
+	 * @return the filters (without the {@link KnownUriFilter}) in the order in
+	 *         which they are currently evaluated
+	 */
+	public List<UriFilter> getFilterOrder() {
+		List<UriFilter> filters = new ArrayList<>(filterOrder.length);
+		for (int i : filterOrder) {
+			filters.add(listUriFilters.get(i));
 		}
+		return filters;
+	}
 
-		return isUrisGood || knownUriFilter.isUriGood(uri);
+	public void setReorderInterval(int reorderInterval) {
+		this.reorderInterval = reorderInterval;
 	}
 
 	@Override
@@ -7,6 +7,8 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.HostDictionary;
+import org.dice_research.squirrel.data.uri.IdDictionary;
 
 /**
  * A URI group by operator defines they way how several URIs are transformed
@@ -29,6 +31,20 @@ public interface UriGroupByOperator<T> {
      */
     public T retrieveKey(CrawleableUri uri);
 
+    /**
+     * Returns the dictionary of the given {@link HostDictionary} that assigns
+     * the IDs of the key values of this operator or {@code null} if the key
+     * values are not taken from the dictionary. The default implementation
+     * returns {@code null}.
+     * 
+     * @param hostDictionary
+     *            the host dictionary of the frontier
+     * @return the dictionary of the key values or {@code null}
+     */
+    public default IdDictionary<T> getKeyIds(HostDictionary hostDictionary) {
+        return null;
+    }
+
     /**
      * Transforms the given set of URIs into groups based on their key values that
      * are retrieved for each of them.
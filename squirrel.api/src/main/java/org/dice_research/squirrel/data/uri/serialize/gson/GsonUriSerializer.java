@@ -9,6 +9,7 @@ import java.util.Map;
 
 import org.dice_research.squirrel.Constants;
 import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.HostDictionary;
 import org.dice_research.squirrel.data.uri.UriType;
 import org.dice_research.squirrel.data.uri.serialize.Serializer;
 import org.slf4j.Logger;
@@ -64,6 +65,8 @@ public class GsonUriSerializer implements Serializer {
         private static final String ADDRESS_IP_KEY = "ip";
         private static final String ADDRESS_HOST_KEY = "host";
         private static final String URI_TYPE_KEY = "type";
+        private static final String HOST_ID_KEY = "hostId";
+        private static final String IP_ADDRESS_ID_KEY = "ipAddressId";
         private static final String DATA_KEY = "data";
         private static final String DATA_NAME_KEY = "name";
         private static final String DATA_VALUE_KEY = "value";
@@ -81,6 +84,15 @@ public class GsonUriSerializer implements Serializer {
                 out.name(ADDRESS_KEY);
                 writeInetAddress(out, uri.getIpAddress());
             }
+            // the IDs of the frontier's HostDictionary are sent back with the URI
+            if (uri.getHostId() != HostDictionary.UNKNOWN_ID) {
+                out.name(HOST_ID_KEY);
+                out.value(uri.getHostId());
+            }
+            if (uri.getIpAddressId() != HostDictionary.UNKNOWN_ID) {
+                out.name(IP_ADDRESS_ID_KEY);
+                out.value(uri.getIpAddressId());
+            }
             out.name(DATA_KEY);
             out.beginArray();
             Map<String, Object> data = uri.getData();
@@ -128,6 +140,8 @@ public class GsonUriSerializer implements Serializer {
             String key;
             InetAddress inetAddress = null;
             UriType type = UriType.UNKNOWN;
+            int hostId = HostDictionary.UNKNOWN_ID;
+            int ipAddressId = HostDictionary.UNKNOWN_ID;
             Map<String, Object> data = new HashMap<String, Object>();
             while (in.peek() != JsonToken.END_OBJECT) {
                 key = in.nextName();
@@ -144,6 +158,14 @@ public class GsonUriSerializer implements Serializer {
                     inetAddress = readInetAddress(in);
                     break;
                 }
+                case HOST_ID_KEY: {
+                    hostId = in.nextInt();
+                    break;
+                }
+                case IP_ADDRESS_ID_KEY: {
+                    ipAddressId = in.nextInt();
+                    break;
+                }
                 case DATA_KEY: {
                     in.beginArray();
                     while (in.hasNext()) {
@@ -167,6 +189,8 @@ public class GsonUriSerializer implements Serializer {
                 throw new IOException(e);
             }
             result.setData(data);
+            result.setHostId(hostId);
+            result.setIpAddressId(ipAddressId);
             return result;
         }
 
@@ -2,20 +2,93 @@ package org.dice_research.squirrel.queue;
 
 import java.util.AbstractMap;
 import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.dice_research.squirrel.Constants;
 import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.HostDictionary;
+import org.dice_research.squirrel.data.uri.IdDictionary;
 import org.dice_research.squirrel.data.uri.group.UriGroupByOperator;
 
+import com.carrotsearch.hppc.IntOpenHashSet;
+
 /**
- * This abstract class manages two important aspects of a queue. It uses a mutex
- * to access the queue and it manages a set containing Domains that are
- * currently blocked by one of the workers.
+ * This abstract class manages two important aspects of a queue. It
+ * synchronizes the access to the queue and it manages a set containing Domains
+ * that are currently blocked by one of the workers.
+ * 
+ * <p>
+ * Instead of a single mutex, the group keys are hashed onto a fixed number of
+ * lock stripes. All accesses to the URIs of a single group (i.e., the calls of
+ * {@link #addUri(CrawleableUri, Object)}, {@link #getUris(Object, int)} and
+ * {@link #deleteUris(Object, List)}) are synchronized on the stripe of the
+ * group while accesses to different groups can be executed in parallel. Hence,
+ * implementations have to make sure that these methods can be called
+ * concurrently for different groups and that {@link #getGroupIterator()} can
+ * be used while the queue is changed. A group key is claimed atomically by
+ * adding it to the set of blocked keys.
+ * </p>
+ * 
+ * <p>
+ * Every group key gets a compact int ID from the {@link #groupIds} dictionary
+ * (like the host IDs of the {@link HostDictionary}). The set of blocked keys
+ * and the statistics of the controllers are keyed by these IDs, i.e., they are
+ * kept in primitive hash sets and maps instead of boxing the (often composite)
+ * group key for every lookup. If the group keys are IP addresses, the queue
+ * uses the dictionary of the frontier's {@link HostDictionary} (see
+ * {@link #setHostDictionary(HostDictionary)}), i.e., a key is interned only
+ * once. Otherwise, it uses its own dictionary. Like the host IDs,
+ * a group ID is never removed from the dictionary, i.e., a group that is
+ * re-added later on gets its old ID.
+ * </p>
+ * 
+ * <p>
+ * The groups that are not leased are kept in a {@link GroupScheduler}, i.e., a
+ * heap ordered by the point in time at which the group may be fetched again.
+ * When a lease is acknowledged, the group is scheduled for the current time
+ * plus the crawl delay the worker reported via {@link Constants#URI_CRAWL_DELAY}
+ * (or {@link #defaultCrawlDelay} if no delay has been reported). Hence,
+ * {@link #getNextUris()} only hands out groups that may be fetched immediately.
+ * Groups with a crawl delay larger than {@link #maxDelayWithinLease} are handed
+ * out in leases containing a single URI to make sure that a worker does not
+ * hold a lease while waiting for the next allowed request. Among the groups
+ * that may be fetched, groups with a high yield (see {@link GroupYieldScorer})
+ * are preferred.
+ * </p>
+ * 
+ * <p>
+ * The outcomes of the crawled URIs are tracked by the
+ * {@link #backoffController}. A group whose lease failed (e.g., because its
+ * host timed out or answered with 5xx) is not fetched for an exponentially
+ * growing backoff time and gets leases with a single URI until a lease
+ * succeeds. A group that failed too often is quarantined, i.e., its URIs stay
+ * in the queue and only single URIs are handed out from time to time to probe
+ * whether the group is available again.
+ * </p>
+ * 
+ * <p>
+ * The URIs of a group are handed out in leases of a limited size. The number
+ * of URIs in a lease is determined by the {@link #leaseSizeController} and is
+ * further limited by {@link #maxBytesPerLease}. A lease is always taken from
+ * the head of the group, i.e., after a lease has been acknowledged via
+ * {@link #markUrisAsAccessible(Collection)} and its URIs have been removed, the
+ * next lease of this group continues with the following URIs.
+ * </p>
+ * 
+ * <p>
+ * Queues that are stored in a database can be shared between several frontier
+ * instances. Such a queue has to claim a group atomically in its storage by
+ * overriding {@link #claimGroup(Object, long)},
+ * {@link #claimNextGroup(long)} and {@link #releaseGroup(Object, long)}. The
+ * local {@link #scheduler} is then only used as a cache of the groups this
+ * instance knows about.
+ * </p>
  *
  * @author Geraldo de Souza Junior (gsjunior@mail.uni-paderborn.de)
  */
@@ -27,9 +100,78 @@ public abstract class AbstractGroupingQueue<T> implements BlockingQueue<T> {
      */
     private UriGroupByOperator<T> groupByOperator;
     /**
-     * Set of blocked key values.
+     * The IDs of the group keys.
+     */
+    protected IdDictionary<T> groupIds = new IdDictionary<>();
+    /**
+     * IDs of the blocked keys. The set is guarded by its own monitor.
+     */
+    private IntOpenHashSet blockedKeys = new IntOpenHashSet();
+    /**
+     * The lock stripes used to synchronize the access to the single groups.
+     */
+    private final Object[] lockStripes;
+    /**
+     * The scheduler of all groups that are currently not leased.
+     */
+    protected GroupScheduler<T> scheduler = new GroupScheduler<>();
+    /**
+     * Flag indicating whether the groups that already exist in the queue (e.g.,
+     * after a restart of a persistent queue) have been added to the
+     * {@link #scheduler}.
+     */
+    private AtomicBoolean groupsLoaded = new AtomicBoolean(false);
+    /**
+     * The delay (in ms) between two requests to a group that is used if the
+     * worker did not report a crawl delay.
+     */
+    protected long defaultCrawlDelay = 0;
+    /**
+     * Groups with a larger crawl delay (in ms) are handed out in leases with a
+     * single URI.
+     */
+    protected long maxDelayWithinLease = DEFAULT_MAX_DELAY_WITHIN_LEASE;
+    /**
+     * Determines the number of URIs of a single lease.
+     */
+    protected LeaseSizeController leaseSizeController = new LeaseSizeController();
+    /**
+     * Determines the priority of a group based on the yield of its previous
+     * leases.
+     */
+    protected GroupYieldScorer yieldScorer = new GroupYieldScorer();
+    /**
+     * Determines the backoff and the quarantine of groups based on the
+     * outcomes of their previous leases.
+     */
+    protected GroupBackoffController backoffController = new GroupBackoffController();
+    /**
+     * The maximum (estimated) size of a lease in bytes. A value &lt;= 0 disables
+     * the limitation.
      */
-    private Set<T> blockedKeys = new HashSet<T>();
+    protected long maxBytesPerLease = DEFAULT_MAX_BYTES_PER_LEASE;
+    
+    /**
+     * Default number of lock stripes.
+     */
+    public static final int DEFAULT_NUMBER_OF_LOCK_STRIPES = 64;
+    /**
+     * Default value for {@link #maxDelayWithinLease} (1 second).
+     */
+    public static final long DEFAULT_MAX_DELAY_WITHIN_LEASE = 1000;
+    /**
+     * Default value for {@link #maxBytesPerLease} (1 MB).
+     */
+    public static final long DEFAULT_MAX_BYTES_PER_LEASE = 1024 * 1024;
+    /**
+     * Estimated number of bytes a URI needs in addition to its String
+     * representation.
+     */
+    private static final int URI_SIZE_OVERHEAD = 64;
+    /**
+     * Estimated number of bytes a single data entry of a URI needs.
+     */
+    private static final int DATA_ENTRY_SIZE = 32;
     
     /**
      * if the queue will store the depth or not
@@ -43,13 +185,141 @@ public abstract class AbstractGroupingQueue<T> implements BlockingQueue<T> {
      *            Operator used to group URIs
      */
     public AbstractGroupingQueue(UriGroupByOperator<T> groupByOperator) {
+        this(groupByOperator, DEFAULT_NUMBER_OF_LOCK_STRIPES);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param groupByOperator
+     *            Operator used to group URIs
+     * @param numberOfLockStripes
+     *            the number of locks the group keys are distributed on
+     */
+    public AbstractGroupingQueue(UriGroupByOperator<T> groupByOperator, int numberOfLockStripes) {
         this.groupByOperator = groupByOperator;
+        lockStripes = new Object[Math.max(1, numberOfLockStripes)];
+        for (int i = 0; i < lockStripes.length; ++i) {
+            lockStripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Returns the ID of the given group key. If the key has not been seen
+     * before, a new ID is assigned.
+     * 
+     * @param groupKey
+     *            the key of the group (must not be {@code null})
+     * @return the ID of the group
+     */
+    public int getGroupId(T groupKey) {
+        return groupIds.getId(groupKey);
+    }
+
+    /**
+     * Lets the queue use the IDs of the given {@link HostDictionary} as group IDs
+     * if the {@link #groupByOperator} takes its keys from this dictionary. Has to
+     * be called before URIs are added to the queue.
+     * 
+     * @param hostDictionary
+     *            the host dictionary of the frontier
+     */
+    public void setHostDictionary(HostDictionary hostDictionary) {
+        IdDictionary<T> keyIds = groupByOperator.getKeyIds(hostDictionary);
+        if (keyIds != null) {
+            groupIds = keyIds;
+        }
+    }
+
+    /**
+     * Marks the given group as leased.
+     * 
+     * @param groupId
+     *            the ID of the group
+     * @return {@code true} if the group has not been blocked before
+     */
+    private boolean blockKey(int groupId) {
+        synchronized (blockedKeys) {
+            return blockedKeys.add(groupId);
+        }
+    }
+
+    /**
+     * Removes the lease mark of the given group.
+     * 
+     * @param groupId
+     *            the ID of the group
+     * @return {@code true} if the group has been blocked
+     */
+    private boolean unblockKey(int groupId) {
+        synchronized (blockedKeys) {
+            return blockedKeys.remove(groupId);
+        }
+    }
+
+    /**
+     * Returns the lock that guards the URIs of the given group.
+     * 
+     * @param groupKey
+     *            the key of the group
+     * @return the lock stripe of the given group
+     */
+    protected Object getLock(T groupKey) {
+        if (groupKey == null) {
+            return lockStripes[0];
+        }
+        int hash = groupKey.hashCode();
+        // spread the bits of the hash since keys like IP addresses often differ
+        // only in their lower bits
+        hash ^= (hash >>> 16);
+        return lockStripes[(hash & Integer.MAX_VALUE) % lockStripes.length];
     }
 
     @Override
     public void addUri(CrawleableUri uri) {
-        synchronized (this) {
-            addUri(uri, groupByOperator.retrieveKey(uri));
+        T key = groupByOperator.retrieveKey(uri);
+        synchronized (getLock(key)) {
+            addUri(uri, key);
+            if (key != null) {
+                scheduler.addGroup(key);
+            }
+        }
+    }
+
+    @Override
+    public void addUris(Collection<CrawleableUri> uris) {
+        Map<T, List<CrawleableUri>> groups = groupByOperator.groupByKey(uris);
+        addUris(groups);
+        for (T key : groups.keySet()) {
+            if (key != null) {
+                // The scheduler has to be updated while holding the lock of the
+                // group. Otherwise, the group could be removed from the scheduler
+                // by a concurrent getNextUris call that didn't see the new URIs.
+                synchronized (getLock(key)) {
+                    scheduler.addGroup(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the given groups of URIs to the queue. The default implementation
+     * adds the URIs one by one while holding the lock of their group.
+     * Implementations that override this method have to make sure that the URIs
+     * of a group are stored before the group itself is (re-)added, since the lock
+     * of the group is not held while this method is executed.
+     * 
+     * @param groups
+     *            the URIs that should be added to the queue grouped by their
+     *            group key
+     */
+    protected void addUris(Map<T, List<CrawleableUri>> groups) {
+        for (Entry<T, List<CrawleableUri>> group : groups.entrySet()) {
+            synchronized (getLock(group.getKey())) {
+                for (CrawleableUri uri : group.getValue()) {
+                    addUri(uri, group.getKey());
+                }
+            }
         }
     }
 
@@ -66,33 +336,339 @@ public abstract class AbstractGroupingQueue<T> implements BlockingQueue<T> {
 
     @Override
     public List<CrawleableUri> getNextUris() {
-        synchronized (this) {
-            T key;
-            Iterator<T> iterator = getGroupIterator();
-            do {
-                if (!iterator.hasNext()) {
-                    return null;
+        if (groupsLoaded.compareAndSet(false, true)) {
+            loadGroups();
+        }
+        long now = System.currentTimeMillis();
+        T key;
+        int groupId;
+        List<CrawleableUri> uris;
+        while ((key = scheduler.pollReadyGroup(now)) != null) {
+            groupId = getGroupId(key);
+            // the scheduler hands out a group only once, so claiming the key
+            // should always succeed
+            if (blockKey(groupId)) {
+                if (!acquireLeaseSlot(key)) {
+                    // the group has been parked by the implementation
+                    unblockKey(groupId);
+                    continue;
+                }
+                if (!claimGroup(key, now)) {
+                    // The group is leased by another frontier instance. It will be
+                    // retrieved via claimNextGroup as soon as it is available again.
+                    unblockKey(groupId);
+                    scheduler.removeGroup(key);
+                    releaseLeaseSlot(key);
+                    continue;
                 }
-                key = iterator.next();
-            } while (blockedKeys.contains(key));
-            blockedKeys.add(key);
-            return getUris(key);
+                uris = leaseUris(key, groupId);
+                if (uris != null) {
+                    return uris;
+                }
+            }
         }
+        // check whether there are groups that are not known to the local scheduler
+        while ((key = claimNextGroup(now)) != null) {
+            groupId = getGroupId(key);
+            // the group might still be marked as blocked if its last lease has
+            // been acknowledged by a different frontier instance
+            blockKey(groupId);
+            scheduler.lease(key);
+            if (!acquireLeaseSlot(key)) {
+                // the group has been parked by the implementation and has to be
+                // available for other instances in the meantime
+                unblockKey(groupId);
+                releaseGroup(key, now);
+                continue;
+            }
+            uris = leaseUris(key, groupId);
+            if (uris != null) {
+                return uris;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the next lease of the given group, which has already been
+     * claimed. If the group is empty, it is removed from the scheduler and the
+     * key is unblocked.
+     * 
+     * @param key
+     *            the key of the claimed group
+     * @param groupId
+     *            the ID of the claimed group
+     * @return the URIs of the lease or {@code null} if the group is empty
+     */
+    private List<CrawleableUri> leaseUris(T key, int groupId) {
+        List<CrawleableUri> uris;
+        int leaseSize = ((scheduler.getCrawlDelay(key) > maxDelayWithinLease)
+                || backoffController.isBackingOff(groupId)) ? 1 : leaseSizeController.getLeaseSize(groupId);
+        synchronized (getLock(key)) {
+            uris = getUris(key, leaseSize);
+            if ((uris == null) || uris.isEmpty()) {
+                // the group is empty
+                scheduler.removeGroup(key);
+            }
+        }
+        if ((uris != null) && !uris.isEmpty()) {
+            leaseSizeController.leaseStarted(groupId);
+            return limitLeaseSize(uris);
+        }
+        // the empty group has to be released in the storage as well. Otherwise,
+        // a shared queue would keep it claimed until its lease expires.
+        releaseGroup(key, System.currentTimeMillis());
+        unblockKey(groupId);
+        releaseLeaseSlot(key);
+        removeGroupStatistics(groupId);
+        return null;
+    }
+
+    /**
+     * Drops the statistics that are kept for the given group. This is called
+     * after an empty group has been removed from the {@link #scheduler}. Since
+     * an empty group stays in the scheduler until its next allowed fetch time
+     * has been reached, its statistics (e.g., a backoff) survive as long as
+     * they are relevant. Without this, the statistics would grow with every
+     * group ever seen.
+     * 
+     * @param groupId
+     *            the ID of the removed group
+     */
+    protected void removeGroupStatistics(int groupId) {
+        leaseSizeController.removeGroup(groupId);
+        yieldScorer.removeGroup(groupId);
+        backoffController.removeGroup(groupId);
+    }
+
+    /**
+     * Acquires one of the slots for concurrent leases the given group can use.
+     * This method is called before a lease of the group is handed out.
+     * Implementations that limit the number of concurrent leases of several
+     * groups (e.g., the groups sharing an IP address) can return {@code false}
+     * if no slot is available. The group stays marked as leased in the
+     * {@link #scheduler} and the implementation has to release it via
+     * {@link GroupScheduler#release(Object, long, long)} as soon as a slot
+     * becomes available. The default implementation always returns
+     * {@code true}.
+     * 
+     * @param groupKey
+     *            the key of the group
+     * @return {@code true} if the group got a slot and may be leased
+     */
+    protected boolean acquireLeaseSlot(T groupKey) {
+        return true;
+    }
+
+    /**
+     * Releases the slot of the given group after its lease has ended. The
+     * default implementation does nothing.
+     * 
+     * @param groupKey
+     *            the key of the group
+     */
+    protected void releaseLeaseSlot(T groupKey) {
+    }
+
+    /**
+     * Claims the given group, which has been selected by the local
+     * {@link #scheduler}. Queues that are shared between several frontier
+     * instances should override this method to claim the group atomically in
+     * their storage. The default implementation always returns {@code true}
+     * since the local {@link #blockedKeys} are sufficient for a queue that is used
+     * by a single frontier.
+     * 
+     * @param groupKey
+     *            the key of the group
+     * @param now
+     *            the current time stamp (in ms)
+     * @return {@code true} if the group has been claimed, {@code false} if it is
+     *         leased by another frontier instance or may not be fetched, yet
+     */
+    protected boolean claimGroup(T groupKey, long now) {
+        return true;
+    }
+
+    /**
+     * Claims a group that may be fetched at the given point in time and that is
+     * not leased, yet. This method is called if the local {@link #scheduler} has
+     * no group that is ready. Queues that are shared between several frontier
+     * instances should override this method to hand out groups that have been
+     * added by other instances or whose lease has expired. The default
+     * implementation returns {@code null}.
+     * 
+     * @param now
+     *            the current time stamp (in ms)
+     * @return the key of the claimed group or {@code null} if there is no such
+     *         group
+     */
+    protected T claimNextGroup(long now) {
+        return null;
+    }
+
+    /**
+     * Releases the lease of the given group. Queues that are shared between
+     * several frontier instances should override this method to make the group
+     * available for other instances after the given point in time. This method
+     * is also called with the current time if a claimed group turned out to be
+     * empty. Hence, implementations may remove an empty group if there is no
+     * delay to keep. The default implementation does nothing.
+     * 
+     * @param groupKey
+     *            the key of the group
+     * @param nextAllowedFetch
+     *            the time stamp (in ms) from which on the group may be fetched
+     *            again
+     */
+    protected void releaseGroup(T groupKey, long nextAllowedFetch) {
+    }
+
+    /**
+     * Adds all groups that are already in the queue to the {@link #scheduler}.
+     */
+    protected void loadGroups() {
+        Iterator<T> iterator = getGroupIterator();
+        T key;
+        while (iterator.hasNext()) {
+            key = iterator.next();
+            if (key != null) {
+                scheduler.addGroup(key);
+            }
+        }
+    }
+
+    /**
+     * Makes sure that the estimated size of the given lease does not exceed the
+     * {@link #maxBytesPerLease}. Note that a lease always contains at least one
+     * URI.
+     * 
+     * @param uris
+     *            the URIs of the lease
+     * @return the URIs that fit into the byte budget of a lease
+     */
+    protected List<CrawleableUri> limitLeaseSize(List<CrawleableUri> uris) {
+        if ((uris == null) || (maxBytesPerLease <= 0)) {
+            return uris;
+        }
+        long size = 0;
+        for (int i = 0; i < uris.size(); ++i) {
+            size += estimateSize(uris.get(i));
+            if ((size > maxBytesPerLease) && (i > 0)) {
+                return new ArrayList<>(uris.subList(0, i));
+            }
+        }
+        return uris;
+    }
+
+    /**
+     * Estimates the number of bytes the given URI needs when it is sent to a
+     * worker.
+     * 
+     * @param uri
+     *            the URI for which the size should be estimated
+     * @return the estimated size of the URI in bytes
+     */
+    protected long estimateSize(CrawleableUri uri) {
+        return uri.getUri().toString().length() + URI_SIZE_OVERHEAD + (DATA_ENTRY_SIZE * uri.getData().size());
     }
 
     @Override
     public int getNumberOfBlockedKeys() {
-        return blockedKeys.size();
+        synchronized (blockedKeys) {
+            return blockedKeys.size();
+        }
     }
 
     @Override
     public void markUrisAsAccessible(Collection<CrawleableUri> uris) {
-        synchronized (this) {
-            for (Entry<T, List<CrawleableUri>> uriGroup : groupByOperator.groupByKey(uris).entrySet()) {
-                blockedKeys.remove(uriGroup.getKey());
+        int groupId;
+        for (Entry<T, List<CrawleableUri>> uriGroup : groupByOperator.groupByKey(uris).entrySet()) {
+            synchronized (getLock(uriGroup.getKey())) {
                 deleteUris(uriGroup.getKey(), uriGroup.getValue());
             }
+            if (uriGroup.getKey() == null) {
+                continue;
+            }
+            groupId = getGroupId(uriGroup.getKey());
+            // the key is released after the URIs have been removed to make sure
+            // that they are not handed out a second time. If the key was not
+            // blocked, the lease has already been released locally (e.g., a late
+            // or duplicate acknowledgement after releaseKey) and must not free the
+            // group or its slot a second time. Only the lease in the storage of a
+            // shared queue is released since it might have been handed out by
+            // another frontier instance.
+            if (!unblockKey(groupId)) {
+                releaseGroup(uriGroup.getKey(), System.currentTimeMillis() + getCrawlDelay(uriGroup.getValue()));
+                continue;
+            }
+            leaseSizeController.leaseFinished(groupId, uriGroup.getValue().size());
+            long crawlDelay = getCrawlDelay(uriGroup.getValue());
+            // a failing group is delayed until its backoff time is over
+            long nextAllowedFetch = System.currentTimeMillis()
+                    + Math.max(crawlDelay, backoffController.leaseFinished(groupId, uriGroup.getValue()));
+            // the lease in the storage is released first since the group could
+            // be claimed by this instance directly after it has been released in
+            // the scheduler
+            releaseGroup(uriGroup.getKey(), nextAllowedFetch);
+            // groups waiting for the slot are scheduled before this group
+            releaseLeaseSlot(uriGroup.getKey());
+            // The group stays in the scheduler even if it is empty. This makes
+            // sure that the delay is kept if new URIs of this group are added.
+            scheduler.release(uriGroup.getKey(), nextAllowedFetch, crawlDelay,
+                    yieldScorer.leaseFinished(groupId, uriGroup.getValue()));
+        }
+    }
+
+    @Override
+    public void releaseUris(Collection<CrawleableUri> uris) {
+        for (T key : groupByOperator.groupByKey(uris).keySet()) {
+            releaseKey(key);
+        }
+    }
+
+    /**
+     * Gives the lease of the given group back without removing any URIs, i.e.,
+     * the group can be handed out again directly.
+     * 
+     * @param groupKey
+     *            the key of the leased group
+     */
+    protected void releaseKey(T groupKey) {
+        if (groupKey == null) {
+            return;
+        }
+        int groupId = getGroupId(groupKey);
+        if (!unblockKey(groupId)) {
+            return;
+        }
+        // the lease has not been crawled, i.e., its duration is not
+        // representative for the group
+        leaseSizeController.leaseAborted(groupId);
+        long now = System.currentTimeMillis();
+        releaseGroup(groupKey, now);
+        releaseLeaseSlot(groupKey);
+        scheduler.release(groupKey, now, scheduler.getCrawlDelay(groupKey));
+    }
+
+    /**
+     * Returns the largest crawl delay reported for the given URIs or the
+     * {@link #defaultCrawlDelay} if no delay has been reported.
+     * 
+     * @param uris
+     *            the crawled URIs of a single group
+     * @return the delay (in ms) that should be kept before the next request to
+     *         the group
+     */
+    protected long getCrawlDelay(List<CrawleableUri> uris) {
+        long crawlDelay = -1;
+        Object value;
+        for (CrawleableUri uri : uris) {
+            value = uri.getData(Constants.URI_CRAWL_DELAY);
+            if ((value != null) && (value instanceof Number)) {
+                crawlDelay = Math.max(crawlDelay, ((Number) value).longValue());
+            }
         }
+        return (crawlDelay >= 0) ? crawlDelay : defaultCrawlDelay;
     }
 
     @Override
@@ -109,7 +685,9 @@ public abstract class AbstractGroupingQueue<T> implements BlockingQueue<T> {
             @Override
             public SimpleEntry<T, List<CrawleableUri>> next() {
                 T key = cursor.next();
-                return new AbstractMap.SimpleEntry<>(key, getUris(key));
+                synchronized (getLock(key)) {
+                    return new AbstractMap.SimpleEntry<>(key, getUris(key));
+                }
             }
         };
     }
@@ -130,6 +708,25 @@ public abstract class AbstractGroupingQueue<T> implements BlockingQueue<T> {
      */
     protected abstract List<CrawleableUri> getUris(T groupKey);
 
+    /**
+     * Returns the first URIs of the given group key. The default implementation
+     * retrieves all URIs of the group and returns the first ones. Implementations
+     * should override this method to avoid loading the complete group.
+     * 
+     * @param groupKey
+     *            key of the selected URI group
+     * @param maxNumberOfUris
+     *            the maximum number of URIs that should be returned
+     * @return the first URIs of the given group key
+     */
+    protected List<CrawleableUri> getUris(T groupKey, int maxNumberOfUris) {
+        List<CrawleableUri> uris = getUris(groupKey);
+        if ((uris != null) && (uris.size() > maxNumberOfUris)) {
+            uris = new ArrayList<>(uris.subList(0, maxNumberOfUris));
+        }
+        return uris;
+    }
+
     /**
      * Removes the given set of URIs from the queue
      * 
@@ -148,4 +745,60 @@ public abstract class AbstractGroupingQueue<T> implements BlockingQueue<T> {
     	return this.includeDepth;
     }
 
+    public UriGroupByOperator<T> getGroupByOperator() {
+        return groupByOperator;
+    }
+
+    public LeaseSizeController getLeaseSizeController() {
+        return leaseSizeController;
+    }
+
+    public void setMaxUrisPerLease(int maxUrisPerLease) {
+        leaseSizeController.setMaxUrisPerLease(maxUrisPerLease);
+    }
+
+    public void setTargetLeaseDuration(long targetLeaseDuration) {
+        leaseSizeController.setTargetLeaseDuration(targetLeaseDuration);
+    }
+
+    public GroupYieldScorer getYieldScorer() {
+        return yieldScorer;
+    }
+
+    public void setYieldAgingPeriod(long agingPeriod) {
+        yieldScorer.setAgingPeriod(agingPeriod);
+    }
+
+    public GroupBackoffController getBackoffController() {
+        return backoffController;
+    }
+
+    public GroupScheduler<T> getScheduler() {
+        return scheduler;
+    }
+
+    public long getDefaultCrawlDelay() {
+        return defaultCrawlDelay;
+    }
+
+    public void setDefaultCrawlDelay(long defaultCrawlDelay) {
+        this.defaultCrawlDelay = defaultCrawlDelay;
+    }
+
+    public long getMaxDelayWithinLease() {
+        return maxDelayWithinLease;
+    }
+
+    public void setMaxDelayWithinLease(long maxDelayWithinLease) {
+        this.maxDelayWithinLease = maxDelayWithinLease;
+    }
+
+    public long getMaxBytesPerLease() {
+        return maxBytesPerLease;
+    }
+
+    public void setMaxBytesPerLease(long maxBytesPerLease) {
+        this.maxBytesPerLease = maxBytesPerLease;
+    }
+
 }
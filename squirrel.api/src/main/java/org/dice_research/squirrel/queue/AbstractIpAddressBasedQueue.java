@@ -6,6 +6,8 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.HostDictionary;
+import org.dice_research.squirrel.data.uri.IdDictionary;
 import org.dice_research.squirrel.data.uri.group.UriGroupByOperator;
 
 /**
@@ -25,6 +27,11 @@ public abstract class AbstractIpAddressBasedQueue extends AbstractGroupingQueue<
             public InetAddress retrieveKey(CrawleableUri uri) {
                 return uri.getIpAddress();
             }
+
+            @Override
+            public IdDictionary<InetAddress> getKeyIds(HostDictionary hostDictionary) {
+                return hostDictionary.getIpAddressIds();
+            }
         });
     }
 
@@ -35,7 +42,7 @@ public abstract class AbstractIpAddressBasedQueue extends AbstractGroupingQueue<
     
     @Override
     public void markIpAddressAsAccessible(InetAddress ip) {
-        throw new IllegalAccessError("This method is not supported, anymore.");
+        releaseKey(ip);
     }
     
     @Override
@@ -0,0 +1,169 @@
+package org.dice_research.squirrel.queue;
+
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.group.UriGroupByOperator;
+
+/**
+ * This abstract class groups URIs on two levels. The URIs are grouped by their
+ * IP address and their host name, i.e., every (virtual) host has its own group
+ * and its own lease. On the outer level, the number of concurrent leases of
+ * all hosts sharing an IP address is limited to {@link #maxLeasesPerIp} (or to
+ * the limit set for the single IP address via
+ * {@link #setMaxLeases(InetAddress, int)}). Hence, the politeness towards a
+ * physical machine is kept while the hosts of a well-provisioned server (e.g.,
+ * a CDN) can be crawled in parallel.
+ *
+ * <p>
+ * If all slots of an IP address are taken, a host of this IP address that is
+ * ready to be fetched is parked until one of the leases of the IP address
+ * ends. The parked hosts of an IP address get the free slots in the order in
+ * which they have been parked, i.e., the hosts of an IP address are served
+ * round-robin.
+ * </p>
+ */
+public abstract class AbstractIpHostBasedQueue extends AbstractGroupingQueue<IpHostPair> {
+
+    /**
+     * Default value for {@link #maxLeasesPerIp}.
+     */
+    public static final int DEFAULT_MAX_LEASES_PER_IP = 1;
+
+    /**
+     * The number of concurrent leases of an IP address without a specific
+     * limit.
+     */
+    protected int maxLeasesPerIp = DEFAULT_MAX_LEASES_PER_IP;
+    /**
+     * Limits of single IP addresses that differ from {@link #maxLeasesPerIp}.
+     */
+    protected Map<InetAddress, Integer> maxLeases = new ConcurrentHashMap<>();
+    /**
+     * The slots of the IP addresses that have at least one leased or parked
+     * host. Guarded by itself.
+     */
+    private final Map<InetAddress, IpSlots> slots = new HashMap<>();
+
+    public AbstractIpHostBasedQueue() {
+        super(new UriGroupByOperator<IpHostPair>() {
+            @Override
+            public IpHostPair retrieveKey(CrawleableUri uri) {
+                if (uri.getIpAddress() == null) {
+                    return null;
+                }
+                String host = uri.getUri().getHost();
+                return new IpHostPair(uri.getIpAddress(), (host != null) ? host.toLowerCase() : "");
+            }
+        });
+    }
+
+    @Override
+    protected boolean acquireLeaseSlot(IpHostPair groupKey) {
+        InetAddress ip = groupKey.getIp();
+        synchronized (slots) {
+            IpSlots ipSlots = slots.get(ip);
+            if (ipSlots == null) {
+                ipSlots = new IpSlots();
+                slots.put(ip, ipSlots);
+            }
+            if (ipSlots.leased < getMaxLeases(ip)) {
+                ++ipSlots.leased;
+                return true;
+            }
+            ipSlots.parked.add(groupKey);
+            return false;
+        }
+    }
+
+    @Override
+    protected void releaseLeaseSlot(IpHostPair groupKey) {
+        InetAddress ip = groupKey.getIp();
+        synchronized (slots) {
+            IpSlots ipSlots = slots.get(ip);
+            if (ipSlots == null) {
+                return;
+            }
+            if (ipSlots.leased > 0) {
+                --ipSlots.leased;
+            }
+            // Hand the free slots over to the parked hosts. They keep the fetch
+            // time they had when they have been parked. Hence, they are handed
+            // out before the host that just released its slot, which is
+            // rescheduled with the current time.
+            int freeSlots = getMaxLeases(ip) - ipSlots.leased;
+            IpHostPair parked;
+            while ((freeSlots > 0) && ((parked = ipSlots.parked.poll()) != null)) {
+                scheduler.release(parked, scheduler.getNextAllowedFetch(parked), scheduler.getCrawlDelay(parked));
+                --freeSlots;
+            }
+            if ((ipSlots.leased == 0) && ipSlots.parked.isEmpty()) {
+                slots.remove(ip);
+            }
+        }
+    }
+
+    /**
+     * @return the number of concurrent leases of the hosts sharing the given IP
+     *         address
+     */
+    public int getMaxLeases(InetAddress ip) {
+        Integer limit = maxLeases.get(ip);
+        return (limit != null) ? limit : maxLeasesPerIp;
+    }
+
+    /**
+     * Sets the number of concurrent leases of the hosts sharing the given IP
+     * address.
+     *
+     * @param ip
+     *            the IP address
+     * @param limit
+     *            the number of concurrent leases
+     */
+    public void setMaxLeases(InetAddress ip, int limit) {
+        maxLeases.put(ip, Math.max(1, limit));
+    }
+
+    /**
+     * @return the number of hosts of the given IP address that are currently
+     *         leased
+     */
+    public int getNumberOfLeases(InetAddress ip) {
+        synchronized (slots) {
+            IpSlots ipSlots = slots.get(ip);
+            return (ipSlots != null) ? ipSlots.leased : 0;
+        }
+    }
+
+    /**
+     * @return the number of hosts of the given IP address that are waiting for
+     *         a free slot
+     */
+    public int getNumberOfParkedHosts(InetAddress ip) {
+        synchronized (slots) {
+            IpSlots ipSlots = slots.get(ip);
+            return (ipSlots != null) ? ipSlots.parked.size() : 0;
+        }
+    }
+
+    public int getMaxLeasesPerIp() {
+        return maxLeasesPerIp;
+    }
+
+    public void setMaxLeasesPerIp(int maxLeasesPerIp) {
+        this.maxLeasesPerIp = Math.max(1, maxLeasesPerIp);
+    }
+
+    /**
+     * The leased and parked hosts of a single IP address.
+     */
+    private static class IpSlots {
+        private int leased = 0;
+        private ArrayDeque<IpHostPair> parked = new ArrayDeque<>();
+    }
+}
@@ -29,6 +29,17 @@ public interface BlockingQueue<T> extends UriQueue {
      */
     public void markUrisAsAccessible(Collection<CrawleableUri> uris);
 
+    /**
+     * Gives the leases of the given URIs back without removing the URIs from
+     * the queue, i.e., the key values are marked as accessible and the URIs
+     * will be handed out again (e.g., because the worker that leased them died
+     * before crawling them).
+     * 
+     * @param uris
+     *            the leased URIs that have not been crawled
+     */
+    public void releaseUris(Collection<CrawleableUri> uris);
+
     /**
      * Returns the number of key values that are currently blocked.
      * 
@@ -0,0 +1,341 @@
+package org.dice_research.squirrel.queue;
+
+import java.util.List;
+
+import org.dice_research.squirrel.Constants;
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.carrotsearch.hppc.IntObjectOpenHashMap;
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+
+/**
+ * This class keeps track of the outcomes of the requests to a group (e.g., a
+ * host or an IP address) and determines how long the group should not be
+ * fetched after a lease failed. A crawled URI counts as a failure of its group
+ * if the worker reported a {@link Constants#URI_HOST_ERROR} (e.g., a timeout)
+ * or an HTTP status code 5xx or 429 ({@link Constants#URI_HTTP_STATUS_CODE}).
+ * It counts as a success if the crawling has been successful or the host
+ * answered with any other status code. Other URIs (e.g., URIs that have been
+ * rejected by the robots.txt file) do not change the state of the group.
+ *
+ * <p>
+ * A lease fails if it contains failures but no successes. After {@code n}
+ * consecutive failed leases, the group is not fetched for
+ * {@code min(baseBackoff * 2^(n-1), maxBackoff)} ms and its leases contain a
+ * single URI until a lease succeeds. After {@link #quarantineThreshold}
+ * consecutive failed leases, the group is quarantined, i.e., all its URIs stay
+ * in the queue and only a single URI is handed out every
+ * {@link #quarantineInterval} ms to probe whether the group is available
+ * again. The interval is doubled after every failed probe up to
+ * {@link #maxQuarantineInterval}. A successful lease resets the group.
+ * </p>
+ *
+ * <p>
+ * The groups are identified by their int IDs (see
+ * {@link AbstractGroupingQueue#getGroupId(Object)}). The statistics of a group
+ * are dropped via {@link #removeGroup(int)} when the group is removed from the
+ * queue. Since an empty group is only removed after its backoff is over, a
+ * group that receives new URIs while it is backing off keeps its state.
+ * </p>
+ */
+public class GroupBackoffController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupBackoffController.class);
+
+    /**
+     * Default value for {@link #baseBackoff} (30 seconds).
+     */
+    public static final long DEFAULT_BASE_BACKOFF = 30 * 1000;
+    /**
+     * Default value for {@link #maxBackoff} (10 minutes).
+     */
+    public static final long DEFAULT_MAX_BACKOFF = 10 * 60 * 1000;
+    /**
+     * Default value for {@link #quarantineThreshold}.
+     */
+    public static final int DEFAULT_QUARANTINE_THRESHOLD = 5;
+    /**
+     * Default value for {@link #quarantineInterval} (30 minutes).
+     */
+    public static final long DEFAULT_QUARANTINE_INTERVAL = 30 * 60 * 1000;
+    /**
+     * Default value for {@link #maxQuarantineInterval} (6 hours).
+     */
+    public static final long DEFAULT_MAX_QUARANTINE_INTERVAL = 6 * 60 * 60 * 1000;
+
+    /**
+     * The delay (in ms) after the first failed lease of a group. A value &lt;= 0
+     * disables the backoff and the quarantine.
+     */
+    protected long baseBackoff = DEFAULT_BASE_BACKOFF;
+    /**
+     * The maximum delay (in ms) of a group that is not quarantined.
+     */
+    protected long maxBackoff = DEFAULT_MAX_BACKOFF;
+    /**
+     * The number of consecutive failed leases after which a group is
+     * quarantined. A value &lt;= 0 disables the quarantine.
+     */
+    protected int quarantineThreshold = DEFAULT_QUARANTINE_THRESHOLD;
+    /**
+     * The delay (in ms) between the first probes of a quarantined group.
+     */
+    protected long quarantineInterval = DEFAULT_QUARANTINE_INTERVAL;
+    /**
+     * The maximum delay (in ms) between two probes of a quarantined group.
+     */
+    protected long maxQuarantineInterval = DEFAULT_MAX_QUARANTINE_INTERVAL;
+    /**
+     * The statistics of the groups.
+     */
+    protected IntObjectOpenHashMap<BackoffStatistics> statistics = new IntObjectOpenHashMap<>();
+
+    /**
+     * Updates the statistics of the given group with the outcomes of the given
+     * crawled URIs and returns the time the group should not be fetched.
+     *
+     * @param groupId
+     *            the ID of the group
+     * @param uris
+     *            the crawled URIs of the group
+     * @return the delay (in ms) before the next request to the group or 0 if
+     *         the group does not have to back off
+     */
+    public long leaseFinished(int groupId, List<CrawleableUri> uris) {
+        if (baseBackoff <= 0) {
+            return 0;
+        }
+        int successes = 0;
+        int failures = 0;
+        for (CrawleableUri uri : uris) {
+            if (!(uri.getData(Constants.URI_CRAWLING_SUCCESSFUL) instanceof Boolean)) {
+                // the worker did not report any results for this URI
+                continue;
+            }
+            if (isHostFailure(uri)) {
+                ++failures;
+            } else if (Boolean.TRUE.equals(uri.getData(Constants.URI_CRAWLING_SUCCESSFUL))
+                    || (uri.getData(Constants.URI_HTTP_STATUS_CODE) instanceof Number)) {
+                ++successes;
+            }
+        }
+        if ((successes == 0) && (failures == 0)) {
+            return getBackoff(groupId);
+        }
+        BackoffStatistics oldStats;
+        BackoffStatistics stats;
+        synchronized (statistics) {
+            oldStats = statistics.get(groupId);
+            stats = update((oldStats != null) ? oldStats : BackoffStatistics.EMPTY, successes, failures);
+            statistics.put(groupId, stats);
+        }
+        if ((stats.quarantineInterval > 0) && ((oldStats == null) || (oldStats.quarantineInterval == 0))) {
+            LOGGER.info("The group of {} is quarantined after {} failed leases. It will be probed every {} ms.",
+                    uris.get(0).getUri().getHost(), stats.consecutiveFailedLeases, stats.quarantineInterval);
+        } else if ((stats.quarantineInterval == 0) && (oldStats != null) && (oldStats.quarantineInterval > 0)) {
+            LOGGER.info("The group of {} has been probed successfully and leaves the quarantine.",
+                    uris.get(0).getUri().getHost());
+        }
+        return getBackoff(stats);
+    }
+
+    /**
+     * Checks whether the given crawled URI indicates that its host is not
+     * available.
+     *
+     * @param uri
+     *            the crawled URI
+     * @return {@code true} if the URI counts as a failure of its group
+     */
+    protected boolean isHostFailure(CrawleableUri uri) {
+        if (Boolean.TRUE.equals(uri.getData(Constants.URI_HOST_ERROR))) {
+            return true;
+        }
+        Object status = uri.getData(Constants.URI_HTTP_STATUS_CODE);
+        if (status instanceof Number) {
+            int code = ((Number) status).intValue();
+            return (code >= 500) || (code == 429);
+        }
+        return false;
+    }
+
+    protected BackoffStatistics update(BackoffStatistics old, int successes, int failures) {
+        if (successes > 0) {
+            return new BackoffStatistics(old.successfulUris + successes, old.failedUris + failures, 0, 0);
+        }
+        int failedLeases = old.consecutiveFailedLeases + 1;
+        long interval = 0;
+        if ((quarantineThreshold > 0) && (failedLeases >= quarantineThreshold)) {
+            interval = (old.quarantineInterval > 0) ? Math.min(2 * old.quarantineInterval, maxQuarantineInterval)
+                    : quarantineInterval;
+        }
+        return new BackoffStatistics(old.successfulUris, old.failedUris + failures, failedLeases, interval);
+    }
+
+    /**
+     * Returns the current delay of the given group.
+     *
+     * @param groupId
+     *            the ID of the group
+     * @return the delay (in ms) before the next request to the group or 0 if
+     *         the group does not have to back off
+     */
+    public long getBackoff(int groupId) {
+        BackoffStatistics stats = getStatistics(groupId);
+        return (stats != null) ? getBackoff(stats) : 0;
+    }
+
+    protected long getBackoff(BackoffStatistics stats) {
+        if (stats.quarantineInterval > 0) {
+            return stats.quarantineInterval;
+        }
+        if (stats.consecutiveFailedLeases == 0) {
+            return 0;
+        }
+        int shift = Math.min(stats.consecutiveFailedLeases - 1, 30);
+        return Math.min(baseBackoff << shift, maxBackoff);
+    }
+
+    /**
+     * @return {@code true} if the last lease of the given group failed, i.e.,
+     *         its next lease should contain a single URI
+     */
+    public boolean isBackingOff(int groupId) {
+        BackoffStatistics stats = getStatistics(groupId);
+        return (stats != null) && (stats.consecutiveFailedLeases > 0);
+    }
+
+    public boolean isQuarantined(int groupId) {
+        BackoffStatistics stats = getStatistics(groupId);
+        return (stats != null) && (stats.quarantineInterval > 0);
+    }
+
+    /**
+     * @return the statistics of the given group or {@code null} if no outcome
+     *         has been reported for this group
+     */
+    public BackoffStatistics getStatistics(int groupId) {
+        synchronized (statistics) {
+            return statistics.get(groupId);
+        }
+    }
+
+    /**
+     * Drops the statistics of the given group, e.g., because the group has been
+     * removed from the queue.
+     *
+     * @param groupId
+     *            the ID of the group
+     */
+    public void removeGroup(int groupId) {
+        synchronized (statistics) {
+            statistics.remove(groupId);
+        }
+    }
+
+    /**
+     * @return the number of groups for which the controller has statistics
+     */
+    public int getNumberOfGroups() {
+        synchronized (statistics) {
+            return statistics.size();
+        }
+    }
+
+    /**
+     * @return the number of groups that are currently quarantined
+     */
+    public int getNumberOfQuarantinedGroups() {
+        int count = 0;
+        synchronized (statistics) {
+            for (ObjectCursor<BackoffStatistics> cursor : statistics.values()) {
+                if (cursor.value.quarantineInterval > 0) {
+                    ++count;
+                }
+            }
+        }
+        return count;
+    }
+
+    public long getBaseBackoff() {
+        return baseBackoff;
+    }
+
+    public void setBaseBackoff(long baseBackoff) {
+        this.baseBackoff = baseBackoff;
+    }
+
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(long maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public int getQuarantineThreshold() {
+        return quarantineThreshold;
+    }
+
+    public void setQuarantineThreshold(int quarantineThreshold) {
+        this.quarantineThreshold = quarantineThreshold;
+    }
+
+    public long getQuarantineInterval() {
+        return quarantineInterval;
+    }
+
+    public void setQuarantineInterval(long quarantineInterval) {
+        this.quarantineInterval = quarantineInterval;
+    }
+
+    public long getMaxQuarantineInterval() {
+        return maxQuarantineInterval;
+    }
+
+    public void setMaxQuarantineInterval(long maxQuarantineInterval) {
+        this.maxQuarantineInterval = maxQuarantineInterval;
+    }
+
+    /**
+     * The outcome statistics of a single group. Instances are immutable.
+     */
+    public static class BackoffStatistics {
+        protected static final BackoffStatistics EMPTY = new BackoffStatistics(0, 0, 0, 0);
+
+        protected final long successfulUris;
+        protected final long failedUris;
+        protected final int consecutiveFailedLeases;
+        /**
+         * The delay (in ms) between two probes of the quarantined group or 0 if
+         * the group is not quarantined.
+         */
+        protected final long quarantineInterval;
+
+        public BackoffStatistics(long successfulUris, long failedUris, int consecutiveFailedLeases,
+                long quarantineInterval) {
+            this.successfulUris = successfulUris;
+            this.failedUris = failedUris;
+            this.consecutiveFailedLeases = consecutiveFailedLeases;
+            this.quarantineInterval = quarantineInterval;
+        }
+
+        public long getSuccessfulUris() {
+            return successfulUris;
+        }
+
+        public long getFailedUris() {
+            return failedUris;
+        }
+
+        public int getConsecutiveFailedLeases() {
+            return consecutiveFailedLeases;
+        }
+
+        public long getQuarantineInterval() {
+            return quarantineInterval;
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package org.dice_research.squirrel.queue;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A scheduler that keeps track of the point in time at which the next request
+ * may be sent to a group (e.g., a host or an IP address). All groups that are
+ * not leased are kept in a heap ordered by their next allowed fetch time, i.e.,
+ * retrieving the next group that may be crawled is a single
+ * {@code O(log n)} operation. Groups with the same fetch time are handed out in
+ * the order in which they have been (re-)added.
+ *
+ * <p>
+ * Groups can have a priority bonus (in ms), e.g., derived from the yield of
+ * their previous leases (see {@link GroupYieldScorer}). As soon as the fetch
+ * time of a group has been reached, it is moved to a second heap which is
+ * ordered by its fetch time minus its bonus. Hence, a group with a bonus of
+ * {@code b} ms is handed out before groups that became ready up to {@code b} ms
+ * earlier. Since the bonus is bounded, a group without bonus is not starved by
+ * groups with a high bonus. Without bonus, both heaps have the same order.
+ * </p>
+ *
+ * <p>
+ * Every group stores its position within its heap. Hence, a group can be
+ * removed from the middle of a heap (e.g., if it is claimed by another
+ * frontier instance or rescheduled because of a backoff) in {@code O(log n)}
+ * instead of searching it.
+ * </p>
+ *
+ * <p>
+ * All methods of this class are synchronized. Since they do not perform any
+ * I/O, the critical sections are short.
+ * </p>
+ *
+ * @param <T>
+ *            the class of the group key
+ */
+public class GroupScheduler<T> {
+
+    /**
+     * Heap containing all groups that are not leased and whose next allowed
+     * fetch time has not been reached when the heap has been checked the last
+     * time.
+     */
+    protected IndexedHeap<T> waitingHeap = new IndexedHeap<>(Comparator.naturalOrder());
+    /**
+     * Heap containing all groups that may be fetched, ordered by their next
+     * allowed fetch time minus their priority bonus.
+     */
+    protected IndexedHeap<T> readyHeap = new IndexedHeap<>(
+            Comparator.comparingLong((ScheduledGroup<T> g) -> g.nextAllowedFetch - g.priorityBonus)
+                    .thenComparingLong(g -> g.sequenceNumber));
+    /**
+     * All groups known to this scheduler, i.e., the groups in the
+     * {@link #waitingHeap}, the {@link #readyHeap} and the leased groups.
+     */
+    protected Map<T, ScheduledGroup<T>> groups = new HashMap<>();
+    /**
+     * Counter used to keep the order of groups with the same fetch time stable.
+     */
+    private long sequence = 0;
+
+    /**
+     * Adds the given group to the scheduler. If the group is already known, the
+     * call has no effect. A new group may be fetched immediately.
+     *
+     * @param groupKey
+     *            the key of the group
+     * @return {@code true} if the group has been added, {@code false} if it was
+     *         already known
+     */
+    public synchronized boolean addGroup(T groupKey) {
+        if (groups.containsKey(groupKey)) {
+            return false;
+        }
+        ScheduledGroup<T> group = new ScheduledGroup<>(groupKey);
+        groups.put(groupKey, group);
+        schedule(group, 0);
+        return true;
+    }
+
+    /**
+     * Removes the group with the highest priority from the heap if it may be
+     * fetched at the given point in time. The group is marked as leased until it
+     * is released via {@link #release(Object, long, long)} or removed via
+     * {@link #removeGroup(Object)}.
+     *
+     * @param now
+     *            the current time stamp (in ms)
+     * @return the key of the group or {@code null} if there is no group that may
+     *         be fetched
+     */
+    public synchronized T pollReadyGroup(long now) {
+        ScheduledGroup<T> group = waitingHeap.peek();
+        while ((group != null) && (group.nextAllowedFetch <= now)) {
+            waitingHeap.poll();
+            group.ready = true;
+            readyHeap.add(group);
+            group = waitingHeap.peek();
+        }
+        group = readyHeap.poll();
+        if (group == null) {
+            return null;
+        }
+        group.ready = false;
+        group.leased = true;
+        return group.key;
+    }
+
+    /**
+     * Marks the given group as leased independent of its next allowed fetch
+     * time. This is used if the group has been claimed by other means than
+     * {@link #pollReadyGroup(long)}, e.g., from a queue that is shared with
+     * other frontier instances. Unknown groups are added.
+     *
+     * @param groupKey
+     *            the key of the group
+     */
+    public synchronized void lease(T groupKey) {
+        ScheduledGroup<T> group = groups.get(groupKey);
+        if (group == null) {
+            group = new ScheduledGroup<>(groupKey);
+            groups.put(groupKey, group);
+        } else if (!group.leased) {
+            unschedule(group);
+        }
+        group.leased = true;
+    }
+
+    /**
+     * Releases the lease of the given group and adds it back to the heap.
+     *
+     * @param groupKey
+     *            the key of the group
+     * @param nextAllowedFetch
+     *            the time stamp (in ms) from which on the group may be fetched
+     *            again
+     * @param crawlDelay
+     *            the delay (in ms) that has to be kept between two requests to
+     *            the group
+     */
+    public synchronized void release(T groupKey, long nextAllowedFetch, long crawlDelay) {
+        ScheduledGroup<T> group = groups.get(groupKey);
+        release(groupKey, nextAllowedFetch, crawlDelay, (group != null) ? group.priorityBonus : 0);
+    }
+
+    /**
+     * Releases the lease of the given group, updates its priority bonus and adds
+     * it back to the heap.
+     *
+     * @param groupKey
+     *            the key of the group
+     * @param nextAllowedFetch
+     *            the time stamp (in ms) from which on the group may be fetched
+     *            again
+     * @param crawlDelay
+     *            the delay (in ms) that has to be kept between two requests to
+     *            the group
+     * @param priorityBonus
+     *            the time (in ms) by which the group is preferred over other
+     *            groups that may be fetched
+     */
+    public synchronized void release(T groupKey, long nextAllowedFetch, long crawlDelay, long priorityBonus) {
+        ScheduledGroup<T> group = groups.get(groupKey);
+        if (group == null) {
+            group = new ScheduledGroup<>(groupKey);
+            groups.put(groupKey, group);
+        } else if (!group.leased) {
+            // the group is already waiting in one of the heaps
+            unschedule(group);
+        }
+        group.leased = false;
+        group.crawlDelay = crawlDelay;
+        group.priorityBonus = Math.max(0, priorityBonus);
+        schedule(group, nextAllowedFetch);
+    }
+
+    /**
+     * Removes the given group from the scheduler.
+     *
+     * @param groupKey
+     *            the key of the group
+     */
+    public synchronized void removeGroup(T groupKey) {
+        ScheduledGroup<T> group = groups.remove(groupKey);
+        if ((group != null) && !group.leased) {
+            unschedule(group);
+        }
+    }
+
+    /**
+     * Returns the crawl delay that has been reported for the given group the
+     * last time it has been released.
+     *
+     * @param groupKey
+     *            the key of the group
+     * @return the crawl delay (in ms) of the group or 0 if it is not known
+     */
+    public synchronized long getCrawlDelay(T groupKey) {
+        ScheduledGroup<T> group = groups.get(groupKey);
+        return (group != null) ? group.crawlDelay : 0;
+    }
+
+    /**
+     * Returns the priority bonus of the given group.
+     *
+     * @param groupKey
+     *            the key of the group
+     * @return the priority bonus (in ms) of the group or 0 if it is not known
+     */
+    public synchronized long getPriorityBonus(T groupKey) {
+        ScheduledGroup<T> group = groups.get(groupKey);
+        return (group != null) ? group.priorityBonus : 0;
+    }
+
+    /**
+     * Returns the time stamp at which the given group has been allowed to be
+     * fetched the last time it has been scheduled. For a leased group, this is
+     * the fetch time it had before it has been handed out.
+     *
+     * @param groupKey
+     *            the key of the group
+     * @return the time stamp (in ms) or 0 if the group is not known
+     */
+    public synchronized long getNextAllowedFetch(T groupKey) {
+        ScheduledGroup<T> group = groups.get(groupKey);
+        return (group != null) ? group.nextAllowedFetch : 0;
+    }
+
+    /**
+     * @return the time stamp (in ms) at which the next group may be fetched or
+     *         {@link Long#MAX_VALUE} if there is no group that is not leased
+     */
+    public synchronized long getNextAllowedFetch() {
+        ScheduledGroup<T> group = readyHeap.peek();
+        if (group == null) {
+            group = waitingHeap.peek();
+        }
+        return (group != null) ? group.nextAllowedFetch : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the number of groups known to this scheduler
+     */
+    public synchronized int size() {
+        return groups.size();
+    }
+
+    private void schedule(ScheduledGroup<T> group, long nextAllowedFetch) {
+        group.nextAllowedFetch = nextAllowedFetch;
+        group.sequenceNumber = sequence++;
+        waitingHeap.add(group);
+    }
+
+    private void unschedule(ScheduledGroup<T> group) {
+        if (group.ready) {
+            readyHeap.remove(group);
+            group.ready = false;
+        } else {
+            waitingHeap.remove(group);
+        }
+    }
+
+    /**
+     * The scheduling information of a single group.
+     */
+    protected static class ScheduledGroup<T> implements Comparable<ScheduledGroup<T>> {
+        protected final T key;
+        protected long nextAllowedFetch;
+        protected long sequenceNumber;
+        protected long crawlDelay = 0;
+        protected long priorityBonus = 0;
+        protected boolean leased = false;
+        protected boolean ready = false;
+        /**
+         * The position of the group within its heap or -1 if it is not in a
+         * heap.
+         */
+        protected int heapIndex = -1;
+
+        public ScheduledGroup(T key) {
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(ScheduledGroup<T> o) {
+            int diff = Long.compare(nextAllowedFetch, o.nextAllowedFetch);
+            if (diff == 0) {
+                diff = Long.compare(sequenceNumber, o.sequenceNumber);
+            }
+            return diff;
+        }
+    }
+
+    /**
+     * A binary heap of {@link ScheduledGroup} instances that keeps the
+     * position of every group in the group itself. This allows the removal of
+     * an arbitrary group in {@code O(log n)}. A group can only be part of a
+     * single heap at a time.
+     */
+    protected static class IndexedHeap<T> {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final Comparator<ScheduledGroup<T>> comparator;
+        @SuppressWarnings("unchecked")
+        private ScheduledGroup<T>[] elements = new ScheduledGroup[INITIAL_CAPACITY];
+        private int size = 0;
+
+        public IndexedHeap(Comparator<ScheduledGroup<T>> comparator) {
+            this.comparator = comparator;
+        }
+
+        public void add(ScheduledGroup<T> group) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, 2 * size);
+            }
+            elements[size] = group;
+            group.heapIndex = size;
+            ++size;
+            siftUp(group.heapIndex);
+        }
+
+        public ScheduledGroup<T> peek() {
+            return (size > 0) ? elements[0] : null;
+        }
+
+        public ScheduledGroup<T> poll() {
+            if (size == 0) {
+                return null;
+            }
+            ScheduledGroup<T> group = elements[0];
+            removeAt(0);
+            return group;
+        }
+
+        /**
+         * Removes the given group from the heap.
+         *
+         * @return {@code true} if the group has been part of this heap
+         */
+        public boolean remove(ScheduledGroup<T> group) {
+            int index = group.heapIndex;
+            if ((index < 0) || (index >= size) || (elements[index] != group)) {
+                return false;
+            }
+            removeAt(index);
+            return true;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        private void removeAt(int index) {
+            elements[index].heapIndex = -1;
+            --size;
+            if (index < size) {
+                elements[index] = elements[size];
+                elements[index].heapIndex = index;
+                elements[size] = null;
+                if (!siftUp(index)) {
+                    siftDown(index);
+                }
+            } else {
+                elements[index] = null;
+            }
+        }
+
+        /**
+         * @return {@code true} if the element has been moved
+         */
+        private boolean siftUp(int index) {
+            ScheduledGroup<T> group = elements[index];
+            int start = index;
+            int parent;
+            while (index > 0) {
+                parent = (index - 1) >>> 1;
+                if (comparator.compare(group, elements[parent]) >= 0) {
+                    break;
+                }
+                elements[index] = elements[parent];
+                elements[index].heapIndex = index;
+                index = parent;
+            }
+            elements[index] = group;
+            group.heapIndex = index;
+            return index != start;
+        }
+
+        private void siftDown(int index) {
+            ScheduledGroup<T> group = elements[index];
+            int half = size >>> 1;
+            int child;
+            while (index < half) {
+                child = (2 * index) + 1;
+                if (((child + 1) < size) && (comparator.compare(elements[child + 1], elements[child]) < 0)) {
+                    ++child;
+                }
+                if (comparator.compare(group, elements[child]) <= 0) {
+                    break;
+                }
+                elements[index] = elements[child];
+                elements[index].heapIndex = index;
+                index = child;
+            }
+            elements[index] = group;
+            group.heapIndex = index;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package org.dice_research.squirrel.queue;
+
+import java.util.List;
+
+import org.dice_research.squirrel.Constants;
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+
+import com.carrotsearch.hppc.IntObjectOpenHashMap;
+
+/**
+ * This class estimates the yield of a group (e.g., a host) from the results of
+ * its acknowledged leases and turns it into a priority bonus for the
+ * {@link GroupScheduler}. The worker reports for every crawled URI the number
+ * of triples ({@link Constants#URI_NUMBER_OF_TRIPLES}), the number of found
+ * URIs ({@link Constants#URI_NUMBER_OF_FOUND_URIS}), the crawling time
+ * ({@link Constants#URI_CRAWLING_DURATION}) and whether the crawling has been
+ * successful ({@link Constants#URI_CRAWLING_SUCCESSFUL}). For every group, the
+ * scorer keeps moving averages of the triples per second, the found URIs
+ * per crawled URI and the failure rate. The score of a group is
+ *
+ * <pre>
+ * (1 - failureRate) * (log(1 + triplesPerSecond) + discoveryWeight * log(1 + foundUrisPerUri))
+ * </pre>
+ *
+ * and is capped at {@link #maxScore}. The priority bonus is the score
+ * multiplied with the {@link #agingPeriod}, i.e., a group is preferred over
+ * groups that have been waiting up to {@link #agingPeriod} ms longer for every
+ * point of score it is ahead of them. Groups for which no results have been
+ * reported, yet, have a score of 0. The statistics of a group are kept while
+ * an empty group waits in the scheduler for its next allowed fetch time since
+ * many hosts receive new URIs shortly after. They are dropped via
+ * {@link #removeGroup(int)} when the group is removed from the queue. Like
+ * the {@link LeaseSizeController}, the scorer identifies the groups by their
+ * int IDs.
+ */
+public class GroupYieldScorer {
+
+    /**
+     * Default value for {@link #agingPeriod} (1 minute).
+     */
+    public static final long DEFAULT_AGING_PERIOD = 60 * 1000;
+    /**
+     * Default value for {@link #maxScore}.
+     */
+    public static final double DEFAULT_MAX_SCORE = 10;
+    /**
+     * Default value for {@link #discoveryWeight}.
+     */
+    public static final double DEFAULT_DISCOVERY_WEIGHT = 0.5;
+    /**
+     * Weight of a new observation in the moving averages.
+     */
+    private static final double SMOOTHING_FACTOR = 0.3;
+
+    /**
+     * The time (in ms) a group is preferred per point of score. A value &lt;= 0
+     * disables the scoring, i.e., all groups are handed out in the order of
+     * their next allowed fetch time.
+     */
+    protected long agingPeriod = DEFAULT_AGING_PERIOD;
+    /**
+     * The maximum score of a group. It limits the time a group with a low score
+     * can be delayed by other groups to {@code maxScore * agingPeriod} ms.
+     */
+    protected double maxScore = DEFAULT_MAX_SCORE;
+    /**
+     * The weight of the found URIs in the score of a group.
+     */
+    protected double discoveryWeight = DEFAULT_DISCOVERY_WEIGHT;
+    /**
+     * The statistics of the groups.
+     */
+    protected IntObjectOpenHashMap<YieldStatistics> statistics = new IntObjectOpenHashMap<>();
+
+    /**
+     * Updates the statistics of the given group with the results of the given
+     * crawled URIs and returns the new priority bonus of the group.
+     *
+     * @param groupId
+     *            the ID of the group
+     * @param uris
+     *            the crawled URIs of the group
+     * @return the priority bonus (in ms) of the group
+     */
+    public long leaseFinished(int groupId, List<CrawleableUri> uris) {
+        if (agingPeriod <= 0) {
+            return 0;
+        }
+        long triples = 0;
+        long duration = 0;
+        long foundUris = 0;
+        int failed = 0;
+        int reported = 0;
+        Object value;
+        for (CrawleableUri uri : uris) {
+            value = uri.getData(Constants.URI_CRAWLING_SUCCESSFUL);
+            if (!(value instanceof Boolean)) {
+                // the worker did not report any results for this URI
+                continue;
+            }
+            ++reported;
+            if (!((Boolean) value)) {
+                ++failed;
+            }
+            triples += getLong(uri, Constants.URI_NUMBER_OF_TRIPLES);
+            duration += getLong(uri, Constants.URI_CRAWLING_DURATION);
+            foundUris += getLong(uri, Constants.URI_NUMBER_OF_FOUND_URIS);
+        }
+        if (reported == 0) {
+            return getPriorityBonus(groupId);
+        }
+        YieldStatistics stats = new YieldStatistics(triples / (Math.max(duration, 1) / 1000.0),
+                foundUris / (double) reported, failed / (double) reported);
+        synchronized (statistics) {
+            YieldStatistics oldStats = statistics.get(groupId);
+            if (oldStats != null) {
+                stats = oldStats.update(stats);
+            }
+            statistics.put(groupId, stats);
+        }
+        return toBonus(stats);
+    }
+
+    /**
+     * Returns the current score of the given group.
+     *
+     * @param groupId
+     *            the ID of the group
+     * @return the score of the group or 0 if no results have been reported
+     */
+    public double getScore(int groupId) {
+        YieldStatistics stats;
+        synchronized (statistics) {
+            stats = statistics.get(groupId);
+        }
+        return (stats != null) ? getScore(stats) : 0;
+    }
+
+    /**
+     * Returns the current priority bonus of the given group.
+     *
+     * @param groupId
+     *            the ID of the group
+     * @return the priority bonus (in ms) of the group or 0 if no results have
+     *         been reported
+     */
+    public long getPriorityBonus(int groupId) {
+        if (agingPeriod <= 0) {
+            return 0;
+        }
+        YieldStatistics stats;
+        synchronized (statistics) {
+            stats = statistics.get(groupId);
+        }
+        return (stats != null) ? toBonus(stats) : 0;
+    }
+
+    /**
+     * Drops the statistics of the given group, e.g., because the group has been
+     * removed from the queue.
+     *
+     * @param groupId
+     *            the ID of the group
+     */
+    public void removeGroup(int groupId) {
+        synchronized (statistics) {
+            statistics.remove(groupId);
+        }
+    }
+
+    /**
+     * @return the number of groups for which the scorer has statistics
+     */
+    public int getNumberOfGroups() {
+        synchronized (statistics) {
+            return statistics.size();
+        }
+    }
+
+    protected double getScore(YieldStatistics stats) {
+        double score = (1 - stats.failureRate)
+                * (Math.log1p(stats.triplesPerSecond) + (discoveryWeight * Math.log1p(stats.foundUrisPerUri)));
+        return Math.max(0, Math.min(score, maxScore));
+    }
+
+    protected long toBonus(YieldStatistics stats) {
+        return Math.round(getScore(stats) * agingPeriod);
+    }
+
+    private static long getLong(CrawleableUri uri, String key) {
+        Object value = uri.getData(key);
+        return (value instanceof Number) ? Math.max(0, ((Number) value).longValue()) : 0;
+    }
+
+    public long getAgingPeriod() {
+        return agingPeriod;
+    }
+
+    public void setAgingPeriod(long agingPeriod) {
+        this.agingPeriod = agingPeriod;
+    }
+
+    public double getMaxScore() {
+        return maxScore;
+    }
+
+    public void setMaxScore(double maxScore) {
+        this.maxScore = maxScore;
+    }
+
+    public double getDiscoveryWeight() {
+        return discoveryWeight;
+    }
+
+    public void setDiscoveryWeight(double discoveryWeight) {
+        this.discoveryWeight = discoveryWeight;
+    }
+
+    /**
+     * Moving averages of the yield of a single group. Instances are immutable.
+     */
+    protected static class YieldStatistics {
+        protected final double triplesPerSecond;
+        protected final double foundUrisPerUri;
+        protected final double failureRate;
+
+        public YieldStatistics(double triplesPerSecond, double foundUrisPerUri, double failureRate) {
+            this.triplesPerSecond = triplesPerSecond;
+            this.foundUrisPerUri = foundUrisPerUri;
+            this.failureRate = failureRate;
+        }
+
+        public YieldStatistics update(YieldStatistics observation) {
+            return new YieldStatistics(smooth(triplesPerSecond, observation.triplesPerSecond),
+                    smooth(foundUrisPerUri, observation.foundUrisPerUri),
+                    smooth(failureRate, observation.failureRate));
+        }
+
+        private static double smooth(double oldValue, double newValue) {
+            return ((1 - SMOOTHING_FACTOR) * oldValue) + (SMOOTHING_FACTOR * newValue);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.dice_research.squirrel.queue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+
+/**
+ * A domain-based queue which holds its data in memory. Every domain has its
+ * own deque of URIs which is guarded by the lock stripes of the
+ * {@link AbstractGroupingQueue}. The selection of the next domain is done by
+ * the {@link GroupScheduler} of the {@link AbstractGroupingQueue}, i.e., domains
+ * that may be crawled at the same time are handed out in FIFO order.
+ *
+ * <p>
+ * Since a lease always starts at the head of a domain, the URIs of an
+ * acknowledged lease are removed by polling them from the head of the deque.
+ * Only URIs that are not found at the head are removed with a single pass over
+ * the deque.
+ * </p>
+ */
+public class InMemoryDomainBasedQueue extends AbstractDomainBasedQueue {
+
+    protected Map<String, ArrayDeque<CrawleableUri>> queue = new ConcurrentHashMap<>();
+
+    @Override
+    protected void addUri(CrawleableUri uri, String domain) {
+        ArrayDeque<CrawleableUri> uris = queue.get(domain);
+        if (uris == null) {
+            uris = new ArrayDeque<>();
+            queue.put(domain, uris);
+        }
+        uris.add(uri);
+    }
+
+    @Override
+    protected Iterator<String> getGroupIterator() {
+        return queue.keySet().iterator();
+    }
+
+    @Override
+    protected List<CrawleableUri> getUris(String domain) {
+        ArrayDeque<CrawleableUri> uris = queue.get(domain);
+        return (uris != null) ? new ArrayList<>(uris) : null;
+    }
+
+    @Override
+    protected List<CrawleableUri> getUris(String domain, int maxNumberOfUris) {
+        ArrayDeque<CrawleableUri> queuedUris = queue.get(domain);
+        if (queuedUris == null) {
+            return null;
+        }
+        List<CrawleableUri> uris = new ArrayList<>(Math.min(maxNumberOfUris, queuedUris.size()));
+        Iterator<CrawleableUri> iterator = queuedUris.iterator();
+        while (iterator.hasNext() && (uris.size() < maxNumberOfUris)) {
+            uris.add(iterator.next());
+        }
+        return uris;
+    }
+
+    @Override
+    protected void deleteUris(String domain, List<CrawleableUri> uris) {
+        ArrayDeque<CrawleableUri> queuedUris = queue.get(domain);
+        if (queuedUris == null) {
+            return;
+        }
+        // the URIs of a lease are typically at the head of the deque
+        int pos = 0;
+        while ((pos < uris.size()) && !queuedUris.isEmpty() && queuedUris.peekFirst().equals(uris.get(pos))) {
+            queuedUris.pollFirst();
+            ++pos;
+        }
+        if (pos < uris.size()) {
+            Set<CrawleableUri> remainingUris = new HashSet<>(uris.subList(pos, uris.size()));
+            queuedUris.removeIf(uri -> remainingUris.contains(uri));
+        }
+        if (queuedUris.isEmpty()) {
+            queue.remove(domain);
+        }
+    }
+
+    @Override
+    public void open() {
+        // nothing to do
+    }
+
+    @Override
+    public void close() {
+        // nothing to do
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+}
@@ -0,0 +1,91 @@
+package org.dice_research.squirrel.queue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+
+/**
+ * The in-memory storage of the URI groups of a queue. The groups are kept in a
+ * sorted, concurrent map, i.e., the keys can be iterated while the store is
+ * changed. The lists of the single groups are not synchronized. The queue
+ * using this store has to guard them, e.g., with the lock stripes of the
+ * {@link AbstractGroupingQueue}.
+ *
+ * @param <T>
+ *            the class of the group key
+ */
+public class InMemoryGroupStore<T> {
+
+    protected SortedMap<T, List<CrawleableUri>> groups;
+
+    /**
+     * Constructor for group keys that have a natural order.
+     */
+    public InMemoryGroupStore() {
+        groups = new ConcurrentSkipListMap<T, List<CrawleableUri>>();
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param comparator
+     *            the comparator defining the order of the group keys
+     */
+    public InMemoryGroupStore(Comparator<? super T> comparator) {
+        groups = new ConcurrentSkipListMap<T, List<CrawleableUri>>(comparator);
+    }
+
+    public void addUri(CrawleableUri uri, T groupKey) {
+        List<CrawleableUri> uris = groups.get(groupKey);
+        if (uris != null) {
+            uris.add(uri);
+        } else {
+            uris = new ArrayList<CrawleableUri>();
+            uris.add(uri);
+            groups.put(groupKey, uris);
+        }
+    }
+
+    public Iterator<T> getGroupIterator() {
+        return groups.keySet().iterator();
+    }
+
+    public List<CrawleableUri> getUris(T groupKey) {
+        List<CrawleableUri> uris = groups.get(groupKey);
+        if (uris != null) {
+            // Create a new list to make sure that the internal list can not be changed from
+            // outside and that internal changes do not take effect in the list that is
+            // retrieved by this method.
+            uris = new ArrayList<>(uris);
+        }
+        return uris;
+    }
+
+    public List<CrawleableUri> getUris(T groupKey, int maxNumberOfUris) {
+        List<CrawleableUri> uris = groups.get(groupKey);
+        if (uris != null) {
+            uris = new ArrayList<>(uris.subList(0, Math.min(maxNumberOfUris, uris.size())));
+        }
+        return uris;
+    }
+
+    public void deleteUris(T groupKey, List<CrawleableUri> uris) {
+        List<CrawleableUri> queuedUris = groups.get(groupKey);
+        if (queuedUris != null) {
+            queuedUris.removeAll(new HashSet<>(uris));
+            if (queuedUris.isEmpty()) {
+                groups.remove(groupKey);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return groups.isEmpty();
+    }
+}
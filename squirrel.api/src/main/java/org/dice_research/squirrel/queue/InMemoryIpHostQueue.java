@@ -0,0 +1,58 @@
+package org.dice_research.squirrel.queue;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+
+/**
+ * A queue grouping the URIs by IP address and host name (see
+ * {@link AbstractIpHostBasedQueue}) which holds its data in memory. The groups
+ * are kept in an {@link InMemoryGroupStore} (like the groups of the
+ * {@link InMemoryQueue}) while the lists of the single groups are guarded by
+ * the lock stripes of the {@link AbstractGroupingQueue}.
+ */
+public class InMemoryIpHostQueue extends AbstractIpHostBasedQueue {
+
+    protected InMemoryGroupStore<IpHostPair> queue = new InMemoryGroupStore<>();
+
+    @Override
+    protected void addUri(CrawleableUri uri, IpHostPair groupKey) {
+        queue.addUri(uri, groupKey);
+    }
+
+    @Override
+    protected Iterator<IpHostPair> getGroupIterator() {
+        return queue.getGroupIterator();
+    }
+
+    @Override
+    protected List<CrawleableUri> getUris(IpHostPair groupKey) {
+        return queue.getUris(groupKey);
+    }
+
+    @Override
+    protected List<CrawleableUri> getUris(IpHostPair groupKey, int maxNumberOfUris) {
+        return queue.getUris(groupKey, maxNumberOfUris);
+    }
+
+    @Override
+    protected void deleteUris(IpHostPair groupKey, List<CrawleableUri> uris) {
+        queue.deleteUris(groupKey, uris);
+    }
+
+    @Override
+    public void open() {
+        // nothing to do
+    }
+
+    @Override
+    public void close() {
+        // nothing to do
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+}
@@ -1,55 +1,46 @@
 package org.dice_research.squirrel.queue;
 
 import java.net.InetAddress;
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 import org.dice_research.squirrel.data.uri.CrawleableUri;
 
 /**
- * An IP-based queue which holds its data in memory.
+ * An IP-based queue which holds its data in memory. The groups are kept in an
+ * {@link InMemoryGroupStore} while the lists of the single groups are guarded
+ * by the lock stripes of the {@link AbstractGroupingQueue}.
  * 
  * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
  *
  */
 public class InMemoryQueue extends AbstractIpAddressBasedQueue implements Comparator<InetAddress> {
 
-    protected SortedMap<InetAddress, List<CrawleableUri>> queue;
+    protected InMemoryGroupStore<InetAddress> queue;
 
     public InMemoryQueue() {
-        queue = new TreeMap<InetAddress, List<CrawleableUri>>(this);
+        queue = new InMemoryGroupStore<InetAddress>(this);
     }
 
     @Override
     protected void addUri(CrawleableUri uri, InetAddress address) {
-        if (queue.containsKey(address)) {
-            queue.get(address).add(uri);
-        } else {
-            List<CrawleableUri> uris = new ArrayList<CrawleableUri>();
-            uris.add(uri);
-            queue.put(address, uris);
-        }
+        queue.addUri(uri, address);
     }
 
     @Override
     protected Iterator<InetAddress> getGroupIterator() {
-        return queue.keySet().iterator();
+        return queue.getGroupIterator();
     }
 
     @Override
     protected List<CrawleableUri> getUris(InetAddress address) {
-        List<CrawleableUri> uris = null;
-        if (queue.containsKey(address)) {
-            // Create a new list to make sure that the internal list can not be changed from
-            // outside and that internal changes do not take effect in the list that is
-            // retrieved by this method.
-            uris = new ArrayList<>(queue.get(address));
-        }
-        return uris;
+        return queue.getUris(address);
+    }
+
+    @Override
+    protected List<CrawleableUri> getUris(InetAddress address, int maxNumberOfUris) {
+        return queue.getUris(address, maxNumberOfUris);
     }
 
     @Override
@@ -69,13 +60,7 @@ public class InMemoryQueue extends AbstractIpAddressBasedQueue implements Compar
 
     @Override
     protected void deleteUris(InetAddress address, List<CrawleableUri> uris) {
-        if (queue.containsKey(address)) {
-            List<CrawleableUri> queuedUris = queue.get(address);
-            queuedUris.removeAll(uris);
-            if (queuedUris.isEmpty()) {
-                queue.remove(address);
-            }
-        }
+        queue.deleteUris(address, uris);
     }
 
     @Override
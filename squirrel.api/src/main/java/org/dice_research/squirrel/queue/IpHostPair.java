@@ -0,0 +1,82 @@
+package org.dice_research.squirrel.queue;
+
+import java.net.InetAddress;
+
+/**
+ * Pair of an IP address and a host name, i.e., a (virtual) host on a physical
+ * machine.
+ */
+public class IpHostPair implements Comparable<IpHostPair> {
+    private InetAddress ip;
+    private String host;
+
+    public IpHostPair(InetAddress ip, String host) {
+        this.ip = ip;
+        this.host = host;
+    }
+
+    public InetAddress getIp() {
+        return ip;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((host == null) ? 0 : host.hashCode());
+        result = prime * result + ((ip == null) ? 0 : ip.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        IpHostPair other = (IpHostPair) obj;
+        if (host == null) {
+            if (other.host != null)
+                return false;
+        } else if (!host.equals(other.host))
+            return false;
+        if (ip == null) {
+            if (other.ip != null)
+                return false;
+        } else if (!ip.equals(other.ip))
+            return false;
+        return true;
+    }
+
+    /**
+     * Orders the pairs by their IP address and their host name, i.e., all
+     * hosts of an IP address are next to each other.
+     */
+    @Override
+    public int compareTo(IpHostPair o) {
+        byte[] ip1 = ip.getAddress();
+        byte[] ip2 = o.ip.getAddress();
+        int diff = ip1.length - ip2.length;
+        for (int i = 0; (diff == 0) && (i < ip1.length); ++i) {
+            diff = Byte.compare(ip1[i], ip2[i]);
+        }
+        if (diff == 0) {
+            diff = host.compareTo(o.host);
+        }
+        return diff;
+    }
+
+    @Override
+    public String toString() {
+        return "IpHostPair{" +
+            "ip=" + ip +
+            ", host=" + host +
+            '}';
+    }
+}
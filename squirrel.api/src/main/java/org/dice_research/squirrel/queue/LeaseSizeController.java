@@ -0,0 +1,187 @@
+package org.dice_research.squirrel.queue;
+
+import com.carrotsearch.hppc.IntDoubleOpenHashMap;
+import com.carrotsearch.hppc.IntLongOpenHashMap;
+
+/**
+ * This class determines the number of URIs a single lease (i.e., a chunk of
+ * URIs returned by {@link BlockingQueue}) of a group should contain. It
+ * observes the time the workers need to crawl the URIs of a group and adapts
+ * the lease size in a way that a single lease takes roughly
+ * {@link #targetLeaseDuration} milliseconds. The size of a lease is always
+ * between {@link #minUrisPerLease} and {@link #maxUrisPerLease}. The
+ * statistics of a group are dropped via {@link #removeGroup(int)} when the
+ * group is removed from the queue.
+ *
+ * <p>
+ * The groups are identified by the int IDs the queue assigns to its group keys
+ * (see {@link AbstractGroupingQueue#getGroupId(Object)}), i.e., the statistics
+ * are kept in primitive maps instead of boxing a key and a value for every
+ * group.
+ * </p>
+ */
+public class LeaseSizeController {
+
+    /**
+     * Default value for {@link #maxUrisPerLease}.
+     */
+    public static final int DEFAULT_MAX_URIS_PER_LEASE = 100;
+    /**
+     * Default value for {@link #initialUrisPerLease}.
+     */
+    public static final int DEFAULT_INITIAL_URIS_PER_LEASE = 10;
+    /**
+     * Default value for {@link #targetLeaseDuration} (5 minutes).
+     */
+    public static final long DEFAULT_TARGET_LEASE_DURATION = 5 * 60 * 1000;
+    /**
+     * Weight of a new observation in the moving average of the crawling time
+     * per URI.
+     */
+    private static final double SMOOTHING_FACTOR = 0.3;
+
+    /**
+     * The minimum number of URIs in a lease.
+     */
+    protected int minUrisPerLease = 1;
+    /**
+     * The maximum number of URIs in a lease.
+     */
+    protected int maxUrisPerLease = DEFAULT_MAX_URIS_PER_LEASE;
+    /**
+     * The number of URIs of a lease of a group for which no crawling time has
+     * been observed, yet.
+     */
+    protected int initialUrisPerLease = DEFAULT_INITIAL_URIS_PER_LEASE;
+    /**
+     * The time (in ms) the crawling of a single lease should take. A value
+     * &lt;= 0 disables the adaptation, i.e., every lease has the maximum size.
+     */
+    protected long targetLeaseDuration = DEFAULT_TARGET_LEASE_DURATION;
+    /**
+     * Moving average of the crawling time (in ms) per URI for every group.
+     */
+    protected IntDoubleOpenHashMap avgCrawlTimePerUri = new IntDoubleOpenHashMap();
+    /**
+     * Time stamps at which the current leases of the groups have been created.
+     */
+    protected IntLongOpenHashMap leaseStartTimes = new IntLongOpenHashMap();
+
+    /**
+     * Returns the number of URIs the next lease of the given group should
+     * contain.
+     *
+     * @param groupId
+     *            the ID of the group
+     * @return the number of URIs the next lease should contain
+     */
+    public synchronized int getLeaseSize(int groupId) {
+        if (targetLeaseDuration <= 0) {
+            return maxUrisPerLease;
+        }
+        if (!avgCrawlTimePerUri.containsKey(groupId)) {
+            return Math.min(initialUrisPerLease, maxUrisPerLease);
+        }
+        double avgTime = avgCrawlTimePerUri.get(groupId);
+        long size = Math.round(targetLeaseDuration / Math.max(avgTime, 1.0));
+        return (int) Math.max(minUrisPerLease, Math.min(size, maxUrisPerLease));
+    }
+
+    /**
+     * Informs the controller that a lease of the given group has been handed
+     * out.
+     *
+     * @param groupId
+     *            the ID of the group
+     */
+    public synchronized void leaseStarted(int groupId) {
+        leaseStartTimes.put(groupId, System.currentTimeMillis());
+    }
+
+    /**
+     * Informs the controller that the lease of the given group has been
+     * acknowledged and updates the crawling time of the group.
+     *
+     * @param groupId
+     *            the ID of the group
+     * @param numberOfUris
+     *            the number of URIs that have been crawled
+     */
+    public synchronized void leaseFinished(int groupId, int numberOfUris) {
+        if (!leaseStartTimes.containsKey(groupId)) {
+            return;
+        }
+        long start = leaseStartTimes.remove(groupId);
+        if (numberOfUris <= 0) {
+            return;
+        }
+        double timePerUri = (System.currentTimeMillis() - start) / (double) numberOfUris;
+        if (avgCrawlTimePerUri.containsKey(groupId)) {
+            timePerUri = ((1 - SMOOTHING_FACTOR) * avgCrawlTimePerUri.get(groupId))
+                    + (SMOOTHING_FACTOR * timePerUri);
+        }
+        avgCrawlTimePerUri.put(groupId, timePerUri);
+    }
+
+    /**
+     * Informs the controller that the lease of the given group has been given
+     * back without being crawled (e.g., because the worker died).
+     *
+     * @param groupId
+     *            the ID of the group
+     */
+    public synchronized void leaseAborted(int groupId) {
+        leaseStartTimes.remove(groupId);
+    }
+
+    /**
+     * Drops the statistics of the given group, e.g., because the group has been
+     * removed from the queue.
+     *
+     * @param groupId
+     *            the ID of the group
+     */
+    public synchronized void removeGroup(int groupId) {
+        avgCrawlTimePerUri.remove(groupId);
+        leaseStartTimes.remove(groupId);
+    }
+
+    /**
+     * @return the number of groups for which the controller has statistics
+     */
+    public synchronized int getNumberOfGroups() {
+        return avgCrawlTimePerUri.size();
+    }
+
+    public int getMinUrisPerLease() {
+        return minUrisPerLease;
+    }
+
+    public void setMinUrisPerLease(int minUrisPerLease) {
+        this.minUrisPerLease = minUrisPerLease;
+    }
+
+    public int getMaxUrisPerLease() {
+        return maxUrisPerLease;
+    }
+
+    public void setMaxUrisPerLease(int maxUrisPerLease) {
+        this.maxUrisPerLease = maxUrisPerLease;
+    }
+
+    public int getInitialUrisPerLease() {
+        return initialUrisPerLease;
+    }
+
+    public void setInitialUrisPerLease(int initialUrisPerLease) {
+        this.initialUrisPerLease = initialUrisPerLease;
+    }
+
+    public long getTargetLeaseDuration() {
+        return targetLeaseDuration;
+    }
+
+    public void setTargetLeaseDuration(long targetLeaseDuration) {
+        this.targetLeaseDuration = targetLeaseDuration;
+    }
+}
@@ -0,0 +1,633 @@
+package org.dice_research.squirrel.queue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.HostDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A queue that keeps the first URIs of the active groups in memory and uses
+ * another queue as persistent backend.
+ *
+ * <p>
+ * Every group that has been leased has a bounded in-memory head containing the
+ * next URIs of the group. Leases are taken from the head without accessing the
+ * backend. The head is refilled asynchronously as soon as it falls below half
+ * of its capacity. New URIs are written to the backend in batches by a
+ * write-behind thread. If all URIs of a group fit into its head, new URIs are
+ * added to the head directly. If the number of URIs in all heads exceeds
+ * {@link #maxHotUris}, the heads of the groups that have not been accessed for
+ * the longest time are dropped. Their URIs are still available in the backend.
+ * </p>
+ *
+ * <p>
+ * All accesses to the backend are executed by a fixed number of writer
+ * threads. All operations of a single group are executed by the same thread
+ * in the order in which they have been submitted, i.e., a refill of a head
+ * sees all URIs that have been added or removed before. URIs that have been
+ * handed out are kept in a set of unconfirmed URIs until their removal has
+ * been executed by the backend to make sure that a refill does not add them to
+ * the head again.
+ * </p>
+ *
+ * <p>
+ * The state of a head is guarded by the head object itself. The writer threads
+ * never acquire the lock stripes of this queue, i.e., methods holding a lock
+ * stripe may wait for tasks of the writer threads.
+ * </p>
+ *
+ * @param <T>
+ *            the class of the group key
+ */
+public class TieredGroupingQueue<T> extends AbstractGroupingQueue<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TieredGroupingQueue.class);
+
+    /**
+     * Default value for {@link #headCapacity}.
+     */
+    public static final int DEFAULT_HEAD_CAPACITY = 500;
+    /**
+     * Default value for {@link #maxHotUris}.
+     */
+    public static final long DEFAULT_MAX_HOT_URIS = 1000000;
+    /**
+     * Default number of writer threads.
+     */
+    public static final int DEFAULT_NUMBER_OF_WRITERS = 4;
+    /**
+     * Default value for {@link #flushRetryDelay}.
+     */
+    public static final long DEFAULT_FLUSH_RETRY_DELAY = 1000;
+
+    /**
+     * The queue storing all URIs.
+     */
+    protected AbstractGroupingQueue<T> backend;
+    /**
+     * The in-memory heads of the groups.
+     */
+    protected Map<T, GroupHead> heads = new ConcurrentHashMap<>();
+    /**
+     * The maximum number of URIs in the head of a single group.
+     */
+    protected int headCapacity = DEFAULT_HEAD_CAPACITY;
+    /**
+     * The maximum number of URIs in all heads.
+     */
+    protected long maxHotUris = DEFAULT_MAX_HOT_URIS;
+    /**
+     * The number of URIs in all heads.
+     */
+    protected AtomicLong hotUris = new AtomicLong(0);
+    /**
+     * The number of URIs that have been added but not written to the backend,
+     * yet.
+     */
+    protected AtomicLong unflushedUris = new AtomicLong(0);
+    /**
+     * The time (in ms) a writer waits before it retries to write a batch of
+     * URIs that couldn't be written to the backend.
+     */
+    protected long flushRetryDelay = DEFAULT_FLUSH_RETRY_DELAY;
+    private AtomicBoolean spilling = new AtomicBoolean(false);
+    private int numberOfWriters;
+    private List<Writer> writers = new ArrayList<>();
+
+    public TieredGroupingQueue(AbstractGroupingQueue<T> backend) {
+        this(backend, DEFAULT_NUMBER_OF_WRITERS);
+    }
+
+    public TieredGroupingQueue(AbstractGroupingQueue<T> backend, int numberOfWriters) {
+        super(backend.getGroupByOperator());
+        this.backend = backend;
+        this.includeDepth = backend.isDepthIncluded();
+        this.numberOfWriters = Math.max(1, numberOfWriters);
+    }
+
+    @Override
+    public void setHostDictionary(HostDictionary hostDictionary) {
+        super.setHostDictionary(hostDictionary);
+        backend.setHostDictionary(hostDictionary);
+    }
+
+    @Override
+    public void open() {
+        backend.open();
+        for (int i = 0; i < numberOfWriters; ++i) {
+            writers.add(new Writer());
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Writer writer : writers) {
+            writer.close();
+        }
+        writers.clear();
+        backend.close();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return (unflushedUris.get() == 0) && backend.isEmpty();
+    }
+
+    @Override
+    protected void addUri(CrawleableUri uri, T groupKey) {
+        GroupHead head = heads.get(groupKey);
+        if (head != null) {
+            synchronized (head) {
+                ++head.addCounter;
+                if (head.complete) {
+                    // the head contains all URIs of the group
+                    if (head.uris.size() < headCapacity) {
+                        if (head.uris.add(uri)) {
+                            hotUris.incrementAndGet();
+                        }
+                    } else {
+                        head.complete = false;
+                    }
+                }
+                getWriter(groupKey).enqueueAdd(groupKey, uri);
+            }
+        } else {
+            getWriter(groupKey).enqueueAdd(groupKey, uri);
+        }
+    }
+
+    @Override
+    protected List<CrawleableUri> getUris(T groupKey) {
+        // wait until all changes of this group have been written
+        waitFor(getWriter(groupKey).submit(() -> {
+        }));
+        return backend.getUris(groupKey);
+    }
+
+    /**
+     * Returns the first URIs of the given group from its head. The URIs are
+     * removed from the head and marked as unconfirmed until they are removed
+     * via {@link #deleteUris(Object, List)}. Note that the
+     * {@link #maxBytesPerLease} are already taken into account to make sure
+     * that the lease is not shortened afterwards.
+     */
+    @Override
+    protected List<CrawleableUri> getUris(T groupKey, int maxNumberOfUris) {
+        GroupHead head = heads.get(groupKey);
+        if (head == null) {
+            head = new GroupHead();
+            heads.put(groupKey, head);
+        }
+        boolean needsRefill;
+        synchronized (head) {
+            needsRefill = head.uris.isEmpty() && !head.complete;
+            // make sure that the head is not dropped before we took the URIs
+            head.pinned = true;
+            head.lastAccess = System.currentTimeMillis();
+        }
+        if (needsRefill) {
+            // the group is cold, i.e., we have to wait for its URIs
+            waitFor(submitRefill(groupKey, head));
+        }
+        List<CrawleableUri> uris = new ArrayList<>();
+        synchronized (head) {
+            head.pinned = false;
+            Iterator<CrawleableUri> iterator = head.uris.iterator();
+            long size = 0;
+            CrawleableUri uri;
+            while (iterator.hasNext() && (uris.size() < maxNumberOfUris)) {
+                uri = iterator.next();
+                size += estimateSize(uri);
+                if ((maxBytesPerLease > 0) && (size > maxBytesPerLease) && !uris.isEmpty()) {
+                    break;
+                }
+                uris.add(uri);
+                iterator.remove();
+                head.unconfirmed.add(uri);
+            }
+            hotUris.addAndGet(-uris.size());
+            if (!head.complete && !head.refilling && (head.uris.size() < (headCapacity / 2))) {
+                head.refilling = true;
+                submitRefill(groupKey, head);
+            }
+            if (uris.isEmpty() && head.complete && head.unconfirmed.isEmpty()) {
+                // the group is empty
+                heads.remove(groupKey, head);
+            }
+        }
+        return uris;
+    }
+
+    @Override
+    protected void deleteUris(T groupKey, List<CrawleableUri> uris) {
+        GroupHead head = heads.get(groupKey);
+        if (head != null) {
+            synchronized (head) {
+                for (CrawleableUri uri : uris) {
+                    if (head.uris.remove(uri)) {
+                        hotUris.decrementAndGet();
+                    }
+                }
+            }
+        }
+        getWriter(groupKey).submit(() -> {
+            backend.deleteUris(groupKey, uris);
+            GroupHead currentHead = heads.get(groupKey);
+            if (currentHead != null) {
+                synchronized (currentHead) {
+                    currentHead.unconfirmed.removeAll(uris);
+                    removeIfDropped(groupKey, currentHead);
+                }
+            }
+        });
+    }
+
+    @Override
+    protected Iterator<T> getGroupIterator() {
+        return backend.getGroupIterator();
+    }
+
+    /**
+     * Claims the given group in the backend after all pending changes of the
+     * group have been written. Otherwise, a shared backend would reject a group
+     * that has been added but not flushed or whose release is still pending.
+     */
+    @Override
+    protected boolean claimGroup(T groupKey, long now) {
+        waitFor(getWriter(groupKey).submit(() -> {
+        }));
+        boolean claimed = backend.claimGroup(groupKey, now);
+        // Either this instance holds the lease now or another frontier instance
+        // does. In the latter case, the head can not be trusted anymore.
+        setReleased(groupKey, false);
+        return claimed;
+    }
+
+    @Override
+    protected T claimNextGroup(long now) {
+        T groupKey = backend.claimNextGroup(now);
+        if (groupKey != null) {
+            GroupHead head = heads.get(groupKey);
+            if (head != null) {
+                boolean released;
+                synchronized (head) {
+                    released = head.released;
+                    head.released = false;
+                    // URIs might have been added by another frontier instance
+                    head.complete = false;
+                }
+                if (!released) {
+                    // the group has been leased by another frontier instance or the
+                    // lease of this instance expired, i.e., the head might be outdated
+                    dropHead(groupKey, head);
+                }
+            }
+        }
+        return groupKey;
+    }
+
+    @Override
+    protected void releaseGroup(T groupKey, long nextAllowedFetch) {
+        // the group is released after the URIs of the lease have been removed
+        getWriter(groupKey).submit(() -> {
+            backend.releaseGroup(groupKey, nextAllowedFetch);
+            setReleased(groupKey, true);
+        });
+    }
+
+    /**
+     * Sets the {@link GroupHead#released} flag of the head of the given group if
+     * the group has a head.
+     */
+    protected void setReleased(T groupKey, boolean released) {
+        GroupHead head = heads.get(groupKey);
+        if (head != null) {
+            synchronized (head) {
+                head.released = released;
+            }
+        }
+    }
+
+    @Override
+    public boolean isDepthIncluded() {
+        return backend.isDepthIncluded();
+    }
+
+    /**
+     * Submits a task that loads the next URIs of the given group from the
+     * backend into its head.
+     */
+    protected Future<?> submitRefill(T groupKey, GroupHead head) {
+        Writer writer = getWriter(groupKey);
+        return writer.submit(() -> {
+            int requested;
+            long addCounter;
+            synchronized (head) {
+                requested = headCapacity - head.uris.size();
+                if ((requested <= 0) || head.complete) {
+                    head.refilling = false;
+                    return;
+                }
+                // URIs that are in the head or unconfirmed will be returned as
+                // well
+                requested += head.uris.size() + head.unconfirmed.size();
+                addCounter = head.addCounter;
+            }
+            // make sure that all URIs that have been added before are visible
+            writer.flush();
+            List<CrawleableUri> uris = backend.getUris(groupKey, requested);
+            if (uris == null) {
+                uris = Collections.emptyList();
+            }
+            synchronized (head) {
+                int added = 0;
+                for (CrawleableUri uri : uris) {
+                    if (!head.unconfirmed.contains(uri) && head.uris.add(uri)) {
+                        ++added;
+                    }
+                }
+                hotUris.addAndGet(added);
+                // the head is complete if the backend returned all its URIs and no
+                // URI has been added in the meantime
+                head.complete = (uris.size() < requested) && (head.addCounter == addCounter);
+                head.refilling = false;
+            }
+            if (hotUris.get() > maxHotUris) {
+                spill();
+            }
+        });
+    }
+
+    /**
+     * Drops the heads of the groups that have not been accessed for the longest
+     * time until the number of URIs in all heads is below 90% of the
+     * {@link #maxHotUris}.
+     */
+    protected void spill() {
+        if (!spilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<Entry<T, GroupHead>> candidates = new ArrayList<>(heads.entrySet());
+            Collections.sort(candidates, (e1, e2) -> Long.compare(e1.getValue().lastAccess, e2.getValue().lastAccess));
+            long target = (maxHotUris * 9) / 10;
+            Iterator<Entry<T, GroupHead>> iterator = candidates.iterator();
+            Entry<T, GroupHead> entry;
+            while ((hotUris.get() > target) && iterator.hasNext()) {
+                entry = iterator.next();
+                dropHead(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            spilling.set(false);
+        }
+    }
+
+    /**
+     * Removes all URIs from the given head. They will be loaded from the backend
+     * when the group is leased the next time. The head itself is removed as soon
+     * as it has no unconfirmed URIs anymore.
+     */
+    protected void dropHead(T groupKey, GroupHead head) {
+        synchronized (head) {
+            if (head.pinned) {
+                return;
+            }
+            hotUris.addAndGet(-head.uris.size());
+            head.uris.clear();
+            head.complete = false;
+            removeIfDropped(groupKey, head);
+        }
+    }
+
+    /**
+     * Removes the given head if it has been dropped, i.e., it neither contains
+     * URIs nor waits for a refill, and all URIs handed out from it have been
+     * removed from the backend. Has to be called while holding the lock of the
+     * head.
+     */
+    protected void removeIfDropped(T groupKey, GroupHead head) {
+        if (head.uris.isEmpty() && !head.complete && !head.refilling && !head.pinned
+                && head.unconfirmed.isEmpty()) {
+            heads.remove(groupKey, head);
+        }
+    }
+
+    protected Writer getWriter(T groupKey) {
+        int hash = (groupKey == null) ? 0 : groupKey.hashCode();
+        hash ^= (hash >>> 16);
+        return writers.get((hash & Integer.MAX_VALUE) % writers.size());
+    }
+
+    private static void waitFor(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.error("Error while accessing the backend of the queue.", e.getCause());
+        }
+    }
+
+    public long getNumberOfHotUris() {
+        return hotUris.get();
+    }
+
+    public int getNumberOfHeads() {
+        return heads.size();
+    }
+
+    public long getNumberOfUnflushedUris() {
+        return unflushedUris.get();
+    }
+
+    public long getFlushRetryDelay() {
+        return flushRetryDelay;
+    }
+
+    public void setFlushRetryDelay(long flushRetryDelay) {
+        this.flushRetryDelay = flushRetryDelay;
+    }
+
+    public int getHeadCapacity() {
+        return headCapacity;
+    }
+
+    public void setHeadCapacity(int headCapacity) {
+        this.headCapacity = headCapacity;
+    }
+
+    public long getMaxHotUris() {
+        return maxHotUris;
+    }
+
+    public void setMaxHotUris(long maxHotUris) {
+        this.maxHotUris = maxHotUris;
+    }
+
+    public AbstractGroupingQueue<T> getBackend() {
+        return backend;
+    }
+
+    /**
+     * The in-memory head of a single group. All fields are guarded by the head
+     * object.
+     */
+    protected static class GroupHead {
+        /**
+         * The next URIs of the group in the order of the backend.
+         */
+        protected LinkedHashSet<CrawleableUri> uris = new LinkedHashSet<>();
+        /**
+         * URIs that have been handed out but haven't been removed from the backend,
+         * yet.
+         */
+        protected Set<CrawleableUri> unconfirmed = new HashSet<>();
+        /**
+         * {@code true} if the head contains all URIs of the group.
+         */
+        protected boolean complete = false;
+        protected boolean refilling = false;
+        /**
+         * Counts the URIs added to this group. Used to detect URIs that have been
+         * added while the head has been refilled.
+         */
+        protected long addCounter = 0;
+        protected long lastAccess = 0;
+        /**
+         * {@code true} while URIs are taken from the head, i.e., it must not be
+         * dropped.
+         */
+        protected boolean pinned = false;
+        /**
+         * {@code true} if the last lease of the group has been released by this
+         * instance, i.e., the head is still valid if the group is claimed again.
+         */
+        protected boolean released = false;
+    }
+
+    /**
+     * A thread that executes the accesses to the backend for a subset of the
+     * groups and collects new URIs to write them in batches.
+     */
+    protected class Writer {
+        private ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tiered-queue-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        private Map<T, List<CrawleableUri>> pendingUris = new HashMap<>();
+        private boolean flushScheduled = false;
+
+        public synchronized void enqueueAdd(T groupKey, CrawleableUri uri) {
+            List<CrawleableUri> uris = pendingUris.get(groupKey);
+            if (uris == null) {
+                uris = new ArrayList<>();
+                pendingUris.put(groupKey, uris);
+            }
+            uris.add(uri);
+            unflushedUris.incrementAndGet();
+            if (!flushScheduled) {
+                flushScheduled = true;
+                executor.submit(this::flush);
+            }
+        }
+
+        /**
+         * Writes all pending URIs to the backend. If the backend fails, the URIs
+         * are put back in front of the URIs that have been added in the meantime
+         * and another attempt is scheduled. Must only be called by the thread of
+         * this writer.
+         */
+        public void flush() {
+            Map<T, List<CrawleableUri>> uris;
+            synchronized (this) {
+                if (pendingUris.isEmpty()) {
+                    return;
+                }
+                uris = pendingUris;
+                pendingUris = new HashMap<>();
+                flushScheduled = false;
+            }
+            int count = 0;
+            for (List<CrawleableUri> group : uris.values()) {
+                count += group.size();
+            }
+            try {
+                backend.addUris(uris);
+                unflushedUris.addAndGet(-count);
+            } catch (Exception e) {
+                LOGGER.error("Couldn't write {} URIs to the backend. Retrying later.", count, e);
+                keep(uris);
+            }
+        }
+
+        /**
+         * Puts the given URIs that couldn't be written back into the pending URIs
+         * and schedules the next flush.
+         */
+        private synchronized void keep(Map<T, List<CrawleableUri>> uris) {
+            for (Entry<T, List<CrawleableUri>> group : pendingUris.entrySet()) {
+                List<CrawleableUri> keptUris = uris.get(group.getKey());
+                if (keptUris == null) {
+                    uris.put(group.getKey(), group.getValue());
+                } else {
+                    keptUris.addAll(group.getValue());
+                }
+            }
+            pendingUris = uris;
+            if (!flushScheduled && !executor.isShutdown()) {
+                flushScheduled = true;
+                executor.schedule(this::flush, flushRetryDelay, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /**
+         * Executes the given task after all previously submitted tasks.
+         */
+        public Future<?> submit(Runnable task) {
+            return executor.submit(() -> {
+                flush();
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    LOGGER.error("Error while accessing the backend of the queue.", e);
+                }
+            });
+        }
+
+        public void close() {
+            executor.submit(this::flush);
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                if (!pendingUris.isEmpty()) {
+                    LOGGER.error("Closing the queue while URIs of {} groups couldn't be written to the backend.",
+                            pendingUris.size());
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.dice_research.squirrel.queue;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.dice_research.squirrel.data.uri.CrawleableUri;
@@ -20,6 +21,21 @@ public interface UriQueue {
      *            queue.
      */
     public void addUri(CrawleableUri uri);
+
+    /**
+     * Adds the given {@link CrawleableUri} instances to the queue. The default
+     * implementation adds them one by one. Implementations should override this
+     * method if they can add several URIs more efficiently.
+     * 
+     * @param uris
+     *            the {@link CrawleableUri} instances that should be added to the
+     *            queue.
+     */
+    public default void addUris(Collection<CrawleableUri> uris) {
+        for (CrawleableUri uri : uris) {
+            addUri(uri);
+        }
+    }
     
     /**
      * Returns the next chunk of URIs that should be crawled or null. Note that
@@ -0,0 +1,641 @@
+package org.dice_research.squirrel.uri.processing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Matches a String (typically a URI or a part of it) against a large set of
+ * rules with a single pass over the String. The following types of rules are
+ * supported:
+ * <ul>
+ * <li>literals that have to be contained in the String, optionally anchored at
+ * its start (i.e., prefixes) or its end. All literals are matched at once with
+ * an Aho-Corasick automaton.</li>
+ * <li>host suffixes, i.e., the host of the URI has to be equal to the suffix or
+ * has to end with a dot followed by the suffix. They are matched with a trie of
+ * the reversed suffixes.</li>
+ * <li>regular expressions that are searched in the String (i.e.,
+ * {@link java.util.regex.Matcher#find()} semantics). Regular expressions that
+ * are only literals, optionally surrounded by {@code .*}, {@code ^} or
+ * {@code $}, are turned into literal rules. The remaining expressions are
+ * combined into a single {@link Pattern}.</li>
+ * </ul>
+ * The rules get ids in the order in which they are added to the
+ * {@link Builder}. {@link #firstMatch(String)} returns the lowest id of all
+ * matching rules, i.e., the order of the rules can be used to express their
+ * priority.
+ *
+ * <p>
+ * If the matcher is created to ignore the case, the given Strings are matched
+ * as if they have been converted to lower case, i.e., rules containing upper
+ * case characters (except host suffixes) can not match. Note that this
+ * conversion does not need to create a lower case copy of the String as long
+ * as no regular expression has to be evaluated.
+ * </p>
+ *
+ * <p>
+ * Instances of this class are immutable and can be shared between threads.
+ * </p>
+ */
+public class UriMatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UriMatcher.class);
+
+    /**
+     * The value returned by {@link #firstMatch(String)} if no rule matches.
+     */
+    public static final int NO_MATCH = -1;
+
+    private static final int[] NO_RULES = new int[0];
+    private static final byte ANCHORED_START = 1;
+    private static final byte ANCHORED_END = 2;
+    /**
+     * Characters with a special meaning in a regular expression.
+     */
+    private static final String REGEX_META_CHARS = "^$.|?*+()[]{}";
+
+    private final boolean ignoreCase;
+    /**
+     * The lowest id of the rules that match every String or {@link #NO_MATCH}.
+     */
+    private final int alwaysMatchingRule;
+    /**
+     * Aho-Corasick automaton of the literals.
+     */
+    private final TransitionTable literalTransitions;
+    private final int[] literalFailures;
+    /**
+     * The ids (in ascending order) of the literal rules that end in the single
+     * states of the automaton (including the rules reachable via failure
+     * links).
+     */
+    private final int[][] literalOutputs;
+    private final int[] literalLengths;
+    private final byte[] literalAnchors;
+    /**
+     * Trie of the reversed host suffixes.
+     */
+    private final TransitionTable hostSuffixTransitions;
+    /**
+     * The lowest id of the host suffix rules ending in the single states of the
+     * trie or {@link #NO_MATCH}.
+     */
+    private final int[] hostSuffixRules;
+    /**
+     * The ids of the rules that could only be expressed as regular expressions
+     * in ascending order.
+     */
+    private final int[] regexRules;
+    private final Pattern[] regexes;
+    /**
+     * All {@link #regexes} combined in a single Pattern or {@code null} if they
+     * can not be combined.
+     */
+    private final Pattern combinedRegex;
+
+    protected UriMatcher(Builder builder) {
+        this.ignoreCase = builder.ignoreCase;
+        int alwaysMatching = NO_MATCH;
+        int numberOfRules = builder.rules.size();
+        literalLengths = new int[numberOfRules];
+        literalAnchors = new byte[numberOfRules];
+        // build the tries
+        literalTransitions = new TransitionTable();
+        hostSuffixTransitions = new TransitionTable();
+        List<int[]> literalOwnRules = new ArrayList<>();
+        literalOwnRules.add(NO_RULES);
+        List<List<int[]>> literalChildren = new ArrayList<>();
+        literalChildren.add(new ArrayList<>());
+        List<Integer> hostRules = new ArrayList<>();
+        hostRules.add(NO_MATCH);
+        List<Integer> regexRuleIds = new ArrayList<>();
+        List<Pattern> regexList = new ArrayList<>();
+        for (int id = 0; id < numberOfRules; ++id) {
+            Rule rule = builder.rules.get(id);
+            switch (rule.type) {
+            case LITERAL: {
+                if (ignoreCase && !rule.value.equals(rule.value.toLowerCase())) {
+                    LOGGER.warn("The rule \"{}\" contains upper case characters and will never match.", rule.value);
+                    break;
+                }
+                if (rule.value.isEmpty()) {
+                    if (alwaysMatching == NO_MATCH) {
+                        alwaysMatching = id;
+                    }
+                    break;
+                }
+                int state = 0;
+                for (int i = 0; i < rule.value.length(); ++i) {
+                    char c = rule.value.charAt(i);
+                    int next = literalTransitions.get(state, c);
+                    if (next < 0) {
+                        next = literalOwnRules.size();
+                        literalOwnRules.add(NO_RULES);
+                        literalChildren.add(new ArrayList<>());
+                        literalTransitions.put(state, c, next);
+                        literalChildren.get(state).add(new int[] { c, next });
+                    }
+                    state = next;
+                }
+                int[] ownRules = literalOwnRules.get(state);
+                ownRules = Arrays.copyOf(ownRules, ownRules.length + 1);
+                ownRules[ownRules.length - 1] = id;
+                literalOwnRules.set(state, ownRules);
+                literalLengths[id] = rule.value.length();
+                literalAnchors[id] = rule.anchors;
+                break;
+            }
+            case HOST_SUFFIX: {
+                String suffix = rule.value.toLowerCase();
+                int state = 0;
+                for (int i = suffix.length() - 1; i >= 0; --i) {
+                    char c = suffix.charAt(i);
+                    int next = hostSuffixTransitions.get(state, c);
+                    if (next < 0) {
+                        next = hostRules.size();
+                        hostRules.add(NO_MATCH);
+                        hostSuffixTransitions.put(state, c, next);
+                    }
+                    state = next;
+                }
+                if (hostRules.get(state) == NO_MATCH) {
+                    hostRules.set(state, id);
+                }
+                break;
+            }
+            case REGEX: {
+                regexRuleIds.add(id);
+                regexList.add(rule.pattern);
+                break;
+            }
+            }
+        }
+        alwaysMatchingRule = alwaysMatching;
+        // add the failure links and outputs of the literal automaton (breadth
+        // first)
+        int numberOfStates = literalOwnRules.size();
+        literalFailures = new int[numberOfStates];
+        literalOutputs = new int[numberOfStates][];
+        literalOutputs[0] = NO_RULES;
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int[] child : literalChildren.get(0)) {
+            literalOutputs[child[1]] = literalOwnRules.get(child[1]);
+            queue.add(child[1]);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int[] child : literalChildren.get(state)) {
+                char c = (char) child[0];
+                int failure = literalFailures[state];
+                while ((failure != 0) && (literalTransitions.get(failure, c) < 0)) {
+                    failure = literalFailures[failure];
+                }
+                int target = literalTransitions.get(failure, c);
+                literalFailures[child[1]] = (target >= 0) ? target : 0;
+                literalOutputs[child[1]] = merge(literalOwnRules.get(child[1]),
+                        literalOutputs[literalFailures[child[1]]]);
+                queue.add(child[1]);
+            }
+        }
+        hostSuffixRules = new int[hostRules.size()];
+        for (int i = 0; i < hostSuffixRules.length; ++i) {
+            hostSuffixRules[i] = hostRules.get(i);
+        }
+        regexRules = new int[regexRuleIds.size()];
+        for (int i = 0; i < regexRules.length; ++i) {
+            regexRules[i] = regexRuleIds.get(i);
+        }
+        regexes = regexList.toArray(new Pattern[regexList.size()]);
+        combinedRegex = combine(regexes);
+    }
+
+    /**
+     * Returns the lowest id of all rules matching the given String.
+     *
+     * @param s
+     *            the String that should be matched
+     * @return the lowest id of all matching rules or {@link #NO_MATCH} if no
+     *         rule matches
+     */
+    public int firstMatch(String s) {
+        int best = alwaysMatchingRule;
+        if (best == 0) {
+            return best;
+        }
+        // literals
+        int length = s.length();
+        int state = 0;
+        for (int i = 0; i < length; ++i) {
+            state = nextLiteralState(state, s.charAt(i));
+            for (int rule : literalOutputs[state]) {
+                if ((best != NO_MATCH) && (rule >= best)) {
+                    break;
+                }
+                if (checkAnchors(rule, i, length)) {
+                    best = rule;
+                    break;
+                }
+            }
+        }
+        // host suffixes
+        int hostRule = matchHostSuffix(s);
+        if ((hostRule != NO_MATCH) && ((best == NO_MATCH) || (hostRule < best))) {
+            best = hostRule;
+        }
+        // regexes
+        String input = null;
+        for (int i = 0; (i < regexRules.length) && ((best == NO_MATCH) || (regexRules[i] < best)); ++i) {
+            if (input == null) {
+                input = ignoreCase ? s.toLowerCase() : s;
+            }
+            if (regexes[i].matcher(input).find()) {
+                best = regexRules[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Checks whether any of the rules matches the given String.
+     *
+     * @param s
+     *            the String that should be matched
+     * @return {@code true} if at least one rule matches the String
+     */
+    public boolean matchesAny(String s) {
+        if (alwaysMatchingRule != NO_MATCH) {
+            return true;
+        }
+        int length = s.length();
+        int state = 0;
+        for (int i = 0; i < length; ++i) {
+            state = nextLiteralState(state, s.charAt(i));
+            for (int rule : literalOutputs[state]) {
+                if (checkAnchors(rule, i, length)) {
+                    return true;
+                }
+            }
+        }
+        if (matchHostSuffix(s) != NO_MATCH) {
+            return true;
+        }
+        if (regexes.length == 0) {
+            return false;
+        }
+        String input = ignoreCase ? s.toLowerCase() : s;
+        if (combinedRegex != null) {
+            return combinedRegex.matcher(input).find();
+        }
+        for (int i = 0; i < regexes.length; ++i) {
+            if (regexes[i].matcher(input).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int nextLiteralState(int state, char c) {
+        if (ignoreCase) {
+            c = Character.toLowerCase(c);
+        }
+        int next;
+        while ((next = literalTransitions.get(state, c)) < 0) {
+            if (state == 0) {
+                return 0;
+            }
+            state = literalFailures[state];
+        }
+        return next;
+    }
+
+    private boolean checkAnchors(int rule, int end, int length) {
+        byte anchors = literalAnchors[rule];
+        if (((anchors & ANCHORED_START) != 0) && ((end + 1) != literalLengths[rule])) {
+            return false;
+        }
+        return ((anchors & ANCHORED_END) == 0) || ((end + 1) == length);
+    }
+
+    /**
+     * Searches for the host of the given URI and returns the lowest id of the
+     * host suffix rules matching it.
+     */
+    private int matchHostSuffix(String uri) {
+        if (hostSuffixRules.length <= 1) {
+            return NO_MATCH;
+        }
+        int hostStart = uri.indexOf("://");
+        if (hostStart < 0) {
+            return NO_MATCH;
+        }
+        hostStart += 3;
+        int length = uri.length();
+        int hostEnd = hostStart;
+        int portStart = -1;
+        char c;
+        while (hostEnd < length) {
+            c = uri.charAt(hostEnd);
+            if ((c == '/') || (c == '?') || (c == '#')) {
+                break;
+            } else if (c == '@') {
+                // skip the user info
+                hostStart = hostEnd + 1;
+                portStart = -1;
+            } else if ((c == ':') && ((uri.charAt(hostStart) != '[') || (uri.charAt(hostEnd - 1) == ']'))) {
+                portStart = hostEnd;
+            }
+            ++hostEnd;
+        }
+        if (portStart >= 0) {
+            hostEnd = portStart;
+        }
+        int best = NO_MATCH;
+        int state = 0;
+        for (int i = hostEnd - 1; i >= hostStart; --i) {
+            state = hostSuffixTransitions.get(state, Character.toLowerCase(uri.charAt(i)));
+            if (state < 0) {
+                break;
+            }
+            if ((hostSuffixRules[state] != NO_MATCH) && ((i == hostStart) || (uri.charAt(i - 1) == '.'))
+                    && ((best == NO_MATCH) || (hostSuffixRules[state] < best))) {
+                best = hostSuffixRules[state];
+            }
+        }
+        return best;
+    }
+
+    private static int[] merge(int[] rules1, int[] rules2) {
+        if (rules1.length == 0) {
+            return rules2;
+        }
+        if (rules2.length == 0) {
+            return rules1;
+        }
+        int[] merged = Arrays.copyOf(rules1, rules1.length + rules2.length);
+        System.arraycopy(rules2, 0, merged, rules1.length, rules2.length);
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    /**
+     * Combines the given patterns into a single pattern that finds a match if
+     * one of the patterns finds a match.
+     *
+     * @return the combined pattern or {@code null} if the patterns can not be
+     *         combined
+     */
+    private static Pattern combine(Pattern[] patterns) {
+        if (patterns.length < 2) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Pattern pattern : patterns) {
+            // flags and back references would change their meaning
+            if ((pattern.flags() != 0) || pattern.pattern().matches(".*\\\\([1-9]|k<).*")) {
+                return null;
+            }
+            if (builder.length() > 0) {
+                builder.append('|');
+            }
+            builder.append("(?:").append(pattern.pattern()).append(')');
+        }
+        try {
+            return Pattern.compile(builder.toString());
+        } catch (PatternSyntaxException e) {
+            LOGGER.warn("Couldn't combine the regular expressions. They will be evaluated one after the other.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Turns the given regular expression into a literal rule if it is only a
+     * literal, optionally surrounded by {@code .*}, {@code ^} or {@code $}.
+     *
+     * @return the literal rule or {@code null} if the expression is not a
+     *         literal
+     */
+    protected static Rule parseLiteral(String regex) {
+        int start = 0;
+        int end = regex.length();
+        byte anchors = 0;
+        if (regex.startsWith("^")) {
+            anchors |= ANCHORED_START;
+            ++start;
+        }
+        if (regex.startsWith(".*", start)) {
+            anchors &= ~ANCHORED_START;
+            start += 2;
+        }
+        if ((end > start) && (regex.charAt(end - 1) == '$') && !isEscaped(regex, end - 1)) {
+            anchors |= ANCHORED_END;
+            --end;
+        }
+        if (((end - start) >= 2) && regex.startsWith(".*", end - 2) && !isEscaped(regex, end - 2)) {
+            anchors &= ~ANCHORED_END;
+            end -= 2;
+        }
+        if ((start == end) && (anchors == (ANCHORED_START | ANCHORED_END))) {
+            // only the empty String matches
+            return null;
+        }
+        StringBuilder literal = new StringBuilder(end - start);
+        for (int i = start; i < end; ++i) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                ++i;
+                // escaped letters and digits have a special meaning
+                if ((i >= end) || Character.isLetterOrDigit(regex.charAt(i))) {
+                    return null;
+                }
+                literal.append(regex.charAt(i));
+            } else if (REGEX_META_CHARS.indexOf(c) >= 0) {
+                return null;
+            } else {
+                literal.append(c);
+            }
+        }
+        return new Rule(RuleType.LITERAL, literal.toString(), anchors, null);
+    }
+
+    private static boolean isEscaped(String regex, int pos) {
+        int backslashes = 0;
+        while ((pos > 0) && (regex.charAt(pos - 1) == '\\')) {
+            ++backslashes;
+            --pos;
+        }
+        return (backslashes % 2) == 1;
+    }
+
+    /**
+     * Builder for a {@link UriMatcher}. The ids of the rules are given in the
+     * order in which they are added.
+     */
+    public static class Builder {
+
+        private final boolean ignoreCase;
+        private final List<Rule> rules = new ArrayList<>();
+
+        /**
+         * Constructor.
+         *
+         * @param ignoreCase
+         *            if {@code true} Strings are matched as if they have been
+         *            converted to lower case
+         */
+        public Builder(boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+        }
+
+        /**
+         * Adds a rule that matches if the given literal is contained in the
+         * String.
+         *
+         * @return the id of the rule
+         */
+        public int addLiteral(String literal) {
+            return add(new Rule(RuleType.LITERAL, literal, (byte) 0, null));
+        }
+
+        /**
+         * Adds a rule that matches if the String starts with the given prefix.
+         *
+         * @return the id of the rule
+         */
+        public int addPrefix(String prefix) {
+            return add(new Rule(RuleType.LITERAL, prefix, ANCHORED_START, null));
+        }
+
+        /**
+         * Adds a rule that matches if the host of the URI is the given suffix or
+         * ends with a dot followed by the suffix. The suffix is matched case
+         * insensitive.
+         *
+         * @return the id of the rule
+         */
+        public int addHostSuffix(String suffix) {
+            return add(new Rule(RuleType.HOST_SUFFIX, suffix, (byte) 0, null));
+        }
+
+        /**
+         * Adds a rule that matches if the given regular expression can be found
+         * in the String.
+         *
+         * @return the id of the rule
+         * @throws PatternSyntaxException
+         *             if the expression is not valid
+         */
+        public int addRegex(String regex) {
+            return addRegex(Pattern.compile(regex));
+        }
+
+        /**
+         * Adds a rule that matches if the given pattern can be found in the
+         * String.
+         *
+         * @return the id of the rule
+         */
+        public int addRegex(Pattern pattern) {
+            Rule rule = (pattern.flags() == 0) ? parseLiteral(pattern.pattern()) : null;
+            if (rule == null) {
+                rule = new Rule(RuleType.REGEX, pattern.pattern(), (byte) 0, pattern);
+            }
+            return add(rule);
+        }
+
+        private int add(Rule rule) {
+            rules.add(rule);
+            return rules.size() - 1;
+        }
+
+        public UriMatcher build() {
+            return new UriMatcher(this);
+        }
+    }
+
+    protected static enum RuleType {
+        LITERAL, HOST_SUFFIX, REGEX
+    }
+
+    protected static class Rule {
+        private final RuleType type;
+        private final String value;
+        private final byte anchors;
+        private final Pattern pattern;
+
+        public Rule(RuleType type, String value, byte anchors, Pattern pattern) {
+            this.type = type;
+            this.value = value;
+            this.anchors = anchors;
+            this.pattern = pattern;
+        }
+    }
+
+    /**
+     * Open addressing hash table mapping a pair of state and character to the
+     * next state.
+     */
+    private static class TransitionTable {
+        private static final long EMPTY = -1;
+
+        private long[] keys = new long[16];
+        private int[] values = new int[16];
+        private int size = 0;
+
+        {
+            Arrays.fill(keys, EMPTY);
+        }
+
+        public int get(int state, char c) {
+            long key = (((long) state) << 16) | c;
+            int mask = keys.length - 1;
+            int pos = hash(key) & mask;
+            while (keys[pos] != EMPTY) {
+                if (keys[pos] == key) {
+                    return values[pos];
+                }
+                pos = (pos + 1) & mask;
+            }
+            return -1;
+        }
+
+        public void put(int state, char c, int next) {
+            if ((2 * (size + 1)) > keys.length) {
+                long[] oldKeys = keys;
+                int[] oldValues = values;
+                keys = new long[2 * oldKeys.length];
+                values = new int[keys.length];
+                Arrays.fill(keys, EMPTY);
+                for (int i = 0; i < oldKeys.length; ++i) {
+                    if (oldKeys[i] != EMPTY) {
+                        insert(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            insert((((long) state) << 16) | c, next);
+            ++size;
+        }
+
+        private void insert(long key, int value) {
+            int mask = keys.length - 1;
+            int pos = hash(key) & mask;
+            while (keys[pos] != EMPTY) {
+                pos = (pos + 1) & mask;
+            }
+            keys[pos] = key;
+            values[pos] = value;
+        }
+
+        private static int hash(long key) {
+            key *= 0x9E3779B97F4A7C15L;
+            return (int) (key ^ (key >>> 32));
+        }
+    }
+}
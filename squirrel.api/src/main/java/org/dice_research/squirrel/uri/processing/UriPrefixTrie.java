@@ -0,0 +1,436 @@
+package org.dice_research.squirrel.uri.processing;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A compressed radix trie over URI keys that supports three types of rules
+ * which are checked with a single walk through the trie:
+ * <ul>
+ * <li>host rules match the host and all its sub domains,</li>
+ * <li>prefix rules match all URIs starting with the given URI and</li>
+ * <li>exact rules match only the given URI.</li>
+ * </ul>
+ * The key of a URI comprises its reversed, lower case host, its port (if
+ * given), its path and its query, e.g., {@code http://www.example.org/a?b} has
+ * the key {@code gro.elpmaxe.www/a?b}. Since the host is reversed, the keys of
+ * all sub domains of a host share the same prefix. Note that the scheme is not
+ * part of the key, i.e., a rule matches URIs of all schemes.
+ *
+ * <p>
+ * The trie is stored in a few flat arrays. The edge labels are stored as
+ * bytes, i.e., the rules are converted into their ASCII form and URI
+ * characters outside of the ASCII range never match. A node needs 9 bytes
+ * plus the length of its label. The children of a node are sorted by the
+ * first byte of their labels and are found with a binary search.
+ * </p>
+ *
+ * <p>
+ * Instances of this class are immutable and can be shared between threads.
+ * </p>
+ */
+public class UriPrefixTrie {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UriPrefixTrie.class);
+
+    public static final byte EXACT_RULE = 1;
+    public static final byte PREFIX_RULE = 2;
+    public static final byte HOST_RULE = 4;
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    /**
+     * The labels of all nodes. The label of node i ranges from
+     * {@code labelStarts[i]} to {@code labelStarts[i + 1]}.
+     */
+    private final byte[] labels;
+    private final int[] labelStarts;
+    /**
+     * The children of node i are the nodes from {@code firstChildren[i]} to
+     * {@code firstChildren[i + 1]}.
+     */
+    private final int[] firstChildren;
+    /**
+     * The types of the rules that end in the single nodes.
+     */
+    private final byte[] rules;
+    private final int numberOfRules;
+    /**
+     * Thread local buffers for creating the keys of URIs.
+     */
+    private final ThreadLocal<StringBuilder> keyBuffers = ThreadLocal
+            .withInitial(() -> new StringBuilder(INITIAL_BUFFER_SIZE));
+
+    protected UriPrefixTrie(byte[] labels, int[] labelStarts, int[] firstChildren, byte[] rules,
+            int numberOfRules) {
+        this.labels = labels;
+        this.labelStarts = labelStarts;
+        this.firstChildren = firstChildren;
+        this.rules = rules;
+        this.numberOfRules = numberOfRules;
+    }
+
+    /**
+     * Checks whether one of the rules matches the given URI.
+     *
+     * @param uri
+     *            the URI that should be checked
+     * @return the type of the first matching rule or 0 if no rule matches
+     */
+    public byte match(URI uri) {
+        String host = uri.getHost();
+        if (host == null) {
+            return 0;
+        }
+        StringBuilder key = keyBuffers.get();
+        key.setLength(0);
+        int hostEnd = appendKey(key, host, uri.getPort(), uri.getRawPath(), uri.getRawQuery());
+        return match(key, hostEnd);
+    }
+
+    /**
+     * Checks whether one of the rules matches the given key.
+     *
+     * @param key
+     *            the key of a URI
+     * @param hostEnd
+     *            the position in the key at which the reversed host ends
+     * @return the type of the first matching rule or 0 if no rule matches
+     */
+    public byte match(CharSequence key, int hostEnd) {
+        int length = key.length();
+        int node = 0;
+        int pos = 0;
+        while (true) {
+            // check the rules ending in this node
+            byte nodeRules = rules[node];
+            if (nodeRules != 0) {
+                if (((nodeRules & HOST_RULE) != 0)
+                        && ((pos == hostEnd) || ((pos < hostEnd) && (key.charAt(pos) == '.')))) {
+                    return HOST_RULE;
+                }
+                if (((nodeRules & PREFIX_RULE) != 0) && (pos > hostEnd)) {
+                    return PREFIX_RULE;
+                }
+                if (((nodeRules & EXACT_RULE) != 0) && (pos == length)) {
+                    return EXACT_RULE;
+                }
+            }
+            if (pos == length) {
+                return 0;
+            }
+            node = findChild(node, key.charAt(pos));
+            if (node < 0) {
+                return 0;
+            }
+            // compare the remaining label (the first byte has been compared
+            // already)
+            int labelEnd = labelStarts[node + 1];
+            ++pos;
+            for (int i = labelStarts[node] + 1; i < labelEnd; ++i) {
+                if ((pos == length) || (key.charAt(pos) != (labels[i] & 0xFF))) {
+                    return 0;
+                }
+                ++pos;
+            }
+        }
+    }
+
+    /**
+     * Searches the child of the given node whose label starts with the given
+     * character.
+     *
+     * @return the id of the child or -1 if there is no such child
+     */
+    private int findChild(int node, char c) {
+        int low = firstChildren[node];
+        int high = firstChildren[node + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int first = labels[labelStarts[middle]] & 0xFF;
+            if (first < c) {
+                low = middle + 1;
+            } else if (first > c) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of rules in this trie
+     */
+    public int getNumberOfRules() {
+        return numberOfRules;
+    }
+
+    /**
+     * @return the number of nodes of this trie
+     */
+    public int getNumberOfNodes() {
+        return rules.length;
+    }
+
+    /**
+     * Appends the key of a URI with the given parts to the given builder.
+     *
+     * @return the position at which the reversed host ends
+     */
+    public static int appendKey(StringBuilder builder, String host, int port, String path, String query) {
+        for (int i = host.length() - 1; i >= 0; --i) {
+            builder.append(Character.toLowerCase(host.charAt(i)));
+        }
+        int hostEnd = builder.length();
+        if (port != -1) {
+            builder.append(':').append(port);
+        }
+        if ((path == null) || path.isEmpty()) {
+            builder.append('/');
+        } else {
+            builder.append(path);
+        }
+        if (query != null) {
+            builder.append('?').append(query);
+        }
+        return hostEnd;
+    }
+
+    /**
+     * Builder of a {@link UriPrefixTrie}. The keys of the rules are collected
+     * in a single byte array and the trie is created with a single pass over
+     * the sorted keys.
+     */
+    public static class Builder {
+
+        private byte[] keyBytes = new byte[1024];
+        private int keyBytesLength = 0;
+        private int[] keyStarts = new int[64];
+        private byte[] keyTypes = new byte[64];
+        private int numberOfKeys = 0;
+        private StringBuilder keyBuilder = new StringBuilder();
+
+        /**
+         * Adds a rule that matches the given host and all its sub domains.
+         */
+        public Builder addHost(String host) {
+            keyBuilder.setLength(0);
+            for (int i = host.length() - 1; i >= 0; --i) {
+                keyBuilder.append(Character.toLowerCase(host.charAt(i)));
+            }
+            addKey(keyBuilder, HOST_RULE);
+            return this;
+        }
+
+        /**
+         * Adds a rule that matches all URIs starting with the given URI.
+         */
+        public Builder addPrefix(String uri) {
+            return addUri(uri, PREFIX_RULE);
+        }
+
+        /**
+         * Adds a rule that matches only the given URI.
+         */
+        public Builder addExact(String uri) {
+            return addUri(uri, EXACT_RULE);
+        }
+
+        protected Builder addUri(String uri, byte type) {
+            try {
+                URI uriObject = new URI(uri);
+                String asciiUri = uriObject.toASCIIString();
+                if (!asciiUri.equals(uri)) {
+                    uriObject = new URI(asciiUri);
+                }
+                if (uriObject.getHost() == null) {
+                    LOGGER.warn("Got a blacklist rule without a host (\"{}\"). It will be ignored.", uri);
+                    return this;
+                }
+                keyBuilder.setLength(0);
+                appendKey(keyBuilder, uriObject.getHost(), uriObject.getPort(), uriObject.getRawPath(),
+                        uriObject.getRawQuery());
+                addKey(keyBuilder, type);
+            } catch (URISyntaxException e) {
+                LOGGER.warn("Got an incorrect blacklist rule (\"{}\"). It will be ignored.", uri);
+            }
+            return this;
+        }
+
+        private void addKey(CharSequence key, byte type) {
+            for (int i = 0; i < key.length(); ++i) {
+                if (key.charAt(i) > 0x7F) {
+                    LOGGER.warn("Got a blacklist rule with non-ASCII characters (\"{}\"). It will be ignored.", key);
+                    return;
+                }
+            }
+            if (numberOfKeys == keyStarts.length) {
+                keyStarts = Arrays.copyOf(keyStarts, 2 * numberOfKeys);
+                keyTypes = Arrays.copyOf(keyTypes, 2 * numberOfKeys);
+            }
+            if ((keyBytesLength + key.length()) > keyBytes.length) {
+                keyBytes = Arrays.copyOf(keyBytes, Math.max(2 * keyBytes.length, keyBytesLength + key.length()));
+            }
+            keyStarts[numberOfKeys] = keyBytesLength;
+            keyTypes[numberOfKeys] = type;
+            ++numberOfKeys;
+            for (int i = 0; i < key.length(); ++i) {
+                keyBytes[keyBytesLength] = (byte) key.charAt(i);
+                ++keyBytesLength;
+            }
+        }
+
+        public UriPrefixTrie build() {
+            // the end of the last key
+            int[] starts = Arrays.copyOf(keyStarts, numberOfKeys + 1);
+            starts[numberOfKeys] = keyBytesLength;
+            int[] order = new int[numberOfKeys];
+            for (int i = 0; i < order.length; ++i) {
+                order[i] = i;
+            }
+            sort(order, new int[order.length], 0, order.length, starts);
+
+            GrowingTrie trie = new GrowingTrie(Math.max(16, numberOfKeys));
+            // create the root
+            trie.addNode(keyBytes, 0, 0);
+            // (node, first key, end of keys, depth) of the nodes whose children
+            // have to be created; nodes are handled in the order of their ids
+            Deque<int[]> pendingNodes = new ArrayDeque<>();
+            pendingNodes.add(new int[] { 0, 0, numberOfKeys, 0 });
+            while (!pendingNodes.isEmpty()) {
+                int[] pending = pendingNodes.poll();
+                int node = pending[0];
+                int lo = pending[1];
+                int hi = pending[2];
+                int depth = pending[3];
+                // keys that end in this node
+                while ((lo < hi) && (length(order[lo], starts) == depth)) {
+                    trie.rules[node] |= keyTypes[order[lo]];
+                    ++lo;
+                }
+                trie.firstChildren[node] = trie.size;
+                // group the remaining keys by their next byte
+                while (lo < hi) {
+                    byte first = keyBytes[starts[order[lo]] + depth];
+                    int groupEnd = lo + 1;
+                    while ((groupEnd < hi) && (keyBytes[starts[order[groupEnd]] + depth] == first)) {
+                        ++groupEnd;
+                    }
+                    // the keys are sorted, i.e., the common prefix of the first
+                    // and the last key is the common prefix of the group
+                    int end = depth + 1 + commonPrefixLength(order[lo], order[groupEnd - 1], depth + 1, starts);
+                    int child = trie.addNode(keyBytes, starts[order[lo]] + depth, end - depth);
+                    pendingNodes.add(new int[] { child, lo, groupEnd, end });
+                    lo = groupEnd;
+                }
+            }
+            return trie.toTrie(numberOfKeys);
+        }
+
+        private int length(int key, int[] starts) {
+            return starts[key + 1] - starts[key];
+        }
+
+        private int commonPrefixLength(int key1, int key2, int offset, int[] starts) {
+            int length = Math.min(length(key1, starts), length(key2, starts)) - offset;
+            int start1 = starts[key1] + offset;
+            int start2 = starts[key2] + offset;
+            int i = 0;
+            while ((i < length) && (keyBytes[start1 + i] == keyBytes[start2 + i])) {
+                ++i;
+            }
+            return i;
+        }
+
+        private int compare(int key1, int key2, int[] starts) {
+            int length = Math.min(length(key1, starts), length(key2, starts));
+            int start1 = starts[key1];
+            int start2 = starts[key2];
+            for (int i = 0; i < length; ++i) {
+                int diff = (keyBytes[start1 + i] & 0xFF) - (keyBytes[start2 + i] & 0xFF);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return length(key1, starts) - length(key2, starts);
+        }
+
+        /**
+         * Merge sort of the given key ids without boxing them.
+         */
+        private void sort(int[] keys, int[] buffer, int from, int to, int[] starts) {
+            if ((to - from) < 2) {
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            sort(keys, buffer, from, middle, starts);
+            sort(keys, buffer, middle, to, starts);
+            if (compare(keys[middle - 1], keys[middle], starts) <= 0) {
+                return;
+            }
+            System.arraycopy(keys, from, buffer, from, to - from);
+            int left = from;
+            int right = middle;
+            for (int i = from; i < to; ++i) {
+                if ((right >= to) || ((left < middle) && (compare(buffer[left], buffer[right], starts) <= 0))) {
+                    keys[i] = buffer[left];
+                    ++left;
+                } else {
+                    keys[i] = buffer[right];
+                    ++right;
+                }
+            }
+        }
+    }
+
+    /**
+     * The growing arrays of a trie that is built.
+     */
+    private static class GrowingTrie {
+        private byte[] labels;
+        private int labelsLength = 0;
+        private int[] labelStarts;
+        private int[] firstChildren;
+        private byte[] rules;
+        private int size = 0;
+
+        public GrowingTrie(int capacity) {
+            labels = new byte[capacity];
+            labelStarts = new int[capacity + 1];
+            firstChildren = new int[capacity + 1];
+            rules = new byte[capacity];
+        }
+
+        public int addNode(byte[] source, int start, int length) {
+            if (size == rules.length) {
+                rules = Arrays.copyOf(rules, 2 * size);
+                labelStarts = Arrays.copyOf(labelStarts, 2 * size + 1);
+                firstChildren = Arrays.copyOf(firstChildren, 2 * size + 1);
+            }
+            if ((labelsLength + length) > labels.length) {
+                labels = Arrays.copyOf(labels, Math.max(2 * labels.length, labelsLength + length));
+            }
+            System.arraycopy(source, start, labels, labelsLength, length);
+            labelStarts[size] = labelsLength;
+            labelsLength += length;
+            ++size;
+            return size - 1;
+        }
+
+        public UriPrefixTrie toTrie(int numberOfRules) {
+            int[] starts = Arrays.copyOf(labelStarts, size + 1);
+            starts[size] = labelsLength;
+            int[] children = Arrays.copyOf(firstChildren, size + 1);
+            children[size] = size;
+            return new UriPrefixTrie(Arrays.copyOf(labels, labelsLength), starts, children,
+                    Arrays.copyOf(rules, size), numberOfRules);
+        }
+    }
+}
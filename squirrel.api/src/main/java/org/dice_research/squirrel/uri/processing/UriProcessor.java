@@ -2,7 +2,6 @@ package org.dice_research.squirrel.uri.processing;
 
 import org.dice_research.squirrel.data.uri.CrawleableUri;
 import org.dice_research.squirrel.data.uri.UriType;
-import org.dice_research.squirrel.data.uri.UriUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -10,6 +9,8 @@ import org.springframework.stereotype.Component;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Uri Processor implementation.
@@ -22,30 +23,49 @@ public class UriProcessor implements UriProcessorInterface {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(UriProcessor.class);
 
+    private static final String[] REF_DUMP_REGEXPS = { ".*\\.rdf.*", ".*\\.ttl.*", ".*\\.nt.*", ".*\\.n3.*",
+            ".*\\.zip.*", ".*\\.tar.*" };
+    private static final String[] SPARQL_REGEXPS = { ".*sparql.*" };
+    private static final String[] DEREFERENCEABLE_REGEXPS = { ".*htm.*", ".*page.*", ".*resource.*" };
+
+    /**
+     * Matcher containing the regular expressions of all types in the order of
+     * their priority. {@link #TYPES} contains the type of every rule.
+     */
+    private static final UriMatcher TYPE_MATCHER;
+    private static final UriType[] TYPES;
+
+    static {
+        UriMatcher.Builder builder = new UriMatcher.Builder(false);
+        List<UriType> types = new ArrayList<>();
+        for (String regex : REF_DUMP_REGEXPS) {
+            builder.addRegex(regex);
+            types.add(UriType.DUMP);
+        }
+        for (String regex : SPARQL_REGEXPS) {
+            builder.addRegex(regex);
+            types.add(UriType.SPARQL);
+        }
+        for (String regex : DEREFERENCEABLE_REGEXPS) {
+            builder.addRegex(regex);
+            types.add(UriType.DEREFERENCEABLE);
+        }
+        TYPE_MATCHER = builder.build();
+        TYPES = types.toArray(new UriType[types.size()]);
+    }
+
     public CrawleableUri recognizeUriType(CrawleableUri uri) {
         LOGGER.debug("Recognizing type of {}", uri.toString());
         URI uriString = uri.getUri();
         String uriPath = uriString.getPath();
         LOGGER.debug("uriPath is {}", uriPath);
 
-        String[] refDumpRegexps = {".*\\.rdf.*", ".*\\.ttl.*", ".*\\.nt.*", ".*\\.n3.*", ".*\\.zip.*", ".*\\.tar.*"};
-        String[] snarlRegexps = {".*sparql.*"};
-        String[] differentiableRegexps = {".*htm.*", ".*page.*", ".*resource.*"};
-
         try {
-            if ((uriPath != null) && (this.isStringMatchRegexps(uriPath, refDumpRegexps))) {
-                LOGGER.debug("uriPath is DUMP");
-                uri.setType(UriType.DUMP);
-            } else if ((uriPath != null) && (this.isStringMatchRegexps(uriPath, snarlRegexps))) {
-                LOGGER.debug("uriPath is SPARQL");
-                uri.setType(UriType.SPARQL);
-            } else if ((uriPath != null) && (this.isStringMatchRegexps(uriPath, differentiableRegexps))) {
-                LOGGER.debug("uriPath is DEREFERENCEABLE");
-                uri.setType(UriType.DEREFERENCEABLE);
-            } else {
-                LOGGER.debug("uriPath is DEREFERENCEABLE");
-                uri.setType(UriType.DEREFERENCEABLE);
-            }
+            int rule = (uriPath != null) ? TYPE_MATCHER.firstMatch(uriPath) : UriMatcher.NO_MATCH;
+            // URIs that do not match any rule are handled as dereferenceable
+            UriType type = (rule != UriMatcher.NO_MATCH) ? TYPES[rule] : UriType.DEREFERENCEABLE;
+            LOGGER.debug("uriPath is {}", type);
+            uri.setType(type);
         } catch (Exception e) {
             LOGGER.debug("Uri {} could not be parsed. Skipping...", uri);
             e.printStackTrace();
@@ -54,10 +74,6 @@ public class UriProcessor implements UriProcessorInterface {
         return uri;
     }
 
-    private boolean isStringMatchRegexps(String string, String[] regexs) {
-        return UriUtils.isStringMatchRegexps(string, regexs);
-    }
-
     public CrawleableUri recognizeInetAddress(CrawleableUri uri) throws UnknownHostException {
         String host;
         InetAddress ipAddress;
@@ -0,0 +1,67 @@
+package org.dice_research.squirrel.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Utility methods to compute a hash of fetched content. The hash is used to
+ * detect whether the content of a URI changed between two crawls.
+ */
+public class ContentHashUtils {
+
+    private static final String ALGORITHM = "MD5";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Computes the hash of the content of the given files. The files are read
+     * in the given order. {@code null} entries are ignored.
+     *
+     * @param files
+     *            the fetched files
+     * @return the hash as hex String or {@code null} if none of the files
+     *         exists
+     * @throws IOException
+     *             if a file can not be read
+     */
+    public static String hash(List<File> files) throws IOException {
+        MessageDigest digest = createDigest();
+        byte[] buffer = new byte[8192];
+        boolean foundFile = false;
+        int length;
+        for (File file : files) {
+            if ((file == null) || !file.isFile()) {
+                continue;
+            }
+            foundFile = true;
+            try (InputStream in = new FileInputStream(file)) {
+                while ((length = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, length);
+                }
+            }
+        }
+        return foundFile ? toHex(digest.digest()) : null;
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has to support MD5
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; ++i) {
+            chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[(2 * i) + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
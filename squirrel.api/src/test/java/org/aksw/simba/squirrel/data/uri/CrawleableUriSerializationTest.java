@@ -31,6 +31,11 @@ public class CrawleableUriSerializationTest {
         temp.addData(Constants.URI_HTTP_MIME_TYPE_KEY, "application/json-ld");
         temp.addData(Constants.URI_HTTP_CHARSET_KEY, "utf-8");
         temp.addData(Constants.URI_PREFERRED_RECRAWL_ON, System.currentTimeMillis() + 100000L);
+        // a URI carrying the IDs of the frontier's host dictionary
+        CrawleableUri uriWithIds = new CrawleableUri(new URI("http://google.de"),
+                InetAddress.getByName("192.168.100.1"));
+        uriWithIds.setHostId(3);
+        uriWithIds.setIpAddressId(7);
 
         return Arrays.asList(new Object[][] { { new CrawleableUri(new URI("http://localhost/test")) },
                 { new CrawleableUri(new URI("http://google.de")) },
@@ -44,7 +49,7 @@ public class CrawleableUriSerializationTest {
                         UriType.UNKNOWN) },
                 { new CrawleableUri(new URI("http://dbpedia.org"), null, UriType.SPARQL) },
                 { new CrawleableUri(new URI("http://google.de"), InetAddress.getByName("255.255.255.255")) },
-                { temp } });
+                { temp }, { uriWithIds } });
     }
 
     private CrawleableUri uri;
@@ -76,6 +81,8 @@ public class CrawleableUriSerializationTest {
         Assert.assertEquals(uri.getIpAddress(), parsedUri.getIpAddress());
         Assert.assertEquals(uri.getType(), parsedUri.getType());
         Assert.assertEquals(uri.getUri(), parsedUri.getUri());
+        Assert.assertEquals(uri.getHostId(), parsedUri.getHostId());
+        Assert.assertEquals(uri.getIpAddressId(), parsedUri.getIpAddressId());
         for (String key : uri.getData().keySet()) {
             Assert.assertEquals(uri.getData(key), parsedUri.getData(key));
         }
@@ -19,6 +19,7 @@ import org.dice_research.squirrel.data.uri.CrawleableUri;
 import org.dice_research.squirrel.data.uri.UriSeedReader;
 import org.dice_research.squirrel.data.uri.filter.InMemoryKnownUriFilter;
 import org.dice_research.squirrel.data.uri.filter.RegexBasedWhiteListFilter;
+import org.dice_research.squirrel.data.uri.filter.SpiderTrapUriFilter;
 import org.dice_research.squirrel.data.uri.filter.UriFilterComposer;
 import org.dice_research.squirrel.data.uri.info.URIReferences;
 import org.dice_research.squirrel.data.uri.norm.UriGenerator;
@@ -30,6 +31,7 @@ import org.dice_research.squirrel.frontier.Frontier;
 import org.dice_research.squirrel.frontier.impl.ExtendedFrontierImpl;
 import org.dice_research.squirrel.frontier.impl.FrontierImpl;
 import org.dice_research.squirrel.frontier.impl.FrontierSenderToWebservice;
+import org.dice_research.squirrel.frontier.impl.HostBudget;
 import org.dice_research.squirrel.frontier.impl.QueueBasedTerminationCheck;
 import org.dice_research.squirrel.frontier.impl.TerminationCheck;
 import org.dice_research.squirrel.frontier.impl.WorkerGuard;
@@ -96,6 +98,34 @@ public class FrontierComponent extends AbstractComponent implements RespondingDa
     private Timer timerTerminator;
     
     public static final boolean RECRAWLING_ACTIVE = true;
+    /**
+     * Flag whether new URIs are handed over to the concurrent admission pipeline
+     * of the frontier instead of being processed by the thread that received
+     * them. The pipeline is disabled by default.
+     */
+    private static final boolean ADMISSION_PIPELINE = System.getenv("ADMISSION_PIPELINE") == null ? false
+            : Boolean.parseBoolean(System.getenv("ADMISSION_PIPELINE"));
+    /**
+     * Flag whether URIs that look like they have been generated by a spider
+     * trap are rejected. The filter is disabled by default.
+     */
+    private static final boolean SPIDER_TRAP_FILTER = System.getenv("SPIDER_TRAP_FILTER") == null ? false
+            : Boolean.parseBoolean(System.getenv("SPIDER_TRAP_FILTER"));
+    /**
+     * The limits of the {@link HostBudget}. A value &lt;= 0 disables the single
+     * limit. All limits are disabled by default, i.e., the budget is only used
+     * if at least one of them is set (e.g., to
+     * {@link HostBudget#DEFAULT_MAX_PENDING_URIS}).
+     */
+    private static final int MAX_PENDING_URIS_PER_HOST = System.getenv("MAX_PENDING_URIS_PER_HOST") == null ? 0
+            : Integer.parseInt(System.getenv("MAX_PENDING_URIS_PER_HOST"));
+    private static final int MAX_URIS_PER_HOST_AND_WINDOW = System.getenv("MAX_URIS_PER_HOST_AND_WINDOW") == null ? 0
+            : Integer.parseInt(System.getenv("MAX_URIS_PER_HOST_AND_WINDOW"));
+    private static final long HOST_BUDGET_WINDOW = System.getenv("HOST_BUDGET_WINDOW") == null
+            ? HostBudget.DEFAULT_WINDOW_LENGTH
+            : Long.parseLong(System.getenv("HOST_BUDGET_WINDOW"));
+    private static final int MAX_QUERY_VARIANTS_PER_PATH = System.getenv("MAX_QUERY_VARIANTS_PER_PATH") == null ? 0
+            : Integer.parseInt(System.getenv("MAX_QUERY_VARIANTS_PER_PATH"));
 
     @Override
     public void init() throws Exception {
@@ -126,13 +156,27 @@ public class FrontierComponent extends AbstractComponent implements RespondingDa
         } else {
             LOGGER.warn("Couldn't get MDBConfiguration. An in-memory queue will be used.");
             queue = new InMemoryQueue();
-            uriFilter.setKnownUriFilter(new InMemoryKnownUriFilter(doRecrawling, recrawlingTime));
+            // the URIs themselves are not needed since the recrawling relies on the OutDatedUriRetriever
+            uriFilter.setKnownUriFilter(new InMemoryKnownUriFilter(doRecrawling, recrawlingTime, false));
         }
         
         
 
         // Build frontier
-        frontier = new ExtendedFrontierImpl(normalizer, uriFilter, uriReferences, queue,uriGenerator, doRecrawling,outDatedUriRetriever);
+        ExtendedFrontierImpl extendedFrontier = new ExtendedFrontierImpl(normalizer, uriFilter, uriReferences, queue,
+                uriGenerator, doRecrawling, outDatedUriRetriever);
+        if (SPIDER_TRAP_FILTER) {
+            extendedFrontier.setSpiderTrapFilter(new SpiderTrapUriFilter());
+        }
+        if ((MAX_PENDING_URIS_PER_HOST > 0) || (MAX_URIS_PER_HOST_AND_WINDOW > 0)
+                || (MAX_QUERY_VARIANTS_PER_PATH > 0)) {
+            extendedFrontier.setHostBudget(new HostBudget(MAX_PENDING_URIS_PER_HOST, MAX_URIS_PER_HOST_AND_WINDOW,
+                    HOST_BUDGET_WINDOW, MAX_QUERY_VARIANTS_PER_PATH));
+        }
+        if (ADMISSION_PIPELINE) {
+            extendedFrontier.startAdmissionPipeline();
+        }
+        frontier = extendedFrontier;
 
         rabbitQueue = this.incomingDataQueueFactory.createDefaultRabbitQueue(Constants.FRONTIER_QUEUE_NAME);
         
@@ -226,7 +270,7 @@ public class FrontierComponent extends AbstractComponent implements RespondingDa
             	
             	if(timerTerminator == null) {
             		LOGGER.info("Initializing Terminator task...");
-                	TimerTask terminatorTask = new TerminatorTask(queue, terminationMutex, this.workerGuard);
+                	TimerTask terminatorTask = new TerminatorTask(queue, frontier, terminationMutex, this.workerGuard);
                     timerTerminator = new Timer();
                     timerTerminator.schedule(terminatorTask, 5000, 5000);
             	}
@@ -307,12 +351,14 @@ public class FrontierComponent extends AbstractComponent implements RespondingDa
     private static class TerminatorTask extends TimerTask {
 
         private UriQueue queue;
+        private Frontier frontier;
         private TerminationCheck terminationCheck = new QueueBasedTerminationCheck();
         private Semaphore terminationMutex;
         private WorkerGuard workerGuard;
 
-        public TerminatorTask(UriQueue queue, Semaphore terminationMutex, WorkerGuard workerGuard) {
+        public TerminatorTask(UriQueue queue, Frontier frontier, Semaphore terminationMutex, WorkerGuard workerGuard) {
             this.queue = queue;
+            this.frontier = frontier;
             this.terminationMutex = terminationMutex;
             this.workerGuard = workerGuard;
         }
@@ -329,6 +375,10 @@ public class FrontierComponent extends AbstractComponent implements RespondingDa
                     break;
                 }
             }
+            // URIs waiting for the resolution of their host will be added to the queue soon
+            if ((frontier instanceof FrontierImpl) && (((FrontierImpl) frontier).getNumberOfParkedUris() > 0)) {
+                stillHasUris = true;
+            }
             
 			if(!stillHasUris && terminationCheck.shouldFrontierTerminate(queue)) {
 	        	terminationMutex.release();
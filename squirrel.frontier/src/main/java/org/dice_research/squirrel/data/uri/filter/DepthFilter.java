@@ -17,7 +17,7 @@ import org.slf4j.LoggerFactory;
 
 public class DepthFilter implements UriFilter {
 
-	private static final Logger LOGGER = LoggerFactory.getLogger(MongoDBKnowUriFilter.class);
+	private static final Logger LOGGER = LoggerFactory.getLogger(DepthFilter.class);
 
 	/**
 	 * The maximum depth allowed for the filter
@@ -31,23 +31,20 @@ public class DepthFilter implements UriFilter {
 
 	@Override
 	public boolean isUriGood(CrawleableUri uri) {
-		
-			if (uri.getData().containsKey(Constants.URI_DEPTH)) {
-				int depth = Integer.parseInt(uri.getData(Constants.URI_DEPTH).toString());
-				if (depth > max_depth) {
-					LOGGER.debug("Max Depth reached. Uri {} is not good", uri.toString());
-					return false;
-				}else {
-					LOGGER.debug("URI {} is good", uri.toString());
-					return true;
-				}
-				
-			} else {
-				LOGGER.debug("Depth depth is not being stored for Uri :{} . Please check the queue parameters.", uri.toString());
-				return false;
-			}
-				
-
+		Object value = uri.getData(Constants.URI_DEPTH);
+		if (value == null) {
+			LOGGER.debug("Depth depth is not being stored for Uri :{} . Please check the queue parameters.", uri);
+			return false;
+		}
+		// the depth is normally an Integer, other representations have to be parsed
+		int depth = (value instanceof Number) ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+		if (depth > max_depth) {
+			LOGGER.debug("Max Depth reached. Uri {} is not good", uri);
+			return false;
+		} else {
+			LOGGER.debug("URI {} is good", uri);
+			return true;
+		}
 	}
 
 
@@ -2,33 +2,45 @@ package org.dice_research.squirrel.data.uri.filter;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.dice_research.squirrel.Constants;
 import org.dice_research.squirrel.data.uri.CrawleableUri;
 import org.dice_research.squirrel.data.uri.UriType;
 import org.dice_research.squirrel.deduplication.hashing.HashValue;
 import org.dice_research.squirrel.deduplication.hashing.UriHashCustodian;
 import org.dice_research.squirrel.frontier.impl.FrontierImpl;
+import org.dice_research.squirrel.frontier.recrawling.OutDatedUriRetriever;
 import org.dice_research.squirrel.mongodb.MongodbConnectionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.mongodb.BasicDBObject;
 import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 
 /**
  * 
@@ -39,7 +51,9 @@ import com.mongodb.client.model.Indexes;
  */
 
 @SuppressWarnings("deprecation")
-public class MongoDBKnowUriFilter implements KnownUriFilter, Cloneable, Closeable, UriHashCustodian {
+public class MongoDBKnowUriFilter
+		implements KnownUriFilter, KnownUriIterable, OutDatedUriRetriever, RecrawlInfoStore, Cloneable, Closeable,
+		UriHashCustodian {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(MongoDBKnowUriFilter.class);
 
@@ -56,6 +70,7 @@ public class MongoDBKnowUriFilter implements KnownUriFilter, Cloneable, Closeabl
 	public static final String COLUMN_IP = "ipAddress";
 	public static final String COLUMN_TYPE = "type";
 	public static final String COLUMN_HASH_VALUE = "hashValue";
+	public static final String COLUMN_RECRAWL_INTERVAL = "recrawlInterval";
 	private static final boolean PERSIST = System.getenv("QUEUE_FILTER_PERSIST") == null ? false
 			: Boolean.parseBoolean(System.getenv("QUEUE_FILTER_PERSIST"));
 	/**
@@ -63,6 +78,12 @@ public class MongoDBKnowUriFilter implements KnownUriFilter, Cloneable, Closeabl
 	 * soon as it has been computed.
 	 */
 	private static final String DUMMY_HASH_VALUE = "dummyValue";
+	/**
+	 * The maximum number of URIs that are checked with a single query.
+	 */
+	private static final int MAX_URIS_PER_QUERY = 1000;
+	private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+	private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
 
 	public MongoDBKnowUriFilter(String hostName, Integer port) {
 
@@ -78,14 +99,15 @@ public class MongoDBKnowUriFilter implements KnownUriFilter, Cloneable, Closeabl
 				.find(new Document("uri", uri.getUri().toString())).iterator();
 
 		if (cursor.hasNext()) {
-			LOGGER.debug("URI {} is not good", uri.toString());
 			Document doc = cursor.next();
-			Long timestampRetrieved = Long.parseLong(doc.get(COLUMN_TIMESTAMP_LAST_CRAWL).toString());
 			cursor.close();
-			if ((System.currentTimeMillis() - timestampRetrieved) < recrawlEveryWeek) {
-				return false;
-			} else {
+			// the URI is good again as soon as its (adaptive) next crawl is due
+			if (getNextCrawlTimestamp(doc) <= System.currentTimeMillis()) {
+				LOGGER.debug("URI {} is good", uri.toString());
 				return true;
+			} else {
+				LOGGER.debug("URI {} is not good", uri.toString());
+				return false;
 			}
 		} else {
 
@@ -96,6 +118,53 @@ public class MongoDBKnowUriFilter implements KnownUriFilter, Cloneable, Closeabl
 
 	}
 
+	@Override
+	public BitSet areUrisGood(List<CrawleableUri> uris) {
+		BitSet goodUris = new BitSet(uris.size());
+		long now = System.currentTimeMillis();
+		for (int start = 0; start < uris.size(); start += MAX_URIS_PER_QUERY) {
+			List<CrawleableUri> chunk = uris.subList(start, Math.min(start + MAX_URIS_PER_QUERY, uris.size()));
+			List<String> uriStrings = new ArrayList<>(chunk.size());
+			for (CrawleableUri uri : chunk) {
+				uriStrings.add(uri.getUri().toString());
+			}
+			// retrieve the next crawl time stamps of all known URIs of the chunk
+			Map<String, Long> nextCrawls = new HashMap<>();
+			MongoCursor<Document> cursor = mongoDB.getCollection(COLLECTION_NAME)
+					.find(Filters.in(COLUMN_URI, uriStrings)).projection(Projections.include(COLUMN_URI,
+							COLUMN_TIMESTAMP_LAST_CRAWL, COLUMN_TIMESTAMP_NEXT_CRAWL))
+					.iterator();
+			try {
+				while (cursor.hasNext()) {
+					Document doc = cursor.next();
+					nextCrawls.merge(doc.getString(COLUMN_URI), getNextCrawlTimestamp(doc), Math::max);
+				}
+			} finally {
+				cursor.close();
+			}
+			for (int i = 0; i < chunk.size(); ++i) {
+				Long nextCrawl = nextCrawls.get(uriStrings.get(i));
+				if ((nextCrawl == null) || (nextCrawl <= now)) {
+					goodUris.set(start + i);
+				}
+			}
+		}
+		return goodUris;
+	}
+
+	/**
+	 * Returns the next crawl time stamp of the given document. Documents that
+	 * have been stored without a next crawl time stamp are due one week after
+	 * their last crawl.
+	 */
+	protected long getNextCrawlTimestamp(Document doc) {
+		Object nextCrawl = doc.get(COLUMN_TIMESTAMP_NEXT_CRAWL);
+		if (nextCrawl != null) {
+			return Long.parseLong(nextCrawl.toString());
+		}
+		return Long.parseLong(doc.get(COLUMN_TIMESTAMP_LAST_CRAWL).toString()) + recrawlEveryWeek;
+	}
+
 	@Override
 	public void add(CrawleableUri uri, long nextCrawlTimestamp) {
 		add(uri, System.currentTimeMillis(), nextCrawlTimestamp);
@@ -126,6 +195,9 @@ public class MongoDBKnowUriFilter implements KnownUriFilter, Cloneable, Closeabl
 			MongoCollection<Document> mongoCollection = mongoDB.getCollection(COLLECTION_NAME);
 			mongoCollection.createIndex(Indexes.compoundIndex(Indexes.ascending("uri")));
 		}
+		// used to retrieve the outdated URIs page by page
+		mongoDB.getCollection(COLLECTION_NAME)
+				.createIndex(Indexes.ascending(COLUMN_TIMESTAMP_NEXT_CRAWL, COLUMN_URI));
 	}
 
 	public boolean knowUriTableExists() {
@@ -139,11 +211,107 @@ public class MongoDBKnowUriFilter implements KnownUriFilter, Cloneable, Closeabl
 
 	@Override
 	public void add(CrawleableUri uri, long lastCrawlTimestamp, long nextCrawlTimestamp) {
-		mongoDB.getCollection(COLLECTION_NAME)
-				.insertOne(crawleableUriToMongoDocument(uri).append(COLUMN_TIMESTAMP_LAST_CRAWL, lastCrawlTimestamp)
-						.append(COLUMN_TIMESTAMP_NEXT_CRAWL, nextCrawlTimestamp)
-						.append(COLUMN_CRAWLING_IN_PROCESS, false).append(COLUMN_HASH_VALUE, DUMMY_HASH_VALUE));
-		LOGGER.debug("Adding URI {} to the known uri filter list", uri.toString());
+		add(Collections.singletonList(uri), lastCrawlTimestamp, nextCrawlTimestamp);
+	}
+
+	/**
+	 * Adds all given URIs with a single bulk write. A URI that is already known
+	 * is updated instead of being inserted a second time.
+	 */
+	@Override
+	public void add(List<CrawleableUri> uris, long lastCrawlTimestamp, long nextCrawlTimestamp) {
+		if (uris.isEmpty()) {
+			return;
+		}
+		List<WriteModel<Document>> writes = new ArrayList<>(uris.size());
+		for (CrawleableUri uri : uris) {
+			// the hash value of an already known URI is kept since it is needed to
+			// detect content changes
+			writes.add(new UpdateOneModel<>(Filters.eq(COLUMN_URI, uri.getUri().toString()),
+					new Document("$set",
+							crawleableUriToMongoDocument(uri).append(COLUMN_TIMESTAMP_LAST_CRAWL, lastCrawlTimestamp)
+									.append(COLUMN_TIMESTAMP_NEXT_CRAWL, nextCrawlTimestamp)
+									.append(COLUMN_CRAWLING_IN_PROCESS, false)).append("$setOnInsert",
+											new Document(COLUMN_HASH_VALUE, DUMMY_HASH_VALUE)),
+					UPSERT));
+		}
+		bulkWrite(writes);
+		LOGGER.debug("Added {} URIs to the known uri filter list", uris.size());
+	}
+
+	/**
+	 * Adds all given crawled URIs with a single bulk write. In addition to the
+	 * timestamps, the content hash and the estimated recrawl interval of the URIs
+	 * are stored.
+	 */
+	@Override
+	public void addCrawledUris(List<CrawleableUri> uris, long lastCrawlTimestamp) {
+		if (uris.isEmpty()) {
+			return;
+		}
+		List<WriteModel<Document>> writes = new ArrayList<>(uris.size());
+		for (CrawleableUri uri : uris) {
+			Document update = crawleableUriToMongoDocument(uri)
+					.append(COLUMN_TIMESTAMP_LAST_CRAWL, lastCrawlTimestamp)
+					.append(COLUMN_TIMESTAMP_NEXT_CRAWL, RecrawlInfoStore.getNextCrawlTimestamp(uri, lastCrawlTimestamp))
+					.append(COLUMN_CRAWLING_IN_PROCESS, false);
+			Object hash = uri.getData(Constants.URI_CONTENT_HASH);
+			// if the crawling failed, the hash of the last successful crawl is kept
+			if (hash != null) {
+				update.append(COLUMN_HASH_VALUE, hash.toString());
+			}
+			Object interval = uri.getData(Constants.URI_RECRAWL_INTERVAL);
+			if (interval instanceof Number) {
+				update.append(COLUMN_RECRAWL_INTERVAL, ((Number) interval).longValue());
+			}
+			writes.add(new UpdateOneModel<>(Filters.eq(COLUMN_URI, uri.getUri().toString()),
+					new Document("$set", update), UPSERT));
+		}
+		bulkWrite(writes);
+		LOGGER.debug("Added {} crawled URIs to the known uri filter list", uris.size());
+	}
+
+	protected void bulkWrite(List<WriteModel<Document>> writes) {
+		try {
+			mongoDB.getCollection(COLLECTION_NAME).bulkWrite(writes, UNORDERED);
+		} catch (MongoException e) {
+			// Since the bulk write is unordered, the other URIs have been written
+			LOGGER.error("Error while adding URIs to the known uri filter list", e);
+		}
+	}
+
+	@Override
+	public List<RecrawlInfo> getRecrawlInfos(List<CrawleableUri> uris) {
+		List<RecrawlInfo> infos = new ArrayList<>(uris.size());
+		for (int start = 0; start < uris.size(); start += MAX_URIS_PER_QUERY) {
+			List<CrawleableUri> chunk = uris.subList(start, Math.min(start + MAX_URIS_PER_QUERY, uris.size()));
+			List<String> uriStrings = new ArrayList<>(chunk.size());
+			for (CrawleableUri uri : chunk) {
+				uriStrings.add(uri.getUri().toString());
+			}
+			Map<String, RecrawlInfo> chunkInfos = new HashMap<>();
+			try (MongoCursor<Document> cursor = mongoDB.getCollection(COLLECTION_NAME)
+					.find(Filters.in(COLUMN_URI, uriStrings)).projection(Projections.include(COLUMN_URI,
+							COLUMN_HASH_VALUE, COLUMN_RECRAWL_INTERVAL, COLUMN_TIMESTAMP_LAST_CRAWL))
+					.iterator()) {
+				while (cursor.hasNext()) {
+					Document doc = cursor.next();
+					String hash = doc.getString(COLUMN_HASH_VALUE);
+					if (DUMMY_HASH_VALUE.equals(hash)) {
+						hash = null;
+					}
+					Object interval = doc.get(COLUMN_RECRAWL_INTERVAL);
+					Object lastCrawl = doc.get(COLUMN_TIMESTAMP_LAST_CRAWL);
+					chunkInfos.put(doc.getString(COLUMN_URI),
+							new RecrawlInfo(hash, (interval instanceof Number) ? ((Number) interval).longValue() : 0,
+									(lastCrawl instanceof Number) ? ((Number) lastCrawl).longValue() : 0));
+				}
+			}
+			for (String uriString : uriStrings) {
+				infos.add(chunkInfos.get(uriString));
+			}
+		}
+		return infos;
 	}
 
 	@Override
@@ -157,54 +325,98 @@ public class MongoDBKnowUriFilter implements KnownUriFilter, Cloneable, Closeabl
 
 	@Override
 	public List<CrawleableUri> getOutdatedUris() {
+		List<CrawleableUri> urisToRecrawl = new ArrayList<>();
+		retrieveUrisToRecrawl(MAX_URIS_PER_QUERY, urisToRecrawl::addAll);
+		return urisToRecrawl;
+	}
+
+	@Override
+	public List<CrawleableUri> getUriToRecrawl() {
+		return getOutdatedUris();
+	}
+
+	/**
+	 * Streams all outdated URIs in pages sorted by their next crawl timestamp.
+	 * The pages are retrieved via the index on the next crawl timestamp and the
+	 * URIs of a page are marked as being in process with a single update before
+	 * the page is handed over to the consumer. Every page continues after the
+	 * last URI of the previous page, i.e., a URI is handed over at most once per
+	 * call.
+	 */
+	@Override
+	public void retrieveUrisToRecrawl(int pageSize, Consumer<List<CrawleableUri>> consumer) {
 		// get all uris with the following property:
 		// (nextCrawlTimestamp has passed) AND (crawlingInProcess==false OR
 		// lastCrawlTimestamp is 3 times older than generalRecrawlTime)
-
 		long generalRecrawlTime = Math.max(FrontierImpl.DEFAULT_GENERAL_RECRAWL_TIME,
 				FrontierImpl.getGeneralRecrawlTime());
-
-		Bson filter = Filters.and(Filters.eq("COLUMN_TIMESTAMP_NEXT_CRAWL", System.currentTimeMillis()), Filters.or(
-				Filters.eq("COLUMN_CRAWLING_IN_PROCESS", false),
-				Filters.eq("COLUMN_TIMESTAMP_LAST_CRAWL", System.currentTimeMillis() - generalRecrawlTime * 3)));
-
-		Iterator<Document> uriDocs = mongoDB.getCollection(COLLECTION_NAME).find(filter).iterator();
-
-		List<CrawleableUri> urisToRecrawl = new ArrayList<>();
-		while (uriDocs.hasNext()) {
-			try {
-				Document doc = uriDocs.next();
-				String ipString = (String) doc.get(COLUMN_IP);
-				if (ipString.contains("/")) {
-					ipString = ipString.split("/")[1];
+		long now = System.currentTimeMillis();
+		Bson dueFilter = Filters.and(Filters.lt(COLUMN_TIMESTAMP_NEXT_CRAWL, now),
+				Filters.or(Filters.eq(COLUMN_CRAWLING_IN_PROCESS, false),
+						Filters.lt(COLUMN_TIMESTAMP_LAST_CRAWL, now - (generalRecrawlTime * 3))));
+		MongoCollection<Document> collection = mongoDB.getCollection(COLLECTION_NAME);
+		Bson pageFilter = dueFilter;
+		List<String> uriStrings;
+		do {
+			List<CrawleableUri> page = new ArrayList<>();
+			uriStrings = new ArrayList<>();
+			long lastNextCrawl = 0;
+			try (MongoCursor<Document> cursor = collection.find(pageFilter)
+					.sort(Sorts.ascending(COLUMN_TIMESTAMP_NEXT_CRAWL, COLUMN_URI)).limit(pageSize)
+					.projection(Projections.include(COLUMN_URI, COLUMN_TYPE, COLUMN_TIMESTAMP_NEXT_CRAWL))
+					.iterator()) {
+				while (cursor.hasNext()) {
+					Document doc = cursor.next();
+					uriStrings.add(doc.getString(COLUMN_URI));
+					lastNextCrawl = ((Number) doc.get(COLUMN_TIMESTAMP_NEXT_CRAWL)).longValue();
+					try {
+						CrawleableUri uri = new CrawleableUri(new URI(doc.getString(COLUMN_URI)));
+						if (doc.containsKey(COLUMN_TYPE)) {
+							uri.setType(UriType.valueOf(doc.getString(COLUMN_TYPE)));
+						}
+						page.add(uri);
+					} catch (URISyntaxException | IllegalArgumentException e) {
+						LOGGER.warn("Couldn't parse outdated URI document {}. It will be ignored. Exception: {}", doc,
+								e.toString());
+					}
 				}
-				urisToRecrawl
-						.add(new CrawleableUri(new URI((String) doc.get(COLUMN_URI)), InetAddress.getByName(ipString)));
-			} catch (URISyntaxException | UnknownHostException e) {
-				LOGGER.warn(e.toString());
 			}
-		}
-
-		// mark that the uris are in process now
-		for (CrawleableUri uri : urisToRecrawl) {
-
-			BasicDBObject newDocument = new BasicDBObject();
-			newDocument.append("$set", new BasicDBObject().append(COLUMN_CRAWLING_IN_PROCESS, true));
-
-			BasicDBObject searchQuery = new BasicDBObject().append(COLUMN_URI, uri.getUri().toString());
-
-			mongoDB.getCollection(COLLECTION_NAME).updateMany(searchQuery, newDocument);
-
-		}
-
-//        cursor.close();
-		return urisToRecrawl;
+			if (uriStrings.isEmpty()) {
+				break;
+			}
+			// mark that the uris are in process now
+			collection.updateMany(Filters.in(COLUMN_URI, uriStrings), Updates.set(COLUMN_CRAWLING_IN_PROCESS, true));
+			if (!page.isEmpty()) {
+				consumer.accept(page);
+			}
+			String lastUri = uriStrings.get(uriStrings.size() - 1);
+			pageFilter = Filters.and(dueFilter,
+					Filters.or(Filters.gt(COLUMN_TIMESTAMP_NEXT_CRAWL, lastNextCrawl),
+							Filters.and(Filters.eq(COLUMN_TIMESTAMP_NEXT_CRAWL, lastNextCrawl),
+									Filters.gt(COLUMN_URI, lastUri))));
+		} while (uriStrings.size() >= pageSize);
 	}
 
 	@Override
 	public long count() {
-		// TODO Auto-generated method stub
-		return 0;
+		return mongoDB.getCollection(COLLECTION_NAME).count();
+	}
+
+	@Override
+	public Iterator<String> getKnownUriIterator() {
+		MongoCursor<Document> cursor = mongoDB.getCollection(COLLECTION_NAME).find()
+				.projection(Projections.include(COLUMN_URI)).iterator();
+		return new Iterator<String>() {
+			@Override
+			public boolean hasNext() {
+				return cursor.hasNext();
+			}
+
+			@Override
+			public String next() {
+				return cursor.next().getString(COLUMN_URI);
+			}
+		};
 	}
 
 	@Override
@@ -6,9 +6,11 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.dice_research.squirrel.Constants;
@@ -194,6 +196,23 @@ public class RDBKnownUriFilter implements KnownUriFilter, Closeable, UriHashCust
         }
     }
 
+    @Override
+    public void add(List<CrawleableUri> uris, long lastCrawlTimestamp, long nextCrawlTimestamp) {
+        if (uris.isEmpty()) {
+            return;
+        }
+        try {
+            List<MapObject> rows = new ArrayList<>(uris.size());
+            for (CrawleableUri uri : uris) {
+                rows.add(convertURITimestampToRDB(uri, lastCrawlTimestamp, nextCrawlTimestamp, false, DUMMY_HASH_VALUE));
+            }
+            r.db(DATABASE_NAME).table(TABLE_NAME).insert(rows).run(connector.connection);
+            LOGGER.debug("Added {} URIs to the known uri filter list", uris.size());
+        } catch (Exception e) {
+            LOGGER.error("Failed to add " + uris.size() + " URIs to the known uri filter list", e);
+        }
+    }
+
     @Override
     public Set<CrawleableUri> getUrisWithSameHashValues(Set<HashValue> hashValuesForComparison) {
 
@@ -281,6 +300,41 @@ public class RDBKnownUriFilter implements KnownUriFilter, Closeable, UriHashCust
         }
     }
 
+    @SuppressWarnings("rawtypes")
+    @Override
+    public BitSet areUrisGood(List<CrawleableUri> uris) {
+        BitSet goodUris = new BitSet(uris.size());
+        if (uris.isEmpty()) {
+            return goodUris;
+        }
+        Object[] uriStrings = new Object[uris.size()];
+        for (int i = 0; i < uriStrings.length; ++i) {
+            uriStrings[i] = uris.get(i).getUri().toString();
+        }
+        // retrieve the next crawl time stamps of all known URIs with a single request
+        Cursor<HashMap> cursor = r.db(DATABASE_NAME)
+            .table(TABLE_NAME)
+            .getAll(uriStrings)
+            .optArg("index", COLUMN_URI)
+            .pluck(COLUMN_URI, COLUMN_TIMESTAMP_NEXT_CRAWL)
+            .run(connector.connection);
+        Map<String, Long> nextCrawls = new HashMap<>();
+        while (cursor.hasNext()) {
+            HashMap row = cursor.next();
+            nextCrawls.merge((String) row.get(COLUMN_URI), ((Number) row.get(COLUMN_TIMESTAMP_NEXT_CRAWL)).longValue(),
+                Math::max);
+        }
+        cursor.close();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < uriStrings.length; ++i) {
+            Long timestampNextCrawl = nextCrawls.get(uriStrings[i]);
+            if ((timestampNextCrawl == null) || (frontierDoesRecrawling && (now > timestampNextCrawl))) {
+                goodUris.set(i);
+            }
+        }
+        return goodUris;
+    }
+
     public void purge() {
         r.db(DATABASE_NAME).table(TABLE_NAME).delete().run(connector.connection);
     }
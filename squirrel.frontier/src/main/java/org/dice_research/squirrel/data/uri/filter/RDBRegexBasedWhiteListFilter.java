@@ -1,6 +1,7 @@
 package org.dice_research.squirrel.data.uri.filter;
 
 import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.uri.processing.UriMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,14 +11,13 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class RDBRegexBasedWhiteListFilter extends RDBKnownUriFilter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RDBRegexBasedWhiteListFilter.class);
 
     private Set<String> whiteList;
+    private UriMatcher matcher;
 
     public RDBRegexBasedWhiteListFilter(String hostname, Integer port) {
         super(hostname, port);
@@ -31,6 +31,11 @@ public class RDBRegexBasedWhiteListFilter extends RDBKnownUriFilter {
         super(hostname, port, frontierDoesRecrawling);
         try {
             whiteList = loadWhiteList(whiteListFile);
+            UriMatcher.Builder builder = new UriMatcher.Builder(true);
+            for (String s : whiteList) {
+                builder.addRegex(s.toLowerCase());
+            }
+            matcher = builder.build();
         } catch (IOException e) {
             LOGGER.error("A problem was found when loading the WhiteList");
         }
@@ -40,15 +45,9 @@ public class RDBRegexBasedWhiteListFilter extends RDBKnownUriFilter {
     public boolean isUriGood(CrawleableUri uri) {
         if (super.isUriGood(uri) && whiteList != null && !whiteList.isEmpty()) {
 
-            for (String s : whiteList) {
-
-                Pattern p = Pattern.compile(s.toLowerCase());
-                Matcher m = p.matcher(uri.getUri().toString().toLowerCase());
-
-                if (m.find()) {
-                    LOGGER.trace("The URI {} fits to the pattern " + p.pattern() + " of the whitelist", uri.getUri().toString());
-                    return true;
-                }
+            if (matcher.matchesAny(uri.getUri().toString())) {
+                LOGGER.trace("The URI {} fits to a pattern of the whitelist", uri.getUri().toString());
+                return true;
             }
             LOGGER.warn("The URI {} is itself a good URI, but no of the " + whiteList.size() + " patterns of the whitelist matches! (in " + this + ")", uri.getUri().toString());
         }
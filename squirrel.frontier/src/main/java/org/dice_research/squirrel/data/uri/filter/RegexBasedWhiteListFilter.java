@@ -3,15 +3,16 @@ package org.dice_research.squirrel.data.uri.filter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import org.apache.commons.io.FileUtils;
 import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.uri.processing.UriMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,6 +20,11 @@ public class RegexBasedWhiteListFilter extends AbstractKnownUriFilterDecorator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RegexBasedWhiteListFilter.class);
     private Set<Pattern> whiteList;
+    /**
+     * Matcher containing all patterns of the white list which are matched
+     * against the lower case URI.
+     */
+    private UriMatcher matcher;
 
 
     public static RegexBasedWhiteListFilter create(KnownUriFilter decorated, File whitelistfile) {
@@ -47,6 +53,13 @@ public class RegexBasedWhiteListFilter extends AbstractKnownUriFilterDecorator {
     public RegexBasedWhiteListFilter(KnownUriFilter decorated, Set<Pattern> whiteList) {
         super(decorated);
         this.whiteList = whiteList;
+        if (whiteList != null) {
+            UriMatcher.Builder builder = new UriMatcher.Builder(true);
+            for (Pattern pattern : whiteList) {
+                builder.addRegex(pattern);
+            }
+            matcher = builder.build();
+        }
     }
 
     @Override
@@ -54,17 +67,26 @@ public class RegexBasedWhiteListFilter extends AbstractKnownUriFilterDecorator {
         if (!super.isUriGood(uri)) {
             return false;
         }
+        return isWhiteListed(uri);
+    }
+
+    @Override
+    public BitSet areUrisGood(List<CrawleableUri> uris) {
+        BitSet goodUris = super.areUrisGood(uris);
+        for (int i = goodUris.nextSetBit(0); i >= 0; i = goodUris.nextSetBit(i + 1)) {
+            if (!isWhiteListed(uris.get(i))) {
+                goodUris.clear(i);
+            }
+        }
+        return goodUris;
+    }
+
+    protected boolean isWhiteListed(CrawleableUri uri) {
         if (whiteList == null || whiteList.isEmpty()) {
             return true;
         } else {
-            for (Pattern p : whiteList) {
-                Matcher m = p.matcher(uri.getUri().toString().toLowerCase());
-                if (m.find()) {
-                    return true;
-                }
-            }
+            return matcher.matchesAny(uri.getUri().toString());
         }
-        return false;
     }
 
     @Override
@@ -0,0 +1,179 @@
+package org.dice_research.squirrel.data.uri.filter;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This {@link UriFilter} rejects URIs that look like they have been generated
+ * by a spider trap. A URI is rejected if
+ * <ul>
+ * <li>it is longer than {@link #maxUriLength} characters,</li>
+ * <li>a single segment of its path occurs more than
+ * {@link #maxSegmentOccurrences} times (e.g., {@code /a/b/a/b/a/b/a/b} or
+ * {@code /next/next/next/next}) or</li>
+ * <li>its query has more than {@link #maxQueryParameters} parameters.</li>
+ * </ul>
+ * A value &lt;= 0 disables the single check. The filter does not have any
+ * state, i.e., it can be used by several threads in parallel. Limits that need
+ * counters (e.g., the number of query variants of a single path) are
+ * implemented by the {@link org.dice_research.squirrel.frontier.impl.HostBudget}
+ * of the frontier.
+ */
+public class SpiderTrapUriFilter implements UriFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpiderTrapUriFilter.class);
+
+    /**
+     * Default value for {@link #maxUriLength}.
+     */
+    public static final int DEFAULT_MAX_URI_LENGTH = 2048;
+    /**
+     * Default value for {@link #maxSegmentOccurrences}.
+     */
+    public static final int DEFAULT_MAX_SEGMENT_OCCURRENCES = 3;
+    /**
+     * Default value for {@link #maxQueryParameters}.
+     */
+    public static final int DEFAULT_MAX_QUERY_PARAMETERS = 20;
+
+    /**
+     * The maximum length of a URI.
+     */
+    protected int maxUriLength;
+    /**
+     * The maximum number of times a single (non-empty) path segment may occur
+     * in the path of a URI.
+     */
+    protected int maxSegmentOccurrences;
+    /**
+     * The maximum number of parameters of the query of a URI.
+     */
+    protected int maxQueryParameters;
+
+    /**
+     * Constructor using the default values.
+     */
+    public SpiderTrapUriFilter() {
+        this(DEFAULT_MAX_URI_LENGTH, DEFAULT_MAX_SEGMENT_OCCURRENCES, DEFAULT_MAX_QUERY_PARAMETERS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxUriLength
+     *            the maximum length of a URI
+     * @param maxSegmentOccurrences
+     *            the maximum number of times a single path segment may occur
+     * @param maxQueryParameters
+     *            the maximum number of query parameters
+     */
+    public SpiderTrapUriFilter(int maxUriLength, int maxSegmentOccurrences, int maxQueryParameters) {
+        this.maxUriLength = maxUriLength;
+        this.maxSegmentOccurrences = maxSegmentOccurrences;
+        this.maxQueryParameters = maxQueryParameters;
+    }
+
+    @Override
+    public boolean isUriGood(CrawleableUri uri) {
+        if ((maxUriLength > 0) && (uri.getUri().toString().length() > maxUriLength)) {
+            LOGGER.debug("{} is too long.", uri);
+            return false;
+        }
+        if ((maxSegmentOccurrences > 0) && hasRepeatingSegment(uri.getUri().getRawPath())) {
+            LOGGER.debug("{} has a repeating path segment.", uri);
+            return false;
+        }
+        if ((maxQueryParameters > 0) && (countParameters(uri.getUri().getRawQuery()) > maxQueryParameters)) {
+            LOGGER.debug("{} has too many query parameters.", uri);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a single segment of the given path occurs more than
+     * {@link #maxSegmentOccurrences} times. The segments are compared in place,
+     * i.e., without creating substrings.
+     */
+    protected boolean hasRepeatingSegment(String path) {
+        if ((path == null) || (path.length() < (2 * (maxSegmentOccurrences + 1)))) {
+            // the path is too short to contain enough segments
+            return false;
+        }
+        int length = path.length();
+        int start = 0;
+        int end;
+        while (start < length) {
+            end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                int occurrences = 1;
+                int segmentLength = end - start;
+                // count the following occurrences of this segment
+                int otherStart = end + 1;
+                int otherEnd;
+                while (otherStart < length) {
+                    otherEnd = path.indexOf('/', otherStart);
+                    if (otherEnd < 0) {
+                        otherEnd = length;
+                    }
+                    if (((otherEnd - otherStart) == segmentLength)
+                            && path.regionMatches(start, path, otherStart, segmentLength)) {
+                        ++occurrences;
+                        if (occurrences > maxSegmentOccurrences) {
+                            return true;
+                        }
+                    }
+                    otherStart = otherEnd + 1;
+                }
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    private static int countParameters(String query) {
+        if ((query == null) || query.isEmpty()) {
+            return 0;
+        }
+        int count = 1;
+        for (int i = 0; i < query.length(); ++i) {
+            if (query.charAt(i) == '&') {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void add(CrawleableUri uri) {
+        // nothing to do
+    }
+
+    public int getMaxUriLength() {
+        return maxUriLength;
+    }
+
+    public void setMaxUriLength(int maxUriLength) {
+        this.maxUriLength = maxUriLength;
+    }
+
+    public int getMaxSegmentOccurrences() {
+        return maxSegmentOccurrences;
+    }
+
+    public void setMaxSegmentOccurrences(int maxSegmentOccurrences) {
+        this.maxSegmentOccurrences = maxSegmentOccurrences;
+    }
+
+    public int getMaxQueryParameters() {
+        return maxQueryParameters;
+    }
+
+    public void setMaxQueryParameters(int maxQueryParameters) {
+        this.maxQueryParameters = maxQueryParameters;
+    }
+}
@@ -0,0 +1,227 @@
+package org.dice_research.squirrel.data.uri.filter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.uri.processing.UriPrefixTrie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A blacklist filter based on a {@link UriPrefixTrie}. In contrast to the
+ * {@link BlacklistUriFilter}, it can block complete hosts and all URIs starting
+ * with a given prefix. The rules are read from a file with one rule per line:
+ * <ul>
+ * <li>{@code host:example.org} blocks the host and all its sub domains,</li>
+ * <li>{@code prefix:http://example.org/rows.rdf} blocks all URIs starting with
+ * the given URI and</li>
+ * <li>{@code http://example.org/page} (or {@code exact:http://...}) blocks
+ * only the given URI.</li>
+ * </ul>
+ * Empty lines and lines starting with {@code #} are ignored. The scheme of the
+ * URIs is ignored.
+ *
+ * <p>
+ * The file is read via memory mapping. If a reload interval is given, the file
+ * is checked for changes in the background and a new trie is built if the file
+ * has been modified. The new trie replaces the old one after it has been
+ * built, i.e., the filter can be used without any blocking while the
+ * blacklist is reloaded.
+ * </p>
+ */
+public class TrieBasedBlacklistUriFilter implements UriFilter, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrieBasedBlacklistUriFilter.class);
+
+    public static final String HOST_RULE_PREFIX = "host:";
+    public static final String PREFIX_RULE_PREFIX = "prefix:";
+    public static final String EXACT_RULE_PREFIX = "exact:";
+
+    /**
+     * The maximum number of bytes of the file that are mapped at once.
+     */
+    private static final int MAX_MAPPED_BYTES = 1 << 26;
+
+    private final File ruleFile;
+    private volatile UriPrefixTrie trie;
+    /**
+     * The modification time of the file from which the current trie has been
+     * loaded.
+     */
+    private long lastModified = -1;
+    private ScheduledExecutorService reloadExecutor;
+
+    /**
+     * Constructor. The rules are loaded only once.
+     *
+     * @param ruleFile
+     *            the file containing the rules of the blacklist
+     */
+    public TrieBasedBlacklistUriFilter(File ruleFile) {
+        this(ruleFile, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param ruleFile
+     *            the file containing the rules of the blacklist
+     * @param reloadInterval
+     *            the time (in ms) after which the file is checked for changes or
+     *            a value &lt;= 0 if the file should be loaded only once
+     */
+    public TrieBasedBlacklistUriFilter(File ruleFile, long reloadInterval) {
+        this.ruleFile = ruleFile;
+        this.trie = new UriPrefixTrie.Builder().build();
+        reload();
+        if (reloadInterval > 0) {
+            reloadExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "blacklist-reloader");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reloadExecutor.scheduleWithFixedDelay(this::reload, reloadInterval, reloadInterval,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Constructor for a blacklist that is not based on a file.
+     *
+     * @param trie
+     *            the rules of the blacklist
+     */
+    public TrieBasedBlacklistUriFilter(UriPrefixTrie trie) {
+        this.ruleFile = null;
+        this.trie = trie;
+    }
+
+    @Override
+    public boolean isUriGood(CrawleableUri uri) {
+        return trie.match(uri.getUri()) == 0;
+    }
+
+    /**
+     * The rules of this filter are read from its file. Hence, the URIs added
+     * via this method are ignored.
+     */
+    @Override
+    public void add(CrawleableUri uri) {
+        // nothing to do
+    }
+
+    /**
+     * Loads the rule file if it has been changed since it has been loaded the
+     * last time. If the file can not be read, the current rules are kept.
+     *
+     * @return true if a new set of rules has been loaded
+     */
+    public synchronized boolean reload() {
+        if (ruleFile == null) {
+            return false;
+        }
+        long modified = ruleFile.lastModified();
+        if (modified == lastModified) {
+            return false;
+        }
+        try {
+            long startTime = System.currentTimeMillis();
+            UriPrefixTrie newTrie = readRules(ruleFile);
+            trie = newTrie;
+            lastModified = modified;
+            LOGGER.info("Loaded {} blacklist rules ({} trie nodes) from {} in {}ms.", newTrie.getNumberOfRules(),
+                    newTrie.getNumberOfNodes(), ruleFile, System.currentTimeMillis() - startTime);
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("Couldn't load the blacklist from " + ruleFile + ". The current rules will be kept.", e);
+            return false;
+        }
+    }
+
+    /**
+     * Reads the rules from the given file. The file is mapped into memory chunk
+     * by chunk and the lines are parsed directly from the mapped bytes.
+     */
+    public static UriPrefixTrie readRules(File file) throws IOException {
+        UriPrefixTrie.Builder builder = new UriPrefixTrie.Builder();
+        byte[] line = new byte[256];
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int chunkSize = (int) Math.min(MAX_MAPPED_BYTES, size - position);
+                boolean lastChunk = (position + chunkSize) == size;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, chunkSize);
+                int lineStart = 0;
+                for (int i = 0; i < chunkSize; ++i) {
+                    if (buffer.get(i) == '\n') {
+                        line = addRule(builder, buffer, lineStart, i, line);
+                        lineStart = i + 1;
+                    }
+                }
+                if (lastChunk || (lineStart == 0)) {
+                    // the last line of the file (or a line that is longer than
+                    // a chunk)
+                    line = addRule(builder, buffer, lineStart, chunkSize, line);
+                    position += chunkSize;
+                } else {
+                    // read the incomplete line again as part of the next chunk
+                    position += lineStart;
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static byte[] addRule(UriPrefixTrie.Builder builder, MappedByteBuffer buffer, int start, int end,
+            byte[] line) {
+        // trim the line
+        while ((start < end) && (buffer.get(start) <= ' ')) {
+            ++start;
+        }
+        while ((end > start) && (buffer.get(end - 1) <= ' ')) {
+            --end;
+        }
+        if ((start == end) || (buffer.get(start) == '#')) {
+            return line;
+        }
+        int length = end - start;
+        if (length > line.length) {
+            line = new byte[Math.max(length, 2 * line.length)];
+        }
+        for (int i = 0; i < length; ++i) {
+            line[i] = buffer.get(start + i);
+        }
+        String rule = new String(line, 0, length, StandardCharsets.UTF_8);
+        if (rule.startsWith(HOST_RULE_PREFIX)) {
+            builder.addHost(rule.substring(HOST_RULE_PREFIX.length()).trim());
+        } else if (rule.startsWith(PREFIX_RULE_PREFIX)) {
+            builder.addPrefix(rule.substring(PREFIX_RULE_PREFIX.length()).trim());
+        } else if (rule.startsWith(EXACT_RULE_PREFIX)) {
+            builder.addExact(rule.substring(EXACT_RULE_PREFIX.length()).trim());
+        } else {
+            builder.addExact(rule);
+        }
+        return line;
+    }
+
+    public UriPrefixTrie getTrie() {
+        return trie;
+    }
+
+    @Override
+    public void close() {
+        if (reloadExecutor != null) {
+            reloadExecutor.shutdownNow();
+        }
+    }
+}
@@ -44,7 +44,7 @@ public class NormalizerImpl implements UriNormalizer {
 	/**
 	 * look-up table for characters which should not be escaped in URL paths
 	 */
-	private final static BitSet UNESCAPED_CHARS = new BitSet(0x7F);
+	final static BitSet UNESCAPED_CHARS = new BitSet(0x7F);
 	private final List<String> sessionIDs;
 	private final Map<String, Integer> defaultPortMap;
 
@@ -0,0 +1,316 @@
+package org.dice_research.squirrel.data.uri.norm;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link UriNormalizer} that applies the normalization steps of the
+ * {@link NormalizerImpl} but writes the normal form of a URI with a single scan
+ * over its parts into a reusable, thread local buffer:
+ * <ul>
+ * <li>convert scheme and host to lower case</li>
+ * <li>remove default ports</li>
+ * <li>decode percent-encoded unreserved characters in the path</li>
+ * <li>remove dot segments and empty segments from the path and add "/" for
+ * empty paths</li>
+ * <li>sort query parameters and remove session ids</li>
+ * <li>remove the fragment</li>
+ * </ul>
+ * A new URI object is only created if the normal form differs from the given
+ * URI. Hence, normalizing a URI that is already in its normal form does not
+ * allocate any objects.
+ *
+ * <p>
+ * The result is identical to the result of the {@link NormalizerImpl} with the
+ * following exceptions: remaining percent-encoded characters are neither
+ * decoded nor encoded a second time, empty query parameters are removed, a
+ * query that is empty after removing the session ids is removed completely,
+ * empty fragments are removed and default ports are removed independent of
+ * the case of the scheme.
+ * </p>
+ */
+public class SinglePassNormalizer implements UriNormalizer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SinglePassNormalizer.class);
+
+	private static final int INITIAL_BUFFER_SIZE = 256;
+	private static final int INITIAL_ARRAY_SIZE = 16;
+
+	/**
+	 * The (lower case) session ids indexed by their length.
+	 */
+	private final String[][] sessionIdsByLength;
+	private final Map<String, Integer> defaultPortMap;
+	/**
+	 * The buffers of the single threads.
+	 */
+	private final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
+	public SinglePassNormalizer(List<String> sessionIDs, Map<String, Integer> defaultPortMap) {
+		this.defaultPortMap = defaultPortMap;
+		List<List<String>> idsByLength = new ArrayList<>();
+		for (String sessionID : sessionIDs) {
+			while (idsByLength.size() <= sessionID.length()) {
+				idsByLength.add(new ArrayList<>());
+			}
+			idsByLength.get(sessionID.length()).add(sessionID.toLowerCase());
+		}
+		sessionIdsByLength = new String[idsByLength.size()][];
+		for (int i = 0; i < sessionIdsByLength.length; ++i) {
+			sessionIdsByLength[i] = idsByLength.get(i).toArray(new String[idsByLength.get(i).size()]);
+		}
+	}
+
+	@Override
+	public CrawleableUri normalize(CrawleableUri uri) {
+		URI uriObject = uri.getUri();
+		String host = uriObject.getHost();
+		// Only absolute, hierarchical URIs with a host can be normalized
+		if (uriObject.isOpaque() || (uriObject.getScheme() == null) || (host == null)) {
+			return uri;
+		}
+		Buffer buffer = buffers.get();
+		StringBuilder builder = buffer.builder;
+		builder.setLength(0);
+		// convert host and scheme to lower case
+		String scheme = appendLowerCase(builder, uriObject.getScheme());
+		builder.append("://");
+		String userInfo = uriObject.getRawUserInfo();
+		if (userInfo != null) {
+			builder.append(userInfo).append('@');
+		}
+		appendLowerCase(builder, host);
+		// Remove default ports
+		int port = uriObject.getPort();
+		if (port != -1) {
+			Integer defaultPort = defaultPortMap.get(scheme);
+			if ((defaultPort == null) || (defaultPort != port)) {
+				builder.append(':').append(port);
+			}
+		}
+		appendPath(builder, uriObject.getRawPath(), buffer);
+		appendQuery(builder, uriObject.getRawQuery(), buffer);
+		// The fragment is always removed
+
+		if (uriObject.toString().contentEquals(builder)) {
+			return uri;
+		}
+		try {
+			CrawleableUri normalizedUri = new CrawleableUri(new URI(builder.toString()));
+			normalizedUri.setData(uri.getData());
+			return normalizedUri;
+		} catch (URISyntaxException e) {
+			LOGGER.error("Exception while normalizing URI. Returning original URI.", e);
+			return uri;
+		}
+	}
+
+	/**
+	 * Appends the given String in lower case.
+	 *
+	 * @return the given String if it already is in lower case or its lower case
+	 *         version
+	 */
+	protected static String appendLowerCase(StringBuilder builder, String s) {
+		boolean lowerCase = true;
+		for (int i = 0; i < s.length(); ++i) {
+			char c = s.charAt(i);
+			if (Character.isUpperCase(c)) {
+				lowerCase = false;
+				c = Character.toLowerCase(c);
+			}
+			builder.append(c);
+		}
+		return lowerCase ? s : s.toLowerCase();
+	}
+
+	/**
+	 * Appends the normalized path. Percent-encoded unreserved characters are
+	 * decoded while the path is copied. Every segment is checked as soon as it
+	 * has been copied. Empty segments and "." segments are removed directly. A
+	 * ".." segment removes itself and its preceding segment if the preceding
+	 * segment is not a ".." segment, too. This leads to the same result as
+	 * {@link PathNormalization#normalize(String)}.
+	 */
+	protected static void appendPath(StringBuilder builder, String path, Buffer buffer) {
+		builder.append('/');
+		int segmentStart = builder.length();
+		int numberOfSegments = 0;
+		int length = path.length();
+		// the first slash has already been added
+		int pos = ((length > 0) && (path.charAt(0) == '/')) ? 1 : 0;
+		char c;
+		while (pos < length) {
+			c = path.charAt(pos);
+			if ((c == '%') && ((pos + 2) < length) && isHexDigit(path.charAt(pos + 1))
+					&& isHexDigit(path.charAt(pos + 2))) {
+				int hex = NormalizerImpl.getHexValue(path.charAt(pos + 1), path.charAt(pos + 2));
+				// If this character shouldn't be escaped
+				if (NormalizerImpl.UNESCAPED_CHARS.get(hex)) {
+					builder.append((char) hex);
+				} else {
+					builder.append(path, pos, pos + 3);
+				}
+				pos += 3;
+			} else if (c == '/') {
+				int segmentLength = builder.length() - segmentStart;
+				// ignore empty segments
+				if (segmentLength > 0) {
+					numberOfSegments = endSegment(builder, segmentStart, numberOfSegments, buffer);
+					if (numberOfSegments >= 0) {
+						builder.append('/');
+					} else {
+						numberOfSegments = -numberOfSegments - 1;
+					}
+					segmentStart = builder.length();
+				}
+				++pos;
+			} else {
+				builder.append(c);
+				++pos;
+			}
+		}
+		if (builder.length() > segmentStart) {
+			endSegment(builder, segmentStart, numberOfSegments, buffer);
+		}
+	}
+
+	/**
+	 * Handles the segment that has been appended to the builder starting at the
+	 * given position.
+	 *
+	 * @return the new number of segments if the segment has been kept or
+	 *         {@code -(number of segments) - 1} if the segment has been removed
+	 *         (i.e., no slash should be added)
+	 */
+	private static int endSegment(StringBuilder builder, int segmentStart, int numberOfSegments, Buffer buffer) {
+		int segmentLength = builder.length() - segmentStart;
+		if (builder.charAt(segmentStart) == '.') {
+			if (segmentLength == 1) {
+				// Remove this occurrence of "."
+				builder.setLength(segmentStart);
+				return -numberOfSegments - 1;
+			}
+			if ((segmentLength == 2) && (builder.charAt(segmentStart + 1) == '.') && (numberOfSegments > 0)
+					&& !isDoubleDotSegment(builder, buffer.segments[numberOfSegments - 1], segmentStart)) {
+				// Remove this occurrence of ".." together with the preceding segment
+				--numberOfSegments;
+				builder.setLength(buffer.segments[numberOfSegments]);
+				return -numberOfSegments - 1;
+			}
+		}
+		if (numberOfSegments == buffer.segments.length) {
+			buffer.segments = Arrays.copyOf(buffer.segments, 2 * numberOfSegments);
+		}
+		buffer.segments[numberOfSegments] = segmentStart;
+		return numberOfSegments + 1;
+	}
+
+	private static boolean isDoubleDotSegment(StringBuilder builder, int start, int nextSegmentStart) {
+		// the segment is followed by a slash
+		return ((nextSegmentStart - start) == 3) && (builder.charAt(start) == '.')
+				&& (builder.charAt(start + 1) == '.');
+	}
+
+	/**
+	 * Appends the sorted query parameters without session ids and empty
+	 * parameters.
+	 */
+	protected void appendQuery(StringBuilder builder, String query, Buffer buffer) {
+		if (query == null) {
+			return;
+		}
+		int numberOfParameters = 0;
+		int start = 0;
+		int end;
+		int length = query.length();
+		while (start < length) {
+			end = query.indexOf('&', start);
+			if (end < 0) {
+				end = length;
+			}
+			if ((end > start) && !isSessionId(query, start, end)) {
+				if (numberOfParameters == buffer.parameterStarts.length) {
+					buffer.parameterStarts = Arrays.copyOf(buffer.parameterStarts, 2 * numberOfParameters);
+					buffer.parameterEnds = Arrays.copyOf(buffer.parameterEnds, 2 * numberOfParameters);
+				}
+				// insertion sort since most queries have only a few parameters
+				int i = numberOfParameters;
+				while ((i > 0) && (compare(query, buffer.parameterStarts[i - 1], buffer.parameterEnds[i - 1], start,
+						end) > 0)) {
+					buffer.parameterStarts[i] = buffer.parameterStarts[i - 1];
+					buffer.parameterEnds[i] = buffer.parameterEnds[i - 1];
+					--i;
+				}
+				buffer.parameterStarts[i] = start;
+				buffer.parameterEnds[i] = end;
+				++numberOfParameters;
+			}
+			start = end + 1;
+		}
+		for (int i = 0; i < numberOfParameters; ++i) {
+			builder.append((i == 0) ? '?' : '&');
+			builder.append(query, buffer.parameterStarts[i], buffer.parameterEnds[i]);
+		}
+	}
+
+	/**
+	 * Checks whether the name of the given parameter is a session id.
+	 */
+	protected boolean isSessionId(String query, int start, int end) {
+		int nameEnd = query.indexOf('=', start);
+		if ((nameEnd < 0) || (nameEnd > end)) {
+			nameEnd = end;
+		}
+		int nameLength = nameEnd - start;
+		if (nameLength < sessionIdsByLength.length) {
+			for (String sessionId : sessionIdsByLength[nameLength]) {
+				if (query.regionMatches(true, start, sessionId, 0, nameLength)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Compares two parts of the given String in the same way
+	 * {@link String#compareTo(String)} compares two Strings.
+	 */
+	private static int compare(String s, int start1, int end1, int start2, int end2) {
+		int length = Math.min(end1 - start1, end2 - start2);
+		for (int i = 0; i < length; ++i) {
+			char c1 = s.charAt(start1 + i);
+			char c2 = s.charAt(start2 + i);
+			if (c1 != c2) {
+				return c1 - c2;
+			}
+		}
+		return (end1 - start1) - (end2 - start2);
+	}
+
+	private static boolean isHexDigit(char c) {
+		return ((c >= '0') && (c <= '9')) || ((c >= 'A') && (c <= 'F')) || ((c >= 'a') && (c <= 'f'));
+	}
+
+	/**
+	 * The reusable buffers of a single thread.
+	 */
+	protected static class Buffer {
+		private StringBuilder builder = new StringBuilder(INITIAL_BUFFER_SIZE);
+		/**
+		 * The start positions of the path segments in the builder.
+		 */
+		private int[] segments = new int[INITIAL_ARRAY_SIZE];
+		private int[] parameterStarts = new int[INITIAL_ARRAY_SIZE];
+		private int[] parameterEnds = new int[INITIAL_ARRAY_SIZE];
+	}
+}
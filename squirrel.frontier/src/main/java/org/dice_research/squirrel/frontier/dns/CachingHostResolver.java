@@ -0,0 +1,417 @@
+package org.dice_research.squirrel.frontier.dns;
+
+import java.io.Closeable;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A resolver stage that determines the IP address of {@link CrawleableUri}s
+ * without blocking the calling thread.
+ *
+ * <p>
+ * Resolved host names are kept in a cache. Successful lookups are cached for
+ * {@link #positiveTtl} milliseconds, failed lookups for {@link #negativeTtl}
+ * milliseconds. If the host of a URI is already known, the given callback is
+ * called directly by the calling thread. Otherwise, the URI is parked and the
+ * host is resolved by one of the threads of this resolver. Several URIs of the
+ * same host share a single lookup, i.e., only one lookup per host is running at
+ * the same time.
+ * </p>
+ *
+ * <p>
+ * Note that {@link InetAddress} does not expose the TTL of the DNS records.
+ * Hence, the configured TTL values are used for all hosts. The cache holds at
+ * most {@link #maxCacheSize} hosts. If it is full, the least recently used host
+ * is evicted.
+ * </p>
+ */
+public class CachingHostResolver implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingHostResolver.class);
+
+    /**
+     * Default value for {@link #positiveTtl} (10 minutes).
+     */
+    public static final long DEFAULT_POSITIVE_TTL = 10 * 60 * 1000;
+    /**
+     * Default value for {@link #negativeTtl} (1 minute).
+     */
+    public static final long DEFAULT_NEGATIVE_TTL = 60 * 1000;
+    /**
+     * Default number of threads used for lookups.
+     */
+    public static final int DEFAULT_NUMBER_OF_THREADS = 16;
+    /**
+     * Default value for {@link #maxCacheSize}.
+     */
+    public static final int DEFAULT_MAX_CACHE_SIZE = 100000;
+
+    /**
+     * The cache mapping host names to the results of their last lookup. The map
+     * is access-ordered, i.e., even reading it has to be guarded by the map
+     * object.
+     */
+    protected Map<String, CacheEntry> cache;
+    /**
+     * The lookups that are currently running.
+     */
+    protected ConcurrentHashMap<String, PendingLookup> pendingLookups = new ConcurrentHashMap<>();
+    /**
+     * The executor running the lookups.
+     */
+    protected ExecutorService executor;
+    /**
+     * Time (in ms) a successful lookup is cached.
+     */
+    protected long positiveTtl;
+    /**
+     * Time (in ms) a failed lookup is cached.
+     */
+    protected long negativeTtl;
+    /**
+     * The maximum number of cache entries.
+     */
+    protected int maxCacheSize;
+    /**
+     * The number of URIs that are waiting for the resolution of their host.
+     */
+    protected AtomicInteger parkedUris = new AtomicInteger();
+
+    /**
+     * Constructor using the default values.
+     */
+    public CachingHostResolver() {
+        this(DEFAULT_NUMBER_OF_THREADS, DEFAULT_POSITIVE_TTL, DEFAULT_NEGATIVE_TTL);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param numberOfThreads
+     *            the number of lookups that can be executed in parallel
+     * @param positiveTtl
+     *            time (in ms) a successful lookup is cached
+     * @param negativeTtl
+     *            time (in ms) a failed lookup is cached
+     */
+    public CachingHostResolver(int numberOfThreads, long positiveTtl, long negativeTtl) {
+        this.positiveTtl = positiveTtl;
+        this.negativeTtl = negativeTtl;
+        this.maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+        this.cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<String, CacheEntry> eldest) {
+                return size() > maxCacheSize;
+            }
+        };
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(numberOfThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "host-resolver-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Resolves the hosts of the given URIs. URIs sharing the same host are
+     * resolved with a single lookup and all lookups are executed in parallel.
+     *
+     * @param uris
+     *            the URIs that should be resolved
+     * @param callback
+     *            the callback that is called for every single URI after its IP
+     *            address has been set. If the host couldn't be resolved, the IP
+     *            address of the URI is {@code null}.
+     */
+    public void resolve(Collection<CrawleableUri> uris, Consumer<CrawleableUri> callback) {
+        resolveAll(uris, resolvedUris -> resolvedUris.forEach(callback));
+    }
+
+    /**
+     * Resolves the hosts of the given URIs and hands them over to the given
+     * callback in batches. All URIs with a cached host are handed over in a
+     * single batch by the calling thread. The other URIs are handed over in one
+     * batch per host after the lookup of the host has been finished.
+     *
+     * @param uris
+     *            the URIs that should be resolved
+     * @param callback
+     *            the callback that is called for every batch of URIs after their
+     *            IP addresses have been set. If a host couldn't be resolved, the
+     *            IP address of its URIs is {@code null}.
+     */
+    public void resolveAll(Collection<CrawleableUri> uris, Consumer<List<CrawleableUri>> callback) {
+        List<CrawleableUri> resolvedUris = new ArrayList<>();
+        Map<String, List<CrawleableUri>> unresolvedUris = new HashMap<>();
+        String host;
+        for (CrawleableUri uri : uris) {
+            host = uri.getUri().getHost();
+            if (host == null) {
+                LOGGER.warn("The URI {} has no host and can not be resolved.", uri.getUri());
+                uri.setIpAddress(null);
+                resolvedUris.add(uri);
+            } else {
+                CacheEntry entry = getCacheEntry(host);
+                if (entry != null) {
+                    uri.setIpAddress(entry.address);
+                    resolvedUris.add(uri);
+                } else {
+                    unresolvedUris.computeIfAbsent(host, h -> new ArrayList<>()).add(uri);
+                }
+            }
+        }
+        for (Entry<String, List<CrawleableUri>> hostUris : unresolvedUris.entrySet()) {
+            addWaiter(hostUris.getKey(), hostUris.getValue(), callback);
+        }
+        if (!resolvedUris.isEmpty()) {
+            callback.accept(resolvedUris);
+        }
+    }
+
+    /**
+     * Resolves the host of the given URI. If the host is known, the callback is
+     * called directly. Otherwise, the URI is parked until the lookup of its host
+     * is finished.
+     *
+     * @param uri
+     *            the URI that should be resolved
+     * @param callback
+     *            the callback that is called after the IP address of the URI has
+     *            been set. If the host couldn't be resolved, the IP address of
+     *            the URI is {@code null}.
+     */
+    public void resolve(CrawleableUri uri, Consumer<CrawleableUri> callback) {
+        resolveAll(Collections.singletonList(uri), resolvedUris -> callback.accept(resolvedUris.get(0)));
+    }
+
+    /**
+     * Parks the given URIs of the given host until the lookup of the host is
+     * finished. If there is no lookup running for this host, a new lookup is
+     * started.
+     */
+    protected void addWaiter(String host, List<CrawleableUri> uris, Consumer<List<CrawleableUri>> callback) {
+        PendingLookup lookup = pendingLookups.get(host);
+        if (lookup == null) {
+            PendingLookup newLookup = new PendingLookup(host);
+            lookup = pendingLookups.putIfAbsent(host, newLookup);
+            if (lookup == null) {
+                // we are responsible for starting the lookup
+                newLookup.addWaiter(uris, callback);
+                startLookup(newLookup);
+                return;
+            }
+        }
+        lookup.addWaiter(uris, callback);
+    }
+
+    /**
+     * Returns the cached IP address of the given host or {@code null} if it is
+     * not known or couldn't be resolved.
+     *
+     * @param host
+     *            the host name
+     * @return the cached IP address or {@code null}
+     */
+    public InetAddress getCachedAddress(String host) {
+        CacheEntry entry = getCacheEntry(host);
+        return (entry != null) ? entry.address : null;
+    }
+
+    /**
+     * Returns the cache entry of the given host or {@code null} if there is no
+     * valid entry. An expired entry is removed from the cache.
+     */
+    protected CacheEntry getCacheEntry(String host) {
+        synchronized (cache) {
+            CacheEntry entry = cache.get(host);
+            if ((entry != null) && (entry.expiresAt <= System.currentTimeMillis())) {
+                cache.remove(host);
+                entry = null;
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Submits the given {@link PendingLookup} to the {@link #executor}.
+     */
+    protected void startLookup(PendingLookup lookup) {
+        try {
+            executor.execute(lookup);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("The resolver has been closed. The lookup of {} is executed directly.", lookup.host);
+            lookup.run();
+        }
+    }
+
+    /**
+     * Performs the lookup of the given host.
+     *
+     * @param host
+     *            the host that should be resolved
+     * @return the IP address of the host
+     * @throws UnknownHostException
+     *             if the host couldn't be resolved
+     */
+    protected InetAddress lookup(String host) throws UnknownHostException {
+        return InetAddress.getByName(host);
+    }
+
+    /**
+     * Adds the result of a lookup to the cache. If the cache is full, the least
+     * recently used entry is evicted.
+     */
+    protected void cacheResult(String host, InetAddress address) {
+        CacheEntry entry = new CacheEntry(address,
+                System.currentTimeMillis() + ((address != null) ? positiveTtl : negativeTtl));
+        synchronized (cache) {
+            cache.put(host, entry);
+        }
+    }
+
+    /**
+     * @return the number of lookups that are currently running
+     */
+    public int getNumberOfPendingLookups() {
+        return pendingLookups.size();
+    }
+
+    /**
+     * @return the number of URIs that are waiting for the resolution of their
+     *         host
+     */
+    public int getNumberOfParkedUris() {
+        return parkedUris.get();
+    }
+
+    /**
+     * @return the number of hosts in the cache
+     */
+    public int getCacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public void setMaxCacheSize(int maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            LOGGER.warn("Interrupted while waiting for the termination of the pending lookups.");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The cached result of a single lookup.
+     */
+    protected static class CacheEntry {
+        protected final InetAddress address;
+        protected final long expiresAt;
+
+        public CacheEntry(InetAddress address, long expiresAt) {
+            this.address = address;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A running lookup together with the URIs that are waiting for its result.
+     */
+    protected class PendingLookup implements Runnable {
+        private final String host;
+        private List<List<CrawleableUri>> waitingUris = new ArrayList<>();
+        private List<Consumer<List<CrawleableUri>>> callbacks = new ArrayList<>();
+        private boolean done = false;
+        private InetAddress address = null;
+
+        public PendingLookup(String host) {
+            this.host = host;
+        }
+
+        public void addWaiter(List<CrawleableUri> uris, Consumer<List<CrawleableUri>> callback) {
+            synchronized (this) {
+                if (!done) {
+                    waitingUris.add(uris);
+                    callbacks.add(callback);
+                    parkedUris.addAndGet(uris.size());
+                    return;
+                }
+            }
+            // The lookup has been finished in the meantime
+            for (CrawleableUri uri : uris) {
+                uri.setIpAddress(address);
+            }
+            callback.accept(uris);
+        }
+
+        @Override
+        public void run() {
+            InetAddress result = null;
+            try {
+                result = lookup(host);
+            } catch (UnknownHostException e) {
+                LOGGER.error("Could not recognize IP for {}, unknown host", host);
+            } catch (Exception e) {
+                LOGGER.error("Exception while resolving " + host + ".", e);
+            }
+            List<List<CrawleableUri>> uriLists;
+            List<Consumer<List<CrawleableUri>>> consumers;
+            synchronized (this) {
+                address = result;
+                done = true;
+                uriLists = waitingUris;
+                consumers = callbacks;
+                waitingUris = null;
+                callbacks = null;
+            }
+            cacheResult(host, result);
+            pendingLookups.remove(host, this);
+            for (int i = 0; i < uriLists.size(); ++i) {
+                List<CrawleableUri> uris = uriLists.get(i);
+                for (CrawleableUri uri : uris) {
+                    uri.setIpAddress(result);
+                }
+                try {
+                    consumers.get(i).accept(uris);
+                } catch (Exception e) {
+                    LOGGER.error("Exception while handling the resolved URIs of " + host + ". They will be ignored.",
+                            e);
+                } finally {
+                    parkedUris.addAndGet(-uris.size());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package org.dice_research.squirrel.frontier.impl;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A chain of stages that processes URIs concurrently. Every stage has a
+ * bounded queue of URIs and its own threads. A thread of a stage takes up to
+ * {@link StageSettings#batchSize} URIs from the queue of the stage and hands
+ * them as a single batch to the processing function of the stage. The function
+ * hands its results over to the next stage (or to any other target) using the
+ * given {@link Consumer}.
+ *
+ * <p>
+ * Since the queues are bounded, a stage that can not keep up blocks the stages
+ * (and the callers of {@link #submit(List)}) in front of it. The number of URIs
+ * waiting in front of every stage can be retrieved via
+ * {@link Stage#getQueueLength()}, i.e., the bottleneck of the pipeline is the
+ * stage with the longest queue. If a stage is full, this is logged on debug
+ * level.
+ * </p>
+ *
+ * <p>
+ * {@link #close()} drains the pipeline before it stops the threads of the
+ * stages since the URIs in the queues might already be marked as known.
+ * </p>
+ */
+public class AdmissionPipeline implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdmissionPipeline.class);
+
+    /**
+     * Time (in ms) a stage thread waits for new URIs before it checks whether
+     * the pipeline has been closed.
+     */
+    private static final long POLL_TIMEOUT = 100;
+    /**
+     * Default time (in ms) {@link #close()} waits for the stages to process the
+     * URIs in their queues.
+     */
+    public static final long DEFAULT_DRAIN_TIMEOUT = 30000;
+
+    private final List<Stage> stages = new ArrayList<>();
+    private volatile boolean running = true;
+
+    /**
+     * Adds a new stage at the end of the pipeline. Its threads are started
+     * directly.
+     *
+     * @param name
+     *            the name of the stage (used for logging and thread names)
+     * @param settings
+     *            the number of threads, the batch size and the capacity of the
+     *            stage
+     * @param function
+     *            the processing function of the stage which gets a batch of
+     *            URIs and a consumer for its results (the next stage)
+     * @return the new stage
+     */
+    public Stage addStage(String name, StageSettings settings, StageFunction function) {
+        Stage next = new Stage(name, settings, function);
+        if (!stages.isEmpty()) {
+            stages.get(stages.size() - 1).next = next;
+        }
+        stages.add(next);
+        next.start();
+        return next;
+    }
+
+    /**
+     * Hands the given URIs over to the first stage. Blocks if the first stage
+     * is full.
+     *
+     * @param uris
+     *            the URIs that should be processed
+     */
+    public void submit(List<CrawleableUri> uris) {
+        stages.get(0).submit(uris);
+    }
+
+    public List<Stage> getStages() {
+        return Collections.unmodifiableList(stages);
+    }
+
+    /**
+     * @return the number of URIs that are either waiting in one of the queues or
+     *         are currently processed by one of the stages
+     */
+    public int getNumberOfPendingUris() {
+        int pending = 0;
+        for (Stage stage : stages) {
+            pending += stage.pendingUris.get();
+        }
+        return pending;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("AdmissionPipeline[");
+        boolean first = true;
+        for (Stage stage : stages) {
+            if (first) {
+                first = false;
+            } else {
+                builder.append(", ");
+            }
+            builder.append(stage);
+        }
+        builder.append(']');
+        return builder.toString();
+    }
+
+    /**
+     * Waits until all stages have processed the URIs in their queues or the
+     * given time has passed. Note that the pipeline keeps accepting new URIs
+     * while it is drained.
+     *
+     * @param timeout
+     *            the maximum time (in ms) to wait
+     * @return {@code true} if the pipeline is empty, {@code false} if the
+     *         timeout has been reached
+     */
+    public boolean drain(long timeout) {
+        long end = System.currentTimeMillis() + timeout;
+        try {
+            while (getNumberOfPendingUris() > 0) {
+                if (System.currentTimeMillis() >= end) {
+                    return false;
+                }
+                Thread.sleep(POLL_TIMEOUT / 10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Drains the pipeline (waiting at most {@link #DEFAULT_DRAIN_TIMEOUT} ms) and
+     * stops the threads of all stages. URIs that are still in the queues after
+     * that are discarded.
+     */
+    @Override
+    public void close() {
+        if (!drain(DEFAULT_DRAIN_TIMEOUT)) {
+            LOGGER.warn("Closing the admission pipeline before it has been drained. {} URIs will be discarded. {}",
+                    getNumberOfPendingUris(), this);
+        }
+        running = false;
+        for (Stage stage : stages) {
+            stage.executor.shutdownNow();
+        }
+        for (Stage stage : stages) {
+            try {
+                stage.executor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * The processing function of a stage.
+     */
+    public static interface StageFunction {
+
+        /**
+         * Processes the given batch of URIs.
+         *
+         * @param uris
+         *            the batch of URIs
+         * @param next
+         *            the consumer that has to be called with the results of
+         *            this stage (which might be called by another thread later
+         *            on)
+         */
+        public void process(List<CrawleableUri> uris, Consumer<List<CrawleableUri>> next);
+    }
+
+    /**
+     * The number of threads, the batch size and the capacity of a stage.
+     */
+    public static class StageSettings {
+        private final int threads;
+        private final int batchSize;
+        private final int capacity;
+
+        /**
+         * Constructor.
+         *
+         * @param threads
+         *            the number of threads of the stage
+         * @param batchSize
+         *            the maximum number of URIs that are processed at once
+         * @param capacity
+         *            the maximum number of URIs waiting in front of the stage
+         */
+        public StageSettings(int threads, int batchSize, int capacity) {
+            this.threads = Math.max(1, threads);
+            this.batchSize = Math.max(1, batchSize);
+            this.capacity = Math.max(this.batchSize, capacity);
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+    }
+
+    /**
+     * A single stage of the pipeline.
+     */
+    public class Stage implements Runnable {
+        private final String name;
+        private final StageSettings settings;
+        private final StageFunction function;
+        private final BlockingQueue<CrawleableUri> queue;
+        private final ExecutorService executor;
+        /**
+         * The URIs that are waiting in the queue or are processed.
+         */
+        private final AtomicInteger pendingUris = new AtomicInteger();
+        private final AtomicLong processedUris = new AtomicLong();
+        private final AtomicLong processedBatches = new AtomicLong();
+        private final AtomicLong processingNanos = new AtomicLong();
+        /**
+         * The following stage. It is set after the threads of this stage have
+         * been started.
+         */
+        private volatile Stage next;
+
+        protected Stage(String name, StageSettings settings, StageFunction function) {
+            this.name = name;
+            this.settings = settings;
+            this.function = function;
+            this.queue = new ArrayBlockingQueue<>(settings.capacity);
+            final AtomicInteger threadCount = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(settings.threads, r -> {
+                Thread thread = new Thread(r, "admission-" + name + "-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        protected void start() {
+            for (int i = 0; i < settings.threads; ++i) {
+                executor.execute(this);
+            }
+        }
+
+        /**
+         * Adds the given URIs to the queue of this stage. Blocks while the queue
+         * is full.
+         */
+        public void submit(List<CrawleableUri> uris) {
+            pendingUris.addAndGet(uris.size());
+            int added = 0;
+            try {
+                for (CrawleableUri uri : uris) {
+                    if (!queue.offer(uri)) {
+                        LOGGER.debug("The {} stage is full. {}", name, AdmissionPipeline.this);
+                        queue.put(uri);
+                    }
+                    ++added;
+                }
+            } catch (InterruptedException e) {
+                LOGGER.warn("Interrupted while waiting for the {} stage. {} URIs will be discarded.", name,
+                        uris.size() - added);
+                pendingUris.addAndGet(added - uris.size());
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            List<CrawleableUri> batch = new ArrayList<>(settings.batchSize);
+            Consumer<List<CrawleableUri>> consumer = uris -> {
+                Stage nextStage = next;
+                if (nextStage != null) {
+                    nextStage.submit(uris);
+                }
+            };
+            while (running) {
+                try {
+                    CrawleableUri first = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, settings.batchSize - 1);
+                    long start = System.nanoTime();
+                    try {
+                        function.process(new ArrayList<>(batch), consumer);
+                    } catch (Exception e) {
+                        LOGGER.error("Exception in the " + name + " stage. " + batch.size()
+                                + " URIs will be discarded.", e);
+                    }
+                    processingNanos.addAndGet(System.nanoTime() - start);
+                    processedUris.addAndGet(batch.size());
+                    processedBatches.incrementAndGet();
+                    pendingUris.addAndGet(-batch.size());
+                    batch.clear();
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public StageSettings getSettings() {
+            return settings;
+        }
+
+        /**
+         * @return the number of URIs waiting in front of this stage
+         */
+        public int getQueueLength() {
+            return queue.size();
+        }
+
+        public long getProcessedUris() {
+            return processedUris.get();
+        }
+
+        public long getProcessedBatches() {
+            return processedBatches.get();
+        }
+
+        /**
+         * @return the total time (in ns) the threads of this stage spent in the
+         *         processing function
+         */
+        public long getProcessingNanos() {
+            return processingNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            return name + "=" + queue.size() + "/" + settings.capacity;
+        }
+    }
+}
@@ -1,9 +1,6 @@
 package org.dice_research.squirrel.frontier.impl;
 
-import java.net.InetAddress;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import org.dice_research.squirrel.data.uri.CrawleableUri;
 import org.dice_research.squirrel.data.uri.filter.UriFilter;
@@ -14,6 +11,7 @@ import org.dice_research.squirrel.data.uri.norm.UriNormalizer;
 import org.dice_research.squirrel.deduplication.hashing.UriHashCustodian;
 import org.dice_research.squirrel.frontier.ExtendedFrontier;
 import org.dice_research.squirrel.frontier.recrawling.OutDatedUriRetriever;
+import org.dice_research.squirrel.queue.BlockingQueue;
 import org.dice_research.squirrel.queue.IpAddressBasedQueue;
 import org.dice_research.squirrel.queue.UriQueue;
 
@@ -71,17 +69,14 @@ public class ExtendedFrontierImpl extends FrontierImpl implements ExtendedFronti
         super(normalizer, relationalUriFilter, uriReferences, queue,uriGenerators, doesRecrawling,outDatedUriRetriever);
     }
 
+    /**
+     * Gives the leases of the URIs of the dead worker back to the queue. The
+     * URIs stay in the queue and will be handed out to another worker.
+     */
     @Override
     public void informAboutDeadWorker(String idOfWorker, List<CrawleableUri> lstUrisToReassign) {
-        if (queue instanceof IpAddressBasedQueue) {
-            IpAddressBasedQueue ipQueue = (IpAddressBasedQueue) queue;
-
-            Set<InetAddress> setIps = new HashSet<>();
-            for (CrawleableUri uri : lstUrisToReassign) {
-                InetAddress ip = uri.getIpAddress();
-                setIps.add(ip);
-            }
-            setIps.forEach(ip -> ipQueue.markIpAddressAsAccessible(ip));
+        if ((queue instanceof BlockingQueue) && (lstUrisToReassign != null)) {
+            ((BlockingQueue<?>) queue).releaseUris(lstUrisToReassign);
         }
     }
 }
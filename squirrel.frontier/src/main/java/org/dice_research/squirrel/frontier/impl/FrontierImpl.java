@@ -1,13 +1,22 @@
 package org.dice_research.squirrel.frontier.impl;
 
-import java.net.UnknownHostException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import org.dice_research.squirrel.Constants;
 import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.HostDictionary;
 import org.dice_research.squirrel.data.uri.filter.KnownUriFilter;
+import org.dice_research.squirrel.data.uri.filter.RecrawlInfoStore;
 import org.dice_research.squirrel.data.uri.filter.SchemeBasedUriFilter;
 import org.dice_research.squirrel.data.uri.filter.UriFilter;
 import org.dice_research.squirrel.data.uri.filter.UriFilterComposer;
@@ -15,8 +24,12 @@ import org.dice_research.squirrel.data.uri.info.URIReferences;
 import org.dice_research.squirrel.data.uri.norm.UriGenerator;
 import org.dice_research.squirrel.data.uri.norm.UriNormalizer;
 import org.dice_research.squirrel.frontier.Frontier;
+import org.dice_research.squirrel.frontier.dns.CachingHostResolver;
+import org.dice_research.squirrel.frontier.impl.AdmissionPipeline.StageSettings;
+import org.dice_research.squirrel.frontier.recrawling.AdaptiveRecrawlScheduler;
 import org.dice_research.squirrel.frontier.recrawling.OutDatedUriRetriever;
 import org.dice_research.squirrel.graph.GraphLogger;
+import org.dice_research.squirrel.queue.AbstractGroupingQueue;
 import org.dice_research.squirrel.queue.BlockingQueue;
 import org.dice_research.squirrel.queue.UriQueue;
 import org.dice_research.squirrel.uri.processing.UriProcessor;
@@ -67,6 +80,28 @@ public class FrontierImpl implements Frontier {
 	 * SPARQL, DEREFERENCEABLE or UNKNOWN
 	 */
 	protected UriProcessor uriProcessor;
+	/**
+	 * {@link CachingHostResolver} used to determine the IP addresses of incoming
+	 * URIs without blocking the admission of other URIs.
+	 */
+	protected CachingHostResolver hostResolver;
+	/**
+	 * {@link HostDictionary} that assigns the int IDs of the hosts and IP
+	 * addresses of the admitted URIs. It is shared by all components of the
+	 * frontier that keep per-host state.
+	 */
+	protected HostDictionary hostDictionary = new HostDictionary();
+	/**
+	 * {@link UriFilter} that rejects URIs generated by spider traps (e.g., very
+	 * long URIs). It is applied together with the {@link #schemeUriFilter}
+	 * before the other filters or {@code null} if it is not used.
+	 */
+	protected UriFilter spiderTrapFilter;
+	/**
+	 * {@link HostBudget} limiting the number of URIs that are admitted per host
+	 * or {@code null} if the hosts do not have a budget.
+	 */
+	protected HostBudget hostBudget;
 	/**
 	 * {@link UriGenerator} used to generate additional domain variants of a URI
 	 */
@@ -108,6 +143,55 @@ public class FrontierImpl implements Frontier {
 	 */
 	private static final long DEFAULT_TIMER_PERIOD = 1000 * 60 * 60;
 
+	/**
+	 * Default value for {@link #recrawlPageSize}.
+	 */
+	public static final int DEFAULT_RECRAWL_PAGE_SIZE = 1000;
+
+	/**
+	 * The maximum number of outdated URIs that are retrieved and added at once.
+	 * The next page is only retrieved if less URIs than this are waiting for
+	 * the resolution of their host.
+	 */
+	private int recrawlPageSize = DEFAULT_RECRAWL_PAGE_SIZE;
+
+	/**
+	 * {@link AdaptiveRecrawlScheduler} used to estimate the recrawl intervals of
+	 * crawled URIs if the known URI filter is a {@link RecrawlInfoStore}.
+	 */
+	protected AdaptiveRecrawlScheduler recrawlScheduler;
+
+	/**
+	 * The {@link AdmissionPipeline} processing new URIs or {@code null} if new
+	 * URIs are processed by the calling thread.
+	 */
+	protected volatile AdmissionPipeline admissionPipeline;
+
+	/**
+	 * The URIs that are waiting for the result of an asynchronous check of the
+	 * filters.
+	 */
+	protected Set<URI> pendingChecks = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Default settings of the normalization stage of the
+	 * {@link #admissionPipeline}.
+	 */
+	public static final StageSettings DEFAULT_NORMALIZATION_STAGE = new StageSettings(2, 1000, 100000);
+	/**
+	 * Default settings of the filter stage of the {@link #admissionPipeline}.
+	 */
+	public static final StageSettings DEFAULT_FILTER_STAGE = new StageSettings(1, 1000, 100000);
+	/**
+	 * Default settings of the resolution stage of the {@link #admissionPipeline}.
+	 */
+	public static final StageSettings DEFAULT_RESOLUTION_STAGE = new StageSettings(1, 1000, 100000);
+	/**
+	 * Default settings of the stage of the {@link #admissionPipeline} that adds
+	 * the URIs to the queue.
+	 */
+	public static final StageSettings DEFAULT_ENQUEUE_STAGE = new StageSettings(1, 1000, 100000);
+
 	/**
 	 * Constructor.
 	 *
@@ -229,25 +313,64 @@ public class FrontierImpl implements Frontier {
 		this.uriGenerator = uriGenerators;
 		this.queue = queue;
 		this.uriProcessor = new UriProcessor();
+		this.hostResolver = new CachingHostResolver();
 		this.graphLogger = graphLogger;
 		this.outDatedUriRetriever = outDatedUriRetriever;
+		if (queue instanceof AbstractGroupingQueue) {
+			// the queue shares the IDs of the IP addresses with the frontier
+			((AbstractGroupingQueue<?>) queue).setHostDictionary(hostDictionary);
+		}
 		this.queue.open();
 		this.doesRecrawling = doesRecrawling;
 		this.timerPeriod = timerPeriod;
 		FrontierImpl.generalRecrawlTime = generalRecrawlTime;
 
 		if (this.doesRecrawling) {
+			recrawlScheduler = new AdaptiveRecrawlScheduler(generalRecrawlTime, hostDictionary);
 			timerRecrawling = new Timer();
 			timerRecrawling.schedule(new TimerTask() {
 				@Override
 				public void run() {
-					List<CrawleableUri> urisToRecrawl = outDatedUriRetriever.getUriToRecrawl();
-					urisToRecrawl.forEach(uri -> queue.addUri(uriProcessor.recognizeUriType(uri)));
+					recrawlOutdatedUris();
 				}
 			}, this.timerPeriod, this.timerPeriod);
 		}
 	}
 
+	/**
+	 * Retrieves the outdated URIs page by page and adds them to the queue. The
+	 * retrieval of the next page is delayed until the URIs of the previous page
+	 * have left the host resolution, i.e., the outdated URIs are fed into the
+	 * queue gradually and are never held in memory at once.
+	 */
+	protected void recrawlOutdatedUris() {
+		if (outDatedUriRetriever == null) {
+			return;
+		}
+		try {
+			outDatedUriRetriever.retrieveUrisToRecrawl(recrawlPageSize, page -> {
+				if (hostBudget != null) {
+					// the outdated URIs did not pass the admission but are counted as
+					// pending URIs of their hosts until they are crawled or removed
+					for (CrawleableUri uri : page) {
+						hostDictionary.getHostId(uri);
+						hostBudget.charge(uri);
+					}
+				}
+				hostResolver.resolveAll(page, uris -> addResolvedUris(uris));
+				try {
+					while (hostResolver.getNumberOfParkedUris() > recrawlPageSize) {
+						Thread.sleep(100);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		} catch (Exception e) {
+			LOGGER.error("Exception while retrieving outdated URIs.", e);
+		}
+	}
+
 	@Override
 	public List<CrawleableUri> getNextUris() {
 
@@ -258,24 +381,109 @@ public class FrontierImpl implements Frontier {
 		return queue.getNextUris();
 	}
 
+	/**
+	 * Adds the given URIs to the frontier. If the {@link #admissionPipeline} has
+	 * been started, the URIs are only handed over to the pipeline. Otherwise,
+	 * they are normalized and checked by the calling thread.
+	 */
 	@Override
 	public void addNewUris(List<CrawleableUri> uris) {
+		if (admissionPipeline != null) {
+			admissionPipeline.submit(uris);
+			return;
+		}
+		addGoodUris(checkNormalizedUris(normalizeUris(uris)));
+	}
+
+	/**
+	 * Normalizes the given URIs and generates their variants.
+	 *
+	 * @param uris the new URIs
+	 * @return the normalized URIs and their variants without duplicates
+	 */
+	protected List<CrawleableUri> normalizeUris(List<CrawleableUri> uris) {
+		List<CrawleableUri> candidates = new ArrayList<>(uris.size());
+		Set<URI> seenUris = new HashSet<>();
 		for (CrawleableUri uri : uris) {
-			addNewUri(uri);
+			addCandidates(uri, candidates, seenUris);
 		}
+		return candidates;
+	}
+
+	/**
+	 * Starts the {@link AdmissionPipeline} with the default settings.
+	 */
+	public void startAdmissionPipeline() {
+		startAdmissionPipeline(DEFAULT_NORMALIZATION_STAGE, DEFAULT_FILTER_STAGE, DEFAULT_RESOLUTION_STAGE,
+				DEFAULT_ENQUEUE_STAGE);
+	}
+
+	/**
+	 * Starts the {@link AdmissionPipeline}. After that, {@link #addNewUris(List)}
+	 * only hands the URIs over to the pipeline which processes them in the
+	 * following stages:
+	 * <ol>
+	 * <li>normalization and generation of URI variants,</li>
+	 * <li>the scheme check and the filters (the local filters followed by a
+	 * single, possibly deferred lookup in the known URI filter per batch),</li>
+	 * <li>the resolution of the hosts and</li>
+	 * <li>the addition of the URIs to the queue.</li>
+	 * </ol>
+	 * URIs that are still checked by the known URI filter are not checked a
+	 * second time, i.e., a URI is not added twice although the results of the
+	 * known URI filter are delivered asynchronously.
+	 *
+	 * @param normalization the settings of the normalization stage
+	 * @param filter        the settings of the filter stage
+	 * @param resolution    the settings of the resolution stage
+	 * @param enqueue       the settings of the stage adding the URIs to the queue
+	 */
+	public synchronized void startAdmissionPipeline(StageSettings normalization, StageSettings filter,
+			StageSettings resolution, StageSettings enqueue) {
+		if (admissionPipeline != null) {
+			LOGGER.warn("The admission pipeline has already been started.");
+			return;
+		}
+		AdmissionPipeline pipeline = new AdmissionPipeline();
+		pipeline.addStage("normalize", normalization, (uris, next) -> next.accept(normalizeUris(uris)));
+		pipeline.addStage("filter", filter, (uris, next) -> checkNormalizedUris(uris, next));
+		pipeline.addStage("resolve", resolution, (uris, next) -> hostResolver.resolveAll(uris, next));
+		pipeline.addStage("enqueue", enqueue, (uris, next) -> addResolvedUris(uris));
+		admissionPipeline = pipeline;
 	}
 
 	@Override
 	public void addNewUri(CrawleableUri uri) {
+		addNewUris(Collections.singletonList(uri));
+	}
+
+	/**
+	 * Normalizes the given URI, generates its variants and adds all of them to
+	 * the given list of candidates. URIs that have already been seen within the
+	 * same batch are skipped.
+	 *
+	 * @param uri        the new URI
+	 * @param candidates the list to which the normalized URIs are added
+	 * @param seenUris   the URIs that have already been added to the candidates
+	 */
+	protected void addCandidates(CrawleableUri uri, List<CrawleableUri> candidates, Set<URI> seenUris) {
 		// After knownUriFilter uri should be classified according to
 		// UriProcessor
 		uri = normalizer.normalize(uri);
-		addNormalizedUri(uri);
+		if (seenUris.add(uri.getUri())) {
+			candidates.add(uri);
+		}
 
 		try {
+			CrawleableUri variant;
 			for (UriGenerator u : uriGenerator) {
-				if (u.getUriVariant(uri) != null)
-					addNormalizedUri(normalizer.normalize(u.getUriVariant(uri)));
+				variant = u.getUriVariant(uri);
+				if (variant != null) {
+					variant = normalizer.normalize(variant);
+					if (seenUris.add(variant.getUri())) {
+						candidates.add(variant);
+					}
+				}
 			}
 		} catch (Exception e) {
 			LOGGER.info(
@@ -283,32 +491,156 @@ public class FrontierImpl implements Frontier {
 		}
 	}
 
-	protected void addNormalizedUri(CrawleableUri uri) {
-		CrawleableUri curi = uri;
-		if (uriFilter.isUriGood(curi)) {
-			LOGGER.debug("addNewUri(" + curi + "): URI is good [" + uriFilter + "]");
-			if (schemeUriFilter.isUriGood(curi)) {
-				LOGGER.trace("addNewUri(" + curi.getUri() + "): URI schemes is OK [" + schemeUriFilter + "]");
-				// Make sure that the IP is known
-				try {
-					curi = this.uriProcessor.recognizeInetAddress(curi);
+	/**
+	 * Hands the given URIs over to the host resolver. URIs with a known host are
+	 * added to the queue in a single batch while the others are parked until
+	 * their host has been resolved.
+	 *
+	 * @param goodUris the URIs that passed the filters
+	 */
+	protected void addGoodUris(List<CrawleableUri> goodUris) {
+		if (!goodUris.isEmpty()) {
+			hostResolver.resolveAll(goodUris, uris -> addResolvedUris(uris));
+		}
+	}
+
+	/**
+	 * Checks the given normalized URIs with a single request to the filters and
+	 * adds the good URIs to the known URI filter with a single request. The
+	 * scheme is checked first to make sure that the filters (and the database
+	 * lookup of the known URI filter) only get URIs that could be crawled.
+	 *
+	 * @param candidates the normalized URIs without duplicates
+	 * @return the URIs that passed the filters
+	 */
+	protected List<CrawleableUri> checkNormalizedUris(List<CrawleableUri> candidates) {
+		List<CrawleableUri> supportedUris = selectSupportedUris(candidates);
+		if (supportedUris.isEmpty()) {
+			return supportedUris;
+		}
+		return admitGoodUris(supportedUris, uriFilter.areUrisGood(supportedUris));
+	}
 
-				} catch (UnknownHostException e) {
-					LOGGER.error("Could not recognize IP for {}, unknown host", curi.getUri());
+	/**
+	 * Checks the given normalized URIs like
+	 * {@link #checkNormalizedUris(List)} but hands them over to
+	 * {@link UriFilter#checkUris(List, Consumer)}, i.e., the known URI filter can
+	 * collect the URIs of several batches into a single lookup. The good URIs are
+	 * handed over to the given consumer, which might be called by another
+	 * thread. URIs that are already waiting for the result of a check are
+	 * skipped.
+	 *
+	 * @param candidates the normalized URIs without duplicates
+	 * @param next       the consumer of the URIs that passed the filters
+	 */
+	protected void checkNormalizedUris(List<CrawleableUri> candidates, Consumer<List<CrawleableUri>> next) {
+		List<CrawleableUri> supportedUris = new ArrayList<>(candidates.size());
+		for (CrawleableUri curi : selectSupportedUris(candidates)) {
+			if (pendingChecks.add(curi.getUri())) {
+				supportedUris.add(curi);
+			}
+		}
+		if (supportedUris.isEmpty()) {
+			return;
+		}
+		try {
+			uriFilter.checkUris(supportedUris, filterResults -> {
+				try {
+					next.accept(admitGoodUris(supportedUris, filterResults));
+				} finally {
+					removePendingChecks(supportedUris);
 				}
-				if (curi.getIpAddress() != null) {
-					queue.addUri(this.uriProcessor.recognizeUriType(curi));
+			});
+		} catch (RuntimeException e) {
+			removePendingChecks(supportedUris);
+			throw e;
+		}
+	}
+
+	private void removePendingChecks(List<CrawleableUri> uris) {
+		for (CrawleableUri uri : uris) {
+			pendingChecks.remove(uri.getUri());
+		}
+	}
+
+	/**
+	 * Returns the URIs with a supported scheme that do not look like a spider
+	 * trap.
+	 *
+	 * @param candidates the normalized URIs without duplicates
+	 * @return the URIs that should be checked by the filters
+	 */
+	protected List<CrawleableUri> selectSupportedUris(List<CrawleableUri> candidates) {
+		List<CrawleableUri> supportedUris = new ArrayList<>(candidates.size());
+		for (CrawleableUri curi : candidates) {
+			if (schemeUriFilter.isUriGood(curi)) {
+				LOGGER.trace("addNewUri(" + curi.getUri() + "): URI schemes is OK [" + schemeUriFilter + "]");
+				if ((spiderTrapFilter == null) || spiderTrapFilter.isUriGood(curi)) {
+					supportedUris.add(curi);
 				} else {
-					LOGGER.error("Couldn't determine the Inet address of \"{}\". It will be ignored.", curi.getUri());
+					LOGGER.debug("addNewUri(" + curi + "): URI looks like a spider trap. Will not be added!");
 				}
-				uriFilter.getKnownUriFilter().add(curi, System.currentTimeMillis());
 			} else {
 				LOGGER.warn("addNewUri(" + curi + "): " + curi.getUri().getScheme() + " is not supported, only "
 						+ schemeUriFilter.getSchemes() + ". Will not added!");
 			}
+		}
+		return supportedUris;
+	}
+
+	/**
+	 * Selects the URIs that passed the filters and are within the budget of
+	 * their host and adds them to the known URI filter with a single request.
+	 *
+	 * @param supportedUris the checked URIs
+	 * @param filterResults the result of the filters for the checked URIs
+	 * @return the URIs that should be added to the queue
+	 */
+	protected List<CrawleableUri> admitGoodUris(List<CrawleableUri> supportedUris, BitSet filterResults) {
+		List<CrawleableUri> goodUris = new ArrayList<>(supportedUris.size());
+		long now = System.currentTimeMillis();
+		CrawleableUri curi;
+		for (int i = 0; i < supportedUris.size(); ++i) {
+			curi = supportedUris.get(i);
+			if (filterResults.get(i)) {
+				LOGGER.debug("addNewUri(" + curi + "): URI is good [" + uriFilter + "]");
+				hostDictionary.getHostId(curi);
+				// URIs exceeding the budget of their host are not added to the known
+				// URI filter, i.e., they can be admitted if they are found again later
+				if ((hostBudget == null) || hostBudget.admit(curi, now)) {
+					goodUris.add(curi);
+				}
+			} else {
+				LOGGER.debug("addNewUri(" + curi + "): URI is not good [" + uriFilter + "]. Will not be added!");
+			}
+		}
+		if (!goodUris.isEmpty()) {
+			// the URIs have not been crawled, yet. Hence, they must not be returned as
+			// outdated URIs before the first crawling has been done
+			uriFilter.getKnownUriFilter().add(goodUris, now, Long.MAX_VALUE);
+		}
+		return goodUris;
+	}
 
-		} else {
-			LOGGER.debug("addNewUri(" + curi + "): URI is not good [" + uriFilter + "]. Will not be added!");
+	/**
+	 * Adds the given URIs to the queue if their IP address could be determined.
+	 *
+	 * @param uris the URIs after the resolution of their hosts
+	 */
+	protected void addResolvedUris(List<CrawleableUri> uris) {
+		List<CrawleableUri> resolvedUris = new ArrayList<>(uris.size());
+		for (CrawleableUri uri : uris) {
+			if (uri.getIpAddress() != null) {
+				resolvedUris.add(this.uriProcessor.recognizeUriType(uri));
+			} else {
+				LOGGER.error("Couldn't determine the Inet address of \"{}\". It will be ignored.", uri.getUri());
+				if (hostBudget != null) {
+					hostBudget.removed(uri);
+				}
+			}
+		}
+		if (!resolvedUris.isEmpty()) {
+			queue.addUris(resolvedUris);
 		}
 	}
 
@@ -335,19 +667,42 @@ public class FrontierImpl implements Frontier {
 			((BlockingQueue<?>) queue).markUrisAsAccessible(uris);
 		}
 		// send list of crawled URIs to the knownUriFilter
+		long now = System.currentTimeMillis();
+		List<CrawleableUri> crawledUris = new ArrayList<>(uris.size());
+		List<CrawleableUri> recrawlUris = new ArrayList<>();
 		for (CrawleableUri uri : uris) {
+			if (hostBudget != null) {
+				// the URI carries the host ID assigned at its admission. It is only
+				// looked up if the URI has been admitted before a restart
+				hostDictionary.getHostId(uri);
+				hostBudget.crawled(uri, now);
+			}
 			Long recrawlOn = (Long) uri.getData(Constants.URI_PREFERRED_RECRAWL_ON);
 			// If a recrawling is defined, check whether we can directly add it back to the
 			// queue
-			if ((recrawlOn != null) && (recrawlOn < System.currentTimeMillis())) {
+			if ((recrawlOn != null) && (recrawlOn < now)) {
 				// Create a new uri object reusing only meta data that is useful
 				CrawleableUri recrawlUri = new CrawleableUri(uri.getUri(), uri.getIpAddress());
 				recrawlUri.addData(Constants.URI_TYPE_KEY, uri.getData(Constants.URI_TYPE_KEY));
-				addNewUri(recrawlUri);
+				recrawlUris.add(recrawlUri);
 			} else {
-				uriFilter.getKnownUriFilter().add(uri, System.currentTimeMillis());
+				crawledUris.add(uri);
 			}
 		}
+		if (!crawledUris.isEmpty()) {
+			KnownUriFilter knownUriFilter = uriFilter.getKnownUriFilter();
+			if ((recrawlScheduler != null) && (knownUriFilter instanceof RecrawlInfoStore)) {
+				// adapt the recrawl intervals to the observed changes of the content
+				RecrawlInfoStore recrawlInfoStore = (RecrawlInfoStore) knownUriFilter;
+				recrawlScheduler.scheduleRecrawls(crawledUris, recrawlInfoStore, now);
+				recrawlInfoStore.addCrawledUris(crawledUris, now);
+			} else {
+				knownUriFilter.add(crawledUris, now, now);
+			}
+		}
+		if (!recrawlUris.isEmpty()) {
+			addNewUris(recrawlUris);
+		}
 	}
 
 	@Override
@@ -361,6 +716,22 @@ public class FrontierImpl implements Frontier {
 		}
 	}
 
+	/**
+	 * Returns the number of URIs that have been accepted but are still waiting
+	 * in the {@link #admissionPipeline}, for the result of the filters or for the
+	 * resolution of their host, i.e., they are not in the queue yet.
+	 *
+	 * @return the number of URIs waiting for their admission
+	 */
+	public int getNumberOfParkedUris() {
+		int parkedUris = hostResolver.getNumberOfParkedUris() + pendingChecks.size();
+		AdmissionPipeline pipeline = admissionPipeline;
+		if (pipeline != null) {
+			parkedUris += pipeline.getNumberOfPendingUris();
+		}
+		return parkedUris;
+	}
+
 	@Override
 	public boolean doesRecrawling() {
 		return doesRecrawling;
@@ -368,13 +739,91 @@ public class FrontierImpl implements Frontier {
 
 	@Override
 	public void close() {
-		timerRecrawling.cancel();
+		if (timerRecrawling != null) {
+			timerRecrawling.cancel();
+		}
+		if (admissionPipeline != null) {
+			// The good URIs are added to the known URI filter before they are added to
+			// the queue. Hence, the URIs that are on their way into the queue have to
+			// be admitted before the pipeline is stopped. Otherwise, they would be lost.
+			if (!waitForParkedUris(AdmissionPipeline.DEFAULT_DRAIN_TIMEOUT)) {
+				LOGGER.warn("Closing the frontier while {} URIs are waiting for their admission.",
+						getNumberOfParkedUris());
+			}
+			admissionPipeline.close();
+		}
+		hostResolver.close();
+	}
+
+	/**
+	 * Waits until all URIs waiting for their admission (see
+	 * {@link #getNumberOfParkedUris()}) have been added to the queue or the given
+	 * time has passed.
+	 *
+	 * @param timeout the maximum time (in ms) to wait
+	 * @return {@code true} if no URI is waiting, {@code false} if the timeout has
+	 *         been reached
+	 */
+	protected boolean waitForParkedUris(long timeout) {
+		long end = System.currentTimeMillis() + timeout;
+		try {
+			while (getNumberOfParkedUris() > 0) {
+				if (System.currentTimeMillis() >= end) {
+					return false;
+				}
+				Thread.sleep(10);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		return true;
 	}
 
 	public static long getGeneralRecrawlTime() {
 		return generalRecrawlTime;
 	}
 
+	public int getRecrawlPageSize() {
+		return recrawlPageSize;
+	}
+
+	public void setRecrawlPageSize(int recrawlPageSize) {
+		this.recrawlPageSize = recrawlPageSize;
+	}
+
+	public AdaptiveRecrawlScheduler getRecrawlScheduler() {
+		return recrawlScheduler;
+	}
+
+	public void setRecrawlScheduler(AdaptiveRecrawlScheduler recrawlScheduler) {
+		this.recrawlScheduler = recrawlScheduler;
+	}
+
+	public HostDictionary getHostDictionary() {
+		return hostDictionary;
+	}
+
+	public UriFilter getSpiderTrapFilter() {
+		return spiderTrapFilter;
+	}
+
+	public void setSpiderTrapFilter(UriFilter spiderTrapFilter) {
+		this.spiderTrapFilter = spiderTrapFilter;
+	}
+
+	public HostBudget getHostBudget() {
+		return hostBudget;
+	}
+
+	public void setHostBudget(HostBudget hostBudget) {
+		this.hostBudget = hostBudget;
+	}
+
+	public AdmissionPipeline getAdmissionPipeline() {
+		return admissionPipeline;
+	}
+
 	/**
 	 * Getter for the {@link #queue}.
 	 *
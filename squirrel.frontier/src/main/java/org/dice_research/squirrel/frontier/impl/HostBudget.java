@@ -0,0 +1,257 @@
+package org.dice_research.squirrel.frontier.impl;
+
+import java.util.Arrays;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.HostDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The admission budgets of the single hosts. A URI is only admitted to the
+ * queue if its host stays within the following limits:
+ * <ul>
+ * <li>{@link #maxPendingUris}: the number of URIs of the host that have been
+ * admitted but not crawled, yet,</li>
+ * <li>{@link #maxUrisPerWindow}: the number of URIs of the host that have been
+ * crawled in the current time window of {@link #windowLength} ms plus its
+ * pending URIs and</li>
+ * <li>{@link #maxQueryVariants}: the number of URIs with a query that share
+ * host and path (e.g., faceted search pages or endless {@code ?page=} chains)
+ * and that have been admitted in the current time window.</li>
+ * </ul>
+ * A value &lt;= 0 disables the single limit. A {@link #windowLength} &lt;= 0
+ * lets the query variants be counted without a time window.
+ *
+ * <p>
+ * The counters are held in arrays indexed by the host IDs of the
+ * {@link HostDictionary} of the frontier, i.e., every check is a constant
+ * number of array accesses. The query variants are counted in a fixed size
+ * table of hashed (host, path) pairs. Collisions can only lead to a
+ * (slightly) too early rejection. Since the counters are only updated for URIs
+ * that passed the known URI filter, already known URIs do not consume the
+ * budget of their host.
+ * </p>
+ */
+public class HostBudget {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HostBudget.class);
+
+    /**
+     * Default value for {@link #maxPendingUris}.
+     */
+    public static final int DEFAULT_MAX_PENDING_URIS = 100000;
+    /**
+     * Default value for {@link #maxQueryVariants}.
+     */
+    public static final int DEFAULT_MAX_QUERY_VARIANTS = 10000;
+    /**
+     * Default value for {@link #windowLength} (1 hour).
+     */
+    public static final long DEFAULT_WINDOW_LENGTH = 60 * 60 * 1000;
+    /**
+     * Number of bits of the size of the query variant table.
+     */
+    private static final int QUERY_VARIANT_TABLE_BITS = 20;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The maximum number of pending URIs of a host.
+     */
+    protected final int maxPendingUris;
+    /**
+     * The maximum number of URIs of a host that are pending or have been
+     * crawled within the current time window.
+     */
+    protected final int maxUrisPerWindow;
+    /**
+     * The length of the time window (in ms).
+     */
+    protected final long windowLength;
+    /**
+     * The maximum number of URIs with a query that share host and path.
+     */
+    protected final int maxQueryVariants;
+
+    private int[] pendingUris = new int[INITIAL_CAPACITY];
+    private int[] crawledUris = new int[INITIAL_CAPACITY];
+    private long[] windowStarts = new long[INITIAL_CAPACITY];
+    private final int[] queryVariants;
+    private final long[] variantWindowStarts;
+    private long rejectedUris = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param maxPendingUris
+     *            the maximum number of pending URIs of a host
+     * @param maxUrisPerWindow
+     *            the maximum number of URIs of a host that are pending or have
+     *            been crawled within a time window
+     * @param windowLength
+     *            the length of the time window (in ms)
+     * @param maxQueryVariants
+     *            the maximum number of URIs with a query that share host and
+     *            path
+     */
+    public HostBudget(int maxPendingUris, int maxUrisPerWindow, long windowLength, int maxQueryVariants) {
+        this.maxPendingUris = maxPendingUris;
+        this.maxUrisPerWindow = maxUrisPerWindow;
+        this.windowLength = windowLength;
+        this.maxQueryVariants = maxQueryVariants;
+        queryVariants = (maxQueryVariants > 0) ? new int[1 << QUERY_VARIANT_TABLE_BITS] : null;
+        variantWindowStarts = (maxQueryVariants > 0) ? new long[1 << QUERY_VARIANT_TABLE_BITS] : null;
+    }
+
+    /**
+     * Checks whether the host of the given URI has enough budget left and
+     * charges the URI to the host if this is the case.
+     *
+     * @param uri
+     *            the URI that passed all filters. Its host ID has to be set.
+     * @param now
+     *            the current time stamp (in ms)
+     * @return {@code true} if the URI has been admitted
+     */
+    public synchronized boolean admit(CrawleableUri uri, long now) {
+        int hostId = uri.getHostId();
+        if (hostId == HostDictionary.UNKNOWN_ID) {
+            return true;
+        }
+        ensureCapacity(hostId);
+        if ((maxPendingUris > 0) && (pendingUris[hostId] >= maxPendingUris)) {
+            return reject(uri, "pending URIs");
+        }
+        if (maxUrisPerWindow > 0) {
+            updateWindow(hostId, now);
+            if ((pendingUris[hostId] + crawledUris[hostId]) >= maxUrisPerWindow) {
+                return reject(uri, "URIs per time window");
+            }
+        }
+        int variantSlot = -1;
+        if ((queryVariants != null) && (uri.getUri().getRawQuery() != null)) {
+            variantSlot = getVariantSlot(hostId, uri.getUri().getRawPath());
+            updateVariantWindow(variantSlot, now);
+            if (queryVariants[variantSlot] >= maxQueryVariants) {
+                return reject(uri, "query variants");
+            }
+        }
+        ++pendingUris[hostId];
+        if (variantSlot >= 0) {
+            ++queryVariants[variantSlot];
+        }
+        return true;
+    }
+
+    /**
+     * Charges the given URI to its host without checking the limits. This is
+     * used for outdated URIs that are added to the queue again for recrawling,
+     * i.e., they are counted as pending URIs like the admitted URIs.
+     *
+     * @param uri
+     *            the URI. Its host ID has to be set.
+     */
+    public synchronized void charge(CrawleableUri uri) {
+        int hostId = uri.getHostId();
+        if (hostId != HostDictionary.UNKNOWN_ID) {
+            ensureCapacity(hostId);
+            ++pendingUris[hostId];
+        }
+    }
+
+    /**
+     * Informs the budget that the given URI has been crawled.
+     *
+     * @param uri
+     *            the crawled URI
+     * @param now
+     *            the current time stamp (in ms)
+     */
+    public synchronized void crawled(CrawleableUri uri, long now) {
+        int hostId = uri.getHostId();
+        if ((hostId == HostDictionary.UNKNOWN_ID) || (hostId >= pendingUris.length)) {
+            return;
+        }
+        if (pendingUris[hostId] > 0) {
+            --pendingUris[hostId];
+        }
+        if (maxUrisPerWindow > 0) {
+            updateWindow(hostId, now);
+            ++crawledUris[hostId];
+        }
+    }
+
+    /**
+     * Informs the budget that the given admitted URI won't be crawled (e.g.,
+     * because its host couldn't be resolved).
+     *
+     * @param uri
+     *            the removed URI
+     */
+    public synchronized void removed(CrawleableUri uri) {
+        int hostId = uri.getHostId();
+        if ((hostId != HostDictionary.UNKNOWN_ID) && (hostId < pendingUris.length) && (pendingUris[hostId] > 0)) {
+            --pendingUris[hostId];
+        }
+    }
+
+    /**
+     * @return the number of pending URIs of the host with the given ID
+     */
+    public synchronized int getPendingUris(int hostId) {
+        return ((hostId >= 0) && (hostId < pendingUris.length)) ? pendingUris[hostId] : 0;
+    }
+
+    /**
+     * @return the number of URIs that have been rejected since the budget has
+     *         been created
+     */
+    public synchronized long getRejectedUris() {
+        return rejectedUris;
+    }
+
+    private boolean reject(CrawleableUri uri, String limit) {
+        ++rejectedUris;
+        LOGGER.debug("addNewUri({}): The host exceeded its budget of {}. Will not be added!", uri, limit);
+        return false;
+    }
+
+    /**
+     * Starts a new time window for the given host if its current window is
+     * over.
+     */
+    private void updateWindow(int hostId, long now) {
+        if ((now - windowStarts[hostId]) >= windowLength) {
+            windowStarts[hostId] = now;
+            crawledUris[hostId] = 0;
+        }
+    }
+
+    /**
+     * Resets the given slot of the query variant table if its time window is
+     * over.
+     */
+    private void updateVariantWindow(int slot, long now) {
+        if ((windowLength > 0) && ((now - variantWindowStarts[slot]) >= windowLength)) {
+            variantWindowStarts[slot] = now;
+            queryVariants[slot] = 0;
+        }
+    }
+
+    private int getVariantSlot(int hostId, String path) {
+        int hash = (31 * hostId) + ((path != null) ? path.hashCode() : 0);
+        // spread the bits since the path hashes of a host often differ only in
+        // their lower bits
+        hash *= 0x9E3779B9;
+        return hash >>> (32 - QUERY_VARIANT_TABLE_BITS);
+    }
+
+    private void ensureCapacity(int hostId) {
+        if (hostId >= pendingUris.length) {
+            int capacity = Math.max(2 * pendingUris.length, hostId + 1);
+            pendingUris = Arrays.copyOf(pendingUris, capacity);
+            crawledUris = Arrays.copyOf(crawledUris, capacity);
+            windowStarts = Arrays.copyOf(windowStarts, capacity);
+        }
+    }
+}
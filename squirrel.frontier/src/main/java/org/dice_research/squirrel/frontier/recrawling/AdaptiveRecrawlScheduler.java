@@ -0,0 +1,255 @@
+package org.dice_research.squirrel.frontier.recrawling;
+
+import java.util.List;
+
+import org.dice_research.squirrel.Constants;
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.HostDictionary;
+import org.dice_research.squirrel.data.uri.filter.RecrawlInfo;
+import org.dice_research.squirrel.data.uri.filter.RecrawlInfoStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.carrotsearch.hppc.IntDoubleOpenHashMap;
+
+/**
+ * Estimates the recrawl interval of crawled URIs based on the observed changes
+ * of their content.
+ *
+ * <p>
+ * The content hash the worker attached to a crawled URI
+ * ({@link Constants#URI_CONTENT_HASH}) is compared to the hash stored in the
+ * {@link RecrawlInfoStore}. If the content changed, the interval is set to
+ * {@link #decreaseFactor} times the smaller value of the previous interval and
+ * the time that actually passed since the last crawl. If it didn't change, the
+ * interval is set to {@link #increaseFactor} times the larger value of both.
+ * Hence, the interval follows the change rate of the URI (which is the inverse
+ * of the interval) and stays within [{@link #minRecrawlInterval},
+ * {@link #maxRecrawlInterval}].
+ * </p>
+ *
+ * <p>
+ * A URI that is crawled for the first time gets the prior interval of its host,
+ * i.e., the exponential moving average of the intervals estimated for other
+ * URIs of the same host, or the {@link #defaultRecrawlInterval} if the host is
+ * not known.
+ * </p>
+ */
+public class AdaptiveRecrawlScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveRecrawlScheduler.class);
+
+    /**
+     * Default value for {@link #minRecrawlInterval} (one hour).
+     */
+    public static final long DEFAULT_MIN_RECRAWL_INTERVAL = 1000L * 60 * 60;
+    /**
+     * Default value for {@link #maxRecrawlInterval} (90 days).
+     */
+    public static final long DEFAULT_MAX_RECRAWL_INTERVAL = 1000L * 60 * 60 * 24 * 90;
+    /**
+     * Default value for {@link #decreaseFactor}.
+     */
+    public static final double DEFAULT_DECREASE_FACTOR = 0.5;
+    /**
+     * Default value for {@link #increaseFactor}.
+     */
+    public static final double DEFAULT_INCREASE_FACTOR = 1.5;
+    /**
+     * Default value for {@link #maxNumberOfHosts}.
+     */
+    public static final int DEFAULT_MAX_NUMBER_OF_HOSTS = 100000;
+    /**
+     * Weight of a new interval in the prior of its host.
+     */
+    private static final double HOST_PRIOR_WEIGHT = 0.2;
+
+    /**
+     * The interval (in ms) of URIs for which no other information is
+     * available.
+     */
+    protected long defaultRecrawlInterval;
+    protected long minRecrawlInterval = DEFAULT_MIN_RECRAWL_INTERVAL;
+    protected long maxRecrawlInterval = DEFAULT_MAX_RECRAWL_INTERVAL;
+    /**
+     * The factor the interval is multiplied with if the content changed.
+     */
+    protected double decreaseFactor = DEFAULT_DECREASE_FACTOR;
+    /**
+     * The factor the interval is multiplied with if the content didn't change.
+     */
+    protected double increaseFactor = DEFAULT_INCREASE_FACTOR;
+    /**
+     * The maximum number of hosts for which a prior is kept.
+     */
+    protected int maxNumberOfHosts = DEFAULT_MAX_NUMBER_OF_HOSTS;
+    /**
+     * The dictionary used to determine the IDs of the hosts.
+     */
+    protected HostDictionary hostDictionary;
+    /**
+     * The prior intervals of the hosts identified by their IDs. Accesses are
+     * synchronized on the map.
+     */
+    protected IntDoubleOpenHashMap hostPriors = new IntDoubleOpenHashMap();
+
+    /**
+     * Constructor.
+     *
+     * @param defaultRecrawlInterval
+     *            the interval (in ms) of URIs for which no other information is
+     *            available
+     */
+    public AdaptiveRecrawlScheduler(long defaultRecrawlInterval) {
+        this(defaultRecrawlInterval, new HostDictionary());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param defaultRecrawlInterval
+     *            the interval (in ms) of URIs for which no other information is
+     *            available
+     * @param hostDictionary
+     *            the dictionary used to determine the IDs of the hosts
+     */
+    public AdaptiveRecrawlScheduler(long defaultRecrawlInterval, HostDictionary hostDictionary) {
+        this.defaultRecrawlInterval = defaultRecrawlInterval;
+        this.hostDictionary = hostDictionary;
+    }
+
+    /**
+     * Estimates the recrawl intervals of the given crawled URIs and attaches
+     * them as {@link Constants#URI_RECRAWL_INTERVAL} to the URIs. The
+     * information about the previous crawls is retrieved from the given store
+     * with a single request.
+     *
+     * @param uris
+     *            the crawled URIs
+     * @param store
+     *            the store containing the information about previous crawls
+     * @param now
+     *            the timestamp of the crawl
+     */
+    public void scheduleRecrawls(List<CrawleableUri> uris, RecrawlInfoStore store, long now) {
+        List<RecrawlInfo> infos = store.getRecrawlInfos(uris);
+        for (int i = 0; i < uris.size(); ++i) {
+            CrawleableUri uri = uris.get(i);
+            long interval = estimateRecrawlInterval(uri, infos.get(i), now);
+            uri.addData(Constants.URI_RECRAWL_INTERVAL, interval);
+            LOGGER.trace("Recrawl interval of {}: {}ms", uri.getUri(), interval);
+        }
+    }
+
+    /**
+     * Estimates the recrawl interval of the given crawled URI.
+     *
+     * @param uri
+     *            the crawled URI
+     * @param info
+     *            the information about the previous crawl or {@code null} if
+     *            the URI hasn't been crawled before
+     * @param now
+     *            the timestamp of the crawl
+     * @return the estimated recrawl interval (in ms)
+     */
+    public long estimateRecrawlInterval(CrawleableUri uri, RecrawlInfo info, long now) {
+        int host = hostDictionary.getHostId(uri);
+        Object hash = uri.getData(Constants.URI_CONTENT_HASH);
+        if ((info == null) || (info.getRecrawlInterval() <= 0) || (info.getContentHash() == null)) {
+            // first observation of this URI
+            return getHostPrior(host);
+        }
+        if (hash == null) {
+            // the crawling failed, i.e., there is no new observation
+            return clamp(info.getRecrawlInterval());
+        }
+        long elapsed = Math.max(0, now - info.getLastCrawlTimestamp());
+        long interval;
+        if (hash.equals(info.getContentHash())) {
+            interval = clamp((long) (Math.max(info.getRecrawlInterval(), elapsed) * increaseFactor));
+        } else {
+            interval = clamp((long) (Math.min(info.getRecrawlInterval(), elapsed) * decreaseFactor));
+        }
+        updateHostPrior(host, interval);
+        return interval;
+    }
+
+    protected long getHostPrior(int host) {
+        if (host == HostDictionary.UNKNOWN_ID) {
+            return clamp(defaultRecrawlInterval);
+        }
+        double prior;
+        synchronized (hostPriors) {
+            // the map returns 0 for unknown hosts
+            prior = hostPriors.get(host);
+        }
+        return clamp((prior > 0) ? (long) prior : defaultRecrawlInterval);
+    }
+
+    protected void updateHostPrior(int host, long interval) {
+        if (host == HostDictionary.UNKNOWN_ID) {
+            return;
+        }
+        synchronized (hostPriors) {
+            double oldPrior = hostPriors.get(host);
+            if (oldPrior > 0) {
+                hostPriors.put(host, ((1 - HOST_PRIOR_WEIGHT) * oldPrior) + (HOST_PRIOR_WEIGHT * interval));
+            } else if (hostPriors.size() < maxNumberOfHosts) {
+                hostPriors.put(host, interval);
+            }
+        }
+    }
+
+    protected long clamp(long interval) {
+        return Math.max(minRecrawlInterval, Math.min(maxRecrawlInterval, interval));
+    }
+
+    public long getDefaultRecrawlInterval() {
+        return defaultRecrawlInterval;
+    }
+
+    public void setDefaultRecrawlInterval(long defaultRecrawlInterval) {
+        this.defaultRecrawlInterval = defaultRecrawlInterval;
+    }
+
+    public long getMinRecrawlInterval() {
+        return minRecrawlInterval;
+    }
+
+    public void setMinRecrawlInterval(long minRecrawlInterval) {
+        this.minRecrawlInterval = minRecrawlInterval;
+    }
+
+    public long getMaxRecrawlInterval() {
+        return maxRecrawlInterval;
+    }
+
+    public void setMaxRecrawlInterval(long maxRecrawlInterval) {
+        this.maxRecrawlInterval = maxRecrawlInterval;
+    }
+
+    public double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    public void setDecreaseFactor(double decreaseFactor) {
+        this.decreaseFactor = decreaseFactor;
+    }
+
+    public double getIncreaseFactor() {
+        return increaseFactor;
+    }
+
+    public void setIncreaseFactor(double increaseFactor) {
+        this.increaseFactor = increaseFactor;
+    }
+
+    public int getMaxNumberOfHosts() {
+        return maxNumberOfHosts;
+    }
+
+    public void setMaxNumberOfHosts(int maxNumberOfHosts) {
+        this.maxNumberOfHosts = maxNumberOfHosts;
+    }
+}
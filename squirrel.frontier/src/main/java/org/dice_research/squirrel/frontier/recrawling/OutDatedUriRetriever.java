@@ -1,6 +1,7 @@
 package org.dice_research.squirrel.frontier.recrawling;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.dice_research.squirrel.data.uri.CrawleableUri;
 
@@ -12,4 +13,22 @@ public interface OutDatedUriRetriever{
      * @return The outdated {@link CrawleableUri}s.
      */
     List<CrawleableUri> getUriToRecrawl();
+
+    /**
+     * Hands all {@link CrawleableUri}s that have to be recrawled over to the
+     * given consumer in pages of at most the given size. The next page is only
+     * retrieved after the consumer returned. Implementations should override
+     * this method to stream the URIs instead of holding all of them in memory.
+     * The default implementation splits the result of
+     * {@link #getUriToRecrawl()} into pages.
+     *
+     * @param pageSize the maximum number of URIs handed over at once
+     * @param consumer the consumer of the pages
+     */
+    default void retrieveUrisToRecrawl(int pageSize, Consumer<List<CrawleableUri>> consumer) {
+        List<CrawleableUri> uris = getUriToRecrawl();
+        for (int i = 0; i < uris.size(); i += pageSize) {
+            consumer.accept(uris.subList(i, Math.min(i + pageSize, uris.size())));
+        }
+    }
 }
@@ -5,6 +5,7 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.aksw.jena_sparql_api.core.QueryExecutionFactory;
 import org.aksw.jena_sparql_api.http.QueryExecutionFactoryHttp;
@@ -22,6 +23,8 @@ import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.sparql.core.DatasetDescription;
 import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.filter.RecrawlInfo;
+import org.dice_research.squirrel.data.uri.filter.RecrawlInfoStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,7 +37,13 @@ public class SparqlBasedOutDatedUriRetriever implements OutDatedUriRetriever{
      * SparqlBasedOutDatedUriRetriever creates a connection to the SPARQL endpoint and Query factory used to generate a query.
      */
     private QueryExecutionFactory queryExecFactory;
-    private List<CrawleableUri> urisToRecrawl = new ArrayList<>();
+    /**
+     * The store containing the adaptive recrawl intervals (see
+     * {@link AdaptiveRecrawlScheduler}). If it is set, URIs whose recrawl
+     * interval has not passed, yet, are removed from the pages before they are
+     * handed over. Otherwise, all URIs of the query result are handed over.
+     */
+    private RecrawlInfoStore recrawlInfoStore;
 
     public SparqlBasedOutDatedUriRetriever(QueryExecutionFactory queryExecFactory) {
         this.queryExecFactory = queryExecFactory;
@@ -91,23 +100,78 @@ public class SparqlBasedOutDatedUriRetriever implements OutDatedUriRetriever{
      */
     @Override
     public List<CrawleableUri> getUriToRecrawl() {
+        List<CrawleableUri> urisToRecrawl = new ArrayList<>();
+        retrieveUrisToRecrawl(Integer.MAX_VALUE, urisToRecrawl::addAll);
+        return urisToRecrawl;
+    }
+
+    /**
+     * Streams the result of the query and hands the outdated URIs over in
+     * pages.
+     */
+    @Override
+    public void retrieveUrisToRecrawl(int pageSize, Consumer<List<CrawleableUri>> consumer) {
         Calendar date = Calendar.getInstance();
         date.add(Calendar.DAY_OF_YEAR, 7);
         Query getOutdatedUrisQuery = FrontierQueryGenerator.getOutdatedUrisQuery(date);
         QueryExecution qe = queryExecFactory.createQueryExecution(getOutdatedUrisQuery);
-        ResultSet rs = qe.execSelect();
-        while (rs.hasNext()) {
-            QuerySolution sol = rs.nextSolution();
-            RDFNode outdatedUri = sol.get("uri");
-            try {
-                urisToRecrawl.add(new CrawleableUri(new URI((outdatedUri.toString()))));
-            } catch (URISyntaxException e) {
-                e.printStackTrace();
+        long now = System.currentTimeMillis();
+        try {
+            ResultSet rs = qe.execSelect();
+            List<CrawleableUri> page = new ArrayList<>();
+            while (rs.hasNext()) {
+                QuerySolution sol = rs.nextSolution();
+                RDFNode outdatedUri = sol.get("url");
+                try {
+                    page.add(new CrawleableUri(new URI((outdatedUri.toString()))));
+                } catch (URISyntaxException e) {
+                    LOGGER.warn("Got an invalid URI from the SPARQL endpoint. It will be ignored.", e);
+                }
+                if (page.size() >= pageSize) {
+                    acceptDueUris(page, now, consumer);
+                    page = new ArrayList<>();
+                }
             }
+            if (!page.isEmpty()) {
+                acceptDueUris(page, now, consumer);
+            }
+        } finally {
+            qe.close();
         }
-        qe.close();
-        return urisToRecrawl;
     }
 
-}
+    /**
+     * Hands the URIs of the given page over to the consumer that are due for a
+     * recrawl according to the {@link #recrawlInfoStore}, i.e., URIs without
+     * stored recrawl interval or whose last crawl plus recrawl interval lies
+     * before the given time stamp.
+     */
+    protected void acceptDueUris(List<CrawleableUri> page, long now, Consumer<List<CrawleableUri>> consumer) {
+        if (recrawlInfoStore != null) {
+            List<RecrawlInfo> infos = recrawlInfoStore.getRecrawlInfos(page);
+            List<CrawleableUri> dueUris = new ArrayList<>(page.size());
+            RecrawlInfo info;
+            for (int i = 0; i < page.size(); ++i) {
+                info = infos.get(i);
+                if ((info == null) || (info.getRecrawlInterval() <= 0)
+                        || ((info.getLastCrawlTimestamp() + info.getRecrawlInterval()) <= now)) {
+                    dueUris.add(page.get(i));
+                }
+            }
+            LOGGER.debug("{} of {} URIs are due for a recrawl.", dueUris.size(), page.size());
+            page = dueUris;
+        }
+        if (!page.isEmpty()) {
+            consumer.accept(page);
+        }
+    }
+
+    public RecrawlInfoStore getRecrawlInfoStore() {
+        return recrawlInfoStore;
+    }
 
+    public void setRecrawlInfoStore(RecrawlInfoStore recrawlInfoStore) {
+        this.recrawlInfoStore = recrawlInfoStore;
+    }
+
+}
@@ -0,0 +1,254 @@
+package org.dice_research.squirrel.mongodb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+
+/**
+ * Manages the leases of the groups of a queue that is stored in MongoDB and
+ * shared by several frontier instances. Every group document of the queue
+ * collection can carry a lease owner and a lease expiry time stamp. A group is
+ * claimed with a single {@code findOneAndUpdate} request that only matches the
+ * group if its lease time stamp has passed. Hence, a group can only be claimed
+ * by a single instance at a time and the lease of a crashed instance is
+ * reclaimed automatically after it has expired.
+ *
+ * <p>
+ * When a lease is released, the owner is removed and the expiry time stamp is
+ * set to the point in time at which the group may be fetched again. This
+ * makes sure that the crawl delay of a group is kept by all frontier
+ * instances.
+ * </p>
+ *
+ * <p>
+ * Group documents are upserted by all instances. The keys identifying a group
+ * are covered by a unique index (see {@link #createGroupIndex(Bson)}) and
+ * upserts that lose the race for inserting a new group are retried (see
+ * {@link #upsertGroups(List)}). Hence, there is exactly one document per
+ * group.
+ * </p>
+ */
+public class GroupLeaseManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupLeaseManager.class);
+
+    public static final String LEASE_OWNER_FIELD = "leaseOwner";
+    public static final String LEASE_EXPIRES_FIELD = "leaseExpires";
+    /**
+     * Default duration of a lease (30 minutes). It should be larger than the
+     * time a worker needs to crawl a lease.
+     */
+    public static final long DEFAULT_LEASE_DURATION = 30L * 60L * 1000L;
+
+    /**
+     * Error code of MongoDB for a violated unique index.
+     */
+    public static final int DUPLICATE_KEY_ERROR = 11000;
+    /**
+     * Error codes of MongoDB for an index that already exists with different
+     * options.
+     */
+    private static final int INDEX_OPTIONS_CONFLICT = 85;
+    private static final int INDEX_KEY_SPECS_CONFLICT = 86;
+
+    private static final IndexOptions UNIQUE = new IndexOptions().unique(true);
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private static final FindOneAndUpdateOptions CLAIM_NEXT_OPTIONS = new FindOneAndUpdateOptions()
+            .sort(Sorts.ascending(LEASE_EXPIRES_FIELD)).returnDocument(ReturnDocument.AFTER);
+
+    /**
+     * The collection containing the group documents.
+     */
+    private MongoCollection<Document> groups;
+    /**
+     * The ID of this frontier instance.
+     */
+    private String owner;
+    /**
+     * The duration (in ms) of a lease.
+     */
+    private long leaseDuration;
+
+    public GroupLeaseManager(MongoCollection<Document> groups) {
+        this(groups, UUID.randomUUID().toString(), DEFAULT_LEASE_DURATION);
+    }
+
+    public GroupLeaseManager(MongoCollection<Document> groups, String owner, long leaseDuration) {
+        this.groups = groups;
+        this.owner = owner;
+        this.leaseDuration = leaseDuration;
+    }
+
+    /**
+     * Creates the index that is used to find the groups that can be claimed.
+     */
+    public void createIndex() {
+        groups.createIndex(Indexes.ascending(LEASE_EXPIRES_FIELD));
+    }
+
+    /**
+     * Creates the unique index on the given keys that identify a group document.
+     * Collections of older versions carry a non-unique index with the same keys
+     * that is replaced. If the collection already contains duplicates of a
+     * group, a non-unique index is created and an error is logged.
+     *
+     * @param keys
+     *            the keys of the index, e.g., the IP address and the type of
+     *            the group
+     */
+    public void createGroupIndex(Bson keys) {
+        try {
+            groups.createIndex(keys, UNIQUE);
+        } catch (MongoCommandException e) {
+            if ((e.getErrorCode() == INDEX_OPTIONS_CONFLICT) || (e.getErrorCode() == INDEX_KEY_SPECS_CONFLICT)) {
+                LOGGER.info("Replacing the non-unique index of the group documents with a unique index.");
+                groups.dropIndex(keys);
+                createGroupIndex(keys);
+            } else if (e.getErrorCode() == DUPLICATE_KEY_ERROR) {
+                LOGGER.error(
+                        "The collection contains several documents for the same group. They have to be merged before the unique index can be created. Creating a non-unique index.",
+                        e);
+                groups.createIndex(keys);
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Executes the given upserts of group documents with a single unordered bulk
+     * write. If two instances insert the same new group at the same time, the
+     * unique index lets one of the upserts fail with a duplicate key error. At
+     * this point, the group document exists. Hence, these upserts are retried
+     * once and match the existing document.
+     *
+     * @param groupWrites
+     *            the upserts of the group documents
+     */
+    public void upsertGroups(List<? extends WriteModel<Document>> groupWrites) {
+        try {
+            groups.bulkWrite(groupWrites, UNORDERED);
+        } catch (MongoBulkWriteException e) {
+            List<WriteModel<Document>> retries = new ArrayList<>();
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (error.getCode() == DUPLICATE_KEY_ERROR) {
+                    retries.add(groupWrites.get(error.getIndex()));
+                } else {
+                    LOGGER.error("Couldn't add group: {}", error.getMessage());
+                }
+            }
+            if (!retries.isEmpty()) {
+                try {
+                    groups.bulkWrite(retries, UNORDERED);
+                } catch (MongoException e2) {
+                    LOGGER.error("Couldn't add groups after a duplicate key error.", e2);
+                }
+            }
+        } catch (MongoException e) {
+            LOGGER.error("Couldn't add groups.", e);
+        }
+    }
+
+    /**
+     * Claims the group identified by the given filter.
+     *
+     * @param groupFilter
+     *            the filter identifying the document of the group
+     * @param now
+     *            the current time stamp (in ms)
+     * @return {@code true} if the group has been claimed, {@code false} if it
+     *         does not exist, is leased by another instance or may not be
+     *         fetched, yet
+     */
+    public boolean claim(Bson groupFilter, long now) {
+        try {
+            return groups.findOneAndUpdate(Filters.and(groupFilter, isAvailable(now)), createClaimUpdate(now)) != null;
+        } catch (MongoException e) {
+            LOGGER.error("Couldn't claim group. Returning false.", e);
+            return false;
+        }
+    }
+
+    /**
+     * Claims the group that has been available for the longest time.
+     *
+     * @param now
+     *            the current time stamp (in ms)
+     * @return the document of the claimed group or {@code null} if there is no
+     *         group that can be claimed
+     */
+    public Document claimNext(long now) {
+        try {
+            return groups.findOneAndUpdate(isAvailable(now), createClaimUpdate(now), CLAIM_NEXT_OPTIONS);
+        } catch (MongoException e) {
+            LOGGER.error("Couldn't claim the next group. Returning null.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Releases the lease of the group identified by the given filter. Note that
+     * the owner of the lease is not checked since the result of a lease might be
+     * received by a different frontier instance than the one that handed it out.
+     *
+     * @param groupFilter
+     *            the filter identifying the document of the group
+     * @param nextAllowedFetch
+     *            the time stamp (in ms) from which on the group may be claimed
+     *            again
+     */
+    public void release(Bson groupFilter, long nextAllowedFetch) {
+        try {
+            groups.updateOne(groupFilter,
+                    Updates.combine(Updates.unset(LEASE_OWNER_FIELD), Updates.set(LEASE_EXPIRES_FIELD, nextAllowedFetch)));
+        } catch (MongoException e) {
+            LOGGER.error("Couldn't release group. It will be available after its lease expired.", e);
+        }
+    }
+
+    /**
+     * Groups without a lease time stamp (e.g., groups that have just been added)
+     * or with an expired lease can be claimed.
+     */
+    protected Bson isAvailable(long now) {
+        return Filters.or(Filters.exists(LEASE_EXPIRES_FIELD, false), Filters.lte(LEASE_EXPIRES_FIELD, now));
+    }
+
+    protected Bson createClaimUpdate(long now) {
+        return Updates.combine(Updates.set(LEASE_OWNER_FIELD, owner),
+                Updates.set(LEASE_EXPIRES_FIELD, now + leaseDuration));
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public long getLeaseDuration() {
+        return leaseDuration;
+    }
+
+    public void setLeaseDuration(long leaseDuration) {
+        this.leaseDuration = leaseDuration;
+    }
+}
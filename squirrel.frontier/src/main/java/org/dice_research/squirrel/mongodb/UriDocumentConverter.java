@@ -0,0 +1,162 @@
+package org.dice_research.squirrel.mongodb;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.dice_research.squirrel.Constants;
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.UriFingerprint;
+import org.dice_research.squirrel.data.uri.UriType;
+import org.dice_research.squirrel.data.uri.serialize.Serializer;
+
+/**
+ * Transforms {@link CrawleableUri} instances into MongoDB documents and back.
+ *
+ * <p>
+ * The URI, its IP address, its type and its depth are stored as structured
+ * fields. Data entries with simple values (Strings, numbers and booleans) are
+ * stored in an embedded document. Only the remaining data entries are
+ * serialized into a binary field. Documents that have been created by older
+ * versions (i.e., documents containing the complete serialized URI) can still
+ * be read.
+ * </p>
+ */
+public class UriDocumentConverter {
+
+    public static final String ID_FIELD = "_id";
+    public static final String URI_FIELD = "uri";
+    public static final String IP_FIELD = "ip";
+    public static final String URI_TYPE_FIELD = "uriType";
+    public static final String DEPTH_FIELD = "depth";
+    public static final String DATA_FIELD = "data";
+    public static final String SERIALIZED_DATA_FIELD = "serializedData";
+
+    private Serializer serializer;
+
+    /**
+     * Constructor.
+     *
+     * @param serializer
+     *            the serializer used for data entries that can not be stored as
+     *            structured fields and for reading documents of older versions
+     */
+    public UriDocumentConverter(Serializer serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * Returns the ID of the document of the given URI.
+     *
+     * @param uri
+     *            the URI
+     * @return the ID of the URI's document
+     */
+    public static long getId(CrawleableUri uri) {
+        return UriFingerprint.fingerprint(uri);
+    }
+
+    /**
+     * Creates a document for the given URI. Note that the document does not
+     * contain an ID.
+     *
+     * @param uri
+     *            the URI that should be transformed
+     * @return the document representing the given URI
+     * @throws IOException
+     *             if the serialization of complex data entries fails
+     */
+    public Document toDocument(CrawleableUri uri) throws IOException {
+        Document doc = new Document();
+        doc.put(URI_FIELD, uri.getUri().toString());
+        if (uri.getIpAddress() != null) {
+            doc.put(IP_FIELD, uri.getIpAddress().getHostAddress());
+        }
+        doc.put(URI_TYPE_FIELD, uri.getType().name());
+        Document data = new Document();
+        HashMap<String, Object> complexData = new HashMap<>();
+        for (Entry<String, Object> entry : uri.getData().entrySet()) {
+            if (Constants.URI_DEPTH.equals(entry.getKey())) {
+                doc.put(DEPTH_FIELD, entry.getValue());
+            } else if (isSimpleValue(entry.getValue()) && isValidKey(entry.getKey())) {
+                data.put(entry.getKey(), entry.getValue());
+            } else {
+                complexData.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (!data.isEmpty()) {
+            doc.put(DATA_FIELD, data);
+        }
+        if (!complexData.isEmpty()) {
+            doc.put(SERIALIZED_DATA_FIELD, new Binary(serializer.serialize(complexData)));
+        }
+        return doc;
+    }
+
+    /**
+     * Creates the URI represented by the given document.
+     *
+     * @param doc
+     *            the document of the URI
+     * @return the URI represented by the given document
+     * @throws IOException
+     *             if the URI or its data can not be deserialized
+     */
+    public CrawleableUri fromDocument(Document doc) throws IOException {
+        Object uriValue = doc.get(URI_FIELD);
+        if (uriValue instanceof Binary) {
+            // document of an older version
+            return serializer.deserialize(((Binary) uriValue).getData());
+        }
+        CrawleableUri uri;
+        try {
+            uri = new CrawleableUri(new URI(uriValue.toString()));
+        } catch (URISyntaxException e) {
+            throw new IOException("Couldn't parse the stored URI \"" + uriValue + "\".", e);
+        }
+        String ip = doc.getString(IP_FIELD);
+        if (ip != null) {
+            // The IP is given as literal, i.e., no lookup is performed
+            uri.setIpAddress(InetAddress.getByName(ip));
+        }
+        String type = doc.getString(URI_TYPE_FIELD);
+        if (type != null) {
+            uri.setType(UriType.valueOf(type));
+        }
+        Map<String, Object> data = new TreeMap<>();
+        Object value = doc.get(SERIALIZED_DATA_FIELD);
+        if (value instanceof Binary) {
+            Map<String, Object> complexData = serializer.deserialize(((Binary) value).getData());
+            data.putAll(complexData);
+        }
+        value = doc.get(DATA_FIELD);
+        if (value instanceof Document) {
+            data.putAll((Document) value);
+        }
+        value = doc.get(DEPTH_FIELD);
+        if (value != null) {
+            data.put(Constants.URI_DEPTH, value);
+        }
+        uri.setData(data);
+        return uri;
+    }
+
+    protected static boolean isSimpleValue(Object value) {
+        return (value instanceof String) || (value instanceof Integer) || (value instanceof Long)
+                || (value instanceof Double) || (value instanceof Boolean);
+    }
+
+    /**
+     * Checks whether the given key can be used as field name.
+     */
+    protected static boolean isValidKey(String key) {
+        return !key.isEmpty() && (key.indexOf('.') < 0) && (key.charAt(0) != '$');
+    }
+}
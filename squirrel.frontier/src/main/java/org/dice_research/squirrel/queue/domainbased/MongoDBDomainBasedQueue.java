@@ -2,32 +2,59 @@ package org.dice_research.squirrel.queue.domainbased;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
 
 import org.bson.Document;
-import org.bson.types.Binary;
 import org.dice_research.squirrel.configurator.MongoConfiguration;
 import org.dice_research.squirrel.data.uri.CrawleableUri;
 import org.dice_research.squirrel.data.uri.serialize.Serializer;
 import org.dice_research.squirrel.data.uri.serialize.java.SnappyJavaUriSerializer;
+import org.dice_research.squirrel.mongodb.GroupLeaseManager;
+import org.dice_research.squirrel.mongodb.UriDocumentConverter;
 import org.dice_research.squirrel.queue.AbstractDomainBasedQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientOptions;
+import com.mongodb.MongoException;
 import com.mongodb.MongoWriteException;
 import com.mongodb.ServerAddress;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 
 /**
  * 
  * DomainBasedQueue implementation for use with MongoDB
  * 
+ * <p>
+ * URIs are stored as structured documents (see {@link UriDocumentConverter})
+ * identified by a 64-bit fingerprint of the URI. New URIs are written with a
+ * single unordered bulk write of upserts, i.e., adding URIs needs one round
+ * trip for the URIs and one for their domains.
+ * </p>
+ * 
+ * <p>
+ * Groups are claimed atomically in the database (see
+ * {@link GroupLeaseManager}). Hence, several frontier instances can share the
+ * same collections. Note that this needs the queue to be persistent (i.e.,
+ * {@code QUEUE_FILTER_PERSIST=true}) since otherwise the collections are
+ * dropped when one of the instances is closed.
+ * </p>
+ * 
  * * @author Geraldo de Souza Junior (gsjunior@mail.uni-paderborn.de)
  *
  */
@@ -35,7 +62,12 @@ public class MongoDBDomainBasedQueue extends AbstractDomainBasedQueue {
 
     private MongoClient client;
     private MongoDatabase mongoDB;
-    private Serializer serializer;
+    private UriDocumentConverter converter;
+    private GroupLeaseManager leaseManager;
+    /**
+     * The duration (in ms) of a lease of a group.
+     */
+    private long leaseDuration = GroupLeaseManager.DEFAULT_LEASE_DURATION;
     private final String DB_NAME = "squirrel";
     private final String COLLECTION_QUEUE = "queue";
     private final String COLLECTION_URIS = "uris";
@@ -45,9 +77,11 @@ public class MongoDBDomainBasedQueue extends AbstractDomainBasedQueue {
             : Boolean.parseBoolean(System.getenv("QUEUE_FILTER_PERSIST"));
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MongoDBDomainBasedQueue.class);
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
 
     public MongoDBDomainBasedQueue(String hostName, Integer port, Serializer serializer, boolean includeDepth) {
-        this.serializer = serializer;
+        this.converter = new UriDocumentConverter(serializer);
         
         this.includeDepth = includeDepth;
         if(this.includeDepth)
@@ -98,20 +132,41 @@ public class MongoDBDomainBasedQueue extends AbstractDomainBasedQueue {
 
     @Override
     protected void addUri(CrawleableUri uri, String domain) {
-        addDomain(domain);
-        addCrawleableUri(uri, domain);
+        addUris(Collections.singletonMap(domain, Collections.singletonList(uri)));
     }
 
-    protected void addCrawleableUri(CrawleableUri uri, String domain) {
-        try {
-            Document uriDoc = getUriDocument(uri, domain);
-            // If the document does not already exist, add it
-            if (mongoDB.getCollection(COLLECTION_URIS).find(uriDoc).first() == null) {
-                mongoDB.getCollection(COLLECTION_URIS).insertOne(uriDoc);
+    /**
+     * Adds the given URIs with two bulk writes. The URIs are written before
+     * their domains to make sure that a domain is never visible without its
+     * URIs.
+     */
+    @Override
+    protected void addUris(Map<String, List<CrawleableUri>> groups) {
+        List<WriteModel<Document>> uriWrites = new ArrayList<>();
+        List<WriteModel<Document>> domainWrites = new ArrayList<>();
+        long added = System.currentTimeMillis();
+        for (Entry<String, List<CrawleableUri>> group : groups.entrySet()) {
+            for (CrawleableUri uri : group.getValue()) {
+                Document uriDoc = createUriDocument(uri, group.getKey(), added);
+                if (uriDoc != null) {
+                    // Only insert the document if it does not exist
+                    uriWrites.add(new UpdateOneModel<>(Filters.eq("_id", UriDocumentConverter.getId(uri)),
+                            new Document("$setOnInsert", uriDoc), UPSERT));
+                }
             }
-        } catch (Exception e) {
-            LOGGER.error("Error while adding uri to MongoDBQueue", e);
+            domainWrites.add(new UpdateOneModel<>(getDomainDocument(group.getKey()),
+                    new Document("$setOnInsert", new Document("added", added)), UPSERT));
         }
+        if (uriWrites.isEmpty()) {
+            return;
+        }
+        try {
+            mongoDB.getCollection(COLLECTION_URIS).bulkWrite(uriWrites, UNORDERED);
+        } catch (MongoException e) {
+            // Since the bulk write is unordered, the other URIs have been written
+            LOGGER.error("Error while adding uris to MongoDBQueue", e);
+        }
+        leaseManager.upsertGroups(domainWrites);
     }
 
     protected void addDomain(String domain) {
@@ -129,20 +184,27 @@ public class MongoDBDomainBasedQueue extends AbstractDomainBasedQueue {
     }
 
     public Document getUriDocument(CrawleableUri uri, String domain) {
-        byte[] suri = null;
+        Document docUri = createUriDocument(uri, domain, System.currentTimeMillis());
+        if (docUri != null) {
+            docUri.put("_id", UriDocumentConverter.getId(uri));
+        }
+        return docUri;
+    }
 
+    /**
+     * Creates the document of the given URI without its ID.
+     */
+    protected Document createUriDocument(CrawleableUri uri, String domain, long added) {
+        Document docUri;
         try {
-            suri = serializer.serialize(uri);
+            docUri = converter.toDocument(uri);
         } catch (IOException e) {
             LOGGER.error("Couldn't serialize URI. Returning null.", e);
             return null;
         }
-
-        Document docUri = new Document();
-        docUri.put("_id", uri.getUri().hashCode());
         docUri.put("domain", domain);
         docUri.put("type", DEFAULT_TYPE);
-        docUri.put("uri", new Binary(suri));
+        docUri.put("added", added);
         return docUri;
     }
 
@@ -153,9 +215,13 @@ public class MongoDBDomainBasedQueue extends AbstractDomainBasedQueue {
         return docIp;
     }
 
+    /**
+     * Checks whether the queue contains URIs. Note that the queue may still
+     * contain documents of empty domains that have to keep a delay.
+     */
     @Override
     public boolean isEmpty() {
-        return length() == 0L;
+        return mongoDB.getCollection(COLLECTION_URIS).find().first() == null;
     }
 
     @Override
@@ -164,12 +230,20 @@ public class MongoDBDomainBasedQueue extends AbstractDomainBasedQueue {
         if (!queueTableExists()) {
             mongoDB.createCollection(COLLECTION_QUEUE);
             mongoDB.createCollection(COLLECTION_URIS);
-            MongoCollection<Document> mongoCollection = mongoDB.getCollection(COLLECTION_QUEUE);
-            MongoCollection<Document> mongoCollectionUris = mongoDB.getCollection(COLLECTION_URIS);
-            mongoCollection.createIndex(Indexes.compoundIndex(Indexes.ascending("domain"), Indexes.ascending("type")));
-            mongoCollectionUris.createIndex(Indexes.compoundIndex(Indexes.ascending("uri"), Indexes.ascending("domain"),
-                    Indexes.ascending("type")));
         }
+        // The indexes are created for existing collections as well since
+        // collections of older versions lack some of them. createIndex does not
+        // have any effect if the index already exists.
+        MongoCollection<Document> mongoCollection = mongoDB.getCollection(COLLECTION_QUEUE);
+        MongoCollection<Document> mongoCollectionUris = mongoDB.getCollection(COLLECTION_URIS);
+        mongoCollectionUris.createIndex(Indexes.compoundIndex(Indexes.ascending("domain"),
+                Indexes.ascending("type"), Indexes.ascending("added")));
+        leaseManager = new GroupLeaseManager(mongoCollection, UUID.randomUUID().toString(),
+                leaseDuration);
+        // Group documents are upserted. The unique index makes sure that
+        // concurrent upserts of a new group can not create two documents.
+        leaseManager.createGroupIndex(Indexes.compoundIndex(Indexes.ascending("domain"), Indexes.ascending("type")));
+        leaseManager.createIndex();
     }
 
     public boolean queueTableExists() {
@@ -211,37 +285,100 @@ public class MongoDBDomainBasedQueue extends AbstractDomainBasedQueue {
 
         try {
             while (uriDocs.hasNext()) {
+                listUris.add(converter.fromDocument(uriDocs.next()));
+            }
 
-                Document doc = uriDocs.next();
+        } catch (Exception e) {
+            LOGGER.error("Error while retrieving uri from MongoDBQueue", e);
+        }
 
-                listUris.add(serializer.deserialize(((Binary) doc.get("uri")).getData()));
+        return listUris;
+    }
 
+    /**
+     * Returns the URIs of the given domain that have been added first. Only the
+     * given number of URIs is loaded from the database.
+     */
+    @Override
+    protected List<CrawleableUri> getUris(String domain, int maxNumberOfUris) {
+        List<CrawleableUri> listUris = new ArrayList<CrawleableUri>();
+        try (MongoCursor<Document> uriDocs = mongoDB.getCollection(COLLECTION_URIS)
+                .find(new Document("domain", domain).append("type", DEFAULT_TYPE)).sort(Sorts.ascending("added"))
+                .limit(maxNumberOfUris).iterator()) {
+            while (uriDocs.hasNext()) {
+                listUris.add(converter.fromDocument(uriDocs.next()));
             }
-
         } catch (Exception e) {
             LOGGER.error("Error while retrieving uri from MongoDBQueue", e);
         }
-
         return listUris;
     }
 
+    /**
+     * Removes the given URIs. Note that the document of the domain is not
+     * removed even if the group is empty since it still carries the lease and
+     * the point in time at which the domain may be fetched again. Empty groups
+     * are removed in {@link #releaseGroup(String, long)} as soon as there is no
+     * delay to keep.
+     */
     @Override
     protected void deleteUris(String domain, List<CrawleableUri> uris) {
-        // remove all URIs from the list
-        Document query = new Document();
-        query.put("domain", domain);
-        query.put("type", DEFAULT_TYPE);
+        // remove all URIs from the list with a single request. The IDs used by
+        // older versions are removed as well.
+        List<Object> ids = new ArrayList<>(2 * uris.size());
         for (CrawleableUri uri : uris) {
-            // replace the old ID with the current ID
-            query.put("_id", uri.getUri().hashCode());
-            mongoDB.getCollection(COLLECTION_URIS).deleteMany(query);
+            ids.add(UriDocumentConverter.getId(uri));
+            ids.add(uri.getUri().hashCode());
         }
-        // remove the ID field
-        query.remove("_id");
-        // if there are no more URIs left of the given domain
-        if (mongoDB.getCollection(COLLECTION_URIS).find(query).first() == null) {
-            // remove the domain from the queue
-            mongoDB.getCollection(COLLECTION_QUEUE).deleteMany(query);
+        Document query = getDomainDocument(domain);
+        mongoDB.getCollection(COLLECTION_URIS).deleteMany(Filters.and(query, Filters.in("_id", ids)));
+    }
+
+    @Override
+    protected boolean claimGroup(String domain, long now) {
+        return leaseManager.claim(getDomainDocument(domain), now);
+    }
+
+    @Override
+    protected String claimNextGroup(long now) {
+        Document domainDoc = leaseManager.claimNext(now);
+        return (domainDoc != null) ? domainDoc.getString("domain") : null;
+    }
+
+    /**
+     * Releases the lease of the given domain. If the group is empty and there
+     * is no delay that has to be kept, the document of the domain is removed
+     * instead.
+     */
+    @Override
+    protected void releaseGroup(String domain, long nextAllowedFetch) {
+        Document domainDoc = getDomainDocument(domain);
+        if ((nextAllowedFetch <= System.currentTimeMillis())
+                && (mongoDB.getCollection(COLLECTION_URIS).find(domainDoc).first() == null)) {
+            mongoDB.getCollection(COLLECTION_QUEUE).deleteMany(domainDoc);
+            // URIs might have been added concurrently without holding the lock of
+            // the domain. Make sure that the domain is not lost. Since the domain
+            // may already be fetched, it can be added without a lease.
+            if (mongoDB.getCollection(COLLECTION_URIS).find(domainDoc).first() != null) {
+                addDomain(domain);
+            }
+        } else {
+            leaseManager.release(domainDoc, nextAllowedFetch);
+        }
+    }
+
+    public long getLeaseDuration() {
+        return leaseDuration;
+    }
+
+    /**
+     * Sets the duration (in ms) after which the lease of a group expires and the
+     * group can be claimed by another frontier instance.
+     */
+    public void setLeaseDuration(long leaseDuration) {
+        this.leaseDuration = leaseDuration;
+        if (leaseManager != null) {
+            leaseManager.setLeaseDuration(leaseDuration);
         }
     }
 
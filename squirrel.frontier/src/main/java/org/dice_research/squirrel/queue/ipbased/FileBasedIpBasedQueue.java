@@ -0,0 +1,917 @@
+package org.dice_research.squirrel.queue.ipbased;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.dice_research.squirrel.Constants;
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.UriFingerprint;
+import org.dice_research.squirrel.data.uri.UriType;
+import org.dice_research.squirrel.data.uri.serialize.Serializer;
+import org.dice_research.squirrel.data.uri.serialize.java.SnappyJavaUriSerializer;
+import org.dice_research.squirrel.queue.AbstractIpAddressBasedQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An IP-based queue that stores its URIs in local files, i.e., it does not
+ * need an external database.
+ *
+ * <p>
+ * Every IP address has its own directory containing append-only segment
+ * files. New URIs are appended as compact binary records to the last segment
+ * of their group. A segment is read with positional reads of its file channel
+ * through a small buffer starting at the head of the group, i.e., the queue
+ * does not create memory mappings that would only be released by the garbage
+ * collector. Since leases are always taken from the head of a group,
+ * acknowledging a lease simply moves the head forward. The head is persisted
+ * in a small file in the directory of the group, i.e., the queue can be
+ * reopened without reading the segments. Only the last segment of every group
+ * is checked for an incomplete record that might have been written during a
+ * crash.
+ * </p>
+ *
+ * <p>
+ * Segments that have been consumed completely are deleted by a background
+ * task. The directory of a group is deleted as soon as all its URIs have been
+ * acknowledged.
+ * </p>
+ *
+ * <p>
+ * A record has the following layout: the length of the payload (int), the
+ * fingerprint of the URI (long, see {@link UriFingerprint}), the type of the
+ * URI (byte), the IP address (length as byte and the address bytes), the URI
+ * (UTF-8), the simple data entries (Strings, numbers and booleans) and the
+ * serialized complex data entries. URIs which are acknowledged while other
+ * URIs in front of them are still in the queue are marked as deleted. The
+ * fingerprints of these URIs are stored in a second small file in the
+ * directory of the group, which is written before the head. Hence, a crash
+ * might only lead to URIs that are handed out a second time.
+ * </p>
+ */
+public class FileBasedIpBasedQueue extends AbstractIpAddressBasedQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileBasedIpBasedQueue.class);
+
+    /**
+     * Default size (4 MB) after which a new segment is started.
+     */
+    public static final long DEFAULT_MAX_SEGMENT_SIZE = 4 * 1024 * 1024;
+    /**
+     * Default period (1 minute) of the compaction task.
+     */
+    public static final long DEFAULT_COMPACTION_PERIOD = 60 * 1000;
+
+    private static final String SEGMENT_FILE_SUFFIX = ".seg";
+    private static final String HEAD_FILE_NAME = "head";
+    private static final String DELETED_FILE_NAME = "deleted";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    /**
+     * Length of the payload (int) and fingerprint (long) of a record.
+     */
+    private static final int RECORD_HEADER_SIZE = 12;
+    /**
+     * Size of the buffer used to read the records of a segment.
+     */
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte STRING_VALUE = 0;
+    private static final byte INTEGER_VALUE = 1;
+    private static final byte LONG_VALUE = 2;
+    private static final byte DOUBLE_VALUE = 3;
+    private static final byte BOOLEAN_VALUE = 4;
+
+    /**
+     * The directory containing the directories of the single groups.
+     */
+    private File directory;
+    private Serializer serializer;
+    /**
+     * The size (in bytes) after which a new segment is started.
+     */
+    private long maxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
+    /**
+     * The period (in ms) of the compaction task.
+     */
+    private long compactionPeriod = DEFAULT_COMPACTION_PERIOD;
+    /**
+     * The in-memory index containing the head and tail of every non-empty
+     * group.
+     */
+    protected Map<InetAddress, GroupFiles> groups = new ConcurrentHashMap<>();
+    private Timer compactionTimer;
+
+    public FileBasedIpBasedQueue(String directory, boolean includeDepth) {
+        this(new File(directory), new SnappyJavaUriSerializer(), includeDepth);
+    }
+
+    public FileBasedIpBasedQueue(String directory, Serializer serializer, boolean includeDepth) {
+        this(new File(directory), serializer, includeDepth);
+    }
+
+    public FileBasedIpBasedQueue(File directory, Serializer serializer, boolean includeDepth) {
+        this.directory = directory;
+        this.serializer = serializer;
+        this.includeDepth = includeDepth;
+        if (this.includeDepth) {
+            LOGGER.info("Depth Persistance Enabled.");
+        }
+    }
+
+    @Override
+    public void open() {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IllegalStateException("Couldn't create queue directory " + directory.getAbsolutePath());
+        }
+        File[] groupDirs = directory.listFiles();
+        if (groupDirs != null) {
+            for (File groupDir : groupDirs) {
+                if (groupDir.isDirectory()) {
+                    loadGroup(groupDir);
+                }
+            }
+        }
+        LOGGER.info("Loaded {} non-empty groups from {}.", groups.size(), directory.getAbsolutePath());
+        if (compactionPeriod > 0) {
+            compactionTimer = new Timer("queue-compaction", true);
+            compactionTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    compact();
+                }
+            }, compactionPeriod, compactionPeriod);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (compactionTimer != null) {
+            compactionTimer.cancel();
+            compactionTimer = null;
+        }
+        // all changes have already been written
+        groups.clear();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return groups.isEmpty();
+    }
+
+    @Override
+    protected void addUri(CrawleableUri uri, InetAddress address) {
+        appendUris(address, Collections.singletonList(uri));
+    }
+
+    /**
+     * Appends the URIs of every group with a single write operation.
+     */
+    @Override
+    protected void addUris(Map<InetAddress, List<CrawleableUri>> groups) {
+        for (Entry<InetAddress, List<CrawleableUri>> group : groups.entrySet()) {
+            synchronized (getLock(group.getKey())) {
+                appendUris(group.getKey(), group.getValue());
+            }
+        }
+    }
+
+    /**
+     * Appends the given URIs to the last segment of the given group. Has to be
+     * called while holding the lock of the group.
+     */
+    protected void appendUris(InetAddress address, List<CrawleableUri> uris) {
+        if (address == null) {
+            LOGGER.error("Got URIs without an IP address. They will be ignored.");
+            return;
+        }
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bout);
+        long[] fingerprints = new long[uris.size()];
+        int count = 0;
+        for (CrawleableUri uri : uris) {
+            try {
+                byte[] payload = encodePayload(uri);
+                fingerprints[count] = UriFingerprint.fingerprint(uri);
+                out.writeInt(payload.length);
+                out.writeLong(fingerprints[count]);
+                out.write(payload);
+                ++count;
+            } catch (IOException e) {
+                LOGGER.error("Couldn't serialize URI " + uri.getUri() + ". It will be ignored.", e);
+            }
+        }
+        if (bout.size() == 0) {
+            return;
+        }
+        GroupFiles group = groups.get(address);
+        if (group == null) {
+            group = new GroupFiles(new File(directory, toDirectoryName(address)));
+            group.directory.mkdirs();
+        } else {
+            removeDeletionMarks(group, fingerprints, count);
+            if (group.tailSize >= maxSegmentSize) {
+                ++group.tailSegment;
+                group.tailSize = 0;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(getSegmentFile(group, group.tailSegment).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bout.toByteArray());
+            long position = group.tailSize;
+            try {
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            } catch (IOException e) {
+                // remove the partially written records
+                channel.truncate(group.tailSize);
+                throw e;
+            }
+            group.tailSize = position;
+        } catch (IOException e) {
+            LOGGER.error("Couldn't write URIs of " + address + " to the queue. They will be ignored.", e);
+            return;
+        }
+        groups.put(address, group);
+    }
+
+    /**
+     * Removes the deletion marks of URIs that are added again. Otherwise, a
+     * mark of a URI that is not in the queue anymore (e.g., because of a late
+     * acknowledgement) would hide the new record. The marks are written before
+     * the new records, i.e., a crash in between can only lead to URIs that are
+     * handed out again.
+     */
+    protected void removeDeletionMarks(GroupFiles group, long[] fingerprints, int count) {
+        if (group.deletedUris.isEmpty()) {
+            return;
+        }
+        boolean removed = false;
+        for (int i = 0; i < count; ++i) {
+            removed |= group.deletedUris.remove(fingerprints[i]);
+        }
+        if (removed) {
+            try {
+                writeDeletedUris(group);
+            } catch (IOException e) {
+                LOGGER.error("Couldn't write the deletion marks of " + group.directory
+                        + ". Re-added URIs might be skipped after a restart.", e);
+            }
+        }
+    }
+
+    @Override
+    protected Iterator<InetAddress> getGroupIterator() {
+        return groups.keySet().iterator();
+    }
+
+    @Override
+    protected List<CrawleableUri> getUris(InetAddress address) {
+        return getUris(address, Integer.MAX_VALUE);
+    }
+
+    @Override
+    protected List<CrawleableUri> getUris(InetAddress address, int maxNumberOfUris) {
+        GroupFiles group = groups.get(address);
+        if (group == null) {
+            return null;
+        }
+        List<CrawleableUri> uris = new ArrayList<>(Math.min(maxNumberOfUris, 128));
+        long segment = group.headSegment;
+        long offset = group.headOffset;
+        try {
+            while ((uris.size() < maxNumberOfUris) && (segment <= group.tailSegment)) {
+                try (SegmentReader reader = openSegment(group, segment, offset)) {
+                    while ((uris.size() < maxNumberOfUris) && reader.next()) {
+                        if (!group.deletedUris.contains(reader.getFingerprint())) {
+                            uris.add(decodePayload(reader.getPayload()));
+                        }
+                    }
+                }
+                ++segment;
+                offset = 0;
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error while reading URIs of " + address + ". Returning the URIs read so far.", e);
+        }
+        return uris;
+    }
+
+    @Override
+    protected void deleteUris(InetAddress address, List<CrawleableUri> uris) {
+        GroupFiles group = groups.get(address);
+        if (group == null) {
+            return;
+        }
+        for (CrawleableUri uri : uris) {
+            group.deletedUris.add(UriFingerprint.fingerprint(uri));
+        }
+        try {
+            boolean advanced = advanceHead(group);
+            if (group.isEmpty()) {
+                groups.remove(address);
+                FileUtils.deleteQuietly(group.directory);
+            } else {
+                // the deletion marks are written first. If the queue crashes
+                // before the head is written, the URIs between the old and the
+                // new head are handed out again instead of marks pointing to
+                // URIs that are not in the queue anymore.
+                writeDeletedUris(group);
+                if (advanced) {
+                    writeHead(group);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error while removing URIs of " + address
+                    + " from the queue. They might be handed out again after a restart.", e);
+        }
+    }
+
+    /**
+     * Moves the head of the given group over all records at its beginning that
+     * have been marked as deleted.
+     *
+     * @return {@code true} if the head has been moved
+     */
+    protected boolean advanceHead(GroupFiles group) throws IOException {
+        boolean advanced = false;
+        while (!group.isEmpty()) {
+            if (group.headOffset >= getSegmentSize(group, group.headSegment)) {
+                ++group.headSegment;
+                group.headOffset = 0;
+                advanced = true;
+                continue;
+            }
+            if (group.deletedUris.isEmpty()) {
+                break;
+            }
+            try (SegmentReader reader = openSegment(group, group.headSegment, group.headOffset)) {
+                while (reader.next()) {
+                    if (!group.deletedUris.remove(reader.getFingerprint())) {
+                        return advanced;
+                    }
+                    group.headOffset = reader.getPosition();
+                    advanced = true;
+                }
+            }
+        }
+        if (group.isEmpty()) {
+            group.deletedUris.clear();
+        }
+        return advanced;
+    }
+
+    /**
+     * Deletes all segments that have been consumed completely.
+     */
+    public void compact() {
+        for (InetAddress address : groups.keySet()) {
+            synchronized (getLock(address)) {
+                GroupFiles group = groups.get(address);
+                if (group == null) {
+                    continue;
+                }
+                while (group.firstSegment < group.headSegment) {
+                    File segmentFile = getSegmentFile(group, group.firstSegment);
+                    if (segmentFile.exists() && !segmentFile.delete()) {
+                        LOGGER.warn("Couldn't delete consumed segment {}.", segmentFile);
+                        break;
+                    }
+                    ++group.firstSegment;
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the head and tail of the group stored in the given directory.
+     */
+    protected void loadGroup(File groupDir) {
+        InetAddress address = fromDirectoryName(groupDir.getName());
+        if (address == null) {
+            LOGGER.warn("Ignoring unknown directory {}.", groupDir);
+            return;
+        }
+        GroupFiles group = new GroupFiles(groupDir);
+        String[] names = groupDir.list();
+        long firstSegment = Long.MAX_VALUE;
+        long lastSegment = -1;
+        for (String name : names) {
+            if (name.endsWith(SEGMENT_FILE_SUFFIX)) {
+                try {
+                    long segment = Long.parseLong(name.substring(0, name.length() - SEGMENT_FILE_SUFFIX.length()));
+                    firstSegment = Math.min(firstSegment, segment);
+                    lastSegment = Math.max(lastSegment, segment);
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("Ignoring unknown file {} in {}.", name, groupDir);
+                }
+            }
+        }
+        try {
+            if (lastSegment >= 0) {
+                group.firstSegment = firstSegment;
+                group.tailSegment = lastSegment;
+                group.tailSize = repairSegment(getSegmentFile(group, lastSegment));
+                readHead(group);
+                if (group.headSegment < firstSegment) {
+                    group.headSegment = firstSegment;
+                    group.headOffset = 0;
+                }
+                readDeletedUris(group);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Couldn't load the group in " + groupDir + ". It will be ignored.", e);
+            return;
+        }
+        if ((lastSegment < 0) || group.isEmpty()) {
+            FileUtils.deleteQuietly(groupDir);
+        } else {
+            groups.put(address, group);
+        }
+    }
+
+    /**
+     * Checks the records of the given segment and removes an incomplete record
+     * at its end.
+     *
+     * @return the size of the segment containing only complete records
+     */
+    protected long repairSegment(File segmentFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFile.toPath(), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long validSize = 0;
+            // the reader is not closed since the channel is still needed
+            SegmentReader reader = new SegmentReader(channel, size, 0);
+            while (reader.next()) {
+                if ((reader.getLength() < 0) || (reader.getPosition() > size)) {
+                    break;
+                }
+                validSize = reader.getPosition();
+            }
+            if (validSize < size) {
+                LOGGER.warn("Removing an incomplete record at the end of {}.", segmentFile);
+                channel.truncate(validSize);
+            }
+            return validSize;
+        }
+    }
+
+    protected void readHead(GroupFiles group) throws IOException {
+        File headFile = new File(group.directory, HEAD_FILE_NAME);
+        if (!headFile.exists()) {
+            group.headSegment = group.firstSegment;
+            group.headOffset = 0;
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(headFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(16);
+            int read = 0;
+            while (buffer.hasRemaining() && (read >= 0)) {
+                read = channel.read(buffer);
+            }
+            buffer.flip();
+            if (buffer.remaining() < 16) {
+                throw new IOException("Head file " + headFile + " is incomplete.");
+            }
+            group.headSegment = buffer.getLong();
+            group.headOffset = buffer.getLong();
+        }
+    }
+
+    protected void writeHead(GroupFiles group) throws IOException {
+        try (FileChannel channel = FileChannel.open(new File(group.directory, HEAD_FILE_NAME).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(16);
+            buffer.putLong(group.headSegment);
+            buffer.putLong(group.headOffset);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Reads the fingerprints of the URIs that have been marked as deleted
+     * behind the head of the given group.
+     */
+    protected void readDeletedUris(GroupFiles group) throws IOException {
+        File deletedFile = new File(group.directory, DELETED_FILE_NAME);
+        if (!deletedFile.exists()) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(deletedFile.toPath()));
+        while (buffer.remaining() >= 8) {
+            group.deletedUris.add(buffer.getLong());
+        }
+        group.deletedUrisStored = true;
+    }
+
+    /**
+     * Replaces the stored deletion marks of the given group with the current
+     * marks. The file is replaced atomically and it is removed as soon as there
+     * are no marks left, i.e., groups that are acknowledged in order do not
+     * write it at all.
+     */
+    protected void writeDeletedUris(GroupFiles group) throws IOException {
+        File deletedFile = new File(group.directory, DELETED_FILE_NAME);
+        if (group.deletedUris.isEmpty()) {
+            if (group.deletedUrisStored) {
+                Files.deleteIfExists(deletedFile.toPath());
+                group.deletedUrisStored = false;
+            }
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8 * group.deletedUris.size());
+        for (Long fingerprint : group.deletedUris) {
+            buffer.putLong(fingerprint);
+        }
+        buffer.flip();
+        File tempFile = new File(group.directory, DELETED_FILE_NAME + TEMP_FILE_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(tempFile.toPath(), deletedFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        group.deletedUrisStored = true;
+    }
+
+    /**
+     * Opens a reader for the records of the given segment starting at the given
+     * offset. Only the part of the tail segment that is known to contain
+     * complete records is read.
+     */
+    protected SegmentReader openSegment(GroupFiles group, long segment, long offset) throws IOException {
+        FileChannel channel = FileChannel.open(getSegmentFile(group, segment).toPath(), StandardOpenOption.READ);
+        long size = (segment == group.tailSegment) ? group.tailSize : channel.size();
+        return new SegmentReader(channel, size, offset);
+    }
+
+    protected long getSegmentSize(GroupFiles group, long segment) {
+        return (segment == group.tailSegment) ? group.tailSize : getSegmentFile(group, segment).length();
+    }
+
+    protected File getSegmentFile(GroupFiles group, long segment) {
+        return new File(group.directory, Long.toString(segment) + SEGMENT_FILE_SUFFIX);
+    }
+
+    protected byte[] encodePayload(CrawleableUri uri) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bout);
+        out.writeByte(uri.getType().ordinal());
+        if (uri.getIpAddress() != null) {
+            byte[] ip = uri.getIpAddress().getAddress();
+            out.writeByte(ip.length);
+            out.write(ip);
+        } else {
+            out.writeByte(0);
+        }
+        writeString(out, uri.getUri().toString());
+        List<Entry<String, Object>> simpleEntries = new ArrayList<>();
+        HashMap<String, Object> complexEntries = new HashMap<>();
+        for (Entry<String, Object> entry : uri.getData().entrySet()) {
+            if (!includeDepth && Constants.URI_DEPTH.equals(entry.getKey())) {
+                continue;
+            }
+            if (getValueTag(entry.getValue()) >= 0) {
+                simpleEntries.add(entry);
+            } else {
+                complexEntries.put(entry.getKey(), entry.getValue());
+            }
+        }
+        out.writeShort(simpleEntries.size());
+        for (Entry<String, Object> entry : simpleEntries) {
+            writeString(out, entry.getKey());
+            byte tag = getValueTag(entry.getValue());
+            out.writeByte(tag);
+            switch (tag) {
+            case STRING_VALUE:
+                writeString(out, (String) entry.getValue());
+                break;
+            case INTEGER_VALUE:
+                out.writeInt((Integer) entry.getValue());
+                break;
+            case LONG_VALUE:
+                out.writeLong((Long) entry.getValue());
+                break;
+            case DOUBLE_VALUE:
+                out.writeDouble((Double) entry.getValue());
+                break;
+            default: // BOOLEAN_VALUE
+                out.writeBoolean((Boolean) entry.getValue());
+                break;
+            }
+        }
+        if (complexEntries.isEmpty()) {
+            out.writeInt(0);
+        } else {
+            byte[] data = serializer.serialize(complexEntries);
+            out.writeInt(data.length);
+            out.write(data);
+        }
+        out.flush();
+        return bout.toByteArray();
+    }
+
+    protected CrawleableUri decodePayload(ByteBuffer buffer) throws IOException {
+        UriType[] types = UriType.values();
+        int typeId = buffer.get();
+        UriType type = ((typeId >= 0) && (typeId < types.length)) ? types[typeId] : UriType.UNKNOWN;
+        byte[] ip = new byte[buffer.get()];
+        buffer.get(ip);
+        InetAddress address = (ip.length > 0) ? InetAddress.getByAddress(ip) : null;
+        String uriString = readString(buffer);
+        CrawleableUri uri;
+        try {
+            uri = new CrawleableUri(new URI(uriString), address, type);
+        } catch (URISyntaxException e) {
+            throw new IOException("Couldn't parse the stored URI \"" + uriString + "\".", e);
+        }
+        Map<String, Object> data = new TreeMap<>();
+        int numberOfEntries = buffer.getShort();
+        for (int i = 0; i < numberOfEntries; ++i) {
+            String key = readString(buffer);
+            switch (buffer.get()) {
+            case STRING_VALUE:
+                data.put(key, readString(buffer));
+                break;
+            case INTEGER_VALUE:
+                data.put(key, buffer.getInt());
+                break;
+            case LONG_VALUE:
+                data.put(key, buffer.getLong());
+                break;
+            case DOUBLE_VALUE:
+                data.put(key, buffer.getDouble());
+                break;
+            default: // BOOLEAN_VALUE
+                data.put(key, buffer.get() != 0);
+                break;
+            }
+        }
+        int length = buffer.getInt();
+        if (length > 0) {
+            byte[] serialized = new byte[length];
+            buffer.get(serialized);
+            Map<String, Object> complexEntries = serializer.deserialize(serialized);
+            data.putAll(complexEntries);
+        }
+        uri.setData(data);
+        return uri;
+    }
+
+    private static byte getValueTag(Object value) {
+        if (value instanceof String) {
+            return STRING_VALUE;
+        } else if (value instanceof Integer) {
+            return INTEGER_VALUE;
+        } else if (value instanceof Long) {
+            return LONG_VALUE;
+        } else if (value instanceof Double) {
+            return DOUBLE_VALUE;
+        } else if (value instanceof Boolean) {
+            return BOOLEAN_VALUE;
+        } else {
+            return -1;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates the name of the directory of the given IP address, i.e., the hex
+     * representation of the address.
+     */
+    protected static String toDirectoryName(InetAddress address) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : address.getAddress()) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+            builder.append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Parses the name of a directory created by
+     * {@link #toDirectoryName(InetAddress)}.
+     *
+     * @return the IP address or {@code null} if the name can not be parsed
+     */
+    protected static InetAddress fromDirectoryName(String name) {
+        if ((name.length() != 8) && (name.length() != 32)) {
+            return null;
+        }
+        byte[] address = new byte[name.length() / 2];
+        for (int i = 0; i < address.length; ++i) {
+            int high = Character.digit(name.charAt(2 * i), 16);
+            int low = Character.digit(name.charAt((2 * i) + 1), 16);
+            if ((high < 0) || (low < 0)) {
+                return null;
+            }
+            address[i] = (byte) ((high << 4) | low);
+        }
+        try {
+            return InetAddress.getByAddress(address);
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    public long getMaxSegmentSize() {
+        return maxSegmentSize;
+    }
+
+    public void setMaxSegmentSize(long maxSegmentSize) {
+        this.maxSegmentSize = maxSegmentSize;
+    }
+
+    public long getCompactionPeriod() {
+        return compactionPeriod;
+    }
+
+    /**
+     * Sets the period (in ms) of the compaction task. A value &lt;= 0 disables
+     * the task. Has to be called before {@link #open()}.
+     */
+    public void setCompactionPeriod(long compactionPeriod) {
+        this.compactionPeriod = compactionPeriod;
+    }
+
+    /**
+     * The files of a single group. All fields are guarded by the lock of the
+     * group.
+     */
+    protected static class GroupFiles {
+        protected final File directory;
+        /**
+         * The first segment that still exists.
+         */
+        protected long firstSegment = 0;
+        protected long headSegment = 0;
+        protected long headOffset = 0;
+        protected long tailSegment = 0;
+        protected long tailSize = 0;
+        /**
+         * Fingerprints of URIs that have been removed but are not at the head
+         * of the group.
+         */
+        protected Set<Long> deletedUris = new HashSet<>();
+        /**
+         * Flag indicating whether the group directory contains a file with
+         * deletion marks.
+         */
+        protected boolean deletedUrisStored = false;
+
+        public GroupFiles(File directory) {
+            this.directory = directory;
+        }
+
+        public boolean isEmpty() {
+            return (headSegment >= tailSegment) && (headOffset >= tailSize);
+        }
+    }
+
+    /**
+     * Reads the records of a single segment. The reader keeps a buffer of the
+     * segment content and refills it with positional reads of the channel,
+     * i.e., the payload returned by {@link #getPayload()} is only valid until
+     * {@link #next()} is called again. The channel is closed together with the
+     * reader.
+     */
+    protected static class SegmentReader implements Closeable {
+        private final FileChannel channel;
+        /**
+         * The number of bytes of the segment that can be read.
+         */
+        private final long size;
+        private ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        /**
+         * The position of the first byte of the buffer in the segment.
+         */
+        private long bufferStart;
+        /**
+         * The position of the record following the current record.
+         */
+        private long position;
+        private int length;
+        private long fingerprint;
+
+        public SegmentReader(FileChannel channel, long size, long position) {
+            this.channel = channel;
+            this.size = size;
+            this.position = position;
+            bufferStart = position;
+            buffer.limit(0);
+        }
+
+        /**
+         * Moves the reader to the next record and reads its header.
+         *
+         * @return {@code false} if there is no further record header
+         */
+        public boolean next() throws IOException {
+            if ((position + RECORD_HEADER_SIZE) > size) {
+                return false;
+            }
+            ByteBuffer header = read(position, RECORD_HEADER_SIZE);
+            length = header.getInt();
+            fingerprint = header.getLong();
+            position += RECORD_HEADER_SIZE + length;
+            return true;
+        }
+
+        /**
+         * @return the payload of the current record
+         */
+        public ByteBuffer getPayload() throws IOException {
+            return read(position - length, length);
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        public long getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * @return the position of the record following the current record
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        private ByteBuffer read(long start, int count) throws IOException {
+            if ((start < bufferStart) || ((start + count) > (bufferStart + buffer.limit()))) {
+                if (count > buffer.capacity()) {
+                    buffer = ByteBuffer.allocate(count);
+                }
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), size - start));
+                if (buffer.limit() < count) {
+                    throw new EOFException("The record at position " + start + " is incomplete.");
+                }
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, start + buffer.position()) < 0) {
+                        throw new EOFException("The record at position " + start + " is incomplete.");
+                    }
+                }
+                bufferStart = start;
+            }
+            ByteBuffer result = buffer.duplicate();
+            result.limit((int) (start - bufferStart) + count);
+            result.position((int) (start - bufferStart));
+            return result.slice();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
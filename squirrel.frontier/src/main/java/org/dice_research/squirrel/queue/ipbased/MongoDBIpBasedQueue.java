@@ -7,29 +7,54 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
 
 import org.bson.Document;
-import org.bson.types.Binary;
-import org.dice_research.squirrel.Constants;
 import org.dice_research.squirrel.data.uri.CrawleableUri;
 import org.dice_research.squirrel.data.uri.serialize.Serializer;
 import org.dice_research.squirrel.data.uri.serialize.java.SnappyJavaUriSerializer;
 import org.dice_research.squirrel.mongodb.MongodbConnectionFactory;
+import org.dice_research.squirrel.mongodb.GroupLeaseManager;
+import org.dice_research.squirrel.mongodb.UriDocumentConverter;
 import org.dice_research.squirrel.queue.AbstractIpAddressBasedQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
 import com.mongodb.MongoWriteException;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 
 /**
  * 
  * IpBasedQueue implementation for use with MongoDB
  * 
+ * <p>
+ * URIs are stored as structured documents (see {@link UriDocumentConverter})
+ * identified by a 64-bit fingerprint of the URI. New URIs are written with a
+ * single unordered bulk write of upserts, i.e., adding URIs needs one round
+ * trip for the URIs and one for their IP addresses.
+ * </p>
+ * 
+ * <p>
+ * Groups are claimed atomically in the database (see
+ * {@link GroupLeaseManager}). Hence, several frontier instances can share the
+ * same collections. Note that this needs the queue to be persistent (i.e.,
+ * {@code QUEUE_FILTER_PERSIST=true}) since otherwise the collections are
+ * dropped when one of the instances is closed.
+ * </p>
+ * 
  * @author Geraldo de Souza Junior (gsjunior@mail.uni-paderborn.de)
  *
  */
@@ -38,6 +63,12 @@ public class MongoDBIpBasedQueue extends AbstractIpAddressBasedQueue {
     private MongoClient client;
     private MongoDatabase mongoDB;
     private Serializer serializer;
+    private UriDocumentConverter converter;
+    private GroupLeaseManager leaseManager;
+    /**
+     * The duration (in ms) of a lease of a group.
+     */
+    private long leaseDuration = GroupLeaseManager.DEFAULT_LEASE_DURATION;
     private final String DB_NAME = "squirrel";
     private final String COLLECTION_QUEUE = "queue";
     private final String COLLECTION_URIS = "uris";
@@ -47,6 +78,8 @@ public class MongoDBIpBasedQueue extends AbstractIpAddressBasedQueue {
             : Boolean.parseBoolean(System.getenv("QUEUE_FILTER_PERSIST"));
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MongoDBIpBasedQueue.class);
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
     
     public MongoDBIpBasedQueue(String hostName, Integer port, boolean includeDepth) {
     	this(hostName,port,new SnappyJavaUriSerializer(), includeDepth);
@@ -62,6 +95,7 @@ public class MongoDBIpBasedQueue extends AbstractIpAddressBasedQueue {
 			LOGGER.info("Depth Persistance Enabled.");
         
         this.serializer = serializer;
+        this.converter = new UriDocumentConverter(serializer);
 
         this.client = MongodbConnectionFactory.getConnection(hostName, port);
 
@@ -94,14 +128,20 @@ public class MongoDBIpBasedQueue extends AbstractIpAddressBasedQueue {
         if (!queueTableExists()) {
             mongoDB.createCollection(COLLECTION_QUEUE);
             mongoDB.createCollection(COLLECTION_URIS);
-            MongoCollection<Document> mongoCollection = mongoDB.getCollection(COLLECTION_QUEUE);
-            MongoCollection<Document> mongoCollectionUris = mongoDB.getCollection(COLLECTION_URIS);
-            mongoCollection
-                    .createIndex(Indexes.compoundIndex(Indexes.ascending("ipAddress"), Indexes.ascending("type")));
-            mongoCollectionUris.createIndex(Indexes.compoundIndex(Indexes.ascending("uri"),
-                    Indexes.ascending("ipAddress"), Indexes.ascending("type")));
         }
-
+        // The indexes are created for existing collections as well since
+        // collections of older versions lack some of them. createIndex does not
+        // have any effect if the index already exists.
+        MongoCollection<Document> mongoCollection = mongoDB.getCollection(COLLECTION_QUEUE);
+        MongoCollection<Document> mongoCollectionUris = mongoDB.getCollection(COLLECTION_URIS);
+        mongoCollectionUris.createIndex(Indexes.compoundIndex(Indexes.ascending("ipAddress"),
+                Indexes.ascending("type"), Indexes.ascending("added")));
+        leaseManager = new GroupLeaseManager(mongoCollection, UUID.randomUUID().toString(),
+                leaseDuration);
+        // Group documents are upserted. The unique index makes sure that
+        // concurrent upserts of a new group can not create two documents.
+        leaseManager.createGroupIndex(Indexes.compoundIndex(Indexes.ascending("ipAddress"), Indexes.ascending("type")));
+        leaseManager.createIndex();
     }
 
     public boolean queueTableExists() {
@@ -115,8 +155,41 @@ public class MongoDBIpBasedQueue extends AbstractIpAddressBasedQueue {
 
     @Override
     protected void addUri(CrawleableUri uri, InetAddress address) {
-        addIp(address);
-        addCrawleableUri(uri);
+        addUris(Collections.singletonMap(address, Collections.singletonList(uri)));
+    }
+
+    /**
+     * Adds the given URIs with two bulk writes. The URIs are written before
+     * their IP addresses to make sure that an IP address is never visible
+     * without its URIs.
+     */
+    @Override
+    protected void addUris(Map<InetAddress, List<CrawleableUri>> groups) {
+        List<WriteModel<Document>> uriWrites = new ArrayList<>();
+        List<WriteModel<Document>> ipWrites = new ArrayList<>();
+        long added = System.currentTimeMillis();
+        for (Entry<InetAddress, List<CrawleableUri>> group : groups.entrySet()) {
+            for (CrawleableUri uri : group.getValue()) {
+                Document uriDoc = createUriDocument(uri, added);
+                if (uriDoc != null) {
+                    // Only insert the document if it does not exist
+                    uriWrites.add(new UpdateOneModel<>(Filters.eq("_id", UriDocumentConverter.getId(uri)),
+                            new Document("$setOnInsert", uriDoc), UPSERT));
+                }
+            }
+            ipWrites.add(new UpdateOneModel<>(getIpDocument(group.getKey()),
+                    new Document("$setOnInsert", new Document("added", added)), UPSERT));
+        }
+        if (uriWrites.isEmpty()) {
+            return;
+        }
+        try {
+            mongoDB.getCollection(COLLECTION_URIS).bulkWrite(uriWrites, UNORDERED);
+        } catch (MongoException e) {
+            // Since the bulk write is unordered, the other URIs have been written
+            LOGGER.error("Error while adding uris to MongoDBQueue", e);
+        }
+        leaseManager.upsertGroups(ipWrites);
     }
 
     @Override
@@ -158,8 +231,7 @@ public class MongoDBIpBasedQueue extends AbstractIpAddressBasedQueue {
 
         try {
             while (uriDocs.hasNext()) {
-                Document doc = uriDocs.next();
-                listUris.add(serializer.deserialize(((Binary) doc.get("uri")).getData()));
+                listUris.add(converter.fromDocument(uriDocs.next()));
             }
 
         } catch (Exception e) {
@@ -170,16 +242,24 @@ public class MongoDBIpBasedQueue extends AbstractIpAddressBasedQueue {
         return listUris;
     }
 
-    protected void addCrawleableUri(CrawleableUri uri) {
-        try {
-            Document uriDoc = getUriDocument(uri);
-            // If the document does not already exist, add it
-            if (mongoDB.getCollection(COLLECTION_URIS).find(uriDoc).first() == null) {
-                mongoDB.getCollection(COLLECTION_URIS).insertOne(uriDoc);
+    /**
+     * Returns the URIs of the given IP address that have been added first. Only
+     * the given number of URIs is loaded from the database.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    protected List<CrawleableUri> getUris(InetAddress address, int maxNumberOfUris) {
+        List<CrawleableUri> listUris = new ArrayList<CrawleableUri>();
+        try (MongoCursor<Document> uriDocs = mongoDB.getCollection(COLLECTION_URIS).find(getIpDocument(address))
+                .sort(Sorts.ascending("added")).limit(maxNumberOfUris).iterator()) {
+            while (uriDocs.hasNext()) {
+                listUris.add(converter.fromDocument(uriDocs.next()));
             }
         } catch (Exception e) {
-            LOGGER.error("Error while adding uri to MongoDBQueue", e);
+            LOGGER.error("Error while retrieving uri from MongoDBQueue. Returning emtpy list.", e);
+            return Collections.EMPTY_LIST;
         }
+        return listUris;
     }
 
     protected void addIp(InetAddress address) {
@@ -200,25 +280,31 @@ public class MongoDBIpBasedQueue extends AbstractIpAddressBasedQueue {
     }
 
     public Document getUriDocument(CrawleableUri uri) {
-        byte[] suri = null;
+        Document docUri = createUriDocument(uri, System.currentTimeMillis());
+        if (docUri != null) {
+            docUri.put("_id", UriDocumentConverter.getId(uri));
+        }
+        return docUri;
+    }
 
+    /**
+     * Creates the document of the given URI without its ID. Note that the depth
+     * of the URI is only stored if {@link #includeDepth} is {@code true}.
+     */
+    protected Document createUriDocument(CrawleableUri uri, long added) {
+        Document docUri;
         try {
-            suri = serializer.serialize(uri);
+            docUri = converter.toDocument(uri);
         } catch (IOException e) {
             LOGGER.error("Couldn't serialize URI. Returning null.", e);
             return null;
         }
-
-        InetAddress ipAddress = uri.getIpAddress();
-
-        Document docUri = new Document();
-        docUri.put("_id", uri.getUri().hashCode());
-        docUri.put("ipAddress", ipAddress.getHostAddress());
+        docUri.put("ipAddress", uri.getIpAddress().getHostAddress());
         docUri.put("type", DEFAULT_TYPE);
-        if(includeDepth)
-        	docUri.put("depth",uri.getData(Constants.URI_DEPTH));
-        	
-        docUri.put("uri", new Binary(suri));
+        docUri.put("added", added);
+        if (!includeDepth) {
+            docUri.remove(UriDocumentConverter.DEPTH_FIELD);
+        }
         return docUri;
     }
 
@@ -257,29 +343,93 @@ public class MongoDBIpBasedQueue extends AbstractIpAddressBasedQueue {
         return resultUris;
     }
 
+    /**
+     * Checks whether the queue contains URIs. Note that the queue may still
+     * contain documents of empty IP addresses that have to keep a delay.
+     */
     @Override
     public boolean isEmpty() {
-        return length() == 0L;
+        return mongoDB.getCollection(COLLECTION_URIS).find().first() == null;
     }
 
+    /**
+     * Removes the given URIs. Note that the document of the IP address is not
+     * removed even if the group is empty since it still carries the lease and
+     * the point in time at which the IP address may be fetched again. Empty
+     * groups are removed in {@link #releaseGroup(InetAddress, long)} as soon as
+     * there is no delay to keep.
+     */
     @Override
     protected void deleteUris(InetAddress ipAddress, List<CrawleableUri> uris) {
-        // remove all URIs from the list
-        Document query = new Document();
-        query.put("ipAddress", ipAddress.getHostAddress());
-        query.put("type", DEFAULT_TYPE);
+        // remove all URIs from the list with a single request. The IDs used by
+        // older versions are removed as well.
+        List<Object> ids = new ArrayList<>(2 * uris.size());
         for (CrawleableUri uri : uris) {
-            // replace the old ID with the current ID
-            query.put("_id", uri.getUri().hashCode());
-            mongoDB.getCollection(COLLECTION_URIS).deleteMany(query);
+            ids.add(UriDocumentConverter.getId(uri));
+            ids.add(uri.getUri().hashCode());
+        }
+        Document query = getIpDocument(ipAddress);
+        mongoDB.getCollection(COLLECTION_URIS).deleteMany(Filters.and(query, Filters.in("_id", ids)));
+    }
+
+    @Override
+    protected boolean claimGroup(InetAddress address, long now) {
+        return leaseManager.claim(getIpDocument(address), now);
+    }
+
+    @Override
+    protected InetAddress claimNextGroup(long now) {
+        Document ipDoc;
+        while ((ipDoc = leaseManager.claimNext(now)) != null) {
+            try {
+                return InetAddress.getByName(ipDoc.getString("ipAddress"));
+            } catch (UnknownHostException e) {
+                // The group can never be handed out. It would stay claimed until
+                // its lease expires and would be claimed again afterwards.
+                Document query = new Document("ipAddress", ipDoc.get("ipAddress")).append("type", ipDoc.get("type"));
+                long removedUris = mongoDB.getCollection(COLLECTION_URIS).deleteMany(query).getDeletedCount();
+                mongoDB.getCollection(COLLECTION_QUEUE).deleteOne(Filters.eq("_id", ipDoc.get("_id")));
+                LOGGER.error("Got an exception when creating the InetAddress of \"" + ipDoc.getString("ipAddress")
+                        + "\". Removed the group and its " + removedUris + " URIs.", e);
+            }
         }
-        // remove the ID field
-        query.remove("_id");
-        // if there are no more URIs left of the given domain
-        if (mongoDB.getCollection(COLLECTION_URIS).find(query).first() == null) {
-            // remove the domain from the queue
-            mongoDB.getCollection(COLLECTION_QUEUE)
-                    .deleteMany(query);
+        return null;
+    }
+
+    /**
+     * Releases the lease of the given IP address. If the group is empty and
+     * there is no delay that has to be kept, the document of the IP address is
+     * removed instead.
+     */
+    @Override
+    protected void releaseGroup(InetAddress address, long nextAllowedFetch) {
+        Document ipDoc = getIpDocument(address);
+        if ((nextAllowedFetch <= System.currentTimeMillis())
+                && (mongoDB.getCollection(COLLECTION_URIS).find(ipDoc).first() == null)) {
+            mongoDB.getCollection(COLLECTION_QUEUE).deleteMany(ipDoc);
+            // URIs might have been added concurrently without holding the lock of
+            // the IP. Make sure that the IP is not lost. Since the IP may already
+            // be fetched, it can be added without a lease.
+            if (mongoDB.getCollection(COLLECTION_URIS).find(ipDoc).first() != null) {
+                addIp(address);
+            }
+        } else {
+            leaseManager.release(ipDoc, nextAllowedFetch);
+        }
+    }
+
+    public long getLeaseDuration() {
+        return leaseDuration;
+    }
+
+    /**
+     * Sets the duration (in ms) after which the lease of a group expires and the
+     * group can be claimed by another frontier instance.
+     */
+    public void setLeaseDuration(long leaseDuration) {
+        this.leaseDuration = leaseDuration;
+        if (leaseManager != null) {
+            leaseManager.setLeaseDuration(leaseDuration);
         }
     }
 
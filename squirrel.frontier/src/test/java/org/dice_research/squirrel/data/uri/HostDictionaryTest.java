@@ -0,0 +1,107 @@
+package org.dice_research.squirrel.data.uri;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link HostDictionary}.
+ */
+public class HostDictionaryTest {
+
+    @Test
+    public void testIds() throws Exception {
+        HostDictionary dictionary = new HostDictionary();
+        CrawleableUri uri1 = new CrawleableUri(new URI("http://example.org/a"));
+        CrawleableUri uri2 = new CrawleableUri(new URI("http://EXAMPLE.org/b"));
+        CrawleableUri uri3 = new CrawleableUri(new URI("http://dbpedia.org/"));
+        CrawleableUri noHost = new CrawleableUri(new URI("mailto:someone@example.org"));
+
+        Assert.assertEquals(HostDictionary.UNKNOWN_ID, uri1.getHostId());
+        Assert.assertEquals(0, dictionary.getHostId(uri1));
+        Assert.assertEquals(0, uri1.getHostId());
+        Assert.assertEquals(0, dictionary.getHostId(uri2));
+        Assert.assertEquals(1, dictionary.getHostId(uri3));
+        Assert.assertEquals(HostDictionary.UNKNOWN_ID, dictionary.getHostId(noHost));
+        Assert.assertEquals("example.org", dictionary.getHost(0));
+        Assert.assertEquals("dbpedia.org", dictionary.getHost(1));
+        Assert.assertNull(dictionary.getHost(2));
+        Assert.assertEquals(2, dictionary.getNumberOfHosts());
+
+        Assert.assertEquals(HostDictionary.UNKNOWN_ID, dictionary.getIpAddressId(uri1));
+        InetAddress address = InetAddress.getByAddress(new byte[] { 127, 0, 0, 1 });
+        uri1.setIpAddress(address);
+        uri3.setIpAddress(InetAddress.getByAddress(new byte[] { 127, 0, 0, 2 }));
+        Assert.assertEquals(0, dictionary.getIpAddressId(uri1));
+        Assert.assertEquals(1, dictionary.getIpAddressId(uri3));
+        Assert.assertEquals(address, dictionary.getIpAddress(0));
+        // changing the IP address removes the cached ID
+        uri1.setIpAddress(uri3.getIpAddress());
+        Assert.assertEquals(HostDictionary.UNKNOWN_ID, uri1.getIpAddressId());
+        Assert.assertEquals(1, dictionary.getIpAddressId(uri1));
+        Assert.assertEquals(2, dictionary.getNumberOfIpAddresses());
+    }
+
+    @Test
+    public void testCarriedIds() throws Exception {
+        HostDictionary dictionary = new HostDictionary();
+        CrawleableUri uri1 = new CrawleableUri(new URI("http://example.org/a"),
+                InetAddress.getByAddress(new byte[] { 127, 0, 0, 1 }));
+        CrawleableUri uri2 = new CrawleableUri(new URI("http://dbpedia.org/"),
+                InetAddress.getByAddress(new byte[] { 127, 0, 0, 2 }));
+        Assert.assertEquals(0, dictionary.getHostId(uri1));
+        Assert.assertEquals(1, dictionary.getHostId(uri2));
+        Assert.assertEquals(0, dictionary.getIpAddressId(uri1));
+        Assert.assertEquals(1, dictionary.getIpAddressId(uri2));
+
+        // a URI coming back from a worker carries its IDs
+        CrawleableUri returned = new CrawleableUri(uri2.getUri(), uri2.getIpAddress());
+        returned.setHostId(1);
+        returned.setIpAddressId(1);
+        Assert.assertEquals(1, dictionary.getHostId(returned));
+        Assert.assertEquals(1, dictionary.getIpAddressId(returned));
+        Assert.assertEquals(2, dictionary.getNumberOfHosts());
+
+        // IDs of a different dictionary (e.g., before a restart) are replaced
+        CrawleableUri outdated = new CrawleableUri(uri1.getUri(), uri1.getIpAddress());
+        outdated.setHostId(1);
+        outdated.setIpAddressId(5);
+        Assert.assertEquals(0, dictionary.getHostId(outdated));
+        Assert.assertEquals(0, outdated.getHostId());
+        Assert.assertEquals(0, dictionary.getIpAddressId(outdated));
+        Assert.assertEquals(0, outdated.getIpAddressId());
+    }
+
+    @Test
+    public void testConcurrentAssignment() throws Exception {
+        final HostDictionary dictionary = new HostDictionary();
+        final int numberOfHosts = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<int[]>> results = new ArrayList<>();
+        for (int t = 0; t < 4; ++t) {
+            results.add(executor.submit(() -> {
+                int[] ids = new int[numberOfHosts];
+                for (int i = 0; i < numberOfHosts; ++i) {
+                    ids[i] = dictionary.getHostId("host" + i + ".example.org");
+                }
+                return ids;
+            }));
+        }
+        executor.shutdown();
+        int[] expected = results.get(0).get();
+        for (Future<int[]> result : results) {
+            Assert.assertArrayEquals(expected, result.get());
+        }
+        Assert.assertEquals(numberOfHosts, dictionary.getNumberOfHosts());
+        for (int i = 0; i < numberOfHosts; ++i) {
+            Assert.assertEquals("host" + i + ".example.org", dictionary.getHost(expected[i]));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.dice_research.squirrel.data.uri.filter;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.UriFingerprint;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link BloomFilterKnownUriFilter} and the
+ * {@link ScalableBloomFilter} it is based on.
+ */
+public class BloomFilterKnownUriFilterTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("filter").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testBloomFilterGrowth() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        for (int i = 0; i < 10000; ++i) {
+            filter.put(UriFingerprint.fingerprint("http://example.org/known_" + i));
+        }
+        // there are no false negatives
+        for (int i = 0; i < 10000; ++i) {
+            Assert.assertTrue(filter.mightContain(UriFingerprint.fingerprint("http://example.org/known_" + i)));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; ++i) {
+            if (filter.mightContain(UriFingerprint.fingerprint("http://example.org/unknown_" + i))) {
+                ++falsePositives;
+            }
+        }
+        Assert.assertTrue("Got " + falsePositives + " false positives.", falsePositives < 200);
+    }
+
+    @Test
+    public void testFilterAndCheckpoint() throws Exception {
+        File checkpoint = new File(directory, "known-uris.bloom");
+        CountingKnownUriFilter decorated = new CountingKnownUriFilter();
+        BloomFilterKnownUriFilter filter = new BloomFilterKnownUriFilter(decorated, checkpoint);
+        filter.setExpectedNumberOfUris(10);
+        filter.open();
+
+        CrawleableUri known = new CrawleableUri(new URI("http://example.org/known"));
+        CrawleableUri unknown = new CrawleableUri(new URI("http://example.org/unknown"));
+        Assert.assertTrue(filter.isUriGood(known));
+        Assert.assertEquals(0, decorated.requests);
+        filter.add(known, Long.MAX_VALUE);
+        Assert.assertFalse(filter.isUriGood(known));
+        Assert.assertEquals(1, decorated.requests);
+        Assert.assertTrue(filter.isUriGood(unknown));
+        filter.close();
+        Assert.assertTrue(checkpoint.exists());
+
+        // the checkpoint fits to the decorated filter and is used
+        decorated.iterated = false;
+        filter = new BloomFilterKnownUriFilter(decorated, checkpoint);
+        filter.open();
+        Assert.assertFalse(decorated.iterated);
+        Assert.assertFalse(filter.isUriGood(known));
+
+        // the checkpoint is outdated and the filter is rebuilt
+        decorated.add(unknown, Long.MAX_VALUE);
+        filter = new BloomFilterKnownUriFilter(decorated, checkpoint);
+        filter.open();
+        Assert.assertTrue(decorated.iterated);
+        Assert.assertFalse(filter.isUriGood(known));
+        Assert.assertFalse(filter.isUriGood(unknown));
+        filter.close();
+    }
+
+    @Test
+    public void testBatchMethods() throws Exception {
+        CountingKnownUriFilter decorated = new CountingKnownUriFilter();
+        BloomFilterKnownUriFilter filter = new BloomFilterKnownUriFilter(decorated);
+        filter.open();
+        List<CrawleableUri> uris = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            uris.add(new CrawleableUri(new URI("http://example.org/resource_" + i)));
+        }
+        long now = System.currentTimeMillis();
+        filter.add(uris.subList(0, 5), now, now);
+
+        BitSet goodUris = filter.areUrisGood(uris);
+        for (int i = 0; i < uris.size(); ++i) {
+            Assert.assertEquals(filter.isUriGood(uris.get(i)), goodUris.get(i));
+            Assert.assertEquals(i >= 5, goodUris.get(i));
+        }
+        filter.close();
+    }
+
+    @Test
+    public void testSharedFilter() throws Exception {
+        File checkpoint = new File(directory, "known-uris.bloom");
+        CountingKnownUriFilter decorated = new CountingKnownUriFilter();
+        BloomFilterKnownUriFilter filter = new BloomFilterKnownUriFilter(decorated, checkpoint);
+        filter.setShared(true);
+        filter.open();
+
+        // a URI added by another frontier instance has to be reported as known
+        CrawleableUri uri = new CrawleableUri(new URI("http://example.org/known"));
+        decorated.add(uri, Long.MAX_VALUE);
+        Assert.assertFalse(filter.isUriGood(uri));
+        Assert.assertEquals(1, decorated.requests);
+        Assert.assertEquals(0, filter.getNumberOfFilteredRequests());
+        filter.close();
+        Assert.assertFalse(checkpoint.exists());
+    }
+
+    /**
+     * An in-memory filter that counts the requests it gets.
+     */
+    private static class CountingKnownUriFilter extends InMemoryKnownUriFilter implements KnownUriIterable {
+
+        private List<String> knownUris = new ArrayList<>();
+        private int requests = 0;
+        private boolean iterated = false;
+
+        @Override
+        public synchronized void add(CrawleableUri uri, long lastCrawlTimestamp, long nextCrawlTimestamp) {
+            knownUris.add(uri.getUri().toString());
+            super.add(uri, lastCrawlTimestamp, nextCrawlTimestamp);
+        }
+
+        @Override
+        public boolean isUriGood(CrawleableUri uri) {
+            ++requests;
+            return super.isUriGood(uri);
+        }
+
+        @Override
+        public Iterator<String> getKnownUriIterator() {
+            iterated = true;
+            return knownUris.iterator();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package org.dice_research.squirrel.data.uri.filter;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link DiskBasedKnownUriFilter}.
+ */
+public class DiskBasedKnownUriFilterTest {
+
+    private static final int NUMBER_OF_URIS = 1000;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("filter").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testAddAndCheck() throws Exception {
+        List<CrawleableUri> knownUris = createUris("http://example.org/known_");
+        List<CrawleableUri> unknownUris = createUris("http://example.org/unknown_");
+        long now = System.currentTimeMillis();
+
+        DiskBasedKnownUriFilter filter = createFilter();
+        // several merges are necessary to add all URIs
+        for (int i = 0; i < NUMBER_OF_URIS; i += 50) {
+            filter.add(knownUris.subList(i, i + 50), now, now + 100000);
+        }
+        // the first URI is outdated
+        filter.add(knownUris.get(0), now - 2000, now - 1000);
+        checkUris(filter, knownUris, unknownUris);
+        filter.flush();
+        Assert.assertEquals(NUMBER_OF_URIS, filter.count());
+        checkUris(filter, knownUris, unknownUris);
+        filter.close();
+
+        // the repository is read again
+        filter = createFilter();
+        Assert.assertEquals(NUMBER_OF_URIS, filter.count());
+        checkUris(filter, knownUris, unknownUris);
+        filter.close();
+    }
+
+    @Test
+    public void testDeferredChecks() throws Exception {
+        List<CrawleableUri> knownUris = createUris("http://example.org/known_");
+        List<CrawleableUri> unknownUris = createUris("http://example.org/unknown_");
+        long now = System.currentTimeMillis();
+
+        DiskBasedKnownUriFilter filter = createFilter();
+        filter.setCheckBatchSize(NUMBER_OF_URIS);
+        filter.add(knownUris, now, now + 100000);
+        filter.flush();
+
+        List<BitSet> results = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(2);
+        filter.checkUris(knownUris.subList(0, 10), r -> {
+            results.add(r);
+            latch.countDown();
+        });
+        filter.checkUris(unknownUris.subList(0, 10), r -> {
+            results.add(r);
+            latch.countDown();
+        });
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        // both requests have been checked in the same batch
+        Assert.assertEquals(0, results.get(0).cardinality());
+        Assert.assertEquals(10, results.get(1).cardinality());
+        filter.close();
+    }
+
+    @Test
+    public void testDeferredChecksOfComposedFilter() throws Exception {
+        List<CrawleableUri> knownUris = createUris("http://example.org/known_");
+        List<CrawleableUri> unknownUris = createUris("http://example.org/unknown_");
+        long now = System.currentTimeMillis();
+
+        DiskBasedKnownUriFilter filter = createFilter();
+        BloomFilterKnownUriFilter bloomFilter = new BloomFilterKnownUriFilter(filter);
+        bloomFilter.open();
+        UriFilterConfigurator composedFilter = new UriFilterConfigurator(bloomFilter, "AND");
+        bloomFilter.add(knownUris.subList(0, 10), now, now + 100000);
+
+        List<CrawleableUri> uris = new ArrayList<>(knownUris.subList(0, 10));
+        uris.addAll(unknownUris.subList(0, 10));
+        List<BitSet> results = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        composedFilter.checkUris(uris, r -> {
+            results.add(r);
+            latch.countDown();
+        });
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(10, results.get(0).cardinality());
+        Assert.assertEquals(10, results.get(0).nextSetBit(0));
+        filter.close();
+    }
+
+    @Test
+    public void testChecksWhileMerging() throws Exception {
+        List<CrawleableUri> knownUris = createUris("http://example.org/known_");
+        long now = System.currentTimeMillis();
+
+        DiskBasedKnownUriFilter filter = createFilter();
+        AtomicInteger added = new AtomicInteger();
+        Thread adder = new Thread(() -> {
+            // every 100 URIs, the buffer is merged into the repository
+            for (int i = 0; i < NUMBER_OF_URIS; i += 10) {
+                filter.add(knownUris.subList(i, i + 10), now, now + 100000);
+                added.set(i + 10);
+            }
+        });
+        adder.start();
+        int count;
+        do {
+            count = added.get();
+            Assert.assertEquals(0, filter.areUrisGood(knownUris.subList(0, count)).cardinality());
+        } while (count < NUMBER_OF_URIS);
+        adder.join();
+        filter.close();
+    }
+
+    private DiskBasedKnownUriFilter createFilter() {
+        DiskBasedKnownUriFilter filter = new DiskBasedKnownUriFilter(directory, true);
+        filter.setBufferSize(100);
+        filter.setIndexInterval(8);
+        filter.setCacheSize(16);
+        filter.setMaxCheckDelay(100);
+        filter.open();
+        return filter;
+    }
+
+    private static List<CrawleableUri> createUris(String prefix) throws Exception {
+        List<CrawleableUri> uris = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_URIS; ++i) {
+            uris.add(new CrawleableUri(new URI(prefix + i)));
+        }
+        return uris;
+    }
+
+    private static void checkUris(DiskBasedKnownUriFilter filter, List<CrawleableUri> knownUris,
+            List<CrawleableUri> unknownUris) {
+        BitSet goodUris = filter.areUrisGood(knownUris);
+        Assert.assertTrue(goodUris.get(0));
+        Assert.assertEquals(1, goodUris.cardinality());
+        Assert.assertTrue(filter.isUriGood(knownUris.get(0)));
+        Assert.assertFalse(filter.isUriGood(knownUris.get(1)));
+        goodUris = filter.areUrisGood(unknownUris);
+        Assert.assertEquals(NUMBER_OF_URIS, goodUris.cardinality());
+        Assert.assertTrue(filter.isUriGood(unknownUris.get(0)));
+    }
+}
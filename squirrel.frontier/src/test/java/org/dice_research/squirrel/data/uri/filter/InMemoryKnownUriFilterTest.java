@@ -0,0 +1,118 @@
+package org.dice_research.squirrel.data.uri.filter;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.UriFingerprint;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link InMemoryKnownUriFilter} and the {@link FingerprintTable} it
+ * is based on.
+ */
+public class InMemoryKnownUriFilterTest {
+
+    @Test
+    public void testFingerprintTableGrowth() {
+        for (boolean offHeap : new boolean[] { false, true }) {
+            FingerprintTable table = new FingerprintTable(2, 10, offHeap);
+            long initialCapacity = table.capacity();
+            for (int i = 0; i < 10000; ++i) {
+                long slot = table.findOrInsert(UriFingerprint.fingerprint("http://example.org/resource_" + i));
+                Assert.assertTrue(slot < 0);
+                slot = -slot - 1;
+                table.setValue(slot, 0, i);
+                table.setValue(slot, 1, -i);
+                table.setFlag(slot, (i % 2) == 0);
+            }
+            Assert.assertEquals(10000, table.size());
+            Assert.assertTrue(table.capacity() > initialCapacity);
+            for (int i = 0; i < 10000; ++i) {
+                long fingerprint = UriFingerprint.fingerprint("http://example.org/resource_" + i);
+                long slot = table.find(fingerprint);
+                Assert.assertTrue(slot >= 0);
+                Assert.assertEquals(slot, table.findOrInsert(fingerprint));
+                Assert.assertEquals(i, table.getValue(slot, 0));
+                Assert.assertEquals(-i, table.getValue(slot, 1));
+                Assert.assertEquals((i % 2) == 0, table.isFlagSet(slot));
+                Assert.assertEquals(-1, table.find(UriFingerprint.fingerprint("http://example.org/unknown_" + i)));
+            }
+        }
+    }
+
+    @Test
+    public void testIsUriGood() throws Exception {
+        CrawleableUri known = new CrawleableUri(new URI("http://example.org/known"));
+        CrawleableUri outdated = new CrawleableUri(new URI("http://example.org/outdated"));
+        CrawleableUri unknown = new CrawleableUri(new URI("http://example.org/unknown"));
+        List<CrawleableUri> uris = new ArrayList<>();
+        uris.add(known);
+        uris.add(outdated);
+        uris.add(unknown);
+        long now = System.currentTimeMillis();
+
+        InMemoryKnownUriFilter filter = new InMemoryKnownUriFilter(false, -1, false);
+        filter.add(known, now, now + 100000);
+        filter.add(outdated, now - 2000, now - 1000);
+        Assert.assertEquals(2, filter.count());
+        BitSet goodUris = filter.areUrisGood(uris);
+        Assert.assertFalse(filter.isUriGood(known) || goodUris.get(0));
+        Assert.assertFalse(filter.isUriGood(outdated) || goodUris.get(1));
+        Assert.assertTrue(filter.isUriGood(unknown) && goodUris.get(2));
+        // without the URIs, the filter can not return outdated URIs
+        Assert.assertTrue(filter.getOutdatedUris().isEmpty());
+
+        filter = new InMemoryKnownUriFilter(true, 1000, true, 10, true);
+        filter.add(known, now, now + 100000);
+        filter.add(outdated, now - 2000, now - 1000);
+        goodUris = filter.areUrisGood(uris);
+        Assert.assertFalse(filter.isUriGood(known) || goodUris.get(0));
+        Assert.assertTrue(filter.isUriGood(outdated) && goodUris.get(1));
+        Assert.assertTrue(filter.isUriGood(unknown) && goodUris.get(2));
+    }
+
+    @Test
+    public void testGetOutdatedUris() throws Exception {
+        long recrawlTime = 1000;
+        InMemoryKnownUriFilter filter = new InMemoryKnownUriFilter(true, recrawlTime);
+        filter.setTimeBucketWidth(100);
+        long now = System.currentTimeMillis();
+        List<CrawleableUri> outdatedUris = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            outdatedUris.add(new CrawleableUri(new URI("http://example.org/outdated_" + i)));
+        }
+        filter.add(outdatedUris.subList(0, 5), now - 500, now - 200);
+        filter.add(outdatedUris.subList(5, 10), now - (4 * recrawlTime), now - 100);
+        for (int i = 0; i < 10; ++i) {
+            filter.add(new CrawleableUri(new URI("http://example.org/current_" + i)), now, now + 100000);
+        }
+        filter.add(new CrawleableUri(new URI("http://example.org/never")), now, Long.MAX_VALUE);
+        // re-adding a URI moves it to a later bucket
+        CrawleableUri movedUri = new CrawleableUri(new URI("http://example.org/moved"));
+        filter.add(movedUri, now - 2000, now - 1000);
+        filter.add(movedUri, now, now + 100000);
+        Assert.assertEquals(22, filter.count());
+
+        List<CrawleableUri> result = filter.getOutdatedUris();
+        Assert.assertEquals(10, result.size());
+        for (CrawleableUri uri : outdatedUris) {
+            Assert.assertTrue(result.contains(uri));
+        }
+        // the first five URIs are in process. The other five have been
+        // crawled so long ago that their crawling is regarded as timed out
+        result = filter.getOutdatedUris();
+        Assert.assertEquals(5, result.size());
+        for (CrawleableUri uri : outdatedUris.subList(5, 10)) {
+            Assert.assertTrue(result.contains(uri));
+        }
+
+        // adding the URIs after their crawling resets their state
+        filter.add(outdatedUris, now, now + 100000);
+        Assert.assertTrue(filter.getOutdatedUris().isEmpty());
+        Assert.assertEquals(22, filter.count());
+    }
+}
@@ -4,7 +4,12 @@ import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.dice_research.squirrel.MongoDBBasedTest;
 import org.dice_research.squirrel.data.uri.CrawleableUri;
@@ -98,13 +103,64 @@ public class MongoDBKnownUriFilterTest {
 //                System.currentTimeMillis() - 10 * FrontierImpl.DEFAULT_GENERAL_RECRAWL_TIME)).run(connector.connection);
 
 
-        // filter must return uri1 now again
+        // uri1 is in process now, so the filter must return nothing
+        uris = filter.getOutdatedUris();
+        Assert.assertTrue(uris.isEmpty());
+
+        // adding uri1 again with an outdated timestamp resets its state
+        filter.add(uri1, System.currentTimeMillis() - 10);
         uris = filter.getOutdatedUris();
         Assert.assertEquals(1, uris.size());
         Assert.assertEquals(uri1, uris.get(0));
 
 //        cursor.close();
     }
+
+    @Test
+    public void testNextCrawlDecidesWhetherUriIsGood() throws Exception {
+        long now = System.currentTimeMillis();
+        CrawleableUri due = new CrawleableUri(new URI("http://example.org/due"));
+        CrawleableUri notDue = new CrawleableUri(new URI("http://example.org/notDue"));
+        CrawleableUri unknown = new CrawleableUri(new URI("http://example.org/unknown"));
+        // the last crawl is recent but the next crawl is already due
+        filter.add(due, now, now - 10);
+        // the last crawl is old but the next crawl is not due, yet
+        filter.add(notDue, now - (14L * 24 * 60 * 60 * 1000), now + 100000);
+
+        Assert.assertTrue(filter.isUriGood(due));
+        Assert.assertFalse(filter.isUriGood(notDue));
+        BitSet goodUris = filter.areUrisGood(Arrays.asList(due, notDue, unknown));
+        Assert.assertTrue(goodUris.get(0));
+        Assert.assertFalse(goodUris.get(1));
+        Assert.assertTrue(goodUris.get(2));
+    }
+
+    @Test
+    public void testRetrieveUrisToRecrawlInPages() throws Exception {
+        long now = System.currentTimeMillis();
+        Set<CrawleableUri> outdatedUris = new HashSet<>();
+        for (int i = 0; i < 25; ++i) {
+            CrawleableUri uri = new CrawleableUri(new URI("http://example.org/outdated_" + i));
+            outdatedUris.add(uri);
+            // some URIs share the same next crawl timestamp
+            filter.add(uri, now - 1000, now - 100 - (i / 2));
+        }
+        filter.add(new CrawleableUri(new URI("http://example.org/current")), now, now + 100000);
+
+        List<List<CrawleableUri>> pages = new ArrayList<>();
+        filter.retrieveUrisToRecrawl(10, pages::add);
+        Assert.assertEquals(3, pages.size());
+        Set<CrawleableUri> retrievedUris = new HashSet<>();
+        for (List<CrawleableUri> page : pages) {
+            Assert.assertTrue(page.size() <= 10);
+            retrievedUris.addAll(page);
+        }
+        Assert.assertEquals(outdatedUris, retrievedUris);
+        // all URIs are in process now
+        pages.clear();
+        filter.retrieveUrisToRecrawl(10, pages::add);
+        Assert.assertTrue(pages.isEmpty());
+    }
 //
 //    @After
 //    public void tearDown() throws Exception {
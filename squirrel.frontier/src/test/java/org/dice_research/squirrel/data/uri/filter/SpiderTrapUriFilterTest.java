@@ -0,0 +1,43 @@
+package org.dice_research.squirrel.data.uri.filter;
+
+import java.net.URI;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link SpiderTrapUriFilter}.
+ */
+public class SpiderTrapUriFilterTest {
+
+    @Test
+    public void test() throws Exception {
+        SpiderTrapUriFilter filter = new SpiderTrapUriFilter(100, 2, 3);
+        Assert.assertTrue(isUriGood(filter, "http://example.org/"));
+        Assert.assertTrue(isUriGood(filter, "http://example.org/a/b/a/b/c"));
+        Assert.assertTrue(isUriGood(filter, "http://example.org/a/aa/aaa/a/"));
+        Assert.assertTrue(isUriGood(filter, "http://example.org/a?x=1&y=2&z=3"));
+        // repeating segments
+        Assert.assertFalse(isUriGood(filter, "http://example.org/a/b/a/b/a/b"));
+        Assert.assertFalse(isUriGood(filter, "http://example.org/cal/next/2020/next/next"));
+        // too many parameters
+        Assert.assertFalse(isUriGood(filter, "http://example.org/a?x=1&y=2&z=3&w=4"));
+        // too long
+        StringBuilder builder = new StringBuilder("http://example.org/");
+        while (builder.length() <= 100) {
+            builder.append("abcdefghij");
+        }
+        Assert.assertFalse(isUriGood(filter, builder.toString()));
+
+        // disabled checks
+        filter = new SpiderTrapUriFilter(0, 0, 0);
+        Assert.assertTrue(isUriGood(filter, builder.toString()));
+        Assert.assertTrue(isUriGood(filter, "http://example.org/a/b/a/b/a/b"));
+        Assert.assertTrue(isUriGood(filter, "http://example.org/a?x=1&y=2&z=3&w=4"));
+    }
+
+    private static boolean isUriGood(UriFilter filter, String uri) throws Exception {
+        return filter.isUriGood(new CrawleableUri(new URI(uri)));
+    }
+}
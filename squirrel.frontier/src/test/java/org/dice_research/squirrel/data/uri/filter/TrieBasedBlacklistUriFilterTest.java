@@ -0,0 +1,55 @@
+package org.dice_research.squirrel.data.uri.filter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link TrieBasedBlacklistUriFilter}.
+ */
+public class TrieBasedBlacklistUriFilterTest {
+
+    @Test
+    public void testLoadAndReload() throws Exception {
+        File file = File.createTempFile("blacklist", ".txt");
+        file.deleteOnExit();
+        writeFile(file, "# a comment\n\nhost:trap.example.org\r\n  prefix:http://data.gov/rows.rdf  \n"
+                + "exact:http://example.org/a\nhttp://example.org/b");
+        try (TrieBasedBlacklistUriFilter filter = new TrieBasedBlacklistUriFilter(file)) {
+            Assert.assertEquals(4, filter.getTrie().getNumberOfRules());
+            Assert.assertFalse(filter.isUriGood(new CrawleableUri(new URI("http://a.trap.example.org/x"))));
+            Assert.assertFalse(filter.isUriGood(new CrawleableUri(new URI("http://data.gov/rows.rdf?x=1"))));
+            Assert.assertFalse(filter.isUriGood(new CrawleableUri(new URI("http://example.org/a"))));
+            Assert.assertFalse(filter.isUriGood(new CrawleableUri(new URI("http://example.org/b"))));
+            Assert.assertTrue(filter.isUriGood(new CrawleableUri(new URI("http://example.org/c"))));
+
+            // the file is only loaded again if it has been changed
+            Assert.assertFalse(filter.reload());
+            writeFile(file, "http://example.org/c\n");
+            file.setLastModified(file.lastModified() + 2000);
+            Assert.assertTrue(filter.reload());
+            Assert.assertEquals(1, filter.getTrie().getNumberOfRules());
+            Assert.assertTrue(filter.isUriGood(new CrawleableUri(new URI("http://example.org/a"))));
+            Assert.assertFalse(filter.isUriGood(new CrawleableUri(new URI("http://example.org/c"))));
+
+            // a file that can not be read does not change the rules
+            file.delete();
+            Assert.assertFalse(filter.reload());
+            Assert.assertFalse(filter.isUriGood(new CrawleableUri(new URI("http://example.org/c"))));
+        }
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+    }
+}
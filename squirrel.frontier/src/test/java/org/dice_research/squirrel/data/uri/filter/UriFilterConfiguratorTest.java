@@ -0,0 +1,168 @@
+package org.dice_research.squirrel.data.uri.filter;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the evaluation order and the statistics of the
+ * {@link UriFilterConfigurator}.
+ */
+public class UriFilterConfiguratorTest {
+
+    @Test
+    public void testAndOperation() throws Exception {
+        ExpensiveFilter expensiveFilter = new ExpensiveFilter();
+        PathFilter cheapFilter = new PathFilter("/good");
+        RecordingKnownUriFilter knownUriFilter = new RecordingKnownUriFilter();
+        UriFilterConfigurator configurator = new UriFilterConfigurator(knownUriFilter,
+                Arrays.asList(expensiveFilter, cheapFilter), "AND");
+        configurator.setReorderInterval(100);
+        Assert.assertEquals(Arrays.asList(expensiveFilter, cheapFilter), configurator.getFilterOrder());
+
+        List<CrawleableUri> uris = createUris(100);
+        BitSet result = configurator.areUrisGood(uris);
+        checkResult(uris, result, "/good");
+        // the known URI filter only got the URIs that passed the other filters
+        Assert.assertEquals(10, knownUriFilter.checkedUris.size());
+        Assert.assertEquals(100, configurator.getFilterStatistics().get(0).getCheckedUris());
+        Assert.assertEquals(100, configurator.getFilterStatistics().get(1).getCheckedUris());
+        Assert.assertEquals(90, configurator.getFilterStatistics().get(1).getRejectedUris());
+        Assert.assertEquals(10, configurator.getKnownUriFilterStatistics().getCheckedUris());
+
+        // the cheap filter that rejects most of the URIs has to be evaluated first
+        Assert.assertEquals(Arrays.asList(cheapFilter, expensiveFilter), configurator.getFilterOrder());
+        expensiveFilter.checkedUris = 0;
+        result = configurator.areUrisGood(uris);
+        checkResult(uris, result, "/good");
+        Assert.assertEquals(10, expensiveFilter.checkedUris);
+        Assert.assertTrue(configurator.isUriGood(uris.get(0)));
+        Assert.assertFalse(configurator.isUriGood(uris.get(1)));
+        Assert.assertEquals(11, expensiveFilter.checkedUris);
+    }
+
+    @Test
+    public void testOrOperation() throws Exception {
+        ExpensiveFilter expensiveFilter = new ExpensiveFilter();
+        PathFilter cheapFilter = new PathFilter("/good");
+        RecordingKnownUriFilter knownUriFilter = new RecordingKnownUriFilter();
+        // the expensive filter rejects all URIs and has to be moved to the end
+        expensiveFilter.result = false;
+        UriFilterConfigurator configurator = new UriFilterConfigurator(knownUriFilter,
+                Arrays.asList(expensiveFilter, cheapFilter), "OR");
+        configurator.setReorderInterval(100);
+
+        List<CrawleableUri> uris = createUris(100);
+        // the known URI filter accepts all URIs
+        BitSet result = configurator.areUrisGood(uris);
+        Assert.assertEquals(100, result.cardinality());
+        Assert.assertEquals(90, knownUriFilter.checkedUris.size());
+        Assert.assertEquals(Arrays.asList(cheapFilter, expensiveFilter), configurator.getFilterOrder());
+
+        // the known URI filter rejects all URIs
+        knownUriFilter.add(uris, 0, Long.MAX_VALUE);
+        expensiveFilter.checkedUris = 0;
+        result = configurator.areUrisGood(uris);
+        checkResult(uris, result, "/good");
+        Assert.assertEquals(90, expensiveFilter.checkedUris);
+    }
+
+    @Test
+    public void testWithoutListFilters() throws Exception {
+        RecordingKnownUriFilter knownUriFilter = new RecordingKnownUriFilter();
+        List<CrawleableUri> uris = createUris(10);
+        knownUriFilter.add(uris.subList(0, 5), 0, Long.MAX_VALUE);
+        for (String operator : new String[] { "AND", "OR" }) {
+            UriFilterConfigurator configurator = new UriFilterConfigurator(knownUriFilter, operator);
+            BitSet result = configurator.areUrisGood(uris);
+            Assert.assertEquals(operator, 5, result.cardinality());
+            Assert.assertEquals(operator, 5, result.nextSetBit(0));
+            Assert.assertFalse(operator, configurator.isUriGood(uris.get(0)));
+            Assert.assertTrue(operator, configurator.isUriGood(uris.get(9)));
+        }
+    }
+
+    /**
+     * Creates URIs of which every 10th URI has the path prefix "/good".
+     */
+    private static List<CrawleableUri> createUris(int count) throws Exception {
+        List<CrawleableUri> uris = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            uris.add(new CrawleableUri(
+                    new URI("http://example.org/" + (((i % 10) == 0) ? "good" : "bad") + "/" + i)));
+        }
+        return uris;
+    }
+
+    private static void checkResult(List<CrawleableUri> uris, BitSet result, String goodPrefix) {
+        for (int i = 0; i < uris.size(); ++i) {
+            Assert.assertEquals(uris.get(i).toString(), uris.get(i).getUri().getPath().startsWith(goodPrefix),
+                    result.get(i));
+        }
+    }
+
+    /**
+     * A filter that accepts URIs with the given path prefix.
+     */
+    private static class PathFilter implements UriFilter {
+
+        private String prefix;
+
+        public PathFilter(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean isUriGood(CrawleableUri uri) {
+            return uri.getUri().getPath().startsWith(prefix);
+        }
+
+        @Override
+        public void add(CrawleableUri uri) {
+        }
+    }
+
+    /**
+     * A filter that needs some time for every check.
+     */
+    private static class ExpensiveFilter implements UriFilter {
+
+        private boolean result = true;
+        private int checkedUris = 0;
+
+        @Override
+        public boolean isUriGood(CrawleableUri uri) {
+            ++checkedUris;
+            long end = System.nanoTime() + 100000;
+            while (System.nanoTime() < end) {
+                // busy waiting
+            }
+            return result;
+        }
+
+        @Override
+        public void add(CrawleableUri uri) {
+        }
+    }
+
+    private static class RecordingKnownUriFilter extends InMemoryKnownUriFilter {
+
+        private List<CrawleableUri> checkedUris = new ArrayList<>();
+
+        public RecordingKnownUriFilter() {
+            super(false, -1);
+        }
+
+        @Override
+        public synchronized BitSet areUrisGood(List<CrawleableUri> uris) {
+            checkedUris.addAll(uris);
+            return super.areUrisGood(uris);
+        }
+    }
+}
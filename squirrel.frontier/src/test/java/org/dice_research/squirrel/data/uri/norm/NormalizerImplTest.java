@@ -30,21 +30,34 @@ public class NormalizerImplTest {
 
     @Test
     public void test() {
+        check(new NormalizerImpl(createSessionIds(), createDefaultPortMap()));
+    }
+
+    @Test
+    public void testSinglePassNormalizer() {
+        check(new SinglePassNormalizer(createSessionIds(), createDefaultPortMap()));
+    }
+
+    private List<String> createSessionIds() {
         List<String> sessionIDs = new ArrayList<String>();
         sessionIDs.add("sessionid");
         sessionIDs.add("jsessionids");
         sessionIDs.add("phpsessid");
         sessionIDs.add("sid");
-        
+        return sessionIDs;
+    }
+
+    private Map<String, Integer> createDefaultPortMap() {
         Map<String, Integer> mapDefaultPort = new HashedMap<String, Integer>();
         mapDefaultPort.put("http", 80);
         mapDefaultPort.put("https", 443);
         mapDefaultPort.put("ftp", 21);
         mapDefaultPort.put("ftps", 90);
         mapDefaultPort.put("sftp", 22);
+        return mapDefaultPort;
+    }
 
-
-        NormalizerImpl normalizer = new NormalizerImpl(sessionIDs, mapDefaultPort);
+    private void check(UriNormalizer normalizer) {
         CrawleableUri normUri = normalizer.normalize(originalUri);
         Assert.assertEquals(expectedUri, normUri);
 
@@ -0,0 +1,142 @@
+package org.dice_research.squirrel.frontier.dns;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the caching and the single-flight behavior of the
+ * {@link CachingHostResolver}. The lookups are simulated to make sure that the
+ * test does not depend on the network.
+ */
+public class CachingHostResolverTest {
+
+    @Test
+    public void testSingleLookupPerHost() throws Exception {
+        Semaphore lookupPermission = new Semaphore(0);
+        CountingResolver resolver = new CountingResolver(lookupPermission, 60000, 60000);
+        List<CrawleableUri> uris = new ArrayList<>();
+        for (int i = 0; i < 20; ++i) {
+            uris.add(new CrawleableUri(new URI("http://example.org/resource_" + i)));
+        }
+        CountDownLatch latch = new CountDownLatch(uris.size());
+        List<CrawleableUri> resolvedUris = new ArrayList<>();
+        resolver.resolve(uris, u -> {
+            synchronized (resolvedUris) {
+                resolvedUris.add(u);
+            }
+            latch.countDown();
+        });
+        // all URIs should be parked while the lookup is blocked
+        Assert.assertEquals(20, resolver.getNumberOfParkedUris());
+        Assert.assertEquals(1, resolver.getNumberOfPendingLookups());
+        lookupPermission.release();
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, resolver.lookups.get());
+        // The URIs are counted as parked until the callback returns
+        for (int i = 0; (i < 100) && (resolver.getNumberOfParkedUris() > 0); ++i) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, resolver.getNumberOfParkedUris());
+        for (CrawleableUri uri : resolvedUris) {
+            Assert.assertEquals(InetAddress.getByName("127.0.0.1"), uri.getIpAddress());
+        }
+        // The next URI should be answered from the cache
+        CrawleableUri uri = new CrawleableUri(new URI("http://example.org/another_resource"));
+        List<CrawleableUri> cachedUris = new ArrayList<>();
+        resolver.resolve(uri, u -> cachedUris.add(u));
+        Assert.assertEquals(1, cachedUris.size());
+        Assert.assertEquals(1, resolver.lookups.get());
+        resolver.close();
+    }
+
+    @Test
+    public void testNegativeCaching() throws Exception {
+        Semaphore lookupPermission = new Semaphore(100);
+        CountingResolver resolver = new CountingResolver(lookupPermission, 60000, 60000);
+        CrawleableUri uri = new CrawleableUri(new URI("http://unknown.invalid/resource"));
+        CountDownLatch latch = new CountDownLatch(1);
+        resolver.resolve(uri, u -> latch.countDown());
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertNull(uri.getIpAddress());
+        // the failed lookup should be cached
+        List<CrawleableUri> cachedUris = new ArrayList<>();
+        resolver.resolve(new CrawleableUri(new URI("http://unknown.invalid/resource2")), u -> cachedUris.add(u));
+        Assert.assertEquals(1, cachedUris.size());
+        Assert.assertNull(cachedUris.get(0).getIpAddress());
+        Assert.assertEquals(1, resolver.lookups.get());
+        resolver.close();
+    }
+
+    @Test
+    public void testExpiration() throws Exception {
+        Semaphore lookupPermission = new Semaphore(100);
+        CountingResolver resolver = new CountingResolver(lookupPermission, 0, 0);
+        for (int i = 0; i < 3; ++i) {
+            CountDownLatch latch = new CountDownLatch(1);
+            resolver.resolve(new CrawleableUri(new URI("http://example.org/resource_" + i)), u -> latch.countDown());
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        }
+        // Since the entries expire directly, every URI needs its own lookup
+        Assert.assertEquals(3, resolver.lookups.get());
+        resolver.close();
+    }
+
+    @Test
+    public void testBoundedCache() throws Exception {
+        Semaphore lookupPermission = new Semaphore(100);
+        CountingResolver resolver = new CountingResolver(lookupPermission, 60000, 60000);
+        resolver.setMaxCacheSize(2);
+        String[] hosts = new String[] { "a.example.org", "b.example.org", "a.example.org", "c.example.org" };
+        for (String host : hosts) {
+            CountDownLatch latch = new CountDownLatch(1);
+            resolver.resolve(new CrawleableUri(new URI("http://" + host + "/")), u -> latch.countDown());
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(3, resolver.lookups.get());
+        // b.example.org has been used least recently and has been evicted
+        Assert.assertEquals(2, resolver.getCacheSize());
+        Assert.assertNotNull(resolver.getCachedAddress("a.example.org"));
+        Assert.assertNull(resolver.getCachedAddress("b.example.org"));
+        Assert.assertNotNull(resolver.getCachedAddress("c.example.org"));
+        resolver.close();
+    }
+
+    /**
+     * A resolver that simulates the lookups and counts them.
+     */
+    protected static class CountingResolver extends CachingHostResolver {
+
+        private Semaphore lookupPermission;
+        private AtomicInteger lookups = new AtomicInteger();
+
+        public CountingResolver(Semaphore lookupPermission, long positiveTtl, long negativeTtl) {
+            super(4, positiveTtl, negativeTtl);
+            this.lookupPermission = lookupPermission;
+        }
+
+        @Override
+        protected InetAddress lookup(String host) throws UnknownHostException {
+            lookups.incrementAndGet();
+            try {
+                lookupPermission.acquire();
+            } catch (InterruptedException e) {
+                throw new UnknownHostException(host);
+            }
+            if (host.endsWith(".invalid")) {
+                throw new UnknownHostException(host);
+            }
+            return InetAddress.getByName("127.0.0.1");
+        }
+    }
+}
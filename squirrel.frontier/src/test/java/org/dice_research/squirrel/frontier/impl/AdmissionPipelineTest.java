@@ -0,0 +1,114 @@
+package org.dice_research.squirrel.frontier.impl;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.frontier.impl.AdmissionPipeline.Stage;
+import org.dice_research.squirrel.frontier.impl.AdmissionPipeline.StageSettings;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link AdmissionPipeline}.
+ */
+public class AdmissionPipelineTest {
+
+    @Test
+    public void testStages() throws Exception {
+        final int numberOfUris = 1000;
+        final List<CrawleableUri> results = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(numberOfUris / 2);
+        try (AdmissionPipeline pipeline = new AdmissionPipeline()) {
+            // the first stage removes every second URI
+            pipeline.addStage("first", new StageSettings(2, 10, 100), (uris, next) -> {
+                List<CrawleableUri> filtered = new ArrayList<>();
+                for (CrawleableUri uri : uris) {
+                    if ((Integer.parseInt(uri.getUri().getPath().substring(1)) % 2) == 0) {
+                        filtered.add(uri);
+                    }
+                }
+                next.accept(filtered);
+            });
+            Stage last = pipeline.addStage("last", new StageSettings(1, 50, 100), (uris, next) -> {
+                batchSizes.add(uris.size());
+                results.addAll(uris);
+                for (int i = 0; i < uris.size(); ++i) {
+                    done.countDown();
+                }
+            });
+
+            List<CrawleableUri> uris = new ArrayList<>();
+            for (int i = 0; i < numberOfUris; ++i) {
+                uris.add(new CrawleableUri(new URI("http://example.org/" + i)));
+            }
+            // the capacity of the first stage is smaller than the number of URIs,
+            // i.e., this call blocks until the stages have processed enough URIs
+            pipeline.submit(uris);
+
+            Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(numberOfUris / 2, results.size());
+            // the counters of a stage are updated after its function returned
+            for (int i = 0; (i < 100) && (pipeline.getNumberOfPendingUris() > 0); ++i) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(0, pipeline.getNumberOfPendingUris());
+            for (int size : batchSizes) {
+                Assert.assertTrue(size <= 50);
+            }
+            Assert.assertEquals(numberOfUris, pipeline.getStages().get(0).getProcessedUris());
+            Assert.assertEquals(numberOfUris / 2, last.getProcessedUris());
+            Assert.assertEquals(batchSizes.size(), last.getProcessedBatches());
+        }
+    }
+
+    @Test
+    public void testFailingStage() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        try (AdmissionPipeline pipeline = new AdmissionPipeline()) {
+            pipeline.addStage("failing", new StageSettings(1, 1, 10), (uris, next) -> {
+                if (uris.get(0).getUri().getPath().equals("/fail")) {
+                    throw new IllegalStateException("test");
+                }
+                next.accept(uris);
+            });
+            pipeline.addStage("last", new StageSettings(1, 1, 10), (uris, next) -> done.countDown());
+
+            pipeline.submit(Collections.singletonList(new CrawleableUri(new URI("http://example.org/fail"))));
+            pipeline.submit(Collections.singletonList(new CrawleableUri(new URI("http://example.org/ok"))));
+            // the exception does not stop the thread of the stage
+            Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testCloseDrainsStages() throws Exception {
+        final int numberOfUris = 100;
+        final List<CrawleableUri> results = Collections.synchronizedList(new ArrayList<>());
+        AdmissionPipeline pipeline = new AdmissionPipeline();
+        pipeline.addStage("slow", new StageSettings(1, 5, numberOfUris), (uris, next) -> {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            next.accept(uris);
+        });
+        pipeline.addStage("last", new StageSettings(1, 10, numberOfUris), (uris, next) -> results.addAll(uris));
+
+        List<CrawleableUri> uris = new ArrayList<>();
+        for (int i = 0; i < numberOfUris; ++i) {
+            uris.add(new CrawleableUri(new URI("http://example.org/" + i)));
+        }
+        pipeline.submit(uris);
+        // URIs in the queues must not be discarded
+        pipeline.close();
+        Assert.assertEquals(numberOfUris, results.size());
+        Assert.assertEquals(0, pipeline.getNumberOfPendingUris());
+    }
+}
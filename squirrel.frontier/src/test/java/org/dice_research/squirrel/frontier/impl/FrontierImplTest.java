@@ -87,6 +87,7 @@ public class FrontierImplTest {
         queue.purge();
         filter.purge();
         frontier.addNewUris(uris);
+        waitForPendingLookups();
         List<CrawleableUri> nextUris = frontier.getNextUris();
         List<CrawleableUri> assertion = new ArrayList<CrawleableUri>();
         assertion.add(cuf.create(new URI("http://dbpedia.org/resource/New_York"),
@@ -100,6 +101,7 @@ public class FrontierImplTest {
     public void addNewUri() throws Exception {
         CrawleableUri uri_1 = cuf.create(new URI("http://dbpedia.org/resource/Tom_Lazarus"), null, UriType.UNKNOWN);
         frontier.addNewUri(uri_1);
+        waitForPendingLookups();
         List<CrawleableUri> nextUris = frontier.getNextUris();
         List<CrawleableUri> assertion = new ArrayList<>();
         assertion.add(cuf.create(new URI("http://dbpedia.org/resource/Tom_Lazarus"),
@@ -107,6 +109,21 @@ public class FrontierImplTest {
         assertEquals(assertion, nextUris);
     }
 
+    @Test
+    public void admittedUrisAreNotOutdated() throws Exception {
+        queue.purge();
+        filter.purge();
+        frontier.addNewUris(uris);
+        waitForPendingLookups();
+        // the URIs have not been crawled, yet, so they must not be handed out for recrawling
+        List<List<CrawleableUri>> pages = new ArrayList<>();
+        filter.retrieveUrisToRecrawl(10, pages::add);
+        assertTrue("Un-crawled URIs have been returned as outdated", pages.isEmpty());
+        for (CrawleableUri uri : uris) {
+            assertFalse("Un-crawled URI has been accepted again", frontier.uriFilter.isUriGood(uri));
+        }
+    }
+
     @Test
     public void crawlingDone() throws Exception {
         List<CrawleableUri> crawledUris = new ArrayList<>();
@@ -127,6 +144,7 @@ public class FrontierImplTest {
     @Test
     public void getNumberOfPendingUris() throws Exception {
         frontier.addNewUris(uris);
+        waitForPendingLookups();
 //        for(CrawleableUri curi: uris)
 //        	queue.addUri(curi);
         List<CrawleableUri> nextUris = frontier.getNextUris();
@@ -150,6 +168,7 @@ public class FrontierImplTest {
         uris.add(uri_1);
         uris.add(uri_2);
         frontier.addNewUris(uris);
+        waitForPendingLookups();
         List<CrawleableUri> nextUris = frontier.getNextUris();
         for (CrawleableUri uri : nextUris) {
             assertTrue(uris.contains(uri));
@@ -173,6 +192,16 @@ public class FrontierImplTest {
         assertFalse("uri_2 has been found but was not expected", nextUris.contains(uri_2));
     }
 
+    /**
+     * The frontier resolves the hosts of new URIs asynchronously. This method
+     * waits until all URIs have been added to the queue.
+     */
+    private void waitForPendingLookups() throws InterruptedException {
+        while (frontier.hostResolver.getNumberOfParkedUris() > 0) {
+            Thread.sleep(10);
+        }
+    }
+
     @After
     public void tearDown() throws Exception {
         filter.purge();
@@ -0,0 +1,93 @@
+package org.dice_research.squirrel.frontier.impl;
+
+import java.net.URI;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.HostDictionary;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link HostBudget}.
+ */
+public class HostBudgetTest {
+
+    private HostDictionary dictionary = new HostDictionary();
+
+    @Test
+    public void testPendingUris() throws Exception {
+        HostBudget budget = new HostBudget(2, 0, 0, 0);
+        CrawleableUri uri1 = create("http://example.org/1");
+        Assert.assertTrue(budget.admit(uri1, 0));
+        Assert.assertTrue(budget.admit(create("http://example.org/2"), 0));
+        Assert.assertFalse(budget.admit(create("http://example.org/3"), 0));
+        // other hosts have their own budget
+        Assert.assertTrue(budget.admit(create("http://example.com/1"), 0));
+        Assert.assertEquals(2, budget.getPendingUris(uri1.getHostId()));
+
+        budget.crawled(uri1, 0);
+        Assert.assertEquals(1, budget.getPendingUris(uri1.getHostId()));
+        Assert.assertTrue(budget.admit(create("http://example.org/3"), 0));
+        budget.removed(uri1);
+        Assert.assertTrue(budget.admit(create("http://example.org/4"), 0));
+        Assert.assertEquals(1, budget.getRejectedUris());
+    }
+
+    @Test
+    public void testWindow() throws Exception {
+        HostBudget budget = new HostBudget(0, 2, 1000, 0);
+        CrawleableUri uri1 = create("http://example.org/1");
+        CrawleableUri uri2 = create("http://example.org/2");
+        Assert.assertTrue(budget.admit(uri1, 0));
+        Assert.assertTrue(budget.admit(uri2, 0));
+        budget.crawled(uri1, 100);
+        budget.crawled(uri2, 200);
+        // both URIs have been crawled in the current window
+        Assert.assertFalse(budget.admit(create("http://example.org/3"), 500));
+        // a new window starts
+        Assert.assertTrue(budget.admit(create("http://example.org/3"), 1500));
+    }
+
+    @Test
+    public void testQueryVariants() throws Exception {
+        HostBudget budget = new HostBudget(0, 0, 0, 3);
+        for (int i = 0; i < 3; ++i) {
+            Assert.assertTrue(budget.admit(create("http://example.org/search?page=" + i), 0));
+        }
+        Assert.assertFalse(budget.admit(create("http://example.org/search?page=3"), 0));
+        Assert.assertFalse(budget.admit(create("http://example.org/search?q=x&page=1"), 0));
+        // URIs without query or with a different path are not affected
+        Assert.assertTrue(budget.admit(create("http://example.org/search"), 0));
+        Assert.assertTrue(budget.admit(create("http://example.org/list?page=1"), 0));
+        Assert.assertTrue(budget.admit(create("http://example.com/search?page=1"), 0));
+    }
+
+    @Test
+    public void testQueryVariantWindow() throws Exception {
+        HostBudget budget = new HostBudget(0, 0, 1000, 2);
+        Assert.assertTrue(budget.admit(create("http://example.org/search?page=1"), 0));
+        Assert.assertTrue(budget.admit(create("http://example.org/search?page=2"), 100));
+        Assert.assertFalse(budget.admit(create("http://example.org/search?page=3"), 500));
+        // the variants are counted again in the next window
+        Assert.assertTrue(budget.admit(create("http://example.org/search?page=3"), 1500));
+    }
+
+    @Test
+    public void testChargedUris() throws Exception {
+        HostBudget budget = new HostBudget(2, 0, 0, 0);
+        CrawleableUri recrawled = create("http://example.org/1");
+        // a recrawled URI is pending without being admitted
+        budget.charge(recrawled);
+        Assert.assertEquals(1, budget.getPendingUris(recrawled.getHostId()));
+        Assert.assertTrue(budget.admit(create("http://example.org/2"), 0));
+        Assert.assertFalse(budget.admit(create("http://example.org/3"), 0));
+        budget.crawled(recrawled, 0);
+        Assert.assertEquals(1, budget.getPendingUris(recrawled.getHostId()));
+    }
+
+    private CrawleableUri create(String uri) throws Exception {
+        CrawleableUri curi = new CrawleableUri(new URI(uri));
+        dictionary.getHostId(curi);
+        return curi;
+    }
+}
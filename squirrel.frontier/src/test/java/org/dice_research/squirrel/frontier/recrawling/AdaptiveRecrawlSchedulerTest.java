@@ -0,0 +1,150 @@
+package org.dice_research.squirrel.frontier.recrawling;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dice_research.squirrel.Constants;
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.filter.RecrawlInfo;
+import org.dice_research.squirrel.data.uri.filter.RecrawlInfoStore;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link AdaptiveRecrawlScheduler}.
+ */
+public class AdaptiveRecrawlSchedulerTest {
+
+    private static final long DEFAULT_INTERVAL = 100000;
+
+    private AdaptiveRecrawlScheduler scheduler;
+    private InMemoryRecrawlInfoStore store;
+
+    @Before
+    public void setUp() {
+        scheduler = new AdaptiveRecrawlScheduler(DEFAULT_INTERVAL);
+        scheduler.setMinRecrawlInterval(1000);
+        scheduler.setMaxRecrawlInterval(1000000);
+        store = new InMemoryRecrawlInfoStore();
+    }
+
+    @Test
+    public void testChangingAndStableContent() throws Exception {
+        CrawleableUri changing = new CrawleableUri(new URI("http://example.org/changing"));
+        CrawleableUri stable = new CrawleableUri(new URI("http://example.org/stable"));
+        long now = 0;
+        // first crawl: both URIs get the default interval
+        crawl(now, changing, "a0", stable, "b");
+        Assert.assertEquals(DEFAULT_INTERVAL, changing.getData(Constants.URI_RECRAWL_INTERVAL));
+        Assert.assertEquals(DEFAULT_INTERVAL, stable.getData(Constants.URI_RECRAWL_INTERVAL));
+        Assert.assertEquals(now + DEFAULT_INTERVAL, store.nextCrawls.get(changing.getUri()).longValue());
+
+        long changingInterval = DEFAULT_INTERVAL;
+        long stableInterval = DEFAULT_INTERVAL;
+        for (int i = 1; i < 5; ++i) {
+            now += DEFAULT_INTERVAL;
+            crawl(now, changing, "a" + i, stable, "b");
+            long newChangingInterval = (Long) changing.getData(Constants.URI_RECRAWL_INTERVAL);
+            long newStableInterval = (Long) stable.getData(Constants.URI_RECRAWL_INTERVAL);
+            Assert.assertTrue(newChangingInterval < changingInterval);
+            Assert.assertTrue(newStableInterval > stableInterval);
+            changingInterval = newChangingInterval;
+            stableInterval = newStableInterval;
+        }
+        // the intervals stay within the bounds
+        for (int i = 5; i < 30; ++i) {
+            now += DEFAULT_INTERVAL;
+            crawl(now, changing, "a" + i, stable, "b");
+        }
+        Assert.assertEquals(1000L, changing.getData(Constants.URI_RECRAWL_INTERVAL));
+        Assert.assertEquals(1000000L, stable.getData(Constants.URI_RECRAWL_INTERVAL));
+    }
+
+    @Test
+    public void testFailedCrawlKeepsInterval() throws Exception {
+        CrawleableUri uri = new CrawleableUri(new URI("http://example.org/page"));
+        crawl(0, uri, "a");
+        crawl(DEFAULT_INTERVAL, uri, "b");
+        long interval = (Long) uri.getData(Constants.URI_RECRAWL_INTERVAL);
+        crawl(2 * DEFAULT_INTERVAL, uri, null);
+        Assert.assertEquals(interval, uri.getData(Constants.URI_RECRAWL_INTERVAL));
+        // the hash of the last successful crawl is still known
+        Assert.assertEquals("b", store.infos.get(uri.getUri()).getContentHash());
+    }
+
+    @Test
+    public void testHostPrior() throws Exception {
+        CrawleableUri stable = new CrawleableUri(new URI("http://stable.example.org/1"));
+        long now = 0;
+        for (int i = 0; i < 5; ++i) {
+            crawl(now, stable, "b");
+            now += DEFAULT_INTERVAL;
+        }
+        // a new URI of the same host inherits the longer interval of the host
+        CrawleableUri sameHost = new CrawleableUri(new URI("http://stable.example.org/2"));
+        CrawleableUri otherHost = new CrawleableUri(new URI("http://other.example.org/1"));
+        crawl(now, sameHost, "c", otherHost, "d");
+        Assert.assertTrue((Long) sameHost.getData(Constants.URI_RECRAWL_INTERVAL) > DEFAULT_INTERVAL);
+        Assert.assertEquals(DEFAULT_INTERVAL, otherHost.getData(Constants.URI_RECRAWL_INTERVAL));
+    }
+
+    @Test
+    public void testPreferredRecrawlTimestamp() throws Exception {
+        CrawleableUri uri = new CrawleableUri(new URI("http://example.org/page"));
+        uri.addData(Constants.URI_PREFERRED_RECRAWL_ON, 12345L);
+        crawl(0, uri, "a");
+        Assert.assertEquals(12345L, store.nextCrawls.get(uri.getUri()).longValue());
+    }
+
+    /**
+     * Simulates the crawling of the given URIs. The array contains pairs of URIs
+     * and their content hashes.
+     */
+    private void crawl(long now, Object... urisAndHashes) {
+        List<CrawleableUri> uris = new ArrayList<>();
+        for (int i = 0; i < urisAndHashes.length; i += 2) {
+            CrawleableUri uri = (CrawleableUri) urisAndHashes[i];
+            if (urisAndHashes[i + 1] == null) {
+                uri.getData().remove(Constants.URI_CONTENT_HASH);
+            } else {
+                uri.addData(Constants.URI_CONTENT_HASH, urisAndHashes[i + 1]);
+            }
+            uris.add(uri);
+        }
+        scheduler.scheduleRecrawls(uris, store, now);
+        store.addCrawledUris(uris, now);
+    }
+
+    private static class InMemoryRecrawlInfoStore implements RecrawlInfoStore {
+
+        private Map<URI, RecrawlInfo> infos = new HashMap<>();
+        private Map<URI, Long> nextCrawls = new HashMap<>();
+
+        @Override
+        public List<RecrawlInfo> getRecrawlInfos(List<CrawleableUri> uris) {
+            RecrawlInfo[] result = new RecrawlInfo[uris.size()];
+            for (int i = 0; i < result.length; ++i) {
+                result[i] = infos.get(uris.get(i).getUri());
+            }
+            return Arrays.asList(result);
+        }
+
+        @Override
+        public void addCrawledUris(List<CrawleableUri> uris, long lastCrawlTimestamp) {
+            for (CrawleableUri uri : uris) {
+                RecrawlInfo old = infos.get(uri.getUri());
+                Object hash = uri.getData(Constants.URI_CONTENT_HASH);
+                infos.put(uri.getUri(),
+                        new RecrawlInfo(
+                                (hash != null) ? hash.toString() : ((old != null) ? old.getContentHash() : null),
+                                (Long) uri.getData(Constants.URI_RECRAWL_INTERVAL), lastCrawlTimestamp));
+                nextCrawls.put(uri.getUri(), RecrawlInfoStore.getNextCrawlTimestamp(uri, lastCrawlTimestamp));
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.dice_research.squirrel.mongodb;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.dice_research.squirrel.Constants;
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.UriType;
+import org.dice_research.squirrel.data.uri.serialize.Serializer;
+import org.dice_research.squirrel.data.uri.serialize.java.SnappyJavaUriSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UriDocumentConverterTest {
+
+    private Serializer serializer = new SnappyJavaUriSerializer();
+    private UriDocumentConverter converter = new UriDocumentConverter(serializer);
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        CrawleableUri uri = new CrawleableUri(new URI("http://example.org/resource"),
+                InetAddress.getByName("192.168.100.1"), UriType.DEREFERENCEABLE);
+        uri.addData(Constants.URI_DEPTH, 3);
+        uri.addData(Constants.URI_TYPE_KEY, Constants.URI_TYPE_VALUE_DEREF);
+        uri.addData(Constants.URI_PREFERRED_RECRAWL_ON, 12345L);
+        List<String> complexValue = new ArrayList<>();
+        complexValue.add("value");
+        uri.addData("complex", complexValue);
+
+        Document doc = converter.toDocument(uri);
+        // simple values should be stored as structured fields
+        Assert.assertEquals("http://example.org/resource", doc.get(UriDocumentConverter.URI_FIELD));
+        Assert.assertEquals(3, doc.get(UriDocumentConverter.DEPTH_FIELD));
+        Assert.assertTrue(doc.get(UriDocumentConverter.SERIALIZED_DATA_FIELD) instanceof Binary);
+
+        CrawleableUri result = converter.fromDocument(doc);
+        Assert.assertEquals(uri.getUri(), result.getUri());
+        Assert.assertEquals(uri.getIpAddress(), result.getIpAddress());
+        Assert.assertEquals(uri.getType(), result.getType());
+        Assert.assertEquals(uri.getData(), result.getData());
+    }
+
+    @Test
+    public void testLegacyDocument() throws Exception {
+        CrawleableUri uri = new CrawleableUri(new URI("http://example.org/resource"),
+                InetAddress.getByName("192.168.100.1"));
+        uri.addData(Constants.URI_DEPTH, 2);
+        Document doc = new Document();
+        doc.put("_id", uri.getUri().hashCode());
+        doc.put(UriDocumentConverter.URI_FIELD, new Binary(serializer.serialize(uri)));
+
+        CrawleableUri result = converter.fromDocument(doc);
+        Assert.assertEquals(uri.getUri(), result.getUri());
+        Assert.assertEquals(uri.getIpAddress(), result.getIpAddress());
+        Assert.assertEquals(uri.getData(), result.getData());
+    }
+
+    @Test
+    public void testIds() throws Exception {
+        long id1 = UriDocumentConverter.getId(new CrawleableUri(new URI("http://example.org/resource1")));
+        long id2 = UriDocumentConverter.getId(new CrawleableUri(new URI("http://example.org/resource2")));
+        Assert.assertNotEquals(id1, id2);
+        Assert.assertEquals(id1, UriDocumentConverter.getId(new CrawleableUri(new URI("http://example.org/resource1"))));
+    }
+}
@@ -0,0 +1,137 @@
+package org.dice_research.squirrel.queue;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dice_research.squirrel.Constants;
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.CrawleableUriFactory4Tests;
+import org.dice_research.squirrel.data.uri.UriType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that failing groups are backed off and quarantined and that leases can
+ * be given back without removing their URIs.
+ */
+public class BackoffSchedulingTest {
+
+    @Test
+    public void testFailingGroupIsDelayed() throws Exception {
+        InMemoryQueue queue = new InMemoryQueue();
+        queue.setMaxUrisPerLease(3);
+        queue.setTargetLeaseDuration(0);
+        CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+        InetAddress deadIp = InetAddress.getByName("192.168.100.1");
+        InetAddress aliveIp = InetAddress.getByName("192.168.100.2");
+        for (int i = 0; i < 6; ++i) {
+            queue.addUri(factory.create(new URI("http://example1.org/resource_" + i), deadIp, UriType.DEREFERENCEABLE));
+        }
+        for (int i = 0; i < 3; ++i) {
+            queue.addUri(factory.create(new URI("http://example2.org/resource_" + i), aliveIp, UriType.DEREFERENCEABLE));
+        }
+        int deadGroup = queue.getGroupId(deadIp);
+        int aliveGroup = queue.getGroupId(aliveIp);
+
+        List<CrawleableUri> lease = queue.getNextUris();
+        Assert.assertEquals(deadIp, lease.get(0).getIpAddress());
+        Assert.assertEquals(3, lease.size());
+        // the first URI timed out and the worker did not try the others
+        addResults(lease.get(0), false, null, true);
+        queue.markUrisAsAccessible(lease);
+        Assert.assertTrue(queue.getBackoffController().isBackingOff(deadGroup));
+        Assert.assertEquals(GroupBackoffController.DEFAULT_BASE_BACKOFF,
+                queue.getBackoffController().getBackoff(deadGroup));
+
+        // the failing group is not handed out while it is backing off
+        lease = queue.getNextUris();
+        Assert.assertEquals(aliveIp, lease.get(0).getIpAddress());
+        addResults(lease.get(0), false, 404, false);
+        queue.markUrisAsAccessible(lease);
+        Assert.assertFalse(queue.getBackoffController().isBackingOff(aliveGroup));
+        Assert.assertNull(queue.getNextUris());
+
+        // the backoff is over, but the group gets a single URI to probe it
+        queue.getScheduler().release(deadIp, 0, 0);
+        lease = queue.getNextUris();
+        Assert.assertEquals(1, lease.size());
+        Assert.assertEquals(deadIp, lease.get(0).getIpAddress());
+        addResults(lease.get(0), true, 200, false);
+        queue.markUrisAsAccessible(lease);
+        Assert.assertFalse(queue.getBackoffController().isBackingOff(deadGroup));
+        Assert.assertEquals(1, queue.getBackoffController().getStatistics(deadGroup).getFailedUris());
+        Assert.assertEquals(1, queue.getBackoffController().getStatistics(deadGroup).getSuccessfulUris());
+
+        // the statistics of the groups are dropped as soon as they are removed
+        lease = queue.getNextUris();
+        Assert.assertEquals(deadIp, lease.get(0).getIpAddress());
+        queue.markUrisAsAccessible(lease);
+        Assert.assertNull(queue.getNextUris());
+        Assert.assertEquals(0, queue.getBackoffController().getNumberOfGroups());
+    }
+
+    @Test
+    public void testReleaseOfDeadWorkerLease() throws Exception {
+        InMemoryQueue queue = new InMemoryQueue();
+        CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+        InetAddress ip = InetAddress.getByName("192.168.100.1");
+        for (int i = 0; i < 3; ++i) {
+            queue.addUri(factory.create(new URI("http://example1.org/resource_" + i), ip, UriType.DEREFERENCEABLE));
+        }
+        List<CrawleableUri> lease = queue.getNextUris();
+        Assert.assertEquals(3, lease.size());
+        Assert.assertNull(queue.getNextUris());
+        Assert.assertEquals(1, queue.getNumberOfBlockedKeys());
+
+        // the worker died, i.e., the URIs are handed out again
+        queue.releaseUris(lease);
+        Assert.assertEquals(0, queue.getNumberOfBlockedKeys());
+        Assert.assertEquals(lease, queue.getNextUris());
+        queue.markIpAddressAsAccessible(ip);
+        Assert.assertEquals(lease, queue.getNextUris());
+    }
+
+    @Test
+    public void testQuarantine() throws Exception {
+        GroupBackoffController controller = new GroupBackoffController();
+        int groupId = 0;
+        controller.setBaseBackoff(10);
+        controller.setMaxBackoff(50);
+        controller.setQuarantineThreshold(4);
+        controller.setQuarantineInterval(1000);
+        controller.setMaxQuarantineInterval(3000);
+        CrawleableUri failing = new CrawleableUri(new URI("http://example.org/"));
+        addResults(failing, false, 503, false);
+        CrawleableUri rejected = new CrawleableUri(new URI("http://example.org/private"));
+        addResults(rejected, false, null, false);
+
+        long[] expectedDelays = new long[] { 10, 20, 40, 1000, 2000, 3000, 3000 };
+        for (long expectedDelay : expectedDelays) {
+            Assert.assertEquals(expectedDelay, controller.leaseFinished(groupId, Arrays.asList(failing)));
+        }
+        Assert.assertTrue(controller.isQuarantined(groupId));
+        Assert.assertEquals(1, controller.getNumberOfQuarantinedGroups());
+        // URIs that do not say anything about the host do not change its state
+        Assert.assertEquals(3000, controller.leaseFinished(groupId, Arrays.asList(rejected)));
+
+        CrawleableUri successful = new CrawleableUri(new URI("http://example.org/"));
+        addResults(successful, true, 200, false);
+        Assert.assertEquals(0, controller.leaseFinished(groupId, Arrays.asList(failing, successful)));
+        Assert.assertFalse(controller.isQuarantined(groupId));
+        Assert.assertFalse(controller.isBackingOff(groupId));
+        Assert.assertEquals(0, controller.getNumberOfQuarantinedGroups());
+        Assert.assertEquals(8, controller.getStatistics(groupId).getFailedUris());
+    }
+
+    private static void addResults(CrawleableUri uri, boolean successful, Integer status, boolean hostError) {
+        uri.addData(Constants.URI_CRAWLING_SUCCESSFUL, successful);
+        if (status != null) {
+            uri.addData(Constants.URI_HTTP_STATUS_CODE, status);
+        }
+        if (hostError) {
+            uri.addData(Constants.URI_HOST_ERROR, true);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.dice_research.squirrel.queue;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.CrawleableUriFactory4Tests;
+import org.dice_research.squirrel.data.uri.UriType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Adds and leases URIs of several groups in parallel and checks that every URI
+ * is handed out exactly once and that a group is never leased by two threads at
+ * the same time.
+ */
+public class ConcurrentGroupingQueueTest {
+
+    private static final int NUMBER_OF_GROUPS = 20;
+    private static final int URIS_PER_GROUP = 50;
+    private static final int NUMBER_OF_THREADS = 8;
+
+    @Test
+    public void test() throws Exception {
+        InMemoryQueue queue = new InMemoryQueue();
+        queue.setMaxUrisPerLease(7);
+        queue.setTargetLeaseDuration(0);
+        CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+        List<CrawleableUri> uris = new ArrayList<>();
+        for (int g = 0; g < NUMBER_OF_GROUPS; ++g) {
+            InetAddress ip = InetAddress.getByName("192.168.100." + g);
+            for (int i = 0; i < URIS_PER_GROUP; ++i) {
+                uris.add(factory.create(new URI("http://example" + g + ".org/resource_" + i), ip,
+                        UriType.DEREFERENCEABLE));
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        Set<String> retrievedUris = ConcurrentHashMap.newKeySet();
+        Set<InetAddress> leasedGroups = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch startSignal = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        // producers
+        for (int t = 0; t < NUMBER_OF_THREADS / 2; ++t) {
+            final int threadId = t;
+            futures.add(executor.submit(() -> {
+                startSignal.await();
+                for (int i = threadId; i < uris.size(); i += NUMBER_OF_THREADS / 2) {
+                    queue.addUri(uris.get(i));
+                }
+                return null;
+            }));
+        }
+        // consumers
+        for (int t = 0; t < NUMBER_OF_THREADS / 2; ++t) {
+            futures.add(executor.submit(() -> {
+                startSignal.await();
+                while (retrievedUris.size() < uris.size()) {
+                    List<CrawleableUri> lease = queue.getNextUris();
+                    if (lease == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    InetAddress ip = lease.get(0).getIpAddress();
+                    if (!leasedGroups.add(ip)) {
+                        conflicts.incrementAndGet();
+                    }
+                    for (CrawleableUri uri : lease) {
+                        if (!retrievedUris.add(uri.getUri().toString())) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                    leasedGroups.remove(ip);
+                    queue.markUrisAsAccessible(lease);
+                }
+                return null;
+            }));
+        }
+        startSignal.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(0, conflicts.get());
+        Assert.assertEquals(0, duplicates.get());
+        Assert.assertEquals(uris.size(), retrievedUris.size());
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(0, queue.getNumberOfBlockedKeys());
+    }
+}
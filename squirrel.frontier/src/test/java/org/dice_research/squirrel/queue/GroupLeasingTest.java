@@ -0,0 +1,93 @@
+package org.dice_research.squirrel.queue;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.CrawleableUriFactory4Tests;
+import org.dice_research.squirrel.data.uri.HostDictionary;
+import org.dice_research.squirrel.data.uri.UriType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the bounded leasing of URI groups, i.e., that a group is handed out in
+ * several leases of a limited size and that the group is blocked until the
+ * current lease has been acknowledged.
+ */
+public class GroupLeasingTest {
+
+    @Test
+    public void testLeaseSize() throws Exception {
+        InMemoryQueue queue = new InMemoryQueue();
+        queue.setMaxUrisPerLease(10);
+        queue.setTargetLeaseDuration(0);
+        CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+        InetAddress ip = InetAddress.getByName("192.168.100.1");
+        for (int i = 0; i < 25; ++i) {
+            queue.addUri(factory.create(new URI("http://example.org/resource_" + i), ip, UriType.DEREFERENCEABLE));
+        }
+
+        Set<String> retrievedUris = new HashSet<>();
+        int expectedSizes[] = new int[] { 10, 10, 5 };
+        for (int i = 0; i < expectedSizes.length; ++i) {
+            List<CrawleableUri> lease = queue.getNextUris();
+            Assert.assertNotNull(lease);
+            Assert.assertEquals(expectedSizes[i], lease.size());
+            // the group is blocked until the lease has been acknowledged
+            Assert.assertNull(queue.getNextUris());
+            for (CrawleableUri uri : lease) {
+                Assert.assertTrue("Got " + uri.getUri() + " twice.", retrievedUris.add(uri.getUri().toString()));
+            }
+            queue.markUrisAsAccessible(lease);
+        }
+        Assert.assertEquals(25, retrievedUris.size());
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(1, queue.getLeaseSizeController().getNumberOfGroups());
+        // the empty group is removed, i.e., its statistics are dropped
+        Assert.assertNull(queue.getNextUris());
+        Assert.assertEquals(0, queue.getLeaseSizeController().getNumberOfGroups());
+    }
+
+    @Test
+    public void testByteBudget() throws Exception {
+        InMemoryQueue queue = new InMemoryQueue();
+        queue.setMaxUrisPerLease(100);
+        queue.setTargetLeaseDuration(0);
+        CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+        InetAddress ip = InetAddress.getByName("192.168.100.1");
+        CrawleableUri uri = null;
+        for (int i = 0; i < 20; ++i) {
+            uri = factory.create(new URI("http://example.org/resource_" + i), ip, UriType.DEREFERENCEABLE);
+            queue.addUri(uri);
+        }
+        // Only 3 URIs should fit into a single lease
+        queue.setMaxBytesPerLease((3 * queue.estimateSize(uri)) + 1);
+        List<CrawleableUri> lease = queue.getNextUris();
+        Assert.assertEquals(3, lease.size());
+        queue.markUrisAsAccessible(lease);
+
+        // A single URI is always handed out, even if it exceeds the budget
+        queue.setMaxBytesPerLease(1);
+        lease = queue.getNextUris();
+        Assert.assertEquals(1, lease.size());
+    }
+
+    @Test
+    public void testSharedGroupIds() throws Exception {
+        HostDictionary dictionary = new HostDictionary();
+        InetAddress ip1 = InetAddress.getByName("192.168.100.1");
+        InetAddress ip2 = InetAddress.getByName("192.168.100.2");
+        dictionary.getIpAddressId(ip2);
+        InMemoryQueue queue = new InMemoryQueue();
+        queue.setHostDictionary(dictionary);
+        // the queue uses the IDs of the frontier's dictionary
+        Assert.assertEquals(dictionary.getIpAddressId(ip2), queue.getGroupId(ip2));
+        Assert.assertEquals(1, queue.getGroupId(ip1));
+        Assert.assertEquals(1, dictionary.getIpAddressId(ip1));
+        Assert.assertEquals(2, dictionary.getNumberOfIpAddresses());
+    }
+}
@@ -0,0 +1,92 @@
+package org.dice_research.squirrel.queue;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.List;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.CrawleableUriFactory4Tests;
+import org.dice_research.squirrel.data.uri.UriType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link InMemoryIpHostQueue} hands out the hosts of an IP
+ * address round-robin and keeps the number of concurrent leases per IP
+ * address.
+ */
+public class IpHostSchedulingTest {
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        InMemoryIpHostQueue queue = new InMemoryIpHostQueue();
+        queue.setMaxUrisPerLease(1);
+        queue.setTargetLeaseDuration(0);
+        CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+        InetAddress ip = InetAddress.getByName("192.168.100.1");
+        String[] hosts = new String[] { "a.example.org", "b.example.org", "c.example.org" };
+        for (int i = 0; i < 2; ++i) {
+            for (String host : hosts) {
+                queue.addUri(factory.create(new URI("http://" + host + "/resource_" + i), ip,
+                        UriType.DEREFERENCEABLE));
+            }
+        }
+
+        for (int i = 0; i < 2; ++i) {
+            for (String host : hosts) {
+                List<CrawleableUri> lease = queue.getNextUris();
+                Assert.assertEquals(1, lease.size());
+                Assert.assertEquals(host, lease.get(0).getUri().getHost());
+                // the other hosts of the IP have to wait
+                Assert.assertNull(queue.getNextUris());
+                Assert.assertEquals(1, queue.getNumberOfLeases(ip));
+                queue.markUrisAsAccessible(lease);
+            }
+        }
+        Assert.assertNull(queue.getNextUris());
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(0, queue.getNumberOfLeases(ip));
+        Assert.assertEquals(0, queue.getNumberOfParkedHosts(ip));
+    }
+
+    @Test
+    public void testConcurrentLeases() throws Exception {
+        InMemoryIpHostQueue queue = new InMemoryIpHostQueue();
+        CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+        InetAddress cdnIp = InetAddress.getByName("192.168.100.1");
+        InetAddress otherIp = InetAddress.getByName("192.168.100.2");
+        queue.setMaxLeases(cdnIp, 2);
+        for (int i = 0; i < 3; ++i) {
+            queue.addUri(factory.create(new URI("http://host" + i + ".example.org/"), cdnIp,
+                    UriType.DEREFERENCEABLE));
+            queue.addUri(factory.create(new URI("http://host" + i + ".example.com/"), otherIp,
+                    UriType.DEREFERENCEABLE));
+        }
+
+        // two hosts of the CDN and a single host of the other IP are leased
+        List<CrawleableUri> lease1 = queue.getNextUris();
+        List<CrawleableUri> lease2 = queue.getNextUris();
+        List<CrawleableUri> lease3 = queue.getNextUris();
+        Assert.assertNotNull(lease3);
+        Assert.assertNull(queue.getNextUris());
+        Assert.assertEquals(2, queue.getNumberOfLeases(cdnIp));
+        Assert.assertEquals(1, queue.getNumberOfParkedHosts(cdnIp));
+        Assert.assertEquals(1, queue.getNumberOfLeases(otherIp));
+        Assert.assertEquals(2, queue.getNumberOfParkedHosts(otherIp));
+
+        // the lease of a dead worker is given back, i.e., the parked host of the
+        // CDN gets the slot
+        List<CrawleableUri> cdnLease = (lease1.get(0).getIpAddress().equals(cdnIp)) ? lease1 : lease2;
+        queue.releaseUris(cdnLease);
+        List<CrawleableUri> lease4 = queue.getNextUris();
+        Assert.assertEquals(cdnIp, lease4.get(0).getIpAddress());
+        Assert.assertNotEquals(cdnLease.get(0).getUri(), lease4.get(0).getUri());
+        Assert.assertNull(queue.getNextUris());
+
+        // a late acknowledgement of the released lease must not free a second
+        // slot of the CDN
+        queue.markUrisAsAccessible(cdnLease);
+        Assert.assertEquals(2, queue.getNumberOfLeases(cdnIp));
+        Assert.assertNull(queue.getNextUris());
+    }
+}
@@ -0,0 +1,108 @@
+package org.dice_research.squirrel.queue;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.List;
+
+import org.dice_research.squirrel.Constants;
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.CrawleableUriFactory4Tests;
+import org.dice_research.squirrel.data.uri.UriType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that the queue hands out a group only after the crawl delay reported
+ * by the worker has passed.
+ */
+public class PolitenessSchedulingTest {
+
+    private static final long CRAWL_DELAY = 300;
+
+    @Test
+    public void testCrawlDelay() throws Exception {
+        InMemoryQueue queue = new InMemoryQueue();
+        queue.setMaxUrisPerLease(1);
+        queue.setTargetLeaseDuration(0);
+        CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+        InetAddress ip1 = InetAddress.getByName("192.168.100.1");
+        InetAddress ip2 = InetAddress.getByName("192.168.100.2");
+        for (int i = 0; i < 2; ++i) {
+            queue.addUri(factory.create(new URI("http://example1.org/resource_" + i), ip1, UriType.DEREFERENCEABLE));
+        }
+        queue.addUri(factory.create(new URI("http://example2.org/resource_0"), ip2, UriType.DEREFERENCEABLE));
+
+        List<CrawleableUri> lease = queue.getNextUris();
+        Assert.assertEquals(ip1, lease.get(0).getIpAddress());
+        lease.get(0).addData(Constants.URI_CRAWL_DELAY, CRAWL_DELAY);
+        long releaseTime = System.currentTimeMillis();
+        queue.markUrisAsAccessible(lease);
+
+        // the second group can be fetched directly
+        lease = queue.getNextUris();
+        Assert.assertEquals(ip2, lease.get(0).getIpAddress());
+        queue.markUrisAsAccessible(lease);
+
+        // the first group has to wait
+        lease = queue.getNextUris();
+        while (lease == null) {
+            Thread.sleep(10);
+            lease = queue.getNextUris();
+        }
+        Assert.assertTrue("The crawl delay has not been kept.",
+                System.currentTimeMillis() >= (releaseTime + CRAWL_DELAY));
+        Assert.assertEquals(ip1, lease.get(0).getIpAddress());
+        queue.markUrisAsAccessible(lease);
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testSingleUriLeaseForLongDelays() throws Exception {
+        InMemoryQueue queue = new InMemoryQueue();
+        queue.setMaxUrisPerLease(10);
+        queue.setTargetLeaseDuration(0);
+        queue.setMaxDelayWithinLease(CRAWL_DELAY - 1);
+        CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+        InetAddress ip = InetAddress.getByName("192.168.100.1");
+        for (int i = 0; i < 5; ++i) {
+            queue.addUri(factory.create(new URI("http://example.org/resource_" + i), ip, UriType.DEREFERENCEABLE));
+        }
+        // the delay of the group is not known, yet
+        List<CrawleableUri> lease = queue.getNextUris();
+        Assert.assertEquals(5, lease.size());
+        lease.get(0).addData(Constants.URI_CRAWL_DELAY, CRAWL_DELAY);
+        queue.markUrisAsAccessible(lease.subList(0, 1));
+
+        Thread.sleep(CRAWL_DELAY);
+        lease = queue.getNextUris();
+        Assert.assertEquals(1, lease.size());
+    }
+
+    @Test
+    public void testRemovalOfScheduledGroups() throws Exception {
+        GroupScheduler<Integer> scheduler = new GroupScheduler<>();
+        for (int i = 0; i < 100; ++i) {
+            scheduler.release(i, (i * 7) % 100, 0);
+        }
+        // remove groups from the middle of the heap and reschedule others
+        for (int i = 0; i < 100; i += 3) {
+            scheduler.removeGroup(i);
+        }
+        for (int i = 1; i < 100; i += 3) {
+            scheduler.release(i, 1000 + i, 0);
+        }
+        long lastFetch = -1;
+        long fetch;
+        Integer group;
+        int count = 0;
+        while ((fetch = scheduler.getNextAllowedFetch()) != Long.MAX_VALUE) {
+            group = scheduler.pollReadyGroup(fetch);
+            Assert.assertNotNull(group);
+            Assert.assertNotEquals(0, group % 3);
+            Assert.assertTrue(fetch >= lastFetch);
+            lastFetch = fetch;
+            ++count;
+        }
+        Assert.assertEquals(66, count);
+    }
+}
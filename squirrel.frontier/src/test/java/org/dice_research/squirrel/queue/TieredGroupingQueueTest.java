@@ -0,0 +1,258 @@
+package org.dice_research.squirrel.queue;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.CrawleableUriFactory4Tests;
+import org.dice_research.squirrel.data.uri.UriType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link TieredGroupingQueue} hands out every URI exactly once
+ * while only a small part of the URIs is kept in memory.
+ */
+public class TieredGroupingQueueTest {
+
+    private static final int NUMBER_OF_GROUPS = 5;
+    private static final int URIS_PER_GROUP = 50;
+
+    @Test
+    public void test() throws Exception {
+        InMemoryQueue backend = new InMemoryQueue();
+        TieredGroupingQueue<InetAddress> queue = new TieredGroupingQueue<>(backend, 2);
+        queue.setHeadCapacity(10);
+        queue.setMaxHotUris(25);
+        queue.setMaxUrisPerLease(4);
+        queue.setTargetLeaseDuration(0);
+        queue.open();
+
+        CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+        List<CrawleableUri> uris = new ArrayList<>();
+        for (int g = 0; g < NUMBER_OF_GROUPS; ++g) {
+            InetAddress ip = InetAddress.getByName("192.168.100." + g);
+            for (int i = 0; i < URIS_PER_GROUP; ++i) {
+                uris.add(factory.create(new URI("http://example" + g + ".org/resource_" + i), ip,
+                        UriType.DEREFERENCEABLE));
+            }
+        }
+        // add the first half and the second half of the URIs separately
+        queue.addUris(uris.subList(0, uris.size() / 2));
+        queue.addUris(uris.subList(uris.size() / 2, uris.size()));
+        Assert.assertFalse(queue.isEmpty());
+
+        Set<CrawleableUri> crawledUris = new HashSet<>();
+        List<CrawleableUri> lease;
+        while (!queue.isEmpty()) {
+            lease = queue.getNextUris();
+            if (lease == null) {
+                // wait for the writer threads
+                Thread.sleep(10);
+                continue;
+            }
+            Assert.assertTrue(lease.size() <= 4);
+            for (CrawleableUri uri : lease) {
+                Assert.assertTrue("Got " + uri + " twice.", crawledUris.add(uri));
+            }
+            Assert.assertTrue(queue.getNumberOfHotUris() <= (queue.getMaxHotUris() + queue.getHeadCapacity()));
+            queue.markUrisAsAccessible(lease);
+        }
+        Assert.assertEquals(new HashSet<>(uris), crawledUris);
+        queue.close();
+        Assert.assertTrue(backend.isEmpty());
+    }
+
+    @Test
+    public void testFailingBackend() throws Exception {
+        InMemoryQueue backend = new InMemoryQueue() {
+            private int failures = 2;
+
+            @Override
+            protected void addUris(Map<InetAddress, List<CrawleableUri>> groups) {
+                if (failures > 0) {
+                    --failures;
+                    throw new IllegalStateException("Backend is not available.");
+                }
+                super.addUris(groups);
+            }
+        };
+        TieredGroupingQueue<InetAddress> queue = new TieredGroupingQueue<>(backend, 1);
+        queue.setFlushRetryDelay(10);
+        queue.setTargetLeaseDuration(0);
+        queue.open();
+
+        CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+        InetAddress ip = InetAddress.getByName("192.168.100.1");
+        Set<CrawleableUri> uris = new HashSet<>();
+        for (int i = 0; i < URIS_PER_GROUP; ++i) {
+            uris.add(factory.create(new URI("http://example.org/resource_" + i), ip, UriType.DEREFERENCEABLE));
+        }
+        queue.addUris(uris);
+
+        // the batch is kept until the backend accepts it
+        long timeout = System.currentTimeMillis() + 10000;
+        while ((queue.getNumberOfUnflushedUris() > 0) && (System.currentTimeMillis() < timeout)) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, queue.getNumberOfUnflushedUris());
+        Assert.assertFalse(backend.isEmpty());
+
+        Set<CrawleableUri> crawledUris = new HashSet<>();
+        List<CrawleableUri> lease;
+        while (!queue.isEmpty() && (System.currentTimeMillis() < timeout)) {
+            lease = queue.getNextUris();
+            if (lease == null) {
+                Thread.sleep(10);
+                continue;
+            }
+            crawledUris.addAll(lease);
+            queue.markUrisAsAccessible(lease);
+        }
+        Assert.assertEquals(uris, crawledUris);
+        queue.close();
+    }
+
+    /**
+     * Uses a backend that checks the leases of the groups like a queue that is
+     * shared between several frontier instances. The backend is slow, i.e., the
+     * groups are claimed while their URIs or their releases are still pending.
+     */
+    @Test
+    public void testLeaseCheckingBackend() throws Exception {
+        AtomicInteger claimedNextGroups = new AtomicInteger(0);
+        InMemoryQueue backend = new InMemoryQueue() {
+            private Set<InetAddress> leasedGroups = new HashSet<>();
+
+            @Override
+            protected void addUris(Map<InetAddress, List<CrawleableUri>> groups) {
+                sleep();
+                super.addUris(groups);
+            }
+
+            @Override
+            protected synchronized boolean claimGroup(InetAddress groupKey, long now) {
+                List<CrawleableUri> uris = getUris(groupKey, 1);
+                return (uris != null) && !uris.isEmpty() && leasedGroups.add(groupKey);
+            }
+
+            @Override
+            protected synchronized InetAddress claimNextGroup(long now) {
+                Iterator<InetAddress> iterator = getGroupIterator();
+                InetAddress groupKey;
+                while (iterator.hasNext()) {
+                    groupKey = iterator.next();
+                    if (claimGroup(groupKey, now)) {
+                        claimedNextGroups.incrementAndGet();
+                        return groupKey;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            protected void releaseGroup(InetAddress groupKey, long nextAllowedFetch) {
+                sleep();
+                synchronized (this) {
+                    leasedGroups.remove(groupKey);
+                }
+            }
+
+            private void sleep() {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        TieredGroupingQueue<InetAddress> queue = new TieredGroupingQueue<>(backend, 1);
+        queue.setHeadCapacity(10);
+        queue.setMaxUrisPerLease(4);
+        queue.setTargetLeaseDuration(0);
+        queue.open();
+
+        CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+        InetAddress ip = InetAddress.getByName("192.168.100.1");
+        Set<CrawleableUri> uris = new HashSet<>();
+        for (int i = 0; i < URIS_PER_GROUP; ++i) {
+            uris.add(factory.create(new URI("http://example.org/resource_" + i), ip, UriType.DEREFERENCEABLE));
+        }
+        queue.addUris(uris);
+
+        // the group is claimed although it hasn't been written to the backend, yet
+        Set<CrawleableUri> crawledUris = new HashSet<>();
+        List<CrawleableUri> lease;
+        long timeout = System.currentTimeMillis() + 10000;
+        while (!queue.isEmpty() && (System.currentTimeMillis() < timeout)) {
+            lease = queue.getNextUris();
+            if (lease == null) {
+                // the last URIs have been removed in the meantime
+                Assert.assertTrue("The group couldn't be claimed.", queue.isEmpty());
+                break;
+            }
+            for (CrawleableUri uri : lease) {
+                Assert.assertTrue("Got " + uri + " twice.", crawledUris.add(uri));
+            }
+            // the group is claimed again while its release is still pending
+            queue.markUrisAsAccessible(lease);
+        }
+        Assert.assertEquals(uris, crawledUris);
+        // the group never left the local scheduler
+        Assert.assertEquals(0, claimedNextGroups.get());
+        queue.close();
+    }
+
+    @Test
+    public void testDroppedHeadsAreRemoved() throws Exception {
+        InMemoryQueue backend = new InMemoryQueue();
+        TieredGroupingQueue<InetAddress> queue = new TieredGroupingQueue<>(backend, 2);
+        queue.setHeadCapacity(10);
+        queue.setMaxHotUris(25);
+        queue.setMaxUrisPerLease(4);
+        queue.setTargetLeaseDuration(0);
+        queue.open();
+
+        CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+        List<CrawleableUri> uris = new ArrayList<>();
+        for (int g = 0; g < NUMBER_OF_GROUPS; ++g) {
+            InetAddress ip = InetAddress.getByName("192.168.100." + g);
+            for (int i = 0; i < URIS_PER_GROUP; ++i) {
+                uris.add(factory.create(new URI("http://example" + g + ".org/resource_" + i), ip,
+                        UriType.DEREFERENCEABLE));
+            }
+        }
+        queue.addUris(uris);
+
+        // lease every group once, i.e., every group gets a head and the heads of
+        // the oldest groups are dropped
+        Set<InetAddress> leasedGroups = new HashSet<>();
+        long timeout = System.currentTimeMillis() + 10000;
+        List<CrawleableUri> lease;
+        while ((leasedGroups.size() < NUMBER_OF_GROUPS) && (System.currentTimeMillis() < timeout)) {
+            lease = queue.getNextUris();
+            if (lease == null) {
+                Thread.sleep(10);
+                continue;
+            }
+            leasedGroups.add(lease.get(0).getIpAddress());
+            queue.markUrisAsAccessible(lease);
+        }
+        Assert.assertEquals(NUMBER_OF_GROUPS, leasedGroups.size());
+        // the dropped heads are removed as soon as their URIs have been removed
+        // from the backend
+        while ((queue.getNumberOfHeads() == NUMBER_OF_GROUPS) && (System.currentTimeMillis() < timeout)) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(queue.getNumberOfHotUris() <= queue.getMaxHotUris());
+        Assert.assertTrue(queue.getNumberOfHeads() < NUMBER_OF_GROUPS);
+        queue.close();
+    }
+}
@@ -0,0 +1,89 @@
+package org.dice_research.squirrel.queue;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.List;
+
+import org.dice_research.squirrel.Constants;
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.CrawleableUriFactory4Tests;
+import org.dice_research.squirrel.data.uri.UriType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that groups with a high yield are preferred by the queue while groups
+ * with a low yield are not starved.
+ */
+public class YieldSchedulingTest {
+
+    private static final long AGING_PERIOD = 1000;
+
+    @Test
+    public void testHighYieldGroupIsPreferred() throws Exception {
+        InMemoryQueue queue = new InMemoryQueue();
+        queue.setMaxUrisPerLease(1);
+        queue.setTargetLeaseDuration(0);
+        queue.setYieldAgingPeriod(AGING_PERIOD);
+        CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+        InetAddress poorIp = InetAddress.getByName("192.168.100.1");
+        InetAddress richIp = InetAddress.getByName("192.168.100.2");
+        for (int i = 0; i < 3; ++i) {
+            queue.addUri(factory.create(new URI("http://example1.org/resource_" + i), poorIp, UriType.DEREFERENCEABLE));
+            queue.addUri(factory.create(new URI("http://example2.org/resource_" + i), richIp, UriType.DEREFERENCEABLE));
+        }
+
+        // without any results, the groups are handed out in FIFO order
+        List<CrawleableUri> lease = queue.getNextUris();
+        Assert.assertEquals(poorIp, lease.get(0).getIpAddress());
+        addResults(lease.get(0), false, 0, 0);
+        queue.markUrisAsAccessible(lease);
+        lease = queue.getNextUris();
+        Assert.assertEquals(richIp, lease.get(0).getIpAddress());
+        addResults(lease.get(0), true, 10000, 50);
+        queue.markUrisAsAccessible(lease);
+        Assert.assertTrue(queue.getYieldScorer().getScore(queue.getGroupId(richIp)) > queue.getYieldScorer()
+                .getScore(queue.getGroupId(poorIp)));
+        Assert.assertEquals(0, queue.getScheduler().getPriorityBonus(poorIp));
+
+        // the rich group has been released after the poor group but is preferred
+        // until it is empty
+        for (int i = 0; i < 2; ++i) {
+            lease = queue.getNextUris();
+            Assert.assertEquals(richIp, lease.get(0).getIpAddress());
+            queue.markUrisAsAccessible(lease);
+        }
+        lease = queue.getNextUris();
+        Assert.assertEquals(poorIp, lease.get(0).getIpAddress());
+        queue.markUrisAsAccessible(lease);
+
+        // the statistics of the groups are dropped as soon as they are removed
+        lease = queue.getNextUris();
+        Assert.assertEquals(poorIp, lease.get(0).getIpAddress());
+        queue.markUrisAsAccessible(lease);
+        Assert.assertNull(queue.getNextUris());
+        Assert.assertEquals(0, queue.getYieldScorer().getNumberOfGroups());
+    }
+
+    @Test
+    public void testAging() {
+        GroupScheduler<String> scheduler = new GroupScheduler<>();
+        scheduler.release("poor", 0, 0, 0);
+        // the rich group became ready later than the poor group but its bonus is
+        // larger than the difference
+        scheduler.release("rich", 100, 0, 500);
+        Assert.assertEquals("rich", scheduler.pollReadyGroup(1000));
+        scheduler.release("rich", 1000, 0, 500);
+        // the poor group has been waiting longer than the bonus of the rich group
+        Assert.assertEquals("poor", scheduler.pollReadyGroup(2000));
+        Assert.assertEquals("rich", scheduler.pollReadyGroup(2000));
+        Assert.assertNull(scheduler.pollReadyGroup(2000));
+    }
+
+    private static void addResults(CrawleableUri uri, boolean successful, long triples, long foundUris) {
+        uri.addData(Constants.URI_CRAWLING_SUCCESSFUL, successful);
+        uri.addData(Constants.URI_CRAWLING_DURATION, 1000L);
+        uri.addData(Constants.URI_NUMBER_OF_TRIPLES, triples);
+        uri.addData(Constants.URI_NUMBER_OF_FOUND_URIS, foundUris);
+    }
+}
@@ -0,0 +1,94 @@
+package org.dice_research.squirrel.queue.domainbased;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.CrawleableUriFactory4Tests;
+import org.dice_research.squirrel.data.uri.UriType;
+import org.dice_research.squirrel.queue.InMemoryDomainBasedQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link InMemoryDomainBasedQueue} groups URIs by their domain
+ * and removes acknowledged leases.
+ */
+public class InMemoryDomainBasedQueueTest {
+
+    private static final int NUMBER_OF_DOMAINS = 4;
+    private static final int URIS_PER_DOMAIN = 12;
+
+    @Test
+    public void test() throws Exception {
+        InMemoryDomainBasedQueue queue = new InMemoryDomainBasedQueue();
+        queue.setMaxUrisPerLease(5);
+        queue.setTargetLeaseDuration(0);
+        queue.open();
+        Assert.assertTrue(queue.isEmpty());
+
+        CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+        List<CrawleableUri> uris = new ArrayList<>();
+        for (int i = 0; i < URIS_PER_DOMAIN; ++i) {
+            for (int d = 0; d < NUMBER_OF_DOMAINS; ++d) {
+                // www. prefixes should be ignored
+                uris.add(factory.create(new URI("http://" + ((i % 2 == 0) ? "www." : "") + "example" + d
+                        + ".org/resource_" + i), null, UriType.DEREFERENCEABLE));
+            }
+        }
+        queue.addUris(uris);
+        Assert.assertFalse(queue.isEmpty());
+
+        Set<CrawleableUri> crawledUris = new HashSet<>();
+        Set<String> leasedDomains = new HashSet<>();
+        List<CrawleableUri> lease;
+        while ((lease = queue.getNextUris()) != null) {
+            Assert.assertTrue(lease.size() <= 5);
+            String domain = lease.get(0).getUri().getHost().replace("www.", "");
+            for (CrawleableUri uri : lease) {
+                Assert.assertEquals(domain, uri.getUri().getHost().replace("www.", ""));
+                Assert.assertTrue("Got " + uri + " twice.", crawledUris.add(uri));
+            }
+            leasedDomains.add(domain);
+            queue.markUrisAsAccessible(lease);
+        }
+        Assert.assertEquals(NUMBER_OF_DOMAINS, leasedDomains.size());
+        Assert.assertEquals(new HashSet<>(uris), crawledUris);
+        Assert.assertTrue(queue.isEmpty());
+        queue.close();
+    }
+
+    @Test
+    public void testPartialAcknowledgement() throws Exception {
+        InMemoryDomainBasedQueue queue = new InMemoryDomainBasedQueue();
+        queue.setMaxUrisPerLease(5);
+        queue.setTargetLeaseDuration(0);
+        queue.open();
+        CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+        List<CrawleableUri> uris = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            uris.add(factory.create(new URI("http://example.org/resource_" + i), null, UriType.DEREFERENCEABLE));
+        }
+        queue.addUris(uris);
+
+        List<CrawleableUri> lease = queue.getNextUris();
+        Assert.assertEquals(uris, lease);
+        // acknowledge URIs that are not at the head of the domain
+        List<CrawleableUri> acknowledged = new ArrayList<>();
+        acknowledged.add(lease.get(1));
+        acknowledged.add(lease.get(3));
+        queue.markUrisAsAccessible(acknowledged);
+
+        lease = queue.getNextUris();
+        Assert.assertEquals(3, lease.size());
+        Assert.assertEquals(uris.get(0), lease.get(0));
+        Assert.assertEquals(uris.get(2), lease.get(1));
+        Assert.assertEquals(uris.get(4), lease.get(2));
+        queue.markUrisAsAccessible(lease);
+        Assert.assertTrue(queue.isEmpty());
+        queue.close();
+    }
+}
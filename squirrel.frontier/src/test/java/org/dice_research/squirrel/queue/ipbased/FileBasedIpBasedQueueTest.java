@@ -0,0 +1,176 @@
+package org.dice_research.squirrel.queue.ipbased;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.dice_research.squirrel.Constants;
+import org.dice_research.squirrel.data.uri.CrawleableUri;
+import org.dice_research.squirrel.data.uri.CrawleableUriFactory4Tests;
+import org.dice_research.squirrel.data.uri.UriType;
+import org.dice_research.squirrel.data.uri.serialize.java.SnappyJavaUriSerializer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileBasedIpBasedQueueTest {
+
+    private File directory;
+    private CrawleableUriFactory4Tests factory = new CrawleableUriFactory4Tests();
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("queue").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private FileBasedIpBasedQueue createQueue() {
+        FileBasedIpBasedQueue queue = new FileBasedIpBasedQueue(directory, new SnappyJavaUriSerializer(), true);
+        queue.setCompactionPeriod(0);
+        queue.setMaxUrisPerLease(5);
+        queue.setTargetLeaseDuration(0);
+        return queue;
+    }
+
+    @Test
+    public void testRestart() throws Exception {
+        InetAddress ip1 = InetAddress.getByName("192.168.100.1");
+        InetAddress ip2 = InetAddress.getByName("192.168.100.2");
+        FileBasedIpBasedQueue queue = createQueue();
+        queue.open();
+        List<CrawleableUri> uris = new ArrayList<>();
+        for (int i = 0; i < 8; ++i) {
+            CrawleableUri uri = factory.create(new URI("http://example1.org/resource_" + i), ip1,
+                    UriType.DEREFERENCEABLE);
+            uri.addData(Constants.URI_DEPTH, i);
+            uris.add(uri);
+        }
+        uris.add(factory.create(new URI("http://example2.org/resource"), ip2, UriType.DUMP));
+        queue.addUris(uris);
+
+        List<CrawleableUri> lease = queue.getNextUris();
+        Assert.assertEquals(5, lease.size());
+        Assert.assertEquals(uris.subList(0, 5), lease);
+        Assert.assertEquals(3, lease.get(3).getData(Constants.URI_DEPTH));
+        queue.markUrisAsAccessible(lease);
+        queue.close();
+
+        // the remaining URIs should be available after a restart
+        queue = createQueue();
+        queue.open();
+        Set<CrawleableUri> remaining = new HashSet<>();
+        while (!queue.isEmpty()) {
+            lease = queue.getNextUris();
+            remaining.addAll(lease);
+            queue.markUrisAsAccessible(lease);
+        }
+        Assert.assertEquals(new HashSet<>(uris.subList(5, 9)), remaining);
+        queue.close();
+        // all group directories should have been removed
+        Assert.assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testDeletionMarksSurviveRestart() throws Exception {
+        InetAddress ip = InetAddress.getByName("192.168.100.1");
+        FileBasedIpBasedQueue queue = createQueue();
+        queue.open();
+        List<CrawleableUri> uris = new ArrayList<>();
+        for (int i = 0; i < 8; ++i) {
+            uris.add(factory.create(new URI("http://example.org/resource_" + i), ip, UriType.DEREFERENCEABLE));
+        }
+        queue.addUris(uris);
+
+        List<CrawleableUri> lease = queue.getNextUris();
+        Assert.assertEquals(uris.subList(0, 5), lease);
+        // only URIs behind the head are acknowledged
+        queue.markUrisAsAccessible(lease.subList(2, 4));
+        queue.close();
+
+        queue = createQueue();
+        queue.open();
+        Set<CrawleableUri> remaining = new HashSet<>();
+        while (!queue.isEmpty()) {
+            lease = queue.getNextUris();
+            remaining.addAll(lease);
+            queue.markUrisAsAccessible(lease);
+        }
+        Set<CrawleableUri> expected = new HashSet<>(uris);
+        expected.removeAll(uris.subList(2, 4));
+        Assert.assertEquals(expected, remaining);
+        queue.close();
+        Assert.assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testReaddedUriIsNotHidden() throws Exception {
+        InetAddress ip = InetAddress.getByName("192.168.100.1");
+        FileBasedIpBasedQueue queue = createQueue();
+        queue.open();
+        List<CrawleableUri> uris = new ArrayList<>();
+        for (int i = 0; i < 3; ++i) {
+            uris.add(factory.create(new URI("http://example.org/resource_" + i), ip, UriType.DEREFERENCEABLE));
+        }
+        queue.addUris(uris);
+        // a late acknowledgement of a URI that is not in the queue anymore
+        CrawleableUri readded = factory.create(new URI("http://example.org/readded"), ip,
+                UriType.DEREFERENCEABLE);
+        queue.deleteUris(ip, Collections.singletonList(readded));
+        queue.addUri(readded);
+        uris.add(readded);
+        queue.close();
+
+        queue = createQueue();
+        queue.open();
+        Set<CrawleableUri> remaining = new HashSet<>();
+        List<CrawleableUri> lease;
+        while (!queue.isEmpty()) {
+            lease = queue.getNextUris();
+            remaining.addAll(lease);
+            queue.markUrisAsAccessible(lease);
+        }
+        Assert.assertEquals(new HashSet<>(uris), remaining);
+        queue.close();
+        Assert.assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testSegmentsAndCompaction() throws Exception {
+        InetAddress ip = InetAddress.getByName("192.168.100.1");
+        FileBasedIpBasedQueue queue = createQueue();
+        queue.setMaxSegmentSize(100);
+        queue.open();
+        for (int i = 0; i < 20; ++i) {
+            queue.addUri(factory.create(new URI("http://example.org/resource_" + i), ip, UriType.DEREFERENCEABLE));
+        }
+        File groupDir = new File(directory, FileBasedIpBasedQueue.toDirectoryName(ip));
+        int numberOfSegments = groupDir.list().length;
+        Assert.assertTrue(numberOfSegments > 1);
+
+        List<CrawleableUri> lease = queue.getNextUris();
+        queue.markUrisAsAccessible(lease);
+        queue.compact();
+        Assert.assertTrue(groupDir.list().length < numberOfSegments);
+
+        int count = lease.size();
+        while ((lease = queue.getNextUris()) != null) {
+            count += lease.size();
+            queue.markUrisAsAccessible(lease);
+        }
+        Assert.assertEquals(20, count);
+        Assert.assertTrue(queue.isEmpty());
+        queue.close();
+    }
+}
@@ -171,4 +171,29 @@ public class MongoDBIpBasedQueueTest  extends MongoDBBasedTest{
         assertEquals(0, mongodbQueue.length());
         mongodbQueue.close();
     }
+
+    @Test
+    public void sharedQueue() throws Exception {
+        mongodbQueue.open();
+        mongodbQueue.purge();
+        MongoDBIpBasedQueue secondQueue = new MongoDBIpBasedQueue("localhost", 58027, false);
+        secondQueue.open();
+        secondQueue.setLeaseDuration(100);
+        // the second queue should claim the group added by the first queue
+        mongodbQueue.addUri(uris.get(1));
+        List<CrawleableUri> retrievedUris = secondQueue.getNextUris();
+        assertEquals(1, retrievedUris.size());
+        assertTrue(uris.get(1).equals(retrievedUris.get(0)));
+        mongodbQueue.addUri(uris.get(2));
+        // The group is leased by the second queue
+        assertNull(mongodbQueue.getNextUris());
+        // After the lease expired, the group can be claimed again
+        Thread.sleep(200);
+        retrievedUris = mongodbQueue.getNextUris();
+        assertEquals(2, retrievedUris.size());
+        // The result of the lease is received by the second queue
+        secondQueue.markUrisAsAccessible(retrievedUris);
+        assertEquals(0, mongodbQueue.length());
+        mongodbQueue.close();
+    }
 }
@@ -0,0 +1,93 @@
+package org.dice_research.squirrel.uri.processing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link UriMatcher}.
+ */
+public class UriMatcherTest {
+
+    @Test
+    public void testPriorities() {
+        UriMatcher.Builder builder = new UriMatcher.Builder(false);
+        builder.addRegex(".*\\.rdf.*");
+        builder.addRegex(".*sparql.*");
+        builder.addPrefix("/resource/");
+        builder.addRegex("/page/[0-9]+$");
+        builder.addLiteral("htm");
+        UriMatcher matcher = builder.build();
+
+        Assert.assertEquals(0, matcher.firstMatch("/sparql/dump.rdf"));
+        Assert.assertEquals(1, matcher.firstMatch("/sparql/index.html"));
+        Assert.assertEquals(2, matcher.firstMatch("/resource/page.html"));
+        Assert.assertEquals(3, matcher.firstMatch("/some/page/123"));
+        Assert.assertEquals(4, matcher.firstMatch("/some/page/123.html"));
+        Assert.assertEquals(4, matcher.firstMatch("/data/resource/page.html"));
+        Assert.assertEquals(UriMatcher.NO_MATCH, matcher.firstMatch("/data/dump.RDF"));
+        Assert.assertFalse(matcher.matchesAny("/data/dump.ttl"));
+    }
+
+    @Test
+    public void testHostSuffixes() {
+        UriMatcher.Builder builder = new UriMatcher.Builder(true);
+        builder.addHostSuffix("example.org");
+        builder.addHostSuffix("dbpedia.org");
+        UriMatcher matcher = builder.build();
+
+        Assert.assertEquals(0, matcher.firstMatch("http://example.org/"));
+        Assert.assertEquals(0, matcher.firstMatch("https://user@WWW.Example.org:8080/path"));
+        Assert.assertEquals(1, matcher.firstMatch("http://de.dbpedia.org/resource/example.org"));
+        Assert.assertEquals(UriMatcher.NO_MATCH, matcher.firstMatch("http://myexample.org/"));
+        Assert.assertEquals(UriMatcher.NO_MATCH, matcher.firstMatch("http://example.org.com/"));
+        Assert.assertEquals(UriMatcher.NO_MATCH, matcher.firstMatch("http://other.com/example.org"));
+    }
+
+    /**
+     * Compares the matcher with the evaluation of the single regular
+     * expressions on the lower case URIs, which is the way the white list
+     * filters used to work.
+     */
+    @Test
+    public void testRandomRegexes() {
+        String[] regexes = new String[] { "dbpedia", "^http://example\\.org/", "\\.rdf$", ".*\\.ttl.*", "^https?://",
+                "a[bc]+d", "(ab|ba)c", "^.*\\.n3", "Upper", "x\\/y", "^$", "b\\.\\*" };
+        Random random = new Random(1);
+        String[] parts = new String[] { "http://", "https://", "example.org/", "dbpedia", ".rdf", ".ttl", "abcd", "bac",
+                ".n3", "Upper", "x/y", "b.*", "/", "DBPEDIA" };
+        for (int run = 0; run < 200; ++run) {
+            // select a random subset of the regexes
+            UriMatcher.Builder builder = new UriMatcher.Builder(true);
+            List<Pattern> patterns = new ArrayList<>();
+            for (String regex : regexes) {
+                if (random.nextBoolean()) {
+                    patterns.add(Pattern.compile(regex));
+                    builder.addRegex(regex);
+                }
+            }
+            UriMatcher matcher = builder.build();
+            for (int i = 0; i < 20; ++i) {
+                StringBuilder uri = new StringBuilder();
+                int length = random.nextInt(5);
+                for (int j = 0; j < length; ++j) {
+                    uri.append(parts[random.nextInt(parts.length)]);
+                }
+                String lowerCaseUri = uri.toString().toLowerCase();
+                int expected = UriMatcher.NO_MATCH;
+                for (int j = 0; (j < patterns.size()) && (expected == UriMatcher.NO_MATCH); ++j) {
+                    if (patterns.get(j).matcher(lowerCaseUri).find()) {
+                        expected = j;
+                    }
+                }
+                Assert.assertEquals(patterns.toString() + " " + uri, expected, matcher.firstMatch(uri.toString()));
+                Assert.assertEquals(patterns.toString() + " " + uri, expected != UriMatcher.NO_MATCH,
+                        matcher.matchesAny(uri.toString()));
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.dice_research.squirrel.uri.processing;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link UriPrefixTrie}.
+ */
+public class UriPrefixTrieTest {
+
+    @Test
+    public void testRuleTypes() throws Exception {
+        UriPrefixTrie trie = new UriPrefixTrie.Builder().addHost("Example.org")
+                .addPrefix("http://data.gov/api/views/rows.rdf").addExact("http://dbpedia.org/page?a=1")
+                .addExact("http://dbpedia.org:8080/").build();
+        Assert.assertEquals(4, trie.getNumberOfRules());
+
+        Assert.assertEquals(UriPrefixTrie.HOST_RULE, trie.match(new URI("http://example.org")));
+        Assert.assertEquals(UriPrefixTrie.HOST_RULE, trie.match(new URI("https://www.EXAMPLE.org:8080/a/b?c")));
+        Assert.assertEquals(0, trie.match(new URI("http://myexample.org/")));
+        Assert.assertEquals(0, trie.match(new URI("http://example.org.com/")));
+
+        Assert.assertEquals(UriPrefixTrie.PREFIX_RULE, trie.match(new URI("http://data.gov/api/views/rows.rdf")));
+        Assert.assertEquals(UriPrefixTrie.PREFIX_RULE,
+                trie.match(new URI("https://data.gov/api/views/rows.rdf?accessType=DOWNLOAD")));
+        Assert.assertEquals(0, trie.match(new URI("http://data.gov/api/views/rows.csv")));
+        Assert.assertEquals(0, trie.match(new URI("http://sub.data.gov/api/views/rows.rdf")));
+
+        Assert.assertEquals(UriPrefixTrie.EXACT_RULE, trie.match(new URI("http://dbpedia.org/page?a=1")));
+        Assert.assertEquals(UriPrefixTrie.EXACT_RULE, trie.match(new URI("http://dbpedia.org:8080")));
+        Assert.assertEquals(0, trie.match(new URI("http://dbpedia.org/page?a=12")));
+        Assert.assertEquals(0, trie.match(new URI("http://dbpedia.org/page")));
+        Assert.assertEquals(0, trie.match(new URI("http://dbpedia.org/")));
+        Assert.assertEquals(0, trie.match(new URI("mailto:someone@dbpedia.org")));
+    }
+
+    @Test
+    public void testEmptyTrie() throws Exception {
+        UriPrefixTrie trie = new UriPrefixTrie.Builder().build();
+        Assert.assertEquals(0, trie.match(new URI("http://example.org/")));
+    }
+
+    /**
+     * Compares the trie with a simple evaluation of the rules on random URIs.
+     */
+    @Test
+    public void testRandomRules() throws Exception {
+        Random random = new Random(7);
+        String[] hosts = new String[] { "example.org", "www.example.org", "a.example.org", "ample.org", "org",
+                "example.com", "data.example.org" };
+        String[] segments = new String[] { "a", "b", "ab", "rows.rdf", "page", "" };
+        for (int run = 0; run < 50; ++run) {
+            UriPrefixTrie.Builder builder = new UriPrefixTrie.Builder();
+            List<String> hostRules = new ArrayList<>();
+            List<String> prefixRules = new ArrayList<>();
+            List<String> exactRules = new ArrayList<>();
+            for (int i = 0; i < 10; ++i) {
+                switch (random.nextInt(3)) {
+                case 0:
+                    String host = hosts[random.nextInt(hosts.length)];
+                    hostRules.add(host);
+                    builder.addHost(host);
+                    break;
+                case 1:
+                    String prefix = randomUri(random, hosts, segments);
+                    prefixRules.add(prefix);
+                    builder.addPrefix(prefix);
+                    break;
+                default:
+                    String uri = randomUri(random, hosts, segments);
+                    exactRules.add(uri);
+                    builder.addExact(uri);
+                    break;
+                }
+            }
+            UriPrefixTrie trie = builder.build();
+            for (int i = 0; i < 100; ++i) {
+                URI uri = new URI(randomUri(random, hosts, segments));
+                boolean expected = false;
+                for (String host : hostRules) {
+                    expected |= uri.getHost().equals(host) || uri.getHost().endsWith("." + host);
+                }
+                String uriWithoutScheme = uri.toString().substring(uri.getScheme().length());
+                for (String prefix : prefixRules) {
+                    expected |= uriWithoutScheme.startsWith(prefix.substring(prefix.indexOf(':')));
+                }
+                for (String exact : exactRules) {
+                    expected |= uriWithoutScheme.equals(exact.substring(exact.indexOf(':')));
+                }
+                Assert.assertEquals(uri.toString(), expected, trie.match(uri) != 0);
+            }
+        }
+    }
+
+    private static String randomUri(Random random, String[] hosts, String[] segments) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(random.nextBoolean() ? "http://" : "https://");
+        builder.append(hosts[random.nextInt(hosts.length)]);
+        // every URI has at least one slash
+        int length = 1 + random.nextInt(3);
+        for (int i = 0; i < length; ++i) {
+            builder.append('/');
+            builder.append(segments[random.nextInt(segments.length)]);
+        }
+        return builder.toString();
+    }
+}
@@ -48,7 +48,7 @@ public class StaticDelayer implements Delayer {
     public void getRequestPermission() throws InterruptedException {
         long sleep = (lastRequestTimeStamp + delay) - System.currentTimeMillis();
         if(sleep > 0) {
-            Thread.sleep(delay);
+            Thread.sleep(sleep);
         }
     }
 
@@ -57,6 +57,15 @@ public class StaticDelayer implements Delayer {
         lastRequestTimeStamp = System.currentTimeMillis();
     }
     
+    /**
+     * Returns the time stamp (in ms) at which the last request has been finished.
+     * 
+     * @return the time stamp (in ms) at which the last request has been finished
+     */
+    public long getLastRequestTimeStamp() {
+        return lastRequestTimeStamp;
+    }
+
     @Override
     public long getDelay() {
         return delay;
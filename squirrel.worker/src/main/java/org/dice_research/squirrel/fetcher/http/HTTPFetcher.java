@@ -7,6 +7,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -21,6 +25,7 @@ import org.apache.http.StatusLine;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
@@ -123,6 +128,9 @@ public class HTTPFetcher implements Fetcher {
         } catch (IOException e) {
             LOGGER.error("Couldn't fetched data. Returning null.", e);
             ActivityUtil.addStep(uri, getClass(), e.getMessage());
+            if (isHostError(e)) {
+                uri.addData(Constants.URI_HOST_ERROR, true);
+            }
             return null;
         } catch (InterruptedException e) {
             LOGGER.error("Interrupted while waiting for request permission. Returning null.");
@@ -136,6 +144,23 @@ public class HTTPFetcher implements Fetcher {
         return dataFile;
     }
 
+    /**
+     * Checks whether the given exception shows that the host itself is not
+     * available, i.e., the connection could not be established or timed out.
+     * Problems of a single URI (e.g., too many redirects or a malformed
+     * response) are not counted since they do not say anything about the host.
+     * 
+     * @param e
+     *            the exception thrown while requesting the data
+     * @return {@code true} if the exception should be reported as
+     *         {@link Constants#URI_HOST_ERROR}
+     */
+    protected static boolean isHostError(IOException e) {
+        return (e instanceof ConnectTimeoutException) || (e instanceof SocketTimeoutException)
+                || (e instanceof UnknownHostException) || (e instanceof NoRouteToHostException)
+                || (e instanceof ConnectException);
+    }
+
     protected File requestData(CrawleableUri uri, File outputFile)
             throws ClientProtocolException, FileNotFoundException, IOException {
         HttpGet request = null;
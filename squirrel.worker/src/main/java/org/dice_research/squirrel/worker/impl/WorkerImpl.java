@@ -2,6 +2,7 @@ package org.dice_research.squirrel.worker.impl;
 
 import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -16,7 +17,6 @@ import org.dice_research.squirrel.collect.UriCollector;
 import org.dice_research.squirrel.data.uri.CrawleableUri;
 import org.dice_research.squirrel.data.uri.serialize.Serializer;
 import org.dice_research.squirrel.fetcher.Fetcher;
-import org.dice_research.squirrel.fetcher.delay.Delayer;
 import org.dice_research.squirrel.fetcher.delay.StaticDelayer;
 import org.dice_research.squirrel.frontier.Frontier;
 import org.dice_research.squirrel.metadata.CrawlingActivity;
@@ -26,6 +26,7 @@ import org.dice_research.squirrel.sink.Sink;
 import org.dice_research.squirrel.uri.processing.UriProcessor;
 import org.dice_research.squirrel.uri.processing.UriProcessorInterface;
 import org.dice_research.squirrel.utils.Closer;
+import org.dice_research.squirrel.utils.ContentHashUtils;
 import org.dice_research.squirrel.utils.TempPathUtils;
 import org.dice_research.squirrel.worker.Worker;
 import org.slf4j.Logger;
@@ -69,6 +70,12 @@ public class WorkerImpl implements Worker, Closeable {
     protected Serializer serializer;
     protected String domainLogFile = null;
     protected long waitingTime;
+    /**
+     * The time stamp (in ms) at which the last request of the current URI set
+     * has been finished. The frontier hands out a URI set only if its host may be
+     * fetched immediately. Hence, this time stamp is reset for every new set.
+     */
+    protected long lastRequestTimeStamp = 0;
     protected boolean terminateFlag;
     private final String uri = Constants.DEFAULT_WORKER_URI_PREFIX + UUID.randomUUID().toString();
     @Deprecated
@@ -185,6 +192,7 @@ public class WorkerImpl implements Worker, Closeable {
 
     @Override
     public void crawl(List<CrawleableUri> uris) {
+        lastRequestTimeStamp = 0;
         // perform work
         for (CrawleableUri uri : uris) {
             if (uri == null) {
@@ -210,13 +218,17 @@ public class WorkerImpl implements Worker, Closeable {
         uri.addData(Constants.UUID_KEY, UUID.randomUUID().toString());
         CrawlingActivity activity = new CrawlingActivity(uri, getUri());
         uri.addData(Constants.URI_CRAWLING_ACTIVITY, activity);
+        long startTime = System.currentTimeMillis();
+        long foundUris = 0;
         try {
  
             if (manager.isUriCrawlable(uri)) {
                 // Make sure that there is a delay between the fetching of two URIs
-                
-                Delayer delayer = new StaticDelayer(manager.getMinWaitingTime(uri),
-                        System.currentTimeMillis());
+                long crawlDelay = manager.getMinWaitingTime(uri);
+                // Report the delay to the frontier which uses it to schedule the
+                // next request to this host
+                uri.addData(Constants.URI_CRAWL_DELAY, crawlDelay);
+                StaticDelayer delayer = new StaticDelayer(crawlDelay, lastRequestTimeStamp);
 
                 // Fetch the URI content
                 LOGGER.debug("I start crawling {} now...", uri);
@@ -227,12 +239,20 @@ public class WorkerImpl implements Worker, Closeable {
                     LOGGER.error("Exception while Fetching Data. Skipping...", e);
                     activity.addStep(getClass(), "Exception while Fetching Data. " + e.getMessage());
                 }
+                lastRequestTimeStamp = Math.max(lastRequestTimeStamp, delayer.getLastRequestTimeStamp());
                 List<File> fetchedFiles = new ArrayList<>();
                 if (fetched != null && fetched.isDirectory()) {
                     fetchedFiles.addAll(TempPathUtils.searchPath4Files(fetched));
                 } else {
                     fetchedFiles.add(fetched);
                 }
+                // Report the hash of the content to the frontier which uses it to detect
+                // whether the content changed since the last crawl
+                try {
+                    uri.addData(Constants.URI_CONTENT_HASH, ContentHashUtils.hash(fetchedFiles));
+                } catch (IOException e) {
+                    LOGGER.warn("Couldn't compute the hash of the fetched content of " + uri.getUri().toString(), e);
+                }
 
                 // If there is at least one file
                 if (fetchedFiles.size() > 0) {
@@ -252,7 +272,7 @@ public class WorkerImpl implements Worker, Closeable {
                                 for (File file : fileList) {
                                     LOGGER.info("Analyzing file " + cont + " of: " + fileList.size());
                                     Iterator<byte[]> resultUris = analyzer.analyze(uri, file, sink);
-                                    sendNewUris(resultUris);
+                                    foundUris += sendNewUris(resultUris);
                                     cont++;
                                 }
 
@@ -283,9 +303,14 @@ public class WorkerImpl implements Worker, Closeable {
             if(storeMetadata)
                 activity.finishActivity(sink);
             // LOGGER.debug("Fetched {} triples", count);
-            setSpecificRecrawlTime(uri);
 
         } finally {
+            // Report the results to the frontier which uses them to estimate the
+            // yield of the host
+            uri.addData(Constants.URI_CRAWLING_DURATION, System.currentTimeMillis() - startTime);
+            uri.addData(Constants.URI_NUMBER_OF_TRIPLES, activity.getNumberOfTriples());
+            uri.addData(Constants.URI_NUMBER_OF_FOUND_URIS, foundUris);
+            uri.addData(Constants.URI_CRAWLING_SUCCESSFUL, activity.getState() == CrawlingURIState.SUCCESSFUL);
             // Remove the activity since we don't want to send it back to the Frontier
             uri.getData().remove(Constants.URI_CRAWLING_ACTIVITY);
         }
@@ -295,14 +320,6 @@ public class WorkerImpl implements Worker, Closeable {
         // return (ret.size() > 25) ? new ArrayList<>(ret.subList(0, 25)) : ret;
     }
 
-    private void setSpecificRecrawlTime(CrawleableUri uri) {
-        // TODO: implement special cases
-
-        // else set every time to default
-        // uri.setTimestampNextCrawl(System.currentTimeMillis() +
-        // FrontierImpl.getGeneralRecrawlTime());
-    }
-
     @Override
     public String getUri() {
         return uri;
@@ -317,8 +334,9 @@ public class WorkerImpl implements Worker, Closeable {
      * Sends the given URIs to the frontier.
      * 
      * @param uriIterator an iterator used to iterate over all new URIs
+     * @return the number of URIs that have been sent
      */
-    public void sendNewUris(Iterator<byte[]> uriIterator) {
+    public int sendNewUris(Iterator<byte[]> uriIterator) {
         List<CrawleableUri> newUris = new ArrayList<>(MAX_URIS_PER_MESSAGE);
         CrawleableUri newUri;
         int packageCount = 0;
@@ -337,6 +355,7 @@ public class WorkerImpl implements Worker, Closeable {
             }
         }
         frontier.addNewUris(newUris);
+        return newUris.size();
     }
 
     @Override